@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.lang.reflect.Field;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.ReflectionUtils;
+
+/** Helpers shared by the benchmarks. */
+final class BenchmarkSupport {
+  private BenchmarkSupport() {}
+
+  /**
+   * Raise the root log level to WARN, so that the benchmarks measure the code rather than the
+   * console appender (the INFO lines the app writes would otherwise dominate every result).
+   */
+  static void quietLogging() {
+    ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+  }
+
+  /**
+   * An ObjectMapper configured the way Spring Boot configures the one used by the controllers.
+   *
+   * @return the mapper
+   */
+  static ObjectMapper objectMapper() {
+    return Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+  }
+
+  /**
+   * Set a field that Spring would normally inject with @Autowired
+   *
+   * @param target the object to inject into
+   * @param name name of the field
+   * @param value value to inject
+   */
+  static void inject(Object target, String name, Object value) {
+    Field field = ReflectionUtils.findField(target.getClass(), name);
+    ReflectionUtils.makeAccessible(field);
+    ReflectionUtils.setField(field, target, value);
+  }
+}
@@ -0,0 +1,105 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.cache.CacheRegistry;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+/**
+ * Cost of CurrentUserServiceImpl.getCurrentUser for a logged in OAuth2 user who is already in the
+ * users table.
+ *
+ * <p>The UserRepository is an in-memory stand-in, so this measures the work done in the service
+ * itself. With {@code cached=false} the user cache has a TTL of zero, so every call misses it and
+ * calls findByEmail, which against the real database is also a query. The version of the users
+ * table is kept in memory, as it is when there is no database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CurrentUserServiceBenchmark {
+
+  @Param({"true", "false"})
+  public boolean cached;
+
+  private CurrentUserServiceImpl currentUserService;
+
+  @Setup
+  public void setup() {
+    BenchmarkSupport.quietLogging();
+
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").fullName("Chris Gaucho").build();
+    UserRepository userRepository =
+        (UserRepository)
+            Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class},
+                (proxy, method, args) ->
+                    switch (method.getName()) {
+                      case "findByEmail" -> Optional.of(user);
+                      case "save" -> args[0];
+                      default -> throw new UnsupportedOperationException(method.getName());
+                    });
+
+    currentUserService = new CurrentUserServiceImpl();
+    BenchmarkSupport.inject(currentUserService, "userRepository", userRepository);
+    BenchmarkSupport.inject(
+        currentUserService, "grantedAuthoritiesService", new GrantedAuthoritiesService());
+    BenchmarkSupport.inject(currentUserService, "tableVersions", new TableVersions());
+    BenchmarkSupport.inject(
+        currentUserService,
+        "userCache",
+        new CacheRegistry().cache("users", 10000, cached ? Duration.ofMinutes(5) : Duration.ZERO));
+
+    // @State(Scope.Thread) setup runs on the benchmark thread, which owns this security context
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(
+            List.of(new SimpleGrantedAuthority("ROLE_USER")),
+            Map.of(
+                "sub", "115856948234298493496",
+                "email", "cgaucho@ucsb.edu",
+                "picture", "https://example.org/cgaucho.png",
+                "name", "Chris Gaucho",
+                "given_name", "Chris",
+                "family_name", "Gaucho",
+                "email_verified", true,
+                "locale", "en",
+                "hd", "ucsb.edu"),
+            "email");
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  @Benchmark
+  public CurrentUser getCurrentUser() {
+    return currentUserService.getCurrentUser();
+  }
+}
@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cost of saving {@code rows} new entities with a single repository saveAll call, against an
+ * in-memory H2 database.
+ *
+ * <p>Ids come from a sequence with a pooled optimizer, so Hibernate needs one sequence call per 50
+ * rows and can send the inserts to the database in JDBC batches. {@code batchSize=1} turns the
+ * batching off, which is how every insert was sent while ids came from identity columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityInsertBenchmark {
+
+  @Param({"1", "50"})
+  public int batchSize;
+
+  @Param({"1000"})
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+  private RestaurantRepository restaurantRepository;
+
+  @Setup
+  public void setup() {
+    context =
+        new SpringApplicationBuilder(ExampleApplication.class)
+            .profiles("development")
+            .properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:insert-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "logging.level.root=WARN",
+                "logging.level.sql=WARN",
+                "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN")
+            .run();
+    BenchmarkSupport.quietLogging();
+    restaurantRepository = context.getBean(RestaurantRepository.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Iterable<Restaurant> saveAll() {
+    List<Restaurant> restaurants = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      restaurants.add(
+          Restaurant.builder().name("Restaurant " + i).description("Serves dish " + i).build());
+    }
+    return restaurantRepository.saveAll(restaurants);
+  }
+}
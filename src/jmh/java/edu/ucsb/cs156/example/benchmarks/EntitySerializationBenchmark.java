@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning the result of a controller's findAll into the JSON response body, for each entity
+ * and list size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class EntitySerializationBenchmark {
+
+  @Param({
+    "Article",
+    "HelpRequest",
+    "MenuItemReview",
+    "RecommendationRequest",
+    "Restaurant",
+    "UCSBDate",
+    "UCSBDiningCommons",
+    "UCSBDiningCommonsMenuItem",
+    "UCSBOrganization"
+  })
+  public String entity;
+
+  @Param({"1000", "10000", "100000"})
+  public int rows;
+
+  private ObjectMapper mapper;
+  private List<?> list;
+
+  @Setup
+  public void setup() {
+    mapper = BenchmarkSupport.objectMapper();
+    list = SampleEntities.list(entity, rows);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(list);
+  }
+}
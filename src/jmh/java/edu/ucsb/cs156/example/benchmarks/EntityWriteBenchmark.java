@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cost of updating or deleting one row by id, the way the controllers used to do it (findById, then
+ * save or delete the loaded entity) and with the single statement repository methods they use now
+ * (updateFieldsById and deleteByIdReturningCount), against an in-memory H2 database.
+ *
+ * <p>After each iteration the number of JDBC statements per call is printed; the old paths take
+ * three (save and delete each load the row again before writing it), the new ones one. The rows
+ * that the delete benchmarks delete are inserted before each call, outside the timing, and their
+ * inserts are not counted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityWriteBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private RestaurantRepository restaurantRepository;
+  private Statistics statistics;
+  private long id;
+  private long calls;
+  private long insertStatements;
+  private int version;
+
+  /** A new row for a delete benchmark to delete */
+  @State(Scope.Thread)
+  public static class NewRow {
+    long id;
+
+    @Setup(Level.Invocation)
+    public void insert(EntityWriteBenchmark benchmark) {
+      long before = benchmark.statistics.getPrepareStatementCount();
+      id = benchmark.restaurantRepository.save(benchmark.restaurant()).getId();
+      benchmark.insertStatements += benchmark.statistics.getPrepareStatementCount() - before;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    context =
+        new SpringApplicationBuilder(ExampleApplication.class)
+            .profiles("development")
+            .properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:write-benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.root=WARN",
+                "logging.level.sql=WARN",
+                "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN")
+            .run();
+    BenchmarkSupport.quietLogging();
+    restaurantRepository = context.getBean(RestaurantRepository.class);
+    statistics =
+        context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    id = restaurantRepository.save(restaurant()).getId();
+  }
+
+  @Setup(Level.Iteration)
+  public void resetStatistics() {
+    statistics.clear();
+    calls = 0;
+    insertStatements = 0;
+  }
+
+  @TearDown(Level.Iteration)
+  public void printStatements() {
+    System.out.printf(
+        "%n%.1f statements per call%n",
+        (double) (statistics.getPrepareStatementCount() - insertStatements) / calls);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  private Restaurant restaurant() {
+    version++;
+    return Restaurant.builder().name("Restaurant " + version).description("Serves dish").build();
+  }
+
+  @Benchmark
+  public Restaurant updateByFindThenSave() {
+    calls++;
+    Restaurant incoming = restaurant();
+    Restaurant restaurant = restaurantRepository.findById(id).orElseThrow();
+    restaurant.setName(incoming.getName());
+    restaurant.setDescription(incoming.getDescription());
+    return restaurantRepository.save(restaurant);
+  }
+
+  @Benchmark
+  public int updateBySingleStatement() {
+    calls++;
+    Restaurant incoming = restaurant();
+    return restaurantRepository.updateFieldsById(id, incoming.getName(), incoming.getDescription());
+  }
+
+  @Benchmark
+  public void deleteByFindThenDelete(NewRow row) {
+    calls++;
+    restaurantRepository.delete(restaurantRepository.findById(row.id).orElseThrow());
+  }
+
+  @Benchmark
+  public int deleteBySingleStatement(NewRow row) {
+    calls++;
+    return restaurantRepository.deleteByIdReturningCount(row.id);
+  }
+}
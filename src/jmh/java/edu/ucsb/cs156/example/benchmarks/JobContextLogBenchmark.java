@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobLogWriter;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one JobContext.log call in a job that has already written {@code existingLines} lines.
+ * The cost should not grow with the size of the log.
+ *
+ * <p>The log writer has no repository, so the batched database writes are not included; INFO
+ * logging is turned off so that the console is not measured either.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JobContextLogBenchmark {
+
+  @Param({"0", "10000", "1000000"})
+  public int existingLines;
+
+  private JobContext context;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    BenchmarkSupport.quietLogging();
+    JobLogWriter writer = new JobLogWriter(null, 1L, 0, 100, 1000, Clock.systemUTC(), null);
+    context = new JobContext(writer, Job.builder().id(1L).status("running").build());
+    for (int i = 0; i < existingLines; i++) {
+      context.log("line " + i);
+    }
+  }
+
+  @Benchmark
+  public void log() {
+    context.log("Hello World! from test job!");
+  }
+}
@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+import edu.ucsb.cs156.example.services.metrics.EndpointMetrics;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+
+/**
+ * Overhead per call of LoggingAspect: the same controller method called directly and through a
+ * proxy advised by the aspect, from 4 threads so that contention on the recorders shows up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoggingAspectBenchmark {
+
+  /** A controller method for the aspect to advise */
+  public static class SampleController {
+    @GetMapping("/api/sample")
+    public String get() {
+      return "ok";
+    }
+  }
+
+  private SampleController direct;
+  private SampleController advised;
+
+  @Setup
+  public void setup() {
+    BenchmarkSupport.quietLogging();
+    direct = new SampleController();
+
+    LoggingAspect aspect = new LoggingAspect();
+    BenchmarkSupport.inject(aspect, "endpointMetrics", new EndpointMetrics());
+    AspectJProxyFactory factory = new AspectJProxyFactory(new SampleController());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(aspect);
+    advised = factory.getProxy();
+  }
+
+  @Benchmark
+  public String direct() {
+    return direct.get();
+  }
+
+  @Benchmark
+  public String throughAspect() {
+    return advised.get();
+  }
+}
@@ -0,0 +1,158 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/** Builds lists of entities with realistic looking field values for the benchmarks. */
+final class SampleEntities {
+  private SampleEntities() {}
+
+  private static final LocalDateTime START = LocalDateTime.parse("2022-01-03T00:00:00");
+
+  /** The entity names accepted by {@link #list(String, int)} */
+  static final String[] NAMES = {
+    "Article",
+    "HelpRequest",
+    "MenuItemReview",
+    "RecommendationRequest",
+    "Restaurant",
+    "UCSBDate",
+    "UCSBDiningCommons",
+    "UCSBDiningCommonsMenuItem",
+    "UCSBOrganization"
+  };
+
+  /**
+   * Build a list of entities
+   *
+   * @param entity simple class name of the entity, one of {@link #NAMES}
+   * @param rows number of entities
+   * @return the entities, with ids 1 to rows
+   */
+  static List<?> list(String entity, int rows) {
+    return switch (entity) {
+      case "Article" -> build(rows, SampleEntities::article);
+      case "HelpRequest" -> build(rows, SampleEntities::helpRequest);
+      case "MenuItemReview" -> build(rows, SampleEntities::menuItemReview);
+      case "RecommendationRequest" -> build(rows, SampleEntities::recommendationRequest);
+      case "Restaurant" -> build(rows, SampleEntities::restaurant);
+      case "UCSBDate" -> build(rows, SampleEntities::ucsbDate);
+      case "UCSBDiningCommons" -> build(rows, SampleEntities::diningCommons);
+      case "UCSBDiningCommonsMenuItem" -> build(rows, SampleEntities::menuItem);
+      case "UCSBOrganization" -> build(rows, SampleEntities::organization);
+      default -> throw new IllegalArgumentException("Unknown entity " + entity);
+    };
+  }
+
+  private static <T> List<T> build(int rows, IntFunction<T> factory) {
+    List<T> list = new ArrayList<>(rows);
+    for (int i = 1; i <= rows; i++) {
+      list.add(factory.apply(i));
+    }
+    return list;
+  }
+
+  static Article article(int i) {
+    return Article.builder()
+        .id(i)
+        .title("Article number " + i)
+        .url("https://example.org/articles/" + i)
+        .explanation("An article that explains topic " + i + " in some detail")
+        .email("author" + (i % 50) + "@ucsb.edu")
+        .dateAdded(START.plusHours(i))
+        .build();
+  }
+
+  static HelpRequest helpRequest(int i) {
+    return HelpRequest.builder()
+        .id(i)
+        .requesterEmail("student" + (i % 200) + "@ucsb.edu")
+        .teamId("f25-" + (i % 16))
+        .tableOrBreakoutRoom(Integer.toString(i % 12))
+        .requestTime(START.plusMinutes(i))
+        .explanation("Need help with request " + i)
+        .solved(i % 3 == 0)
+        .build();
+  }
+
+  static MenuItemReview menuItemReview(int i) {
+    return MenuItemReview.builder()
+        .id(i)
+        .itemId(i % 500)
+        .reviewerEmail("reviewer" + (i % 300) + "@ucsb.edu")
+        .stars(i % 5 + 1)
+        .dateReviewed(START.plusMinutes(i))
+        .comments("Review " + i + ": tasty but a little cold")
+        .build();
+  }
+
+  static RecommendationRequest recommendationRequest(int i) {
+    return RecommendationRequest.builder()
+        .id((long) i)
+        .requesterEmail("student" + (i % 200) + "@ucsb.edu")
+        .professorEmail("professor" + (i % 20) + "@ucsb.edu")
+        .explanation("Recommendation for graduate program " + i)
+        .dateRequested(START.plusDays(i % 365))
+        .dateNeeded(START.plusDays(i % 365 + 30))
+        .done(i % 2 == 0)
+        .build();
+  }
+
+  static Restaurant restaurant(int i) {
+    return Restaurant.builder()
+        .id(i)
+        .name("Restaurant " + i)
+        .description("Serves dish number " + i + " and many others")
+        .build();
+  }
+
+  static UCSBDate ucsbDate(int i) {
+    return UCSBDate.builder()
+        .id(i)
+        .quarterYYYYQ("20" + (20 + i % 10) + (i % 4 + 1))
+        .name("Event " + i)
+        .localDateTime(START.plusHours(i))
+        .build();
+  }
+
+  static UCSBDiningCommons diningCommons(int i) {
+    return UCSBDiningCommons.builder()
+        .code("commons" + i)
+        .name("Dining Commons " + i)
+        .hasSackMeal(i % 2 == 0)
+        .hasTakeOutMeal(i % 3 == 0)
+        .hasDiningCam(i % 5 == 0)
+        .latitude(34.4 + i / 1e6)
+        .longitude(-119.8 - i / 1e6)
+        .build();
+  }
+
+  static UCSBDiningCommonsMenuItem menuItem(int i) {
+    return UCSBDiningCommonsMenuItem.builder()
+        .id((long) i)
+        .diningCommonsCode("commons" + (i % 4))
+        .name("Menu item " + i)
+        .station("Station " + (i % 8))
+        .build();
+  }
+
+  static UCSBOrganization organization(int i) {
+    return UCSBOrganization.builder()
+        .orgCode("ORG" + i)
+        .orgTranslationShort("Org " + i)
+        .orgTranslation("Student Organization Number " + i)
+        .inactive(i % 7 == 0)
+        .build();
+  }
+}
@@ -0,0 +1,184 @@
+package edu.ucsb.cs156.example.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * An HTTP session with the app, logged in as the admin user through the mock OAuth server that
+ * WiremockServiceImpl.setupOauthMocks sets up, and able to make CSRF protected requests.
+ */
+public class ApiSession {
+  private final String baseUrl;
+  private final CookieManager cookies = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+  private final HttpClient client;
+  private String csrfToken;
+
+  /**
+   * Create a session; call {@link #login()} before making requests
+   *
+   * @param baseUrl the app, e.g. http://localhost:8080
+   */
+  public ApiSession(String baseUrl) {
+    this.baseUrl = baseUrl;
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .cookieHandler(cookies)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+  }
+
+  /**
+   * Log in by following the OAuth2 authorization code flow against the mock OAuth server: the app
+   * redirects to the mock authorize page, the login form is posted, and the mock server redirects
+   * back to the app with a code.
+   *
+   * @throws IOException if the app or mock server cannot be reached, or login fails
+   * @throws InterruptedException if interrupted
+   */
+  public void login() throws IOException, InterruptedException {
+    HttpResponse<String> authorize = get("/oauth2/authorization/my-oauth-provider");
+    URI authorizeUri = URI.create(location(authorize));
+    Map<String, String> query = parseQuery(authorizeUri.getRawQuery());
+
+    URI loginUri = authorizeUri.resolve("/login");
+    HttpResponse<String> login =
+        client.send(
+            HttpRequest.newBuilder(loginUri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(
+                    HttpRequest.BodyPublishers.ofString(
+                        formEncode(
+                            Map.of(
+                                "state",
+                                query.get("state"),
+                                "redirectUri",
+                                query.get("redirect_uri"),
+                                "username",
+                                "admingaucho",
+                                "password",
+                                ""))))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+    HttpResponse<String> callback =
+        client.send(
+            HttpRequest.newBuilder(URI.create(location(login))).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+    location(callback);
+
+    HttpResponse<String> currentUser = get("/api/currentUser");
+    if (currentUser.statusCode() != 200) {
+      throw new IOException("Login failed: /api/currentUser returned " + currentUser.statusCode());
+    }
+    csrfToken =
+        cookies.getCookieStore().getCookies().stream()
+            .filter(cookie -> cookie.getName().equals("XSRF-TOKEN"))
+            .map(HttpCookie::getValue)
+            .findFirst()
+            .orElseThrow(() -> new IOException("No XSRF-TOKEN cookie after login"));
+  }
+
+  private static String location(HttpResponse<?> response) throws IOException {
+    return response
+        .headers()
+        .firstValue("Location")
+        .orElseThrow(
+            () ->
+                new IOException(
+                    "Expected a redirect from %s, got %d"
+                        .formatted(response.uri(), response.statusCode())));
+  }
+
+  static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> query = new HashMap<>();
+    for (String pair : rawQuery.split("&")) {
+      int equals = pair.indexOf('=');
+      query.put(
+          URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+          URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+    }
+    return query;
+  }
+
+  static String formEncode(Map<String, String> values) {
+    return values.entrySet().stream()
+        .map(
+            e ->
+                URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8)
+                    + "="
+                    + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+        .collect(Collectors.joining("&"));
+  }
+
+  /**
+   * Send a GET request
+   *
+   * @param pathAndQuery path of the endpoint, with any query string
+   * @return the response
+   * @throws IOException if the request fails
+   * @throws InterruptedException if interrupted
+   */
+  public HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+    return client.send(
+        HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery)).GET().build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  /**
+   * Send a POST request with no body
+   *
+   * @param path path of the endpoint
+   * @param params query parameters
+   * @return the response
+   * @throws IOException if the request fails
+   * @throws InterruptedException if interrupted
+   */
+  public HttpResponse<String> post(String path, Map<String, String> params)
+      throws IOException, InterruptedException {
+    return client.send(
+        withCsrf(baseUrl + path + "?" + formEncode(params))
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  /**
+   * Send a PUT request with a JSON body
+   *
+   * @param pathAndQuery path of the endpoint, with the query string identifying the row
+   * @param json the body
+   * @return the response
+   * @throws IOException if the request fails
+   * @throws InterruptedException if interrupted
+   */
+  public HttpResponse<String> put(String pathAndQuery, String json)
+      throws IOException, InterruptedException {
+    return client.send(
+        withCsrf(baseUrl + pathAndQuery)
+            .header("Content-Type", "application/json")
+            .PUT(HttpRequest.BodyPublishers.ofString(json))
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpRequest.Builder withCsrf(String uri) {
+    return HttpRequest.newBuilder(URI.create(uri)).header("X-XSRF-TOKEN", csrfToken);
+  }
+}
@@ -0,0 +1,154 @@
+package edu.ucsb.cs156.example.loadtest;
+
+import edu.ucsb.cs156.example.services.metrics.LatencyHistogram;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The results of a load test run: one row per resource, dataset size, concurrency and operation.
+ */
+public class LoadReport {
+
+  /**
+   * The measurements of one operation in one step of the run
+   *
+   * @param resource name of the resource
+   * @param rows number of rows in the resource's table while measuring
+   * @param concurrency number of concurrent clients
+   * @param operation list, get, create or update
+   * @param requests number of requests completed
+   * @param errors number of requests that failed or did not return 200
+   * @param throughput requests per second
+   * @param p50Ms median latency
+   * @param p95Ms 95th percentile latency
+   * @param p99Ms 99th percentile latency
+   * @param maxMs slowest request
+   * @param withinSlo false if p99 was above the SLO or more than 1% of requests failed
+   */
+  public record Row(
+      String resource,
+      long rows,
+      int concurrency,
+      String operation,
+      long requests,
+      long errors,
+      double throughput,
+      double p50Ms,
+      double p95Ms,
+      double p99Ms,
+      double maxMs,
+      boolean withinSlo) {}
+
+  private final double sloMs;
+  private final List<Row> rows = new ArrayList<>();
+
+  /**
+   * Create an empty report
+   *
+   * @param sloMs p99 latency above which a row is marked FAIL
+   */
+  public LoadReport(double sloMs) {
+    this.sloMs = sloMs;
+  }
+
+  /**
+   * Add the measurements of one operation
+   *
+   * @param resource name of the resource
+   * @param rowCount number of rows in the resource's table
+   * @param concurrency number of concurrent clients
+   * @param histogram latencies recorded for the operation
+   * @param seconds length of the measurement
+   * @return the row added
+   */
+  public Row add(
+      String resource, long rowCount, int concurrency, LatencyHistogram histogram, double seconds) {
+    long[] percentiles = histogram.percentilesMicros(50, 95, 99);
+    long requests = histogram.getCount();
+    long errors = histogram.getErrors();
+    double p99Ms = percentiles[2] / 1000.0;
+    Row row =
+        new Row(
+            resource,
+            rowCount,
+            concurrency,
+            histogram.getName(),
+            requests,
+            errors,
+            requests / seconds,
+            percentiles[0] / 1000.0,
+            percentiles[1] / 1000.0,
+            p99Ms,
+            histogram.getMaxMicros() / 1000.0,
+            p99Ms <= sloMs && errors * 100 <= requests);
+    rows.add(row);
+    return row;
+  }
+
+  /**
+   * The report as a markdown table
+   *
+   * @return the table
+   */
+  public String toMarkdown() {
+    StringBuilder out = new StringBuilder();
+    out.append(
+        "| resource | rows | clients | operation | requests | errors | req/s"
+            + " | p50 ms | p95 ms | p99 ms | max ms | SLO |\n");
+    out.append("|---|---:|---:|---|---:|---:|---:|---:|---:|---:|---:|---|\n");
+    for (Row row : rows) {
+      out.append(
+          "| %s | %d | %d | %s | %d | %d | %.1f | %.2f | %.2f | %.2f | %.2f | %s |\n"
+              .formatted(
+                  row.resource(),
+                  row.rows(),
+                  row.concurrency(),
+                  row.operation(),
+                  row.requests(),
+                  row.errors(),
+                  row.throughput(),
+                  row.p50Ms(),
+                  row.p95Ms(),
+                  row.p99Ms(),
+                  row.maxMs(),
+                  row.withinSlo() ? "ok" : "FAIL"));
+    }
+    return out.toString();
+  }
+
+  /**
+   * Write the report as CSV
+   *
+   * @param path file to write, created along with its directory if needed
+   * @throws IOException if the file cannot be written
+   */
+  public void writeCsv(Path path) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add(
+        "resource,rows,concurrency,operation,requests,errors,throughput,p50_ms,p95_ms,p99_ms,"
+            + "max_ms,within_slo");
+    for (Row row : rows) {
+      lines.add(
+          "%s,%d,%d,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%b"
+              .formatted(
+                  row.resource(),
+                  row.rows(),
+                  row.concurrency(),
+                  row.operation(),
+                  row.requests(),
+                  row.errors(),
+                  row.throughput(),
+                  row.p50Ms(),
+                  row.p95Ms(),
+                  row.p99Ms(),
+                  row.maxMs(),
+                  row.withinSlo()));
+    }
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Files.write(path, lines);
+  }
+}
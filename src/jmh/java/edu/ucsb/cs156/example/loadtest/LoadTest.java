@@ -0,0 +1,271 @@
+package edu.ucsb.cs156.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.loadtest.Resources.Resource;
+import edu.ucsb.cs156.example.services.metrics.LatencyHistogram;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * A load generator for the CRUD endpoints under /api, reporting how throughput and latency change
+ * with the number of rows in each table and the number of concurrent clients.
+ *
+ * <p>The app must already be running locally with the wiremock profile (see the README); the load
+ * test logs in as the admin user through the mock OAuth server. For each dataset size, every
+ * resource is first filled up to that many rows, and then, for each concurrency level, each
+ * resource in turn is driven by that many virtual-thread clients sending a mix of list, get, create
+ * and update requests. Each step has an unmeasured warmup. Every client uses a random number
+ * generator seeded by its index, so a run with the same options sends the same mix of requests.
+ *
+ * <p>The results are printed as a markdown table and written as CSV; see {@link LoadTestOptions}
+ * for the options.
+ */
+public class LoadTest {
+  static final List<String> OPERATIONS = List.of("list", "get", "create", "update");
+
+  private static final int SEED_CONCURRENCY = 32;
+
+  private final LoadTestOptions options;
+  private final ApiSession session;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Map<Resource, Dataset> datasets = new HashMap<>();
+
+  /** The keys of the rows of one resource, growing as rows are created */
+  static class Dataset {
+    private final List<String> keys = new ArrayList<>();
+    private final AtomicLong nextRow;
+
+    Dataset(List<String> existingKeys) {
+      keys.addAll(existingKeys);
+      nextRow = new AtomicLong(existingKeys.size());
+    }
+
+    long nextRow() {
+      return nextRow.getAndIncrement();
+    }
+
+    synchronized void add(String key) {
+      keys.add(key);
+    }
+
+    synchronized String randomKey(SplittableRandom random) {
+      return keys.get(random.nextInt(keys.size()));
+    }
+
+    synchronized int size() {
+      return keys.size();
+    }
+  }
+
+  LoadTest(LoadTestOptions options, ApiSession session) {
+    this.options = options;
+    this.session = session;
+  }
+
+  /**
+   * Run the load test
+   *
+   * @param args options of the form --name=value; see {@link LoadTestOptions}
+   * @throws Exception if the app cannot be reached or the report cannot be written
+   */
+  public static void main(String[] args) throws Exception {
+    LoadTestOptions options = LoadTestOptions.parse(args);
+    ApiSession session = new ApiSession(options.baseUrl());
+    session.login();
+    System.out.println("Logged in to " + options.baseUrl());
+
+    LoadReport report = new LoadTest(options, session).run();
+
+    System.out.println();
+    System.out.println(report.toMarkdown());
+    report.writeCsv(Path.of(options.report()));
+    System.out.println("Wrote " + options.report());
+  }
+
+  LoadReport run() throws IOException, InterruptedException {
+    List<Resource> resources = Resources.named(options.resources());
+    for (Resource resource : resources) {
+      datasets.put(resource, new Dataset(existingKeys(resource)));
+    }
+
+    LoadReport report = new LoadReport(options.sloMs());
+    for (int datasetSize : options.datasetSizes()) {
+      for (Resource resource : resources) {
+        seed(resource, datasetSize);
+      }
+      for (int concurrency : options.concurrency()) {
+        for (Resource resource : resources) {
+          long rows = datasets.get(resource).size();
+          runStep(resource, concurrency, options.warmupSeconds());
+          Map<String, LatencyHistogram> histograms =
+              runStep(resource, concurrency, options.durationSeconds());
+          for (LatencyHistogram histogram : histograms.values()) {
+            if (histogram.getCount() > 0) {
+              LoadReport.Row row =
+                  report.add(
+                      resource.name(), rows, concurrency, histogram, options.durationSeconds());
+              System.out.printf(
+                  "%s rows=%d clients=%d %s: %.1f req/s p99=%.2fms errors=%d%n",
+                  row.resource(),
+                  row.rows(),
+                  row.concurrency(),
+                  row.operation(),
+                  row.throughput(),
+                  row.p99Ms(),
+                  row.errors());
+            }
+          }
+        }
+      }
+    }
+    return report;
+  }
+
+  private List<String> existingKeys(Resource resource) throws IOException, InterruptedException {
+    HttpResponse<String> response = session.get(resource.path() + "/all");
+    if (response.statusCode() != 200) {
+      throw new IOException(
+          "GET %s/all returned %d".formatted(resource.path(), response.statusCode()));
+    }
+    List<String> keys = new ArrayList<>();
+    for (JsonNode row : mapper.readTree(response.body())) {
+      keys.add(row.get(resource.key()).asText());
+    }
+    return keys;
+  }
+
+  /** Create rows until the resource has at least {@code rows} of them */
+  private void seed(Resource resource, int rows) throws IOException {
+    Dataset dataset = datasets.get(resource);
+    int missing = rows - dataset.size();
+    if (missing <= 0) {
+      return;
+    }
+    System.out.printf("Creating %d %s%n", missing, resource.name());
+    AtomicLong remaining = new AtomicLong(missing);
+    AtomicLong failures = new AtomicLong();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < SEED_CONCURRENCY; i++) {
+        executor.submit(
+            () -> {
+              while (remaining.getAndDecrement() > 0) {
+                if (!create(resource, dataset)) {
+                  failures.incrementAndGet();
+                }
+              }
+              return null;
+            });
+      }
+    }
+    if (failures.get() > 0) {
+      throw new IOException(
+          "Failed to create %d of %d %s".formatted(failures.get(), missing, resource.name()));
+    }
+  }
+
+  /**
+   * Drive one resource with {@code concurrency} clients for {@code seconds}
+   *
+   * @return latencies by operation
+   */
+  private Map<String, LatencyHistogram> runStep(Resource resource, int concurrency, int seconds) {
+    Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    for (String operation : OPERATIONS) {
+      histograms.put(operation, new LatencyHistogram(operation, System.currentTimeMillis()));
+    }
+    Dataset dataset = datasets.get(resource);
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int client = 0; client < concurrency; client++) {
+        SplittableRandom random = new SplittableRandom(client);
+        executor.submit(
+            () -> {
+              while (System.nanoTime() < deadline) {
+                String operation = chooseOperation(random);
+                long start = System.nanoTime();
+                boolean ok = send(resource, dataset, operation, random);
+                histograms.get(operation).record((System.nanoTime() - start) / 1000, !ok);
+              }
+              return null;
+            });
+      }
+    }
+    return histograms;
+  }
+
+  private String chooseOperation(SplittableRandom random) {
+    if (random.nextDouble() < options.writeRatio()) {
+      return random.nextBoolean() ? "create" : "update";
+    }
+    return random.nextDouble() < options.listRatio() ? "list" : "get";
+  }
+
+  /**
+   * Send one request
+   *
+   * @return true if the app returned 200
+   */
+  private boolean send(
+      Resource resource, Dataset dataset, String operation, SplittableRandom random) {
+    try {
+      return switch (operation) {
+        case "list" -> session.get(resource.path() + "/all").statusCode() == 200;
+        case "get" -> session.get(byKey(resource, dataset.randomKey(random))).statusCode() == 200;
+        case "create" -> create(resource, dataset);
+        default -> update(resource, dataset, random);
+      };
+    } catch (IOException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private boolean create(Resource resource, Dataset dataset)
+      throws IOException, InterruptedException {
+    Map<String, String> params =
+        resource.fields().apply(dataset.nextRow()).entrySet().stream()
+            .collect(
+                Collectors.toMap(
+                    Map.Entry::getKey,
+                    e -> String.valueOf(e.getValue()),
+                    (a, b) -> a,
+                    LinkedHashMap::new));
+    HttpResponse<String> response = session.post(resource.path() + "/post", params);
+    if (response.statusCode() != 200) {
+      return false;
+    }
+    dataset.add(mapper.readTree(response.body()).get(resource.key()).asText());
+    return true;
+  }
+
+  private boolean update(Resource resource, Dataset dataset, SplittableRandom random)
+      throws IOException, InterruptedException {
+    String json =
+        mapper.writeValueAsString(resource.fields().apply(random.nextLong(dataset.size())));
+    return session.put(byKey(resource, dataset.randomKey(random)), json).statusCode() == 200;
+  }
+
+  private static String byKey(Resource resource, String key) {
+    return resource.path()
+        + "?"
+        + resource.key()
+        + "="
+        + URLEncoder.encode(key, StandardCharsets.UTF_8);
+  }
+}
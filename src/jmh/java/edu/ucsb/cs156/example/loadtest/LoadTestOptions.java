@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.loadtest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options for a load test run, given on the command line as {@code --name=value}.
+ *
+ * <pre>
+ * --baseUrl=http://localhost:8080  the app, running with the wiremock profile
+ * --resources=all                  comma separated resource names (see Resources), or all
+ * --datasetSizes=100,1000,10000    rows per resource to measure at
+ * --concurrency=1,8,32,128         concurrent virtual-thread clients to measure with
+ * --writeRatio=0.1                 fraction of requests that create or update a row
+ * --listRatio=0.2                  fraction of reads that list every row (/all)
+ * --warmupSeconds=3                per step, not measured
+ * --durationSeconds=10             per step, measured
+ * --sloMs=500                      p99 above this (or more than 1% errors) marks a step FAIL
+ * --report=target/loadtest-report.csv
+ * </pre>
+ */
+public record LoadTestOptions(
+    String baseUrl,
+    List<String> resources,
+    List<Integer> datasetSizes,
+    List<Integer> concurrency,
+    double writeRatio,
+    double listRatio,
+    int warmupSeconds,
+    int durationSeconds,
+    double sloMs,
+    String report) {
+
+  /**
+   * Parse the command line
+   *
+   * @param args arguments of the form --name=value
+   * @return the options, with defaults for any not given
+   */
+  public static LoadTestOptions parse(String[] args) {
+    Map<String, String> values = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value, got " + arg);
+      }
+      int equals = arg.indexOf('=');
+      values.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+    LoadTestOptions options =
+        new LoadTestOptions(
+            values.getOrDefault("baseUrl", "http://localhost:8080"),
+            strings(values.getOrDefault("resources", "all")),
+            integers(values.getOrDefault("datasetSizes", "100,1000,10000")),
+            integers(values.getOrDefault("concurrency", "1,8,32,128")),
+            Double.parseDouble(values.getOrDefault("writeRatio", "0.1")),
+            Double.parseDouble(values.getOrDefault("listRatio", "0.2")),
+            Integer.parseInt(values.getOrDefault("warmupSeconds", "3")),
+            Integer.parseInt(values.getOrDefault("durationSeconds", "10")),
+            Double.parseDouble(values.getOrDefault("sloMs", "500")),
+            values.getOrDefault("report", "target/loadtest-report.csv"));
+    values
+        .keySet()
+        .removeAll(
+            List.of(
+                "baseUrl",
+                "resources",
+                "datasetSizes",
+                "concurrency",
+                "writeRatio",
+                "listRatio",
+                "warmupSeconds",
+                "durationSeconds",
+                "sloMs",
+                "report"));
+    if (!values.isEmpty()) {
+      throw new IllegalArgumentException("Unknown options " + values.keySet());
+    }
+    return options;
+  }
+
+  private static List<String> strings(String value) {
+    return Arrays.stream(value.split(",")).map(String::trim).toList();
+  }
+
+  private static List<Integer> integers(String value) {
+    return strings(value).stream().map(Integer::parseInt).sorted().toList();
+  }
+}
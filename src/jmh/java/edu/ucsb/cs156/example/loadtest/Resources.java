@@ -0,0 +1,173 @@
+package edu.ucsb.cs156.example.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * The CRUD endpoints under /api that the load test drives.
+ *
+ * <p>Every resource is created with POST {path}/post and request parameters, read with GET
+ * {path}/all and GET {path}?{key}=, and updated with PUT {path}?{key}= and a JSON body. The fields
+ * of row n are a function of n alone, so a run creates the same data every time.
+ */
+public final class Resources {
+
+  private Resources() {}
+
+  /**
+   * One of the CRUD endpoints
+   *
+   * @param name short name used on the command line and in the report
+   * @param path base path of the controller
+   * @param key name of the request parameter (and JSON field) that identifies a row
+   * @param fields the fields of row n; the key is included for resources whose key is not generated
+   */
+  public record Resource(
+      String name, String path, String key, LongFunction<Map<String, Object>> fields) {}
+
+  /** Every resource, in the order they appear in the report */
+  public static final List<Resource> ALL =
+      List.of(
+          new Resource(
+              "articles",
+              "/api/articles",
+              "id",
+              n ->
+                  fields(
+                      "title", "Article " + n,
+                      "url", "https://example.org/articles/" + n,
+                      "explanation", "Load test article " + n,
+                      "email", email(n),
+                      "dateAdded", dateTime(n))),
+          new Resource(
+              "helprequests",
+              "/api/HelpRequest",
+              "id",
+              n ->
+                  fields(
+                      "requesterEmail",
+                      email(n),
+                      "teamId",
+                      "s25-" + (n % 16),
+                      "tableOrBreakoutRoom",
+                      "table-" + (n % 8),
+                      "explanation",
+                      "Load test help request " + n,
+                      "solved",
+                      n % 2 == 0,
+                      "requestTime",
+                      dateTime(n))),
+          new Resource(
+              "menuitemreviews",
+              "/api/menuitemreview",
+              "id",
+              n ->
+                  fields(
+                      "itemId", n % 100 + 1,
+                      "reviewerEmail", email(n),
+                      "stars", n % 5 + 1,
+                      "comments", "Load test review " + n,
+                      "dateReviewed", dateTime(n))),
+          new Resource(
+              "recommendationrequests",
+              "/api/recommendationrequests",
+              "id",
+              n ->
+                  fields(
+                      "requesterEmail",
+                      email(n),
+                      "professorEmail",
+                      "professor" + (n % 20) + "@ucsb.edu",
+                      "explanation",
+                      "Load test recommendation " + n,
+                      "dateRequested",
+                      dateTime(n),
+                      "dateNeeded",
+                      dateTime(n + 30),
+                      "done",
+                      n % 3 == 0)),
+          new Resource(
+              "restaurants",
+              "/api/restaurants",
+              "id",
+              n -> fields("name", "Restaurant " + n, "description", "Load test restaurant " + n)),
+          new Resource(
+              "ucsbdates",
+              "/api/ucsbdates",
+              "id",
+              n ->
+                  fields(
+                      "quarterYYYYQ", "20" + (20 + n % 10) + (n % 4 + 1),
+                      "name", "Date " + n,
+                      "localDateTime", dateTime(n))),
+          new Resource(
+              "ucsbdiningcommons",
+              "/api/ucsbdiningcommons",
+              "code",
+              n ->
+                  fields(
+                      "code", "lt" + n,
+                      "name", "Commons " + n,
+                      "hasSackMeal", n % 2 == 0,
+                      "hasTakeOutMeal", n % 3 == 0,
+                      "hasDiningCam", n % 5 == 0,
+                      "latitude", 34.41 + (n % 100) / 10000.0,
+                      "longitude", -119.85 + (n % 100) / 10000.0)),
+          new Resource(
+              "ucsbdiningcommonsmenuitems",
+              "/api/ucsbdiningcommonsmenuitem",
+              "id",
+              n ->
+                  fields(
+                      "diningCommonsCode", "lt" + (n % 10),
+                      "name", "Menu item " + n,
+                      "station", "Station " + (n % 6))),
+          new Resource(
+              "ucsborganizations",
+              "/api/ucsborganization",
+              "orgCode",
+              n ->
+                  fields(
+                      "orgCode", "LT" + n,
+                      "orgTranslationShort", "Org " + n,
+                      "orgTranslation", "Load test organization " + n,
+                      "inactive", n % 4 == 0)));
+
+  /**
+   * Look up resources by name
+   *
+   * @param names resource names, or the single name "all"
+   * @return the matching resources
+   */
+  public static List<Resource> named(List<String> names) {
+    if (names.equals(List.of("all"))) {
+      return ALL;
+    }
+    return names.stream()
+        .map(
+            name ->
+                ALL.stream()
+                    .filter(r -> r.name().equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown resource " + name)))
+        .toList();
+  }
+
+  private static Map<String, Object> fields(Object... namesAndValues) {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      fields.put((String) namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return fields;
+  }
+
+  private static String email(long n) {
+    return "student" + (n % 1000) + "@ucsb.edu";
+  }
+
+  private static String dateTime(long n) {
+    return "2025-%02d-%02dT%02d:%02d:00".formatted(n % 12 + 1, n % 28 + 1, n % 24, n % 60);
+  }
+}
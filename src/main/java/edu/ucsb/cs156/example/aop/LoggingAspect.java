@@ -1,21 +1,27 @@
 package edu.ucsb.cs156.example.aop;
 
+import edu.ucsb.cs156.example.services.metrics.EndpointMetrics;
 import jakarta.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
- * This class is an Aspect that logs all invocations of controller methods that are annotated with
+ * This class is an Aspect that times all invocations of controller methods that are annotated with
  * {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping},
- * {@code @DeleteMapping}, or {@code @PatchMapping}.
+ * {@code @DeleteMapping}, or {@code @PatchMapping}, recording them in {@link EndpointMetrics}. Each
+ * invocation is also logged, but only at DEBUG level, so that nothing is formatted for the log on
+ * the normal request path.
  *
  * <p>For more information on Aspect Oriented Programming (AOP) and AspectJ, including what a {@code
  * JoinPoint} is, refer to <a
@@ -25,6 +31,8 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 @Aspect
 @Component
 public class LoggingAspect {
+  @Autowired private EndpointMetrics endpointMetrics;
+
   // language=PointcutExpression
   private static final String pointcut =
       """
@@ -41,26 +49,43 @@ public class LoggingAspect {
           Arrays.asList("edu.ucsb.cs156.example.controllers.FrontendProxyController"));
 
   /**
-   * This method is called before any controller method that is annotated with
-   * {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping},
-   * {@code @DeleteMapping}, or {@code @PatchMapping}.
+   * This method wraps every controller method that is annotated with {@code @RequestMapping},
+   * {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping}, or
+   * {@code @PatchMapping}, and records how long it took and whether it threw an exception.
    *
    * @param joinPoint the join point (injected by Spring framework)
+   * @return whatever the controller method returns
+   * @throws Throwable whatever the controller method throws
    */
-  @Before(pointcut)
-  public void logControllers(JoinPoint joinPoint) {
+  @Around(pointcut)
+  public Object timeControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (log.isDebugEnabled()) {
+      logControllers(joinPoint);
+    }
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      Object result = joinPoint.proceed();
+      failed = false;
+      return result;
+    } finally {
+      endpointMetrics.record(method, System.nanoTime() - start, failed);
+    }
+  }
+
+  private void logControllers(ProceedingJoinPoint joinPoint) {
     getCurrentHttpRequest()
         .ifPresent(
             request -> {
               String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
               if (!stoplist.contains(declaringTypeName)) {
-                log.info(
-                    "===== %s %s handled by %s in %s"
-                        .formatted(
-                            request.getMethod(),
-                            request.getRequestURI(),
-                            joinPoint.getSignature().getName(),
-                            declaringTypeName));
+                log.debug(
+                    "===== {} {} handled by {} in {}",
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    joinPoint.getSignature().getName(),
+                    declaringTypeName);
               }
             });
   }
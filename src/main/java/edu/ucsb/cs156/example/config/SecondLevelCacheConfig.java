@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import edu.ucsb.cs156.example.services.cache.CacheRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on Hibernate's second-level cache and query cache, kept in Caffeine caches through JCache.
+ * Only entities annotated with @Cache, and only queries with the cacheable hint, are cached.
+ *
+ * <p>Each entity region in {@link #ENTITY_REGIONS}, and the query results region, holds at most
+ * {@code maxSize} entries, for at most {@code ttlSeconds}. These regions record their statistics
+ * and are registered with {@link CacheRegistry} as "hibernate." followed by the region's name, so
+ * they are reported by /api/admin/caches with the application's other caches. The caches are local
+ * to each instance of the application; {@link
+ * edu.ucsb.cs156.example.services.cache.SecondLevelCacheEviction} evicts a table's entities and the
+ * query results when the table's version shows that it was written to elsewhere. The update
+ * timestamps region, which Hibernate uses to tell whether a cached query result is older than the
+ * last write to one of its tables, must never lose an entry, so it is neither bounded nor expired;
+ * it holds one entry per table. A region that is not configured here fails the startup.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+  /** The regions named by the @Cache annotations of the entities */
+  static final List<String> ENTITY_REGIONS =
+      List.of("ucsbdates", "ucsbdiningcommons", "ucsborganization");
+
+  @Autowired private CacheRegistry cacheRegistry;
+
+  @Value("${app.hibernate.cache.maxSize:10000}")
+  private long maxSize;
+
+  @Value("${app.hibernate.cache.ttlSeconds:60}")
+  private long ttlSeconds;
+
+  @Bean
+  public HibernatePropertiesCustomizer secondLevelCache() {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+      properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+      properties.put(ConfigSettings.CACHE_MANAGER, cacheManager());
+      properties.put(
+          ConfigSettings.MISSING_CACHE_STRATEGY,
+          MissingCacheStrategy.FAIL.getExternalRepresentation());
+    };
+  }
+
+  /**
+   * A cache manager of its own for each session factory (which closes it when it is closed), so
+   * that two application contexts, such as those of the tests, never share cached entities.
+   */
+  private CacheManager cacheManager() {
+    CachingProvider provider = new CaffeineCachingProvider();
+    CacheManager cacheManager =
+        provider.getCacheManager(provider.getDefaultURI(), provider.getDefaultClassLoader());
+    List<String> boundedRegions = new ArrayList<>(ENTITY_REGIONS);
+    boundedRegions.add(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+    for (String region : boundedRegions) {
+      cacheRegistry.register(
+          "hibernate." + region,
+          cacheManager
+              .createCache(region, bounded())
+              .unwrap(com.github.benmanes.caffeine.cache.Cache.class));
+    }
+    cacheManager.createCache(
+        RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+        new CaffeineConfiguration<>().setStoreByValue(false));
+    return cacheManager;
+  }
+
+  private CaffeineConfiguration<Object, Object> bounded() {
+    return new CaffeineConfiguration<>()
+        .setStoreByValue(false)
+        .setNativeStatisticsEnabled(true)
+        .setMaximumSize(OptionalLong.of(maxSize))
+        .setExpireAfterWrite(OptionalLong.of(Duration.ofSeconds(ttlSeconds).toNanos()));
+  }
+}
@@ -3,22 +3,18 @@ package edu.ucsb.cs156.example.config;
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
 import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -51,10 +47,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Slf4j
 public class SecurityConfig {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
-
-  @Autowired UserRepository userRepository;
+  @Autowired CurrentUserService currentUserService;
 
   /**
    * The `filterChain` method in this Java code configures various security settings for an HTTP
@@ -111,7 +104,8 @@ public class SecurityConfig {
               mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_USER"));
 
               String email = (String) userAttributes.get("email");
-              if (getAdmin(email)) {
+              User user = currentUserService.upsertUser(userAttributes);
+              if (user.getAdmin()) {
                 mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
               }
 
@@ -124,21 +118,6 @@ public class SecurityConfig {
       return mappedAuthorities;
     };
   }
-
-  /**
-   * This method checks if the given email belongs to an admin user either from a predefined list or
-   * by querying the user repository.
-   *
-   * @param email email address of the user
-   * @return whether the user with the given email is an admin
-   */
-  public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
-  }
 }
 
 final class SpaCsrfTokenRequestHandler extends CsrfTokenRequestAttributeHandler {
@@ -1,13 +1,20 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.propertyeditors.CustomCollectionEditor;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 /** This is an abstract class that provides common functionality for all API controllers. */
@@ -34,6 +41,17 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method makes each filter parameter of a {@link PageQuery} one filter, as given. By default
+   * a lone filter parameter is split on its commas, which may be part of the filter's value.
+   *
+   * @param binder the binder of the PageQuery
+   */
+  @InitBinder("pageQuery")
+  public void bindEachFilterAsGiven(WebDataBinder binder) {
+    binder.registerCustomEditor(List.class, "filter", new CustomCollectionEditor(List.class));
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    *
@@ -47,4 +65,33 @@ public abstract class ApiController {
         "type", e.getClass().getSimpleName(),
         "message", e.getMessage());
   }
+
+  /**
+   * This method handles the JobRejectedException, which is thrown when the job queue is full.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({JobRejectedException.class})
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  public Object handleJobRejectedException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
+  }
+
+  /**
+   * This method handles the InvalidRequestException, which is thrown when the request parameters do
+   * not make sense, e.g. a sort or filter on a field that cannot be sorted or filtered on.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({InvalidRequestException.class})
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleInvalidRequestException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
+  }
 }
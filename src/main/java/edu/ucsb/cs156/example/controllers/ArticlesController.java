@@ -3,15 +3,28 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +34,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for Articles */
 @Tag(name = "Articles")
@@ -29,20 +44,77 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class ArticlesController extends ApiController {
   @Autowired ArticleRepository articleRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS = Set.of("title", "url", "email", "dateAdded");
 
   /**
    * List all articles
    *
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return an iterable of Articles
    */
   @Operation(summary = "List all articles")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Article> allArticles() {
+  public Iterable<Article> allArticles(ServletWebRequest request) {
+    if (tableVersions.notModified(request, Article.class)) {
+      return null;
+    }
     Iterable<Article> articles = articleRepository.findAll();
     return articles;
   }
 
+  /**
+   * List articles a page at a time, sorted and filtered
+   *
+   * @param query the sort, filters, cursor and page size
+   * @return a page of Article
+   */
+  @Operation(
+      summary = "List articles a page at a time; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<Article> pageOfArticles(@ParameterObject PageQuery query) {
+    return keysetPager.page(Article.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all articles, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the articles, as a download
+   */
+  @Operation(summary = "Export all articles as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportArticles(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(Article.class, "articles", format, articleRepository::streamAllBy);
+  }
+
+  /**
+   * Get many articles with one query
+   *
+   * @param ids the ids of the articles to get, at most 100
+   * @return the articles found, in the order asked for, and the ids with no row
+   */
+  @Operation(summary = "Get many articles at once, in the order of their ids")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<Article> batchOfArticles(
+      @Parameter(name = "ids", description = "comma separated ids, at most 100") @RequestParam
+          List<Long> ids) {
+    return batchFetcher.fetch(articleRepository, ids);
+  }
+
   /**
    * Create a new article
    *
@@ -82,7 +154,8 @@ public class ArticlesController extends ApiController {
     article.setEmail(email);
     article.setDateAdded(dateAdded);
 
-    Article savedArticle = articleRepository.save(article);
+    Article savedArticle =
+        tableVersions.write(Article.class, () -> articleRepository.save(article));
 
     return savedArticle;
   }
@@ -91,12 +164,16 @@ public class ArticlesController extends ApiController {
    * Get a single article by id
    *
    * @param id the id of the article
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a Article
    */
   @Operation(summary = "Get a single article")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public Article getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Article getById(@Parameter(name = "id") @RequestParam Long id, ServletWebRequest request) {
+    if (tableVersions.notModified(request, Article.class)) {
+      return null;
+    }
     Article article =
         articleRepository
             .findById(id)
@@ -118,20 +195,22 @@ public class ArticlesController extends ApiController {
   public Article updateArticle(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid Article incoming) {
 
-    Article article =
-        articleRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
-
-    article.setTitle(incoming.getTitle());
-    article.setUrl(incoming.getUrl());
-    article.setExplanation(incoming.getExplanation());
-    article.setEmail(incoming.getEmail());
-    article.setDateAdded(incoming.getDateAdded());
-
-    articleRepository.save(article);
-
-    return article;
+    return tableVersions.write(
+        Article.class,
+        () -> {
+          int updated =
+              articleRepository.updateFieldsById(
+                  id,
+                  incoming.getTitle(),
+                  incoming.getUrl(),
+                  incoming.getExplanation(),
+                  incoming.getEmail(),
+                  incoming.getDateAdded());
+          if (updated == 0) {
+            throw new EntityNotFoundException(Article.class, id);
+          }
+          return articleRepository.findById(id).get();
+        });
   }
 
   /**
@@ -144,12 +223,55 @@ public class ArticlesController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteArticle(@Parameter(name = "id") @RequestParam Long id) {
-    Article article =
-        articleRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
+    return tableVersions.write(
+        Article.class,
+        () -> {
+          if (articleRepository.deleteByIdReturningCount(id) == 0) {
+            throw new EntityNotFoundException(Article.class, id);
+          }
+          return genericMessage("Article with id %s deleted".formatted(id));
+        });
+  }
+
+  /**
+   * Create many articles in one transaction; nothing is saved if any of them is invalid. Accessible
+   * only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new articles, as a JSON array or NDJSON (one JSON object per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many articles at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateArticles(@RequestBody List<Article> rows) {
+    return bulkWriter.create(Article.class, rows);
+  }
+
+  /**
+   * Update many articles in one transaction; nothing is saved if any of them is invalid or does not
+   * exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the articles, each with its id, as a JSON array or NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many articles at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateArticles(@RequestBody List<Article> rows) {
+    return bulkWriter.update(Article.class, rows);
+  }
 
-    articleRepository.delete(article);
-    return genericMessage("Article with id %s deleted".formatted(id));
+  /**
+   * Delete many articles in one transaction; nothing is deleted if any of them does not exist.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the articles to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(summary = "Delete many articles at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteArticles(@RequestBody List<Long> ids) {
+    return bulkWriter.delete(Article.class, ids);
   }
 }
@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.controllers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.services.cache.CacheRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This is a REST controller for the application's in-memory caches.
+ *
+ * <p>These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+@Tag(name = "Caches (admin only)")
+@RequestMapping("/api/admin/caches")
+@RestController
+public class CachesController extends ApiController {
+  @Autowired CacheRegistry cacheRegistry;
+
+  /**
+   * This method returns the size and hit/miss statistics of every cache.
+   *
+   * @return the statistics of each cache
+   */
+  @Operation(summary = "Get the size and hit/miss statistics of each cache")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("")
+  public List<CacheStats> getCaches() {
+    return cacheRegistry.getStats();
+  }
+
+  /**
+   * This method removes every entry from a cache.
+   *
+   * @param name name of the cache
+   * @return a message confirming the cache was cleared
+   */
+  @Operation(summary = "Remove every entry from a cache")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("")
+  public Object clearCache(
+      @Parameter(name = "name", description = "name of the cache, e.g. users") @RequestParam
+          String name) {
+    Cache<?, ?> cache =
+        cacheRegistry.get(name).orElseThrow(() -> new EntityNotFoundException(Cache.class, name));
+    cache.invalidateAll();
+    return genericMessage("Cache %s cleared".formatted(name));
+  }
+}
@@ -3,15 +3,28 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +34,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for HelpRequest */
 @Tag(name = "HelpRequest")
@@ -30,30 +45,94 @@ import org.springframework.web.bind.annotation.RestController;
 public class HelpRequestController extends ApiController {
 
   @Autowired HelpRequestRepository helpRequestRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS =
+      Set.of("requesterEmail", "teamId", "tableOrBreakoutRoom", "requestTime", "solved");
 
   /**
    * List all Help Requests
    *
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return an iterable of HelpRequest
    */
   @Operation(summary = "List all Help Requests")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<HelpRequest> allHelpRequests() {
+  public Iterable<HelpRequest> allHelpRequests(ServletWebRequest request) {
+    if (tableVersions.notModified(request, HelpRequest.class)) {
+      return null;
+    }
     Iterable<HelpRequest> helpRequests = helpRequestRepository.findAll();
     return helpRequests;
   }
 
+  /**
+   * List Help Requests a page at a time, sorted and filtered
+   *
+   * @param query the sort, filters, cursor and page size
+   * @return a page of HelpRequest
+   */
+  @Operation(
+      summary = "List Help Requests a page at a time; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<HelpRequest> pageOfHelpRequests(@ParameterObject PageQuery query) {
+    return keysetPager.page(HelpRequest.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all Help Requests, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the Help Requests, as a download
+   */
+  @Operation(summary = "Export all Help Requests as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportHelpRequests(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        HelpRequest.class, "helprequests", format, helpRequestRepository::streamAllBy);
+  }
+
+  /**
+   * Get many Help Requests with one query
+   *
+   * @param ids the ids of the Help Requests to get, at most 100
+   * @return the Help Requests found, in the order asked for, and the ids with no row
+   */
+  @Operation(summary = "Get many Help Requests at once, in the order of their ids")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<HelpRequest> batchOfHelpRequests(
+      @Parameter(name = "ids", description = "comma separated ids, at most 100") @RequestParam
+          List<Long> ids) {
+    return batchFetcher.fetch(helpRequestRepository, ids);
+  }
+
   /**
    * Get a Help Request by id
    *
    * @param id the id of the Help Request
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a HelpRequest
    */
   @Operation(summary = "Get a single Help Request")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public HelpRequest getById(@Parameter(name = "id") @RequestParam Long id) {
+  public HelpRequest getById(
+      @Parameter(name = "id") @RequestParam Long id, ServletWebRequest request) {
+    if (tableVersions.notModified(request, HelpRequest.class)) {
+      return null;
+    }
     HelpRequest helpRequest =
         helpRequestRepository
             .findById(id)
@@ -101,7 +180,8 @@ public class HelpRequestController extends ApiController {
     helpRequest.setExplanation(explanation);
     helpRequest.setSolved(solved);
 
-    HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+    HelpRequest savedHelpRequest =
+        tableVersions.write(HelpRequest.class, () -> helpRequestRepository.save(helpRequest));
 
     return savedHelpRequest;
   }
@@ -116,13 +196,14 @@ public class HelpRequestController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteHelpRequest(@Parameter(name = "id") @RequestParam Long id) {
-    HelpRequest helpRequest =
-        helpRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-    helpRequestRepository.delete(helpRequest);
-    return genericMessage("HelpRequest with id %s deleted".formatted(id));
+    return tableVersions.write(
+        HelpRequest.class,
+        () -> {
+          if (helpRequestRepository.deleteByIdReturningCount(id) == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+          }
+          return genericMessage("HelpRequest with id %s deleted".formatted(id));
+        });
   }
 
   /**
@@ -138,20 +219,64 @@ public class HelpRequestController extends ApiController {
   public HelpRequest updateHelpRequest(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid HelpRequest incoming) {
 
-    HelpRequest helpRequest =
-        helpRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+    return tableVersions.write(
+        HelpRequest.class,
+        () -> {
+          int updated =
+              helpRequestRepository.updateFieldsById(
+                  id,
+                  incoming.getRequesterEmail(),
+                  incoming.getTeamId(),
+                  incoming.getTableOrBreakoutRoom(),
+                  incoming.getRequestTime(),
+                  incoming.getExplanation(),
+                  incoming.getSolved());
+          if (updated == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+          }
+          return helpRequestRepository.findById(id).get();
+        });
+  }
 
-    helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-    helpRequest.setTeamId(incoming.getTeamId());
-    helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-    helpRequest.setRequestTime(incoming.getRequestTime());
-    helpRequest.setExplanation(incoming.getExplanation());
-    helpRequest.setSolved(incoming.getSolved());
+  /**
+   * Create many Help Requests in one transaction; nothing is saved if any of them is invalid.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new Help Requests, as a JSON array or NDJSON (one JSON object per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many Help Requests at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateHelpRequests(@RequestBody List<HelpRequest> rows) {
+    return bulkWriter.create(HelpRequest.class, rows);
+  }
 
-    helpRequestRepository.save(helpRequest);
+  /**
+   * Update many Help Requests in one transaction; nothing is saved if any of them is invalid or
+   * does not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the Help Requests, each with its id, as a JSON array or NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many Help Requests at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateHelpRequests(@RequestBody List<HelpRequest> rows) {
+    return bulkWriter.update(HelpRequest.class, rows);
+  }
 
-    return helpRequest;
+  /**
+   * Delete many Help Requests in one transaction; nothing is deleted if any of them does not exist.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the Help Requests to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(summary = "Delete many Help Requests at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteHelpRequests(@RequestBody List<Long> ids) {
+    return bulkWriter.delete(HelpRequest.class, ids);
   }
 }
@@ -0,0 +1,91 @@
+package edu.ucsb.cs156.example.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.services.jobs.JobScheduler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/** This is a REST controller for the schedules of recurring jobs */
+@Tag(name = "Job schedules")
+@RequestMapping("/api/jobs/schedules")
+@RestController
+public class JobSchedulesController extends ApiController {
+  @Autowired private JobScheduler jobScheduler;
+
+  @Operation(summary = "List the schedules of recurring jobs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("")
+  public List<JobSchedule> allSchedules() {
+    return jobScheduler.getSchedules();
+  }
+
+  @Operation(
+      summary = "Create a schedule that queues a job every time its cron expression fires",
+      description =
+          "The cron expression has six fields: second, minute, hour, day of month, month and day"
+              + " of week, e.g. '0 0 3 * * *' for 3am every day. The body holds the parameters"
+              + " of the job, as for the /api/jobs/launch endpoints")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("")
+  public JobSchedule postSchedule(
+      @Parameter(name = "name", description = "unique name of the schedule") @RequestParam
+          String name,
+      @Parameter(name = "cron", description = "Spring cron expression") @RequestParam String cron,
+      @Parameter(name = "type", description = "type of job, e.g. TestJob") @RequestParam
+          String type,
+      @RequestBody(required = false) Map<String, Object> params)
+      throws JsonProcessingException {
+    return jobScheduler.createSchedule(name, cron, type, params);
+  }
+
+  @Operation(summary = "Pause a schedule, so that it does not fire until it is resumed")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/pause")
+  public JobSchedule pauseSchedule(
+      @Parameter(name = "id", description = "Schedule ID") @PathVariable Long id) {
+    return jobScheduler.pauseSchedule(id);
+  }
+
+  @Operation(
+      summary =
+          "Resume a paused schedule; it fires next at its next tick from now, skipping those it"
+              + " missed")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/resume")
+  public JobSchedule resumeSchedule(
+      @Parameter(name = "id", description = "Schedule ID") @PathVariable Long id) {
+    return jobScheduler.resumeSchedule(id);
+  }
+
+  @Operation(summary = "Queue the job of a schedule now, even if the schedule is paused")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/trigger")
+  public Job triggerSchedule(
+      @Parameter(name = "id", description = "Schedule ID") @PathVariable Long id)
+      throws JsonProcessingException {
+    return jobScheduler.triggerSchedule(id);
+  }
+
+  @Operation(summary = "Delete a schedule; the jobs it has queued are kept")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("")
+  public Object deleteSchedule(@Parameter(name = "id") @RequestParam Long id) {
+    jobScheduler.deleteSchedule(id);
+    return genericMessage("JobSchedule with id %s deleted".formatted(id));
+  }
+}
@@ -4,23 +4,41 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
-import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.jobs.ResumableTestJobFactory;
+import edu.ucsb.cs156.example.jobs.SeedDataJobFactory;
+import edu.ucsb.cs156.example.jobs.SeedTable;
+import edu.ucsb.cs156.example.jobs.TestJobFactory;
+import edu.ucsb.cs156.example.models.JobExecutorStats;
+import edu.ucsb.cs156.example.models.JobLogTail;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobQueue;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
@@ -33,6 +51,12 @@ public class JobsController extends ApiController {
 
   @Autowired ObjectMapper mapper;
 
+  @Autowired private JobQueue jobQueue;
+
+  @Autowired private JobRetentionService jobRetentionService;
+
+  static final int MAX_SUMMARY_PAGE_SIZE = 500;
+
   @Operation(summary = "List all jobs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
@@ -41,6 +65,45 @@ public class JobsController extends ApiController {
     return jobs;
   }
 
+  @Operation(
+      summary =
+          "List jobs newest first, without their logs; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/summaries")
+  public KeysetPage<JobSummary> jobSummaries(
+      @Parameter(name = "status", description = "only jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(
+              name = "createdAfter",
+              description = "only jobs created at or after this time, e.g. 2025-01-01T00:00:00Z")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdAfter,
+      @Parameter(name = "createdBefore", description = "only jobs created before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore,
+      @Parameter(name = "cursor", description = "nextCursor from the previous page")
+          @RequestParam(required = false)
+          Long cursor,
+      @Parameter(name = "size", description = "number of jobs per page (at most 500)")
+          @RequestParam(defaultValue = "50")
+          int size) {
+    int pageSize = Math.min(Math.max(size, 1), MAX_SUMMARY_PAGE_SIZE);
+
+    // fetch one extra row to find out whether there is another page
+    List<JobSummary> summaries =
+        jobsRepository.findSummaries(
+            cursor, status, createdAfter, createdBefore, PageRequest.of(0, pageSize + 1));
+    String nextCursor = null;
+    if (summaries.size() > pageSize) {
+      summaries = summaries.subList(0, pageSize);
+      nextCursor = Long.toString(summaries.get(pageSize - 1).getId());
+    }
+    return KeysetPage.<JobSummary>builder().content(summaries).nextCursor(nextCursor).build();
+  }
+
   @Operation(summary = "Delete all job records")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
@@ -73,15 +136,87 @@ public class JobsController extends ApiController {
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
+  @Operation(
+      summary = "Cancel a job",
+      description =
+          "A queued job is cancelled at once; a running job is interrupted, and is marked as"
+              + " cancelled when it stops. Cancelling a finished job changes nothing.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/cancel")
+  public Job cancelJob(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    return jobService.cancelJob(id);
+  }
+
   @Operation(summary = "Launch Test Job (click fail if you want to test exception handling)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs)
+      throws JsonProcessingException {
+
+    return jobQueue.enqueue(TestJobFactory.TYPE, Map.of("fail", fail, "sleepMs", sleepMs));
+  }
+
+  @Operation(
+      summary =
+          "Launch a Test Job that works in steps and records a checkpoint after each, so that it"
+              + " resumes where it left off if its instance restarts")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/launch/resumabletestjob")
+  public Job launchResumableTestJob(
+      @Parameter(name = "steps") @RequestParam(defaultValue = "10") int steps,
+      @Parameter(name = "sleepMs", description = "time each step takes")
+          @RequestParam(defaultValue = "1000")
+          int sleepMs)
+      throws JsonProcessingException {
 
-    TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    return jobQueue.enqueue(
+        ResumableTestJobFactory.TYPE, Map.of("steps", steps, "sleepMs", sleepMs));
+  }
+
+  @Operation(summary = "Launch a job that adds synthetic rows to tables, for benchmarking")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/launch/seeddata")
+  public Job launchSeedDataJob(
+      @Parameter(name = "tables", description = "tables to add rows to (default: all)")
+          @RequestParam(required = false)
+          List<SeedTable> tables,
+      @Parameter(name = "rows", description = "number of rows to add to each table")
+          @RequestParam(defaultValue = "10000")
+          int rows,
+      @Parameter(name = "seed", description = "the same seed always generates the same rows")
+          @RequestParam(defaultValue = "42")
+          long seed,
+      @Parameter(name = "batchSize", description = "rows inserted per JDBC batch")
+          @RequestParam(defaultValue = "1000")
+          int batchSize)
+      throws JsonProcessingException {
+
+    List<SeedTable> seedTables = tables == null ? Arrays.asList(SeedTable.values()) : tables;
+    Map<String, Object> params = new LinkedHashMap<>();
+    params.put("tables", seedTables.stream().map(SeedTable::name).toList());
+    params.put("rows", Math.max(rows, 0));
+    params.put("seed", seed);
+    params.put("batchSize", Math.max(batchSize, 1));
+    return jobQueue.enqueue(SeedDataJobFactory.TYPE, params);
+  }
+
+  @Operation(
+      summary =
+          "Delete the finished jobs older than the retention and compress the logs of the others"
+              + " now, rather than at the next scheduled run, and report the bytes reclaimed")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/compact")
+  public JobRetentionReport compactJobs() {
+    return jobRetentionService.compactAndPurge();
+  }
+
+  @Operation(summary = "Get job executor statistics (queue depth, active jobs, wait times)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/executor")
+  public JobExecutorStats getExecutorStats() {
+    return jobQueue.getStats();
   }
 
   @Operation(summary = "Get long job logs")
@@ -91,4 +226,36 @@ public class JobsController extends ApiController {
 
     return jobService.getJobLogs(id);
   }
+
+  @Operation(
+      summary =
+          "Get the lines of a job log from line fromLine (0 based) on, with the cursor for the next"
+              + " request")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}", params = "fromLine")
+  public JobLogTail getJobLogTail(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "fromLine", description = "number of the first line to return")
+          @RequestParam
+          long fromLine) {
+    return jobService.getJobLogTail(id, fromLine);
+  }
+
+  @Operation(
+      summary =
+          "Follow a job log as Server-Sent Events: one 'line' event per log line, then a 'status'"
+              + " event when the job finishes")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/logs/{id}/stream")
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "fromLine", description = "number of the first line to send")
+          @RequestParam(defaultValue = "0")
+          long fromLine,
+      @Parameter(name = "Last-Event-ID", description = "id of the last event seen, on reconnect")
+          @RequestHeader(value = "Last-Event-ID", required = false)
+          Long lastEventId) {
+    long from = lastEventId != null ? lastEventId + 1 : fromLine;
+    return jobService.streamJobLogs(id, from);
+  }
 }
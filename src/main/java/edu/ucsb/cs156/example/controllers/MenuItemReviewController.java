@@ -3,15 +3,28 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +34,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for menuitemreview */
 @Tag(name = "MenuItemReview")
@@ -30,20 +45,79 @@ import org.springframework.web.bind.annotation.RestController;
 public class MenuItemReviewController extends ApiController {
 
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS = Set.of("itemId", "reviewerEmail", "stars", "dateReviewed");
 
   /**
    * List all Menu Item reviews
    *
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return an iterable of MenuItemReview
    */
   @Operation(summary = "List all Menu Item reviews")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<MenuItemReview> allMenuItemReviews() {
+  public Iterable<MenuItemReview> allMenuItemReviews(ServletWebRequest request) {
+    if (tableVersions.notModified(request, MenuItemReview.class)) {
+      return null;
+    }
     Iterable<MenuItemReview> menuItemReviews = menuItemReviewRepository.findAll();
     return menuItemReviews;
   }
 
+  /**
+   * List Menu Item reviews a page at a time, sorted and filtered
+   *
+   * @param query the sort, filters, cursor and page size
+   * @return a page of MenuItemReview
+   */
+  @Operation(
+      summary =
+          "List Menu Item reviews a page at a time; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<MenuItemReview> pageOfMenuItemReviews(@ParameterObject PageQuery query) {
+    return keysetPager.page(MenuItemReview.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all Menu Item reviews, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the Menu Item reviews, as a download
+   */
+  @Operation(summary = "Export all Menu Item reviews as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportMenuItemReviews(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        MenuItemReview.class, "menuitemreviews", format, menuItemReviewRepository::streamAllBy);
+  }
+
+  /**
+   * Get many Menu Item reviews with one query
+   *
+   * @param ids the ids of the Menu Item reviews to get, at most 100
+   * @return the Menu Item reviews found, in the order asked for, and the ids with no row
+   */
+  @Operation(summary = "Get many Menu Item reviews at once, in the order of their ids")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<MenuItemReview> batchOfMenuItemReviews(
+      @Parameter(name = "ids", description = "comma separated ids, at most 100") @RequestParam
+          List<Long> ids) {
+    return batchFetcher.fetch(menuItemReviewRepository, ids);
+  }
+
   /**
    * Create a new Menu Item Review
    *
@@ -79,7 +153,9 @@ public class MenuItemReviewController extends ApiController {
     menuItemReview.setDateReviewed(dateReviewed);
     menuItemReview.setComments(comments);
 
-    MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+    MenuItemReview savedMenuItemReview =
+        tableVersions.write(
+            MenuItemReview.class, () -> menuItemReviewRepository.save(menuItemReview));
 
     return savedMenuItemReview;
   }
@@ -88,12 +164,17 @@ public class MenuItemReviewController extends ApiController {
    * Get a single MenuItemReview by id
    *
    * @param id the id of the MenuItemReview
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a MenuItemReview
    */
   @Operation(summary = "Get a single menu item review")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public MenuItemReview getById(@Parameter(name = "id") @RequestParam Long id) {
+  public MenuItemReview getById(
+      @Parameter(name = "id") @RequestParam Long id, ServletWebRequest request) {
+    if (tableVersions.notModified(request, MenuItemReview.class)) {
+      return null;
+    }
     MenuItemReview menuItemReview =
         menuItemReviewRepository
             .findById(id)
@@ -115,20 +196,22 @@ public class MenuItemReviewController extends ApiController {
   public MenuItemReview updateMenuItemReview(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid MenuItemReview incoming) {
 
-    MenuItemReview menuItemReview =
-        menuItemReviewRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-    menuItemReview.setItemId(incoming.getItemId());
-    menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-    menuItemReview.setStars(incoming.getStars());
-    menuItemReview.setDateReviewed(incoming.getDateReviewed());
-    menuItemReview.setComments(incoming.getComments());
-
-    menuItemReviewRepository.save(menuItemReview);
-
-    return menuItemReview;
+    return tableVersions.write(
+        MenuItemReview.class,
+        () -> {
+          int updated =
+              menuItemReviewRepository.updateFieldsById(
+                  id,
+                  incoming.getItemId(),
+                  incoming.getReviewerEmail(),
+                  incoming.getStars(),
+                  incoming.getDateReviewed(),
+                  incoming.getComments());
+          if (updated == 0) {
+            throw new EntityNotFoundException(MenuItemReview.class, id);
+          }
+          return menuItemReviewRepository.findById(id).get();
+        });
   }
 
   /**
@@ -141,12 +224,58 @@ public class MenuItemReviewController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteMenuItemReview(@Parameter(name = "id") @RequestParam Long id) {
-    MenuItemReview menuItemReview =
-        menuItemReviewRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+    return tableVersions.write(
+        MenuItemReview.class,
+        () -> {
+          if (menuItemReviewRepository.deleteByIdReturningCount(id) == 0) {
+            throw new EntityNotFoundException(MenuItemReview.class, id);
+          }
+          return genericMessage("MenuItemReview with id %s deleted".formatted(id));
+        });
+  }
+
+  /**
+   * Create many Menu Item reviews in one transaction; nothing is saved if any of them is invalid.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new Menu Item reviews, as a JSON array or NDJSON (one JSON object per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many Menu Item reviews at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateMenuItemReviews(
+      @RequestBody List<MenuItemReview> rows) {
+    return bulkWriter.create(MenuItemReview.class, rows);
+  }
+
+  /**
+   * Update many Menu Item reviews in one transaction; nothing is saved if any of them is invalid or
+   * does not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the Menu Item reviews, each with its id, as a JSON array or
+   *     NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many Menu Item reviews at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateMenuItemReviews(
+      @RequestBody List<MenuItemReview> rows) {
+    return bulkWriter.update(MenuItemReview.class, rows);
+  }
 
-    menuItemReviewRepository.delete(menuItemReview);
-    return genericMessage("MenuItemReview with id %s deleted".formatted(id));
+  /**
+   * Delete many Menu Item reviews in one transaction; nothing is deleted if any of them does not
+   * exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the Menu Item reviews to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(summary = "Delete many Menu Item reviews at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteMenuItemReviews(@RequestBody List<Long> ids) {
+    return bulkWriter.delete(MenuItemReview.class, ids);
   }
 }
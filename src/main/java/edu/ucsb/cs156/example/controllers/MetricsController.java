@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.EndpointStats;
+import edu.ucsb.cs156.example.services.metrics.EndpointMetrics;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This is a REST controller for the latency, throughput and error statistics of the controller
+ * methods, as recorded by LoggingAspect.
+ *
+ * <p>These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+@Tag(name = "Endpoint metrics (admin only)")
+@RequestMapping("/api/admin/metrics")
+@RestController
+public class MetricsController extends ApiController {
+  @Autowired EndpointMetrics endpointMetrics;
+
+  /**
+   * This method returns the statistics of every controller method called since startup or the last
+   * reset.
+   *
+   * @return count, errors, throughput and p50/p95/p99/max latency of each controller method
+   */
+  @Operation(summary = "Get latency, throughput and error statistics for each endpoint")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("")
+  public List<EndpointStats> getMetrics() {
+    return endpointMetrics.getStats();
+  }
+
+  /**
+   * This method returns the same statistics in the Prometheus text exposition format.
+   *
+   * @return the statistics as Prometheus text
+   */
+  @Operation(summary = "Get endpoint statistics in the Prometheus text format")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/prometheus", produces = MediaType.TEXT_PLAIN_VALUE)
+  public String getPrometheusMetrics() {
+    return endpointMetrics.toPrometheus();
+  }
+
+  /**
+   * This method discards all statistics recorded so far.
+   *
+   * @return a message confirming the reset
+   */
+  @Operation(summary = "Reset the endpoint statistics")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("")
+  public Object resetMetrics() {
+    endpointMetrics.reset();
+    return genericMessage("Endpoint metrics reset");
+  }
+}
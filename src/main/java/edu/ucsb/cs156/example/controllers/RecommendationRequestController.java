@@ -3,15 +3,28 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +34,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "RecommendationRequests")
 @RequestMapping("/api/recommendationrequests")
@@ -29,24 +44,88 @@ import org.springframework.web.bind.annotation.RestController;
 public class RecommendationRequestController extends ApiController {
 
   @Autowired private RecommendationRequestRepository recommendationRequestRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS =
+      Set.of("requesterEmail", "professorEmail", "dateRequested", "dateNeeded", "done");
 
   @Operation(summary = "List all recommendation requests")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<RecommendationRequest> allRecommendationRequests() {
+  public Iterable<RecommendationRequest> allRecommendationRequests(ServletWebRequest request) {
+    if (tableVersions.notModified(request, RecommendationRequest.class)) {
+      return null;
+    }
     return recommendationRequestRepository.findAll();
   }
 
+  @Operation(
+      summary =
+          "List recommendation requests a page at a time;"
+              + " pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<RecommendationRequest> pageOfRecommendationRequests(
+      @ParameterObject PageQuery query) {
+    return keysetPager.page(RecommendationRequest.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all recommendation requests, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the recommendation requests, as a download
+   */
+  @Operation(
+      summary = "Export all recommendation requests as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportRecommendationRequests(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        RecommendationRequest.class,
+        "recommendationrequests",
+        format,
+        recommendationRequestRepository::streamAllBy);
+  }
+
+  /**
+   * Get many recommendation requests with one query
+   *
+   * @param ids the ids of the recommendation requests to get, at most 100
+   * @return the recommendation requests found, in the order asked for, and the ids with no row
+   */
+  @Operation(summary = "Get many recommendation requests at once, in the order of their ids")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<RecommendationRequest> batchOfRecommendationRequests(
+      @Parameter(name = "ids", description = "comma separated ids, at most 100") @RequestParam
+          List<Long> ids) {
+    return batchFetcher.fetch(recommendationRequestRepository, ids);
+  }
+
   /**
    * Get a single recommendation request by id
    *
    * @param id the id of the request
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a Recommendation Request
    */
   @Operation(summary = "Get a single recommendation request")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public RecommendationRequest getById(@Parameter(name = "id") @RequestParam Long id) {
+  public RecommendationRequest getById(
+      @Parameter(name = "id") @RequestParam Long id, ServletWebRequest request) {
+    if (tableVersions.notModified(request, RecommendationRequest.class)) {
+      return null;
+    }
     RecommendationRequest recommendationRequest =
         recommendationRequestRepository
             .findById(id)
@@ -87,7 +166,9 @@ public class RecommendationRequestController extends ApiController {
     recommendationRequest.setDateNeeded(dateNeeded);
     recommendationRequest.setDone(done);
 
-    recommendationRequestRepository.save(recommendationRequest);
+    tableVersions.write(
+        RecommendationRequest.class,
+        () -> recommendationRequestRepository.save(recommendationRequest));
 
     return recommendationRequest;
   }
@@ -102,13 +183,14 @@ public class RecommendationRequestController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteRecommendationRequest(@Parameter(name = "id") @RequestParam Long id) {
-    RecommendationRequest recommendationRequest =
-        recommendationRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-    recommendationRequestRepository.delete(recommendationRequest);
-    return genericMessage("Recommendation request with id %s deleted".formatted(id));
+    return tableVersions.write(
+        RecommendationRequest.class,
+        () -> {
+          if (recommendationRequestRepository.deleteByIdReturningCount(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+          }
+          return genericMessage("Recommendation request with id %s deleted".formatted(id));
+        });
   }
 
   /**
@@ -125,20 +207,69 @@ public class RecommendationRequestController extends ApiController {
       @Parameter(name = "id") @RequestParam Long id,
       @RequestBody @Valid RecommendationRequest incoming) {
 
-    RecommendationRequest recommendationRequest =
-        recommendationRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+    return tableVersions.write(
+        RecommendationRequest.class,
+        () -> {
+          int updated =
+              recommendationRequestRepository.updateFieldsById(
+                  id,
+                  incoming.getRequesterEmail(),
+                  incoming.getProfessorEmail(),
+                  incoming.getExplanation(),
+                  incoming.getDateRequested(),
+                  incoming.getDateNeeded(),
+                  incoming.getDone());
+          if (updated == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+          }
+          return recommendationRequestRepository.findById(id).get();
+        });
+  }
 
-    recommendationRequest.setRequesterEmail(incoming.getRequesterEmail());
-    recommendationRequest.setProfessorEmail(incoming.getProfessorEmail());
-    recommendationRequest.setExplanation(incoming.getExplanation());
-    recommendationRequest.setDateRequested(incoming.getDateRequested());
-    recommendationRequest.setDateNeeded(incoming.getDateNeeded());
-    recommendationRequest.setDone(incoming.getDone());
+  /**
+   * Create many recommendation requests in one transaction; nothing is saved if any of them is
+   * invalid. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new recommendation requests, as a JSON array or NDJSON (one JSON object per
+   *     line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many recommendation requests at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateRecommendationRequests(
+      @RequestBody List<RecommendationRequest> rows) {
+    return bulkWriter.create(RecommendationRequest.class, rows);
+  }
 
-    recommendationRequestRepository.save(recommendationRequest);
+  /**
+   * Update many recommendation requests in one transaction; nothing is saved if any of them is
+   * invalid or does not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the recommendation requests, each with its id, as a JSON array
+   *     or NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many recommendation requests at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateRecommendationRequests(
+      @RequestBody List<RecommendationRequest> rows) {
+    return bulkWriter.update(RecommendationRequest.class, rows);
+  }
 
-    return recommendationRequest;
+  /**
+   * Delete many recommendation requests in one transaction; nothing is deleted if any of them does
+   * not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the recommendation requests to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(
+      summary = "Delete many recommendation requests at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteRecommendationRequests(@RequestBody List<Long> ids) {
+    return bulkWriter.delete(RecommendationRequest.class, ids);
   }
 }
@@ -2,12 +2,26 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableCache;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,6 +31,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for Restaurants */
 @Tag(name = "Restaurants")
@@ -25,33 +41,97 @@ import org.springframework.web.bind.annotation.RestController;
 public class RestaurantsController extends ApiController {
 
   @Autowired RestaurantRepository restaurantRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+  @Autowired TableCache tableCache;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS = Set.of("name");
 
   /**
    * This method returns a list of all restaurants.
    *
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a list of all restaurants
    */
   @Operation(summary = "List all restaurants")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Restaurant> allRestaurants() {
-    Iterable<Restaurant> restaurants = restaurantRepository.findAll();
+  public Iterable<Restaurant> allRestaurants(ServletWebRequest request) {
+    if (tableVersions.notModified(request, Restaurant.class)) {
+      return null;
+    }
+    Iterable<Restaurant> restaurants = tableCache.findAll(Restaurant.class, restaurantRepository);
     return restaurants;
   }
 
+  /**
+   * List restaurants a page at a time, sorted and filtered
+   *
+   * @param query the sort, filters, cursor and page size
+   * @return a page of Restaurant
+   */
+  @Operation(
+      summary = "List restaurants a page at a time; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<Restaurant> pageOfRestaurants(@ParameterObject PageQuery query) {
+    return keysetPager.page(Restaurant.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all restaurants, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the restaurants, as a download
+   */
+  @Operation(summary = "Export all restaurants as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportRestaurants(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        Restaurant.class, "restaurants", format, restaurantRepository::streamAllBy);
+  }
+
+  /**
+   * Get many restaurants with one query
+   *
+   * @param ids the ids of the restaurants to get, at most 100
+   * @return the restaurants found, in the order asked for, and the ids with no row
+   */
+  @Operation(summary = "Get many restaurants at once, in the order of their ids")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<Restaurant> batchOfRestaurants(
+      @Parameter(name = "ids", description = "comma separated ids, at most 100") @RequestParam
+          List<Long> ids) {
+    return batchFetcher.fetch(restaurantRepository, ids);
+  }
+
   /**
    * This method returns a single restaurant.
    *
    * @param id id of the restaurant to get
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a single restaurant
    */
   @Operation(summary = "Get a single restaurant")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public Restaurant getById(@Parameter(name = "id") @RequestParam Long id) {
+  public Restaurant getById(
+      @Parameter(name = "id") @RequestParam Long id, ServletWebRequest request) {
+    if (tableVersions.notModified(request, Restaurant.class)) {
+      return null;
+    }
     Restaurant restaurant =
-        restaurantRepository
-            .findById(id)
+        tableCache
+            .findById(Restaurant.class, restaurantRepository, id)
             .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
     return restaurant;
@@ -75,7 +155,8 @@ public class RestaurantsController extends ApiController {
     restaurant.setName(name);
     restaurant.setDescription(description);
 
-    Restaurant savedrestaurant = restaurantRepository.save(restaurant);
+    Restaurant savedrestaurant =
+        tableVersions.write(Restaurant.class, () -> restaurantRepository.save(restaurant));
     return savedrestaurant;
   }
 
@@ -89,13 +170,14 @@ public class RestaurantsController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteRestaurant(@Parameter(name = "id") @RequestParam Long id) {
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-    restaurantRepository.delete(restaurant);
-    return genericMessage("Restaurant with id %s deleted".formatted(id));
+    return tableVersions.write(
+        Restaurant.class,
+        () -> {
+          if (restaurantRepository.deleteByIdReturningCount(id) == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+          }
+          return genericMessage("Restaurant with id %s deleted".formatted(id));
+        });
   }
 
   /**
@@ -111,16 +193,58 @@ public class RestaurantsController extends ApiController {
   public Restaurant updateRestaurant(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid Restaurant incoming) {
 
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+    return tableVersions.write(
+        Restaurant.class,
+        () -> {
+          int updated =
+              restaurantRepository.updateFieldsById(
+                  id, incoming.getName(), incoming.getDescription());
+          if (updated == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+          }
+          return restaurantRepository.findById(id).get();
+        });
+  }
 
-    restaurant.setName(incoming.getName());
-    restaurant.setDescription(incoming.getDescription());
+  /**
+   * Create many restaurants in one transaction; nothing is saved if any of them is invalid.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new restaurants, as a JSON array or NDJSON (one JSON object per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many restaurants at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateRestaurants(@RequestBody List<Restaurant> rows) {
+    return bulkWriter.create(Restaurant.class, rows);
+  }
 
-    restaurantRepository.save(restaurant);
+  /**
+   * Update many restaurants in one transaction; nothing is saved if any of them is invalid or does
+   * not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the restaurants, each with its id, as a JSON array or NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many restaurants at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateRestaurants(@RequestBody List<Restaurant> rows) {
+    return bulkWriter.update(Restaurant.class, rows);
+  }
 
-    return restaurant;
+  /**
+   * Delete many restaurants in one transaction; nothing is deleted if any of them does not exist.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the restaurants to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(summary = "Delete many restaurants at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteRestaurants(@RequestBody List<Long> ids) {
+    return bulkWriter.delete(Restaurant.class, ids);
   }
 }
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Sends the ETag that {@link TableVersions#notModified} worked out for a response, just before the
+ * response's body is written, if the response is a success. The ETag describes the contents of a
+ * table, so an error response (such as the 404 of a get by an id that does not exist) is sent
+ * without it.
+ */
+@ControllerAdvice
+public class TableETagAdvice implements ResponseBodyAdvice<Object> {
+
+  @Override
+  public boolean supports(
+      MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(
+      Object body,
+      MethodParameter returnType,
+      MediaType selectedContentType,
+      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+      ServerHttpRequest request,
+      ServerHttpResponse response) {
+    Object etag =
+        ((ServletServerHttpRequest) request)
+            .getServletRequest()
+            .getAttribute(TableVersions.ETAG_ATTRIBUTE);
+    int status = ((ServletServerHttpResponse) response).getServletResponse().getStatus();
+    if (body != null && etag != null && status < 300) {
+      response.getHeaders().setETag("\"" + etag + "\"");
+    }
+    return body;
+  }
+}
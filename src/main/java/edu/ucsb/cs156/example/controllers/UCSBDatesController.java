@@ -3,15 +3,28 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +34,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for UCSBDates */
 @Tag(name = "UCSBDates")
@@ -30,30 +45,93 @@ import org.springframework.web.bind.annotation.RestController;
 public class UCSBDatesController extends ApiController {
 
   @Autowired UCSBDateRepository ucsbDateRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS = Set.of("quarterYYYYQ", "name", "localDateTime");
 
   /**
    * List all UCSB dates
    *
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return an iterable of UCSBDate
    */
   @Operation(summary = "List all ucsb dates")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDate> allUCSBDates() {
+  public Iterable<UCSBDate> allUCSBDates(ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBDate.class)) {
+      return null;
+    }
     Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
     return dates;
   }
 
+  /**
+   * List ucsb dates a page at a time, sorted and filtered
+   *
+   * @param query the sort, filters, cursor and page size
+   * @return a page of UCSBDate
+   */
+  @Operation(
+      summary = "List ucsb dates a page at a time; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBDate> pageOfUCSBDates(@ParameterObject PageQuery query) {
+    return keysetPager.page(UCSBDate.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all ucsb dates, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the ucsb dates, as a download
+   */
+  @Operation(summary = "Export all ucsb dates as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportUCSBDates(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        UCSBDate.class, "ucsbdates", format, ucsbDateRepository::streamAllBy);
+  }
+
+  /**
+   * Get many ucsb dates with one query
+   *
+   * @param ids the ids of the ucsb dates to get, at most 100
+   * @return the ucsb dates found, in the order asked for, and the ids with no row
+   */
+  @Operation(summary = "Get many ucsb dates at once, in the order of their ids")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<UCSBDate> batchOfUCSBDates(
+      @Parameter(name = "ids", description = "comma separated ids, at most 100") @RequestParam
+          List<Long> ids) {
+    return batchFetcher.fetch(ucsbDateRepository, ids);
+  }
+
   /**
    * Get a single date by id
    *
    * @param id the id of the date
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a UCSBDate
    */
   @Operation(summary = "Get a single date")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDate getById(@Parameter(name = "id") @RequestParam Long id) {
+  public UCSBDate getById(
+      @Parameter(name = "id") @RequestParam Long id, ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBDate.class)) {
+      return null;
+    }
     UCSBDate ucsbDate =
         ucsbDateRepository
             .findById(id)
@@ -95,7 +173,8 @@ public class UCSBDatesController extends ApiController {
     ucsbDate.setName(name);
     ucsbDate.setLocalDateTime(localDateTime);
 
-    UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+    UCSBDate savedUcsbDate =
+        tableVersions.write(UCSBDate.class, () -> ucsbDateRepository.save(ucsbDate));
 
     return savedUcsbDate;
   }
@@ -110,13 +189,14 @@ public class UCSBDatesController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteUCSBDate(@Parameter(name = "id") @RequestParam Long id) {
-    UCSBDate ucsbDate =
-        ucsbDateRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-    ucsbDateRepository.delete(ucsbDate);
-    return genericMessage("UCSBDate with id %s deleted".formatted(id));
+    return tableVersions.write(
+        UCSBDate.class,
+        () -> {
+          if (ucsbDateRepository.deleteByIdReturningCount(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+          }
+          return genericMessage("UCSBDate with id %s deleted".formatted(id));
+        });
   }
 
   /**
@@ -132,17 +212,58 @@ public class UCSBDatesController extends ApiController {
   public UCSBDate updateUCSBDate(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid UCSBDate incoming) {
 
-    UCSBDate ucsbDate =
-        ucsbDateRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+    return tableVersions.write(
+        UCSBDate.class,
+        () -> {
+          int updated =
+              ucsbDateRepository.updateFieldsById(
+                  id, incoming.getQuarterYYYYQ(), incoming.getName(), incoming.getLocalDateTime());
+          if (updated == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+          }
+          return ucsbDateRepository.findById(id).get();
+        });
+  }
 
-    ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-    ucsbDate.setName(incoming.getName());
-    ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+  /**
+   * Create many ucsb dates in one transaction; nothing is saved if any of them is invalid.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new ucsb dates, as a JSON array or NDJSON (one JSON object per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many ucsb dates at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateUCSBDates(@RequestBody List<UCSBDate> rows) {
+    return bulkWriter.create(UCSBDate.class, rows);
+  }
 
-    ucsbDateRepository.save(ucsbDate);
+  /**
+   * Update many ucsb dates in one transaction; nothing is saved if any of them is invalid or does
+   * not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the ucsb dates, each with its id, as a JSON array or NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many ucsb dates at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateUCSBDates(@RequestBody List<UCSBDate> rows) {
+    return bulkWriter.update(UCSBDate.class, rows);
+  }
 
-    return ucsbDate;
+  /**
+   * Delete many ucsb dates in one transaction; nothing is deleted if any of them does not exist.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the ucsb dates to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(summary = "Delete many ucsb dates at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteUCSBDates(@RequestBody List<Long> ids) {
+    return bulkWriter.delete(UCSBDate.class, ids);
   }
 }
@@ -2,13 +2,27 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableCache;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +32,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for UCSBDiningCommons */
 @Tag(name = "UCSBDiningCommons")
@@ -27,33 +43,103 @@ import org.springframework.web.bind.annotation.RestController;
 public class UCSBDiningCommonsController extends ApiController {
 
   @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+  @Autowired TableCache tableCache;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS =
+      Set.of("name", "hasSackMeal", "hasTakeOutMeal", "hasDiningCam", "latitude", "longitude");
 
   /**
    * THis method returns a list of all ucsbdiningcommons.
    *
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a list of all ucsbdiningcommons
    */
   @Operation(summary = "List all ucsb dining commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommons> allCommonss() {
-    Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
+  public Iterable<UCSBDiningCommons> allCommonss(ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBDiningCommons.class)) {
+      return null;
+    }
+    Iterable<UCSBDiningCommons> commons =
+        tableCache.findAll(UCSBDiningCommons.class, ucsbDiningCommonsRepository);
     return commons;
   }
 
+  /**
+   * List ucsb dining commons a page at a time, sorted and filtered
+   *
+   * @param query the sort, filters, cursor and page size
+   * @return a page of UCSBDiningCommons
+   */
+  @Operation(
+      summary =
+          "List ucsb dining commons a page at a time; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBDiningCommons> pageOfCommons(@ParameterObject PageQuery query) {
+    return keysetPager.page(UCSBDiningCommons.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all ucsb dining commons, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the ucsb dining commons, as a download
+   */
+  @Operation(summary = "Export all ucsb dining commons as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportCommons(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        UCSBDiningCommons.class,
+        "ucsbdiningcommons",
+        format,
+        ucsbDiningCommonsRepository::streamAllBy);
+  }
+
+  /**
+   * Get many ucsb dining commons with one query
+   *
+   * @param ids the codes of the ucsb dining commons to get, at most 100
+   * @return the ucsb dining commons found, in the order asked for, and the codes with no row
+   */
+  @Operation(summary = "Get many ucsb dining commons at once, in the order of their codes")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<UCSBDiningCommons> batchOfCommons(
+      @Parameter(name = "ids", description = "comma separated codes, at most 100") @RequestParam
+          List<String> ids) {
+    return batchFetcher.fetch(ucsbDiningCommonsRepository, ids);
+  }
+
   /**
    * This method returns a single diningcommons.
    *
    * @param code code of the diningcommons
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a single diningcommons
    */
   @Operation(summary = "Get a single commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDiningCommons getById(@Parameter(name = "code") @RequestParam String code) {
+  public UCSBDiningCommons getById(
+      @Parameter(name = "code") @RequestParam String code, ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBDiningCommons.class)) {
+      return null;
+    }
     UCSBDiningCommons commons =
-        ucsbDiningCommonsRepository
-            .findById(code)
+        tableCache
+            .findById(UCSBDiningCommons.class, ucsbDiningCommonsRepository, code)
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
     return commons;
@@ -92,7 +178,9 @@ public class UCSBDiningCommonsController extends ApiController {
     commons.setLatitude(latitude);
     commons.setLongitude(longitude);
 
-    UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+    UCSBDiningCommons savedCommons =
+        tableVersions.write(
+            UCSBDiningCommons.class, () -> ucsbDiningCommonsRepository.save(commons));
 
     return savedCommons;
   }
@@ -107,13 +195,14 @@ public class UCSBDiningCommonsController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteCommons(@Parameter(name = "code") @RequestParam String code) {
-    UCSBDiningCommons commons =
-        ucsbDiningCommonsRepository
-            .findById(code)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-    ucsbDiningCommonsRepository.delete(commons);
-    return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
+    return tableVersions.write(
+        UCSBDiningCommons.class,
+        () -> {
+          if (ucsbDiningCommonsRepository.deleteByIdReturningCount(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+          }
+          return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
+        });
   }
 
   /**
@@ -130,20 +219,66 @@ public class UCSBDiningCommonsController extends ApiController {
       @Parameter(name = "code") @RequestParam String code,
       @RequestBody @Valid UCSBDiningCommons incoming) {
 
-    UCSBDiningCommons commons =
-        ucsbDiningCommonsRepository
-            .findById(code)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+    return tableVersions.write(
+        UCSBDiningCommons.class,
+        () -> {
+          int updated =
+              ucsbDiningCommonsRepository.updateFieldsById(
+                  code,
+                  incoming.getName(),
+                  incoming.getHasSackMeal(),
+                  incoming.getHasTakeOutMeal(),
+                  incoming.getHasDiningCam(),
+                  incoming.getLatitude(),
+                  incoming.getLongitude());
+          if (updated == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+          }
+          return ucsbDiningCommonsRepository.findById(code).get();
+        });
+  }
 
-    commons.setName(incoming.getName());
-    commons.setHasSackMeal(incoming.getHasSackMeal());
-    commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-    commons.setHasDiningCam(incoming.getHasDiningCam());
-    commons.setLatitude(incoming.getLatitude());
-    commons.setLongitude(incoming.getLongitude());
+  /**
+   * Create many ucsb dining commons in one transaction; nothing is saved if any of them is invalid.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new ucsb dining commons, as a JSON array or NDJSON (one JSON object per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many ucsb dining commons at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateCommons(@RequestBody List<UCSBDiningCommons> rows) {
+    return bulkWriter.create(UCSBDiningCommons.class, rows);
+  }
 
-    ucsbDiningCommonsRepository.save(commons);
+  /**
+   * Update many ucsb dining commons in one transaction; nothing is saved if any of them is invalid
+   * or does not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the ucsb dining commons, each with its id, as a JSON array or
+   *     NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many ucsb dining commons at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateCommons(@RequestBody List<UCSBDiningCommons> rows) {
+    return bulkWriter.update(UCSBDiningCommons.class, rows);
+  }
 
-    return commons;
+  /**
+   * Delete many ucsb dining commons in one transaction; nothing is deleted if any of them does not
+   * exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the ucsb dining commons to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(
+      summary = "Delete many ucsb dining commons at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteCommons(@RequestBody List<String> ids) {
+    return bulkWriter.delete(UCSBDiningCommons.class, ids);
   }
 }
@@ -2,13 +2,26 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +31,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for UCSBDiningCommons */
 @Tag(name = "UCSBDiningCommonsMenuItem")
@@ -27,15 +42,79 @@ import org.springframework.web.bind.annotation.RestController;
 public class UCSBDiningCommonsMenuItemController extends ApiController {
 
   @Autowired UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS = Set.of("diningCommonsCode", "name", "station");
 
   /** List all dining commons menu items */
   @Operation(summary = "List all ucsb dining commons menu items")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItem() {
+  public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItem(
+      ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBDiningCommonsMenuItem.class)) {
+      return null;
+    }
     return ucsbDiningCommonsMenuItemRepository.findAll();
   }
 
+  /** List ucsb dining commons menu items a page at a time, sorted and filtered */
+  @Operation(
+      summary =
+          "List ucsb dining commons menu items a page at a time;"
+              + " pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBDiningCommonsMenuItem> pageOfUCSBDiningCommonsMenuItems(
+      @ParameterObject PageQuery query) {
+    return keysetPager.page(UCSBDiningCommonsMenuItem.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all ucsb dining commons menu items, written to the response as they are read from the
+   * database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the ucsb dining commons menu items, as a download
+   */
+  @Operation(
+      summary =
+          "Export all ucsb dining commons menu items as NDJSON or CSV,"
+              + " streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportUCSBDiningCommonsMenuItems(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        UCSBDiningCommonsMenuItem.class,
+        "ucsbdiningcommonsmenuitems",
+        format,
+        ucsbDiningCommonsMenuItemRepository::streamAllBy);
+  }
+
+  /**
+   * Get many ucsb dining commons menu items with one query
+   *
+   * @param ids the ids of the ucsb dining commons menu items to get, at most 100
+   * @return the ucsb dining commons menu items found, in the order asked for, and the ids with no
+   *     row
+   */
+  @Operation(summary = "Get many ucsb dining commons menu items at once, in the order of their ids")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<UCSBDiningCommonsMenuItem> batchOfUCSBDiningCommonsMenuItems(
+      @Parameter(name = "ids", description = "comma separated ids, at most 100") @RequestParam
+          List<Long> ids) {
+    return batchFetcher.fetch(ucsbDiningCommonsMenuItemRepository, ids);
+  }
+
   /** Create a new dining commons menu item (admin only) */
   @Operation(summary = "Create a new commons menu item")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -50,14 +129,22 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     item.setName(name);
     item.setStation(station);
 
-    return ucsbDiningCommonsMenuItemRepository.save(item);
+    UCSBDiningCommonsMenuItem savedItem =
+        tableVersions.write(
+            UCSBDiningCommonsMenuItem.class, () -> ucsbDiningCommonsMenuItemRepository.save(item));
+
+    return savedItem;
   }
 
   /** Get a single menu item by id */
   @Operation(summary = "Get a single menu item by id")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDiningCommonsMenuItem getById(@Parameter(name = "id") @RequestParam Long id) {
+  public UCSBDiningCommonsMenuItem getById(
+      @Parameter(name = "id") @RequestParam Long id, ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBDiningCommonsMenuItem.class)) {
+      return null;
+    }
     return ucsbDiningCommonsMenuItemRepository
         .findById(id)
         .orElseThrow(
@@ -72,17 +159,17 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
       @Parameter(name = "id") @RequestParam Long id,
       @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
 
-    UCSBDiningCommonsMenuItem menuItem =
-        ucsbDiningCommonsMenuItemRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-    // Update fields from incoming object
-    menuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-    menuItem.setName(incoming.getName());
-    menuItem.setStation(incoming.getStation());
-
-    return ucsbDiningCommonsMenuItemRepository.save(menuItem);
+    return tableVersions.write(
+        UCSBDiningCommonsMenuItem.class,
+        () -> {
+          int updated =
+              ucsbDiningCommonsMenuItemRepository.updateFieldsById(
+                  id, incoming.getDiningCommonsCode(), incoming.getName(), incoming.getStation());
+          if (updated == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+          }
+          return ucsbDiningCommonsMenuItemRepository.findById(id).get();
+        });
   }
 
   /**
@@ -95,12 +182,64 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteUCSBDiningCommonMenuItem(@Parameter(name = "id") @RequestParam Long id) {
-    UCSBDiningCommonsMenuItem menuItem =
-        ucsbDiningCommonsMenuItemRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+    return tableVersions.write(
+        UCSBDiningCommonsMenuItem.class,
+        () -> {
+          if (ucsbDiningCommonsMenuItemRepository.deleteByIdReturningCount(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+          }
+          return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
+        });
+  }
+
+  /**
+   * Create many ucsb dining commons menu items in one transaction; nothing is saved if any of them
+   * is invalid. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new ucsb dining commons menu items, as a JSON array or NDJSON (one JSON object
+   *     per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(
+      summary = "Create many ucsb dining commons menu items at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateUCSBDiningCommonsMenuItems(
+      @RequestBody List<UCSBDiningCommonsMenuItem> rows) {
+    return bulkWriter.create(UCSBDiningCommonsMenuItem.class, rows);
+  }
+
+  /**
+   * Update many ucsb dining commons menu items in one transaction; nothing is saved if any of them
+   * is invalid or does not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the ucsb dining commons menu items, each with its id, as a JSON
+   *     array or NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(
+      summary = "Update many ucsb dining commons menu items at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateUCSBDiningCommonsMenuItems(
+      @RequestBody List<UCSBDiningCommonsMenuItem> rows) {
+    return bulkWriter.update(UCSBDiningCommonsMenuItem.class, rows);
+  }
 
-    ucsbDiningCommonsMenuItemRepository.delete(menuItem);
-    return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
+  /**
+   * Delete many ucsb dining commons menu items in one transaction; nothing is deleted if any of
+   * them does not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the ucsb dining commons menu items to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(
+      summary =
+          "Delete many ucsb dining commons menu items at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteUCSBDiningCommonsMenuItems(
+      @RequestBody List<Long> ids) {
+    return bulkWriter.delete(UCSBDiningCommonsMenuItem.class, ids);
   }
 }
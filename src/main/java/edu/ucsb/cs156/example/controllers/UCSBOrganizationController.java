@@ -2,13 +2,27 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableCache;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +32,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/ucsborganization")
@@ -26,20 +42,85 @@ import org.springframework.web.bind.annotation.RestController;
 public class UCSBOrganizationController extends ApiController {
 
   @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+  @Autowired KeysetPager keysetPager;
+  @Autowired EntityExporter entityExporter;
+  @Autowired BulkWriter bulkWriter;
+  @Autowired BatchFetcher batchFetcher;
+  @Autowired TableVersions tableVersions;
+  @Autowired TableCache tableCache;
+
+  /** The fields that /page can sort and filter on, besides the id */
+  static final Set<String> PAGE_FIELDS =
+      Set.of("orgTranslationShort", "orgTranslation", "inactive");
 
   /**
    * THis method returns a list of all ucsborganization.
    *
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a list of all ucsborganization
    */
   @Operation(summary = "List all ucsb organizations")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBOrganization> allUCSBOrganizations() {
-    Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
+  public Iterable<UCSBOrganization> allUCSBOrganizations(ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBOrganization.class)) {
+      return null;
+    }
+    Iterable<UCSBOrganization> organizations =
+        tableCache.findAll(UCSBOrganization.class, ucsbOrganizationRepository);
     return organizations;
   }
 
+  /**
+   * List ucsb organizations a page at a time, sorted and filtered
+   *
+   * @param query the sort, filters, cursor and page size
+   * @return a page of UCSBOrganization
+   */
+  @Operation(
+      summary =
+          "List ucsb organizations a page at a time; pass nextCursor as cursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBOrganization> pageOfUCSBOrganizations(@ParameterObject PageQuery query) {
+    return keysetPager.page(UCSBOrganization.class, PAGE_FIELDS, query);
+  }
+
+  /**
+   * Export all ucsb organizations, written to the response as they are read from the database
+   *
+   * @param format ndjson (one JSON object per line) or csv
+   * @return the ucsb organizations, as a download
+   */
+  @Operation(summary = "Export all ucsb organizations as NDJSON or CSV, streamed a row at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportUCSBOrganizations(
+      @Parameter(name = "format", description = "ndjson or csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format) {
+    return entityExporter.export(
+        UCSBOrganization.class,
+        "ucsborganizations",
+        format,
+        ucsbOrganizationRepository::streamAllBy);
+  }
+
+  /**
+   * Get many ucsb organizations with one query
+   *
+   * @param ids the org codes of the ucsb organizations to get, at most 100
+   * @return the ucsb organizations found, in the order asked for, and the org codes with no row
+   */
+  @Operation(summary = "Get many ucsb organizations at once, in the order of their org codes")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/batch")
+  public BatchResult<UCSBOrganization> batchOfUCSBOrganizations(
+      @Parameter(name = "ids", description = "comma separated org codes, at most 100") @RequestParam
+          List<String> ids) {
+    return batchFetcher.fetch(ucsbOrganizationRepository, ids);
+  }
+
   /**
    * This method creates a new organization. Accessible only to users with the role "ROLE_ADMIN".
    *
@@ -63,7 +144,9 @@ public class UCSBOrganizationController extends ApiController {
     organization.setOrgTranslation(orgTranslation);
     organization.setInactive(inactive);
 
-    UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
+    UCSBOrganization savedOrganization =
+        tableVersions.write(
+            UCSBOrganization.class, () -> ucsbOrganizationRepository.save(organization));
 
     return organization;
   }
@@ -72,15 +155,20 @@ public class UCSBOrganizationController extends ApiController {
    * This method returns a single organization.
    *
    * @param orgCode orgCode of the organization
+   * @param request the request, whose If-None-Match header is checked against the ETag
    * @return a single organization
    */
   @Operation(summary = "Get a single organization")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBOrganization getById(@Parameter(name = "orgCode") @RequestParam String orgCode) {
+  public UCSBOrganization getById(
+      @Parameter(name = "orgCode") @RequestParam String orgCode, ServletWebRequest request) {
+    if (tableVersions.notModified(request, UCSBOrganization.class)) {
+      return null;
+    }
     UCSBOrganization organization =
-        ucsbOrganizationRepository
-            .findById(orgCode)
+        tableCache
+            .findById(UCSBOrganization.class, ucsbOrganizationRepository, orgCode)
             .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
     return organization;
@@ -100,18 +188,20 @@ public class UCSBOrganizationController extends ApiController {
       @Parameter(name = "orgCode") @RequestParam String orgCode,
       @RequestBody @Valid UCSBOrganization incoming) {
 
-    UCSBOrganization organization =
-        ucsbOrganizationRepository
-            .findById(orgCode)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-    organization.setOrgTranslationShort(incoming.getOrgTranslationShort());
-    organization.setOrgTranslation(incoming.getOrgTranslation());
-    organization.setInactive(incoming.getInactive());
-
-    ucsbOrganizationRepository.save(organization);
-
-    return organization;
+    return tableVersions.write(
+        UCSBOrganization.class,
+        () -> {
+          int updated =
+              ucsbOrganizationRepository.updateFieldsById(
+                  orgCode,
+                  incoming.getOrgTranslationShort(),
+                  incoming.getOrgTranslation(),
+                  incoming.getInactive());
+          if (updated == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+          }
+          return ucsbOrganizationRepository.findById(orgCode).get();
+        });
   }
 
   /**
@@ -124,12 +214,59 @@ public class UCSBOrganizationController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteOrganization(@Parameter(name = "orgCode") @RequestParam String orgCode) {
-    UCSBOrganization organization =
-        ucsbOrganizationRepository
-            .findById(orgCode)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+    return tableVersions.write(
+        UCSBOrganization.class,
+        () -> {
+          if (ucsbOrganizationRepository.deleteByIdReturningCount(orgCode) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+          }
+          return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
+        });
+  }
+
+  /**
+   * Create many ucsb organizations in one transaction; nothing is saved if any of them is invalid.
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new ucsb organizations, as a JSON array or NDJSON (one JSON object per line)
+   * @return the id of each new row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Create many ucsb organizations at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkCreateUCSBOrganizations(
+      @RequestBody List<UCSBOrganization> rows) {
+    return bulkWriter.create(UCSBOrganization.class, rows);
+  }
 
-    ucsbOrganizationRepository.delete(organization);
-    return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
+  /**
+   * Update many ucsb organizations in one transaction; nothing is saved if any of them is invalid
+   * or does not exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the ucsb organizations, each with its id, as a JSON array or
+   *     NDJSON
+   * @return the id of each row, or the reason each invalid row was rejected
+   */
+  @Operation(summary = "Update many ucsb organizations at once, from a JSON array or NDJSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkUpdateUCSBOrganizations(
+      @RequestBody List<UCSBOrganization> rows) {
+    return bulkWriter.update(UCSBOrganization.class, rows);
+  }
+
+  /**
+   * Delete many ucsb organizations in one transaction; nothing is deleted if any of them does not
+   * exist. Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the ucsb organizations to delete, as a JSON array or NDJSON
+   * @return the ids, or the reason each invalid id was rejected
+   */
+  @Operation(
+      summary = "Delete many ucsb organizations at once, given a JSON array or NDJSON of ids")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  public ResponseEntity<BulkResult> bulkDeleteUCSBOrganizations(@RequestBody List<String> ids) {
+    return bulkWriter.delete(UCSBOrganization.class, ids);
   }
 }
@@ -11,12 +11,13 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
-@Builder
+@Builder(toBuilder = true)
 @Entity(name = "jobs")
 @EntityListeners(AuditingEntityListener.class)
 public class Job {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jobs_seq")
+  @SequenceGenerator(name = "jobs_seq", sequenceName = "jobs_seq", allocationSize = 50)
   private long id;
 
   @JsonIgnore
@@ -29,10 +30,46 @@ public class Job {
 
   private String status;
 
+  // percentage of the work done, as last reported by the job; null if it reports none
+  private Integer progress;
+
+  // where a job that is run again resumes from, as last recorded by the job; null if none
+  @Column(length = 4096)
+  private String checkpoint;
+
+  // the JobFactory and parameters of a job queued through JobQueue; null for in-process jobs
+  private String type;
+
+  @Column(length = 4096)
+  private String params;
+
+  // the lease columns are only written by JobWorker's SQL, so saving a job never overwrites them
+  @Column(insertable = false, updatable = false)
+  private String leaseOwner;
+
+  @Column(insertable = false, updatable = false)
+  private ZonedDateTime leaseExpiresAt;
+
+  @Column(insertable = false, updatable = false)
+  private int attempts;
+
+  // only written by JobsRepository.requestCancel, for the same reason
+  @Column(insertable = false, updatable = false)
+  private boolean cancelRequested;
+
   // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
   @Column(
       columnDefinition = "TEXT",
       length = 1048576) // needed for long strings, i.e. log entries longer than 255
   // characters
   private String log;
+
+  // the log of a finished job once JobRetentionService has compacted it: the text gzipped, and its
+  // length in characters; only written by JobsRepository.storeCompressedLog
+  @JsonIgnore
+  @Column(insertable = false, updatable = false)
+  private byte[] logGz;
+
+  @Column(insertable = false, updatable = false)
+  private Long logLength;
 }
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import java.time.ZonedDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a single line of a job's log.
+ *
+ * <p>Log lines are only ever appended, so writing a line never rewrites the lines before it. The
+ * full log of a job is the concatenation of its lines in {@code seq} order.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "job_log_lines")
+public class JobLogLine {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_log_lines_seq")
+  @SequenceGenerator(
+      name = "job_log_lines_seq",
+      sequenceName = "job_log_lines_seq",
+      allocationSize = 50)
+  private long id;
+
+  private long jobId;
+  private long seq;
+  private ZonedDateTime createdAt;
+
+  @Column(columnDefinition = "TEXT", length = 1048576)
+  private String text;
+}
@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a recurring job: a job of a given type and parameters,
+ * queued every time its cron expression fires.
+ *
+ * <p>A schedule is only ever inserted through this entity. After that it is changed by the update
+ * queries of JobSchedulesRepository alone, so that saving a stale copy can never move {@code
+ * nextRunAt} back and make a schedule fire twice.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_schedules")
+public class JobSchedule {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_schedules_seq")
+  @SequenceGenerator(
+      name = "job_schedules_seq",
+      sequenceName = "job_schedules_seq",
+      allocationSize = 50)
+  private long id;
+
+  private String name;
+
+  // a Spring cron expression: second, minute, hour, day of month, month, day of week
+  private String cron;
+
+  // the JobFactory type and JSON parameters of the jobs queued, as for JobQueue.enqueue
+  private String type;
+
+  @Column(length = 4096)
+  private String params;
+
+  private boolean paused;
+
+  // the next tick of the cron expression; null if it never fires again
+  private ZonedDateTime nextRunAt;
+
+  private ZonedDateTime lastRunAt;
+  private Long lastJobId;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +18,11 @@ import lombok.NoArgsConstructor;
 @Entity(name = "menuitemreview")
 public class MenuItemReview {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreview_seq")
+  @SequenceGenerator(
+      name = "menuitemreview_seq",
+      sequenceName = "menuitemreview_seq",
+      allocationSize = 50)
   private long id;
 
   private long itemId;
@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,7 +23,13 @@ import lombok.NoArgsConstructor;
 public class UCSBDiningCommonsMenuItem {
   // @Id private String code;
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "ucsbdining_commons_menu_item_seq")
+  @SequenceGenerator(
+      name = "ucsbdining_commons_menu_item_seq",
+      sequenceName = "ucsbdining_commons_menu_item_seq",
+      allocationSize = 50)
   private Long id;
 
   private String diningCommonsCode;
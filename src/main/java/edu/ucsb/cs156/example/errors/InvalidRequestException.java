@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is thrown when the parameters of a
+ * request are well formed but do not make sense, e.g. sorting by a field that cannot be sorted on.
+ */
+public class InvalidRequestException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param message what is wrong with the request
+   */
+  public InvalidRequestException(String message) {
+    super(message);
+  }
+}
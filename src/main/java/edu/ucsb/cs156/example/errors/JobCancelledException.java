@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is thrown by JobContext.checkCancelled
+ * when the job has been cancelled, so that the job stops at a point of its choosing.
+ */
+public class JobCancelledException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param jobId the id of the cancelled job
+   */
+  public JobCancelledException(long jobId) {
+    super("Job %d was cancelled".formatted(jobId));
+  }
+}
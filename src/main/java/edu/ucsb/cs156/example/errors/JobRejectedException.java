@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is thrown when a job cannot be launched
+ * because the job executor is already running its maximum number of jobs and its queue is full, or
+ * because the job queue on the jobs table is full.
+ */
+public class JobRejectedException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param maxConcurrency the number of jobs that may run at once
+   * @param queueCapacity the number of jobs that may wait to run
+   */
+  public JobRejectedException(int maxConcurrency, int queueCapacity) {
+    super(
+        "Job rejected: %d jobs are running and %d are queued; try again later"
+            .formatted(maxConcurrency, queueCapacity));
+  }
+
+  /**
+   * Constructor for the exception, when the job queue on the jobs table is full
+   *
+   * @param queueCapacity the number of jobs that may be queued on the table
+   */
+  public JobRejectedException(int queueCapacity) {
+    super("Job rejected: %d jobs are queued; try again later".formatted(queueCapacity));
+  }
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import lombok.Builder;
+
+/**
+ * A TestJob that works in steps, recording a checkpoint after each, so that a job interrupted by a
+ * restart carries on from the step after its last checkpoint.
+ */
+@Builder
+public class ResumableTestJob implements JobContextConsumer {
+
+  private int steps;
+  private int sleepMs;
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    String checkpoint = ctx.getCheckpoint();
+    int first = checkpoint == null ? 1 : Integer.parseInt(checkpoint) + 1;
+    for (int step = first; step <= steps; step++) {
+      ctx.checkCancelled();
+      Thread.sleep(sleepMs);
+      ctx.log("Step %d of %d done".formatted(step, steps));
+      ctx.checkpoint(Integer.toString(step));
+      ctx.progress(step, steps);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobFactory;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/** Creates ResumableTestJobs from the parameters steps and sleepMs (numbers). */
+@Component
+public class ResumableTestJobFactory implements JobFactory {
+  public static final String TYPE = "ResumableTestJob";
+
+  @Override
+  public String getType() {
+    return TYPE;
+  }
+
+  @Override
+  public JobContextConsumer create(Map<String, Object> params) {
+    return ResumableTestJob.builder()
+        .steps(((Number) params.get("steps")).intValue())
+        .sleepMs(((Number) params.get("sleepMs")).intValue())
+        .build();
+  }
+}
@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills tables with synthetic rows, for benchmarking against realistic amounts of data.
+ *
+ * <p>Rows are inserted with batched JDBC statements, one transaction per batch, bypassing JPA. Row
+ * n of a table is generated from the seed and n alone, and the rows are numbered on from those
+ * already in the table (see {@link SeedTable#nextRowSql()}), so running the job twice with the same
+ * seed gives the same data as running it once with twice the rows. Progress is logged every 10% of
+ * each table, and reported after every batch. A cancelled job stops between batches, keeping the
+ * batches already committed.
+ *
+ * <p>Each batch records a checkpoint (the table and the number of its rows inserted so far) in the
+ * transaction that inserts it, so a job that is run again after an interruption inserts exactly the
+ * rows that are missing, numbered as they would have been. Each batch also bumps the table's
+ * version in {@link TableVersions}, in the same transaction, so that the ETags and caches of every
+ * instance, including Hibernate's second-level cache (which does not see writes made with plain
+ * JDBC), move on as the rows are committed.
+ *
+ * <p>Ids are allocated the way Hibernate's pooled optimizer allocates them: each value taken from a
+ * table's sequence is the highest id of a block of {@link #SEQUENCE_INCREMENT} ids.
+ */
+@Builder
+public class SeedDataJob implements JobContextConsumer {
+  /** The increment of the id sequences, which must match the allocationSize of the entities */
+  static final int SEQUENCE_INCREMENT = 50;
+
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private TableVersions tableVersions;
+  private Map<SeedTable, Integer> rowCounts;
+  private long seed;
+  private int batchSize;
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    ctx.log("Seeding %d tables with seed %d".formatted(rowCounts.size(), seed));
+    long totalRows = rowCounts.values().stream().mapToLong(Integer::longValue).sum();
+    // the checkpoint is the table being filled and the number of its rows already inserted
+    String[] checkpoint = ctx.getCheckpoint() == null ? null : ctx.getCheckpoint().split(":");
+    long rowsBefore = 0;
+    for (Map.Entry<SeedTable, Integer> entry : rowCounts.entrySet()) {
+      SeedTable table = entry.getKey();
+      if (checkpoint != null && !table.name().equals(checkpoint[0])) {
+        // filled before the checkpoint
+        rowsBefore += entry.getValue();
+        continue;
+      }
+      long done = checkpoint == null ? 0 : Long.parseLong(checkpoint[1]);
+      checkpoint = null;
+      seedTable(ctx, table, entry.getValue(), done, rowsBefore, totalRows);
+      rowsBefore += entry.getValue();
+    }
+    ctx.log("Seeding complete");
+  }
+
+  private void seedTable(
+      JobContext ctx, SeedTable table, long rows, long done, long rowsBefore, long totalRows) {
+    String tableName = table.getTableName();
+    Long nextRow = jdbcTemplate.queryForObject(table.nextRowSql(), Long.class);
+    // the rows inserted before the checkpoint are among those already there
+    long firstRow = (nextRow == null ? 0 : nextRow) - done;
+    if (done == 0) {
+      ctx.log("%s: inserting %d rows from row %d".formatted(tableName, rows, firstRow));
+    } else {
+      ctx.log("%s: resuming after %d of %d rows".formatted(tableName, done, rows));
+    }
+
+    String sql = table.insertSql();
+    String sequence = table.getSequenceName();
+    long nextId = 0;
+    long lastId = -1;
+    long startNanos = System.nanoTime();
+    long startDone = done;
+    while (done < rows) {
+      int count = (int) Math.min(batchSize, rows - done);
+      List<Object[]> batch = new ArrayList<>(count);
+      for (long n = firstRow + done; n < firstRow + done + count; n++) {
+        Object[] values = table.row(new SyntheticData(seed, n), n);
+        if (sequence != null) {
+          if (nextId > lastId) {
+            lastId = nextSequenceValue(sequence);
+            nextId = lastId - SEQUENCE_INCREMENT + 1;
+          }
+          Object[] withId = new Object[values.length + 1];
+          withId[0] = nextId++;
+          System.arraycopy(values, 0, withId, 1, values.length);
+          values = withId;
+        }
+        batch.add(values);
+      }
+      ctx.checkCancelled();
+      String cursor = "%s:%d".formatted(table.name(), done + count);
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            jdbcTemplate.batchUpdate(sql, batch);
+            tableVersions.bump(table.getEntityType());
+            ctx.checkpoint(cursor);
+          });
+      done += count;
+      ctx.progress(rowsBefore + done, totalRows);
+
+      if (done * 10 / rows > (done - count) * 10 / rows) {
+        long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+        ctx.log(
+            "%s: %d/%d rows (%d rows/s)"
+                .formatted(
+                    tableName, done, rows, (done - startDone) * 1_000_000_000L / elapsedNanos));
+      }
+    }
+  }
+
+  private long nextSequenceValue(String sequence) {
+    return jdbcTemplate.queryForObject("select nextval('%s')".formatted(sequence), Long.class);
+  }
+}
@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobFactory;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates SeedDataJobs from the parameters tables (names of SeedTable constants), rows, seed and
+ * batchSize (numbers).
+ */
+@Component
+public class SeedDataJobFactory implements JobFactory {
+  public static final String TYPE = "SeedDataJob";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private TableVersions tableVersions;
+
+  @Override
+  public String getType() {
+    return TYPE;
+  }
+
+  @Override
+  public JobContextConsumer create(Map<String, Object> params) {
+    int rows = ((Number) params.get("rows")).intValue();
+    EnumMap<SeedTable, Integer> rowCounts = new EnumMap<>(SeedTable.class);
+    for (Object table : (List<?>) params.get("tables")) {
+      rowCounts.put(SeedTable.valueOf((String) table), rows);
+    }
+    return SeedDataJob.builder()
+        .jdbcTemplate(jdbcTemplate)
+        .transactionTemplate(new TransactionTemplate(transactionManager))
+        .tableVersions(tableVersions)
+        .rowCounts(rowCounts)
+        .seed(((Number) params.get("seed")).longValue())
+        .batchSize(((Number) params.get("batchSize")).intValue())
+        .build();
+  }
+}
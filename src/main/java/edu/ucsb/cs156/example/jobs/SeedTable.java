@@ -0,0 +1,274 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tables that SeedDataJob can fill with synthetic rows, with the columns it inserts and how the
+ * values of each row are generated. Tables with generated ids take them from the table's sequence,
+ * the same way Hibernate does, so seeded rows and rows saved through JPA never collide. Tables
+ * keyed by a column of the row make the key from the row number, and number their rows on from the
+ * highest key seeded before, so that a key is never made twice, even after rows have been deleted.
+ */
+public enum SeedTable {
+  ARTICLES(Article.class, "articles", "title", "url", "explanation", "email", "date_added") {
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      String title = data.words(2, 6);
+      return new Object[] {
+        title,
+        "https://example.org/" + title.replace(' ', '-') + "/" + n,
+        data.words(5, 20),
+        data.email(),
+        data.dateTime()
+      };
+    }
+  },
+  HELP_REQUESTS(
+      HelpRequest.class,
+      "helprequest",
+      "requester_email",
+      "team_id",
+      "table_or_breakout_room",
+      "request_time",
+      "explanation",
+      "solved") {
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      return new Object[] {
+        data.email(),
+        "s25-%d-%d".formatted(data.nextInt(8), data.nextInt(5)),
+        data.chance(0.5) ? "table" + data.nextInt(20) : "breakout" + data.nextInt(10),
+        data.dateTime(),
+        data.words(3, 15),
+        data.chance(0.7)
+      };
+    }
+  },
+  MENU_ITEM_REVIEWS(
+      MenuItemReview.class,
+      "menuitemreview",
+      "item_id",
+      "reviewer_email",
+      "stars",
+      "date_reviewed",
+      "comments") {
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      return new Object[] {
+        1L + data.nextInt(1000),
+        data.email(),
+        1 + data.nextInt(5),
+        data.dateTime(),
+        data.words(1, 12)
+      };
+    }
+  },
+  RECOMMENDATION_REQUESTS(
+      RecommendationRequest.class,
+      "recommendationrequest",
+      "requester_email",
+      "professor_email",
+      "explanation",
+      "date_requested",
+      "date_needed",
+      "done") {
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      var requested = data.dateTime();
+      return new Object[] {
+        data.email(),
+        data.email(),
+        data.words(5, 20),
+        requested,
+        requested.plusDays(7 + data.nextInt(60)),
+        data.chance(0.4)
+      };
+    }
+  },
+  RESTAURANTS(Restaurant.class, "restaurants", "name", "description") {
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      return new Object[] {data.words(1, 3) + " " + n, data.words(4, 12)};
+    }
+  },
+  UCSB_DATES(UCSBDate.class, "ucsbdates", "quarteryyyyq", "name", "local_date_time") {
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      return new Object[] {data.quarter(), data.words(1, 4), data.dateTime()};
+    }
+  },
+  UCSB_DINING_COMMONS(
+      UCSBDiningCommons.class,
+      "ucsbdiningcommons",
+      "code",
+      "name",
+      "has_sack_meal",
+      "has_take_out_meal",
+      "has_dining_cam",
+      "latitude",
+      "longitude") {
+    @Override
+    String getSequenceName() {
+      return null;
+    }
+
+    @Override
+    String nextRowSql() {
+      return nextKeySql("code", "dc-");
+    }
+
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      return new Object[] {
+        "dc-" + n,
+        data.words(1, 3),
+        data.chance(0.5),
+        data.chance(0.5),
+        data.chance(0.5),
+        data.between(34.40, 34.42),
+        data.between(-119.87, -119.84)
+      };
+    }
+  },
+  UCSB_DINING_COMMONS_MENU_ITEMS(
+      UCSBDiningCommonsMenuItem.class,
+      "ucsbdining_commons_menu_item",
+      "dining_commons_code",
+      "name",
+      "station") {
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      return new Object[] {
+        data.pick(SyntheticData.DINING_COMMONS), data.words(1, 4), data.words(1, 2)
+      };
+    }
+  },
+  UCSB_ORGANIZATIONS(
+      UCSBOrganization.class,
+      "ucsborganization",
+      "org_code",
+      "org_translation_short",
+      "org_translation",
+      "inactive") {
+    @Override
+    String getSequenceName() {
+      return null;
+    }
+
+    @Override
+    String nextRowSql() {
+      return nextKeySql("org_code", "ORG");
+    }
+
+    @Override
+    Object[] row(SyntheticData data, long n) {
+      return new Object[] {"ORG" + n, data.words(1, 3), data.words(2, 8), data.chance(0.1)};
+    }
+  };
+
+  private final Class<?> entityType;
+  private final String tableName;
+  private final List<String> columns;
+
+  SeedTable(Class<?> entityType, String tableName, String... columns) {
+    this.entityType = entityType;
+    this.tableName = tableName;
+    this.columns = List.of(columns);
+  }
+
+  /**
+   * The entity the table holds
+   *
+   * @return the entity class
+   */
+  public Class<?> getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * The name of the table in the database
+   *
+   * @return the table name
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * The sequence the table's ids are drawn from
+   *
+   * @return the sequence name, or null if the table is keyed by a column of the row itself
+   */
+  String getSequenceName() {
+    return tableName + "_seq";
+  }
+
+  /**
+   * The query for the number of the next row to insert, so that the rows are numbered on from those
+   * already in the table
+   *
+   * @return a query for a single number: the number of rows in the table, unless the table is keyed
+   *     by a column of the row
+   */
+  String nextRowSql() {
+    return "select count(*) from " + tableName;
+  }
+
+  /**
+   * The query for one more than the highest n among the keys made from row numbers, i.e. the prefix
+   * followed by n; keys that are not of that form were not seeded, and are left out
+   *
+   * @param column the key column
+   * @param prefix what the key is made of before the row number
+   * @return the query, which returns 0 if no key has been seeded
+   */
+  String nextKeySql(String column, String prefix) {
+    String number = "substring(%s, %d)".formatted(column, prefix.length() + 1);
+    // every digit becomes a 0, and the 0s are removed, leaving nothing if the rest is a number
+    String notDigits =
+        "replace(translate(%s, '123456789', '000000000'), '0', '')".formatted(number);
+    return """
+        select coalesce(max(cast(%s as bigint)) + 1, 0) from %s
+        where %s like '%s%%' and length(%s) > %d and %s = ''
+        """
+        .formatted(number, tableName, column, prefix, column, prefix.length(), notDigits);
+  }
+
+  /**
+   * The statement that inserts one row
+   *
+   * @return an insert statement with a parameter for each column, led by the id if the table has a
+   *     sequence
+   */
+  String insertSql() {
+    List<String> insertColumns = new ArrayList<>();
+    if (getSequenceName() != null) {
+      insertColumns.add("id");
+    }
+    insertColumns.addAll(columns);
+    return "insert into %s (%s) values (%s)"
+        .formatted(
+            tableName,
+            String.join(", ", insertColumns),
+            String.join(", ", insertColumns.stream().map(c -> "?").toList()));
+  }
+
+  /**
+   * The column values of row n of the table, not including the id
+   *
+   * @param data generator seeded for this row
+   * @param n row number, which keys that are not generated are made from
+   * @return one value per column
+   */
+  abstract Object[] row(SyntheticData data, long n);
+}
@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.jobs;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the field values of one synthetic row. The values depend only on the seed and the row
+ * number, so row n of a table is the same however the rows are split into jobs and batches.
+ */
+class SyntheticData {
+  static final List<String> WORDS =
+      List.of(
+          ("gaucho lagoon campus storke tower library dining lecture section midterm final project"
+                  + " sprint team review quarter coffee bike beach pizza burrito office hours"
+                  + " question answer deadline professor student request recommendation")
+              .split(" "));
+
+  static final List<String> DINING_COMMONS =
+      List.of("carrillo", "de-la-guerra", "ortega", "portola");
+
+  static final LocalDateTime EPOCH = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+  private final SplittableRandom random;
+
+  /**
+   * Create the generator for one row
+   *
+   * @param seed seed of the whole dataset
+   * @param row row number within its table
+   */
+  SyntheticData(long seed, long row) {
+    // spread nearby (seed, row) pairs over the whole state space
+    this.random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + row);
+  }
+
+  int nextInt(int bound) {
+    return random.nextInt(bound);
+  }
+
+  boolean chance(double probability) {
+    return random.nextDouble() < probability;
+  }
+
+  <T> T pick(List<T> values) {
+    return values.get(random.nextInt(values.size()));
+  }
+
+  /** Between min and max words, separated by spaces */
+  String words(int min, int max) {
+    int count = min + random.nextInt(max - min + 1);
+    StringBuilder text = new StringBuilder(pick(WORDS));
+    for (int i = 1; i < count; i++) {
+      text.append(' ').append(pick(WORDS));
+    }
+    return text.toString();
+  }
+
+  /** One of 5000 distinct ucsb.edu addresses */
+  String email() {
+    return pick(WORDS) + random.nextInt(5000 / WORDS.size() + 1) + "@ucsb.edu";
+  }
+
+  /** A time, to the minute, between 2020 and the end of 2025 */
+  LocalDateTime dateTime() {
+    return EPOCH.plusMinutes(random.nextInt(6 * 366 * 24 * 60));
+  }
+
+  /** A quarter in the form YYYYQ, between 2020 and 2025 */
+  String quarter() {
+    return "%d%d".formatted(2020 + random.nextInt(6), 1 + random.nextInt(4));
+  }
+
+  double between(double min, double max) {
+    return min + random.nextDouble() * (max - min);
+  }
+}
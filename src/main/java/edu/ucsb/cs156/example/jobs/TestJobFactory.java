@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobFactory;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/** Creates TestJobs from the parameters fail (boolean) and sleepMs (number). */
+@Component
+public class TestJobFactory implements JobFactory {
+  public static final String TYPE = "TestJob";
+
+  @Override
+  public String getType() {
+    return TYPE;
+  }
+
+  @Override
+  public JobContextConsumer create(Map<String, Object> params) {
+    return TestJob.builder()
+        .fail(Boolean.TRUE.equals(params.get("fail")))
+        .sleepMs(((Number) params.get("sleepMs")).intValue())
+        .build();
+  }
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the rows fetched by a list of ids: {@code content} holds
+ * the rows that were found, in the order their ids were asked for, and {@code missing} the ids that
+ * have no row, in the same order.
+ *
+ * @param <T> type of the rows
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchResult<T> {
+  private List<T> content;
+  private List<Object> missing;
+}
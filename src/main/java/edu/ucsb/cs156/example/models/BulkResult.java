@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the outcome of a bulk create, update or delete. Either
+ * every row is written, or, if any row is invalid, none are; {@code rows} has the result of each
+ * row, in the order they were sent.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkResult {
+  private int count;
+  private List<BulkRowResult> rows;
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the result for one row of a bulk create, update or delete:
+ * its position in the request, its id (assigned by the database for a created row), and why it was
+ * rejected, or null if it is valid.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkRowResult {
+  private int index;
+  private Object id;
+  private String error;
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents the size and hit/miss statistics of one cache. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CacheStats {
+  private String name;
+  private long size;
+  private long maxSize;
+  private long ttlSeconds;
+  private long hits;
+  private long misses;
+  private long evictions; // entries dropped to stay within maxSize, or because they were too old
+  private double hitRate;
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the latency, throughput and error statistics of one
+ * controller method.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class EndpointStats {
+  private String handler; // e.g. JobsController.allJobs
+  private long count;
+  private long errors;
+  private double throughputPerSecond;
+  private double meanMs;
+  private double p50Ms;
+  private double p95Ms;
+  private double p99Ms;
+  private double maxMs;
+}
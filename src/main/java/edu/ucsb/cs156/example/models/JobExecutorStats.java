@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents a snapshot of the state of the job executor. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobExecutorStats {
+  private String mode; // "platform" or "virtual" threads
+  private int maxConcurrency;
+  private int queueCapacity;
+  private int queueDepth;
+  private int activeJobs;
+  private long completedJobs;
+  private long rejectedJobs;
+  private double averageWaitMs; // time between submission and start, over all started jobs
+  private long maxWaitMs;
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the lines of a job log starting at a given line, plus the
+ * cursor to pass as {@code fromLine} to fetch the lines that follow.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobLogTail {
+  private long jobId;
+  private String status;
+  private long fromLine; // line number (0 based) of the first entry in lines
+  private long nextLine; // cursor for the next request
+  private List<String> lines;
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents what a run of JobRetentionService did: the job logs it
+ * compressed and the jobs it deleted, and the bytes of log this freed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobRetentionReport {
+  private int compactedJobs;
+  private long compactedBytesBefore; // UTF-8 bytes of the compacted logs
+  private long compactedBytesAfter; // bytes of the same logs gzipped
+  private int purgedJobs;
+  private long purgedBytes; // bytes of log stored for the deleted jobs
+  private long reclaimedBytes; // compactedBytesBefore - compactedBytesAfter + purgedBytes
+}
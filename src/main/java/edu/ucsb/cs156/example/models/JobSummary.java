@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a row of the jobs listing: everything about a job except
+ * its log, of which only the length (in characters) is included.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummary {
+  private long id;
+  private String status;
+  private Integer progress; // percentage of the work done, or null
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private String createdBy; // email of the user who launched the job
+  private long logLength;
+}
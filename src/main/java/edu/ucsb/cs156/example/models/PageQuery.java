@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.models;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that holds the query parameters of a /page endpoint: which field to sort by
+ * and in which direction, filters on the fields, the cursor returned with the previous page and the
+ * page size. Every parameter is optional.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PageQuery {
+  @Parameter(description = "field to sort by (default: the id)")
+  private String sort;
+
+  @Parameter(description = "asc (default) or desc")
+  private String direction;
+
+  @Parameter(
+      description =
+          "filters of the form field:op:value, where op is eq, lt, lte, gt or gte, e.g. stars:gte:4"
+              + " or dateReviewed:lt:2025-01-01T00:00:00; repeat the parameter for each filter, as"
+              + " rows must match all of them and a value may contain commas")
+  private List<String> filter;
+
+  @Parameter(description = "nextCursor from the previous page")
+  private String cursor;
+
+  @Parameter(description = "number of rows per page (default 50, at most 500)")
+  private Integer size;
+}
@@ -1,9 +1,72 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Article;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The ArticleRepository is a repository for Article entities */
 @Repository
-public interface ArticleRepository extends CrudRepository<Article, Long> {}
+public interface ArticleRepository extends CrudRepository<Article, Long> {
+  /**
+   * This method streams all Article entities, fetched from the database 500 rows at a time. It must
+   * be called inside a transaction, and the stream must be closed.
+   *
+   * @return all Article entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<Article> streamAllBy();
+
+  /**
+   * This method deletes the Article with the given id with a single delete statement, without
+   * loading it first.
+   *
+   * @param id the id of the Article
+   * @return the number of rows deleted: 1, or 0 if there is no Article with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from articles e where e.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+
+  /**
+   * This method replaces every field of the Article with the given id with a single update
+   * statement, without loading it first.
+   *
+   * @param id the id of the Article
+   * @param title the new title
+   * @param url the new url
+   * @param explanation the new explanation
+   * @param email the new email
+   * @param dateAdded the new dateAdded
+   * @return the number of rows updated: 1, or 0 if there is no Article with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update articles e
+      set
+          e.title = :title,
+          e.url = :url,
+          e.explanation = :explanation,
+          e.email = :email,
+          e.dateAdded = :dateAdded
+      where e.id = :id
+      """)
+  int updateFieldsById(
+      @Param("id") Long id,
+      @Param("title") String title,
+      @Param("url") String url,
+      @Param("explanation") String explanation,
+      @Param("email") String email,
+      @Param("dateAdded") LocalDateTime dateAdded);
+}
@@ -1,9 +1,75 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The HelpRequestRepository is a repository for HelpRequest entities. */
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {}
+public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
+  /**
+   * This method streams all HelpRequest entities, fetched from the database 500 rows at a time. It
+   * must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all HelpRequest entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<HelpRequest> streamAllBy();
+
+  /**
+   * This method deletes the HelpRequest with the given id with a single delete statement, without
+   * loading it first.
+   *
+   * @param id the id of the HelpRequest
+   * @return the number of rows deleted: 1, or 0 if there is no HelpRequest with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from helprequest e where e.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+
+  /**
+   * This method replaces every field of the HelpRequest with the given id with a single update
+   * statement, without loading it first.
+   *
+   * @param id the id of the HelpRequest
+   * @param requesterEmail the new requesterEmail
+   * @param teamId the new teamId
+   * @param tableOrBreakoutRoom the new tableOrBreakoutRoom
+   * @param requestTime the new requestTime
+   * @param explanation the new explanation
+   * @param solved the new solved
+   * @return the number of rows updated: 1, or 0 if there is no HelpRequest with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update helprequest e
+      set
+          e.requesterEmail = :requesterEmail,
+          e.teamId = :teamId,
+          e.tableOrBreakoutRoom = :tableOrBreakoutRoom,
+          e.requestTime = :requestTime,
+          e.explanation = :explanation,
+          e.solved = :solved
+      where e.id = :id
+      """)
+  int updateFieldsById(
+      @Param("id") Long id,
+      @Param("requesterEmail") String requesterEmail,
+      @Param("teamId") String teamId,
+      @Param("tableOrBreakoutRoom") String tableOrBreakoutRoom,
+      @Param("requestTime") LocalDateTime requestTime,
+      @Param("explanation") String explanation,
+      @Param("solved") boolean solved);
+}
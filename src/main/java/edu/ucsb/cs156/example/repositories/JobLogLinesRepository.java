@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** The JobLogLinesRepository is a repository for JobLogLine entities. */
+@Repository
+public interface JobLogLinesRepository extends CrudRepository<JobLogLine, Long> {
+  /**
+   * This method returns all log lines of a job, in the order they were written.
+   *
+   * @param jobId id of the job
+   * @return the log lines of the job, ordered by sequence number
+   */
+  List<JobLogLine> findAllByJobIdOrderBySeqAsc(long jobId);
+
+  /**
+   * This method returns the log lines of a job starting at a given sequence number, in the order
+   * they were written.
+   *
+   * @param jobId id of the job
+   * @param seq sequence number of the first line to return
+   * @return the log lines of the job from seq onwards, ordered by sequence number
+   */
+  List<JobLogLine> findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(long jobId, long seq);
+
+  /**
+   * This method returns the number of log lines of a job, which is the sequence number of the next
+   * line, since the lines of a job are numbered from 0 without gaps.
+   *
+   * @param jobId id of the job
+   * @return the number of log lines of the job
+   */
+  long countByJobId(long jobId);
+
+  /**
+   * This method deletes all log lines of a job with a single delete statement.
+   *
+   * @param jobId id of the job
+   * @return the number of lines deleted
+   */
+  @Modifying
+  @Query("delete from job_log_lines l where l.jobId = :jobId")
+  int deleteByJobId(@Param("jobId") long jobId);
+
+  /**
+   * This method returns the number of bytes the log lines of the given jobs take up.
+   *
+   * @param jobIds ids of the jobs
+   * @return the number of bytes
+   */
+  @Query(
+      "select coalesce(sum(octet_length(l.text)), 0) from job_log_lines l where l.jobId in :jobIds")
+  long sumTextBytes(@Param("jobIds") Collection<Long> jobIds);
+}
@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobSchedulesRepository is a repository for JobSchedule entities. */
+@Repository
+public interface JobSchedulesRepository extends CrudRepository<JobSchedule, Long> {
+  /**
+   * This method returns all schedules, by name.
+   *
+   * @return the schedules
+   */
+  List<JobSchedule> findAllByOrderByNameAsc();
+
+  /**
+   * This method returns whether there is a schedule with a given name.
+   *
+   * @param name the name
+   * @return true if there is one
+   */
+  boolean existsByName(String name);
+
+  /**
+   * This method returns the schedules that are not paused and whose next run is due.
+   *
+   * @param now the current time
+   * @return the due schedules, in id order
+   */
+  @Query(
+      """
+      select s from job_schedules s
+      where s.paused = false and s.nextRunAt <= :now
+      order by s.id
+      """)
+  List<JobSchedule> findDue(@Param("now") ZonedDateTime now);
+
+  /**
+   * This method claims one tick of a schedule, by moving its next run on from that tick, with a
+   * single conditional update. When several instances find the same tick due, the row lock makes
+   * them take turns, and only the first one's update matches; the others update nothing, so the
+   * tick fires on exactly one instance.
+   *
+   * @param id the id of the schedule
+   * @param tick the next run the caller read, i.e. the tick it wants to fire
+   * @param nextRunAt the tick after that
+   * @return 1 if the caller has claimed the tick, or 0 if another instance has, or the schedule has
+   *     been paused or deleted since
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update job_schedules s set s.nextRunAt = :nextRunAt
+      where s.id = :id and s.nextRunAt = :tick and s.paused = false
+      """)
+  int claimTick(
+      @Param("id") long id,
+      @Param("tick") ZonedDateTime tick,
+      @Param("nextRunAt") ZonedDateTime nextRunAt);
+
+  /**
+   * This method records the job queued by the latest run of a schedule.
+   *
+   * @param id the id of the schedule
+   * @param lastJobId the id of the job
+   * @param lastRunAt the time of the run
+   * @return the number of rows updated
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update job_schedules s set s.lastJobId = :lastJobId, s.lastRunAt = :lastRunAt
+      where s.id = :id
+      """)
+  int recordRun(
+      @Param("id") long id,
+      @Param("lastJobId") long lastJobId,
+      @Param("lastRunAt") ZonedDateTime lastRunAt);
+
+  /**
+   * This method pauses or resumes a schedule. A resumed schedule carries on from the given next
+   * run, rather than firing at once for the ticks it missed.
+   *
+   * @param id the id of the schedule
+   * @param paused whether the schedule is to be paused
+   * @param nextRunAt the next run of the schedule (null while it is paused)
+   * @return the number of rows updated: 1, or 0 if there is no schedule with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update job_schedules s set s.paused = :paused, s.nextRunAt = :nextRunAt
+      where s.id = :id
+      """)
+  int setPaused(
+      @Param("id") long id,
+      @Param("paused") boolean paused,
+      @Param("nextRunAt") ZonedDateTime nextRunAt);
+
+  /**
+   * This method deletes a schedule with a single statement.
+   *
+   * @param id the id of the schedule
+   * @return the number of rows deleted: 1, or 0 if there is no schedule with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from job_schedules s where s.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+}
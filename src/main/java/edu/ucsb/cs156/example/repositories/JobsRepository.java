@@ -1,8 +1,200 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobSummary;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+
+  /**
+   * This method returns summaries of jobs, newest first, without loading their logs. The log length
+   * is that of the text returned by /api/jobs/logs/{id}, i.e. the lines joined with newlines, or
+   * the length recorded when the log was compacted. Each filter is ignored when its parameter is
+   * null.
+   *
+   * @param beforeId only jobs with an id less than this (the keyset cursor)
+   * @param status only jobs with this status
+   * @param createdAfter only jobs created at or after this time
+   * @param createdBefore only jobs created before this time
+   * @param pageable limits the number of rows returned (the sort is always by id, descending)
+   * @return the job summaries
+   */
+  @Query(
+      """
+      select new edu.ucsb.cs156.example.models.JobSummary(
+        j.id, j.status, j.progress, j.createdAt, j.updatedAt, u.email,
+        coalesce(j.logLength, 0)
+          + coalesce(length(j.log), 0)
+          + coalesce(
+              (select sum(length(l.text) + 1) from job_log_lines l where l.jobId = j.id) - 1, 0))
+      from jobs j left join j.createdBy u
+      where (:beforeId is null or j.id < :beforeId)
+        and (:status is null or j.status = :status)
+        and (:createdAfter is null or j.createdAt >= :createdAfter)
+        and (:createdBefore is null or j.createdAt < :createdBefore)
+      order by j.id desc
+      """)
+  List<JobSummary> findSummaries(
+      @Param("beforeId") Long beforeId,
+      @Param("status") String status,
+      @Param("createdAfter") ZonedDateTime createdAfter,
+      @Param("createdBefore") ZonedDateTime createdBefore,
+      Pageable pageable);
+
+  /**
+   * This method asks for a job to be cancelled, with a single update statement. A job that is still
+   * queued is cancelled straight away; a running job is left to the instance running it, which sees
+   * the request within app.jobs.cancel.checkIntervalMs.
+   *
+   * @param id the id of the job
+   * @return the number of rows updated: 1, or 0 if there is no unfinished job with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update jobs j
+      set j.cancelRequested = true,
+          j.status = case when j.status = 'queued' then 'cancelled' else j.status end
+      where j.id = :id and j.status in ('queued', 'running')
+      """)
+  int requestCancel(@Param("id") long id);
+
+  /**
+   * This method returns those of the given jobs that have been asked to be cancelled.
+   *
+   * @param ids the ids of the jobs
+   * @return the ids of the jobs among them with a cancel request
+   */
+  @Query("select j.id from jobs j where j.id in :ids and j.cancelRequested = true")
+  List<Long> findCancelRequestedIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method returns whether a job has been asked to be cancelled.
+   *
+   * @param id the id of the job
+   * @return true if there is a job with that id and a cancel request
+   */
+  boolean existsByIdAndCancelRequestedTrue(long id);
+
+  /**
+   * This method returns the number of jobs with a given status, e.g. those queued on the table.
+   *
+   * @param status the status of the jobs
+   * @return the number of jobs with that status
+   */
+  long countByStatus(String status);
+
+  /**
+   * This method returns the ids of the jobs with one of the given statuses, last saved before a
+   * given time, whose logs have not been compacted yet, in id order.
+   *
+   * @param statuses the statuses of the jobs
+   * @param before only jobs last saved before this time
+   * @param afterId only jobs with an id greater than this (the keyset cursor)
+   * @param pageable limits the number of ids returned
+   * @return the ids of the jobs
+   */
+  @Query(
+      """
+      select j.id from jobs j
+      where j.status in :statuses and j.updatedAt < :before and j.id > :afterId
+        and j.logGz is null
+      order by j.id
+      """)
+  List<Long> findIdsToCompact(
+      @Param("statuses") Collection<String> statuses,
+      @Param("before") ZonedDateTime before,
+      @Param("afterId") long afterId,
+      Pageable pageable);
+
+  /**
+   * This method locks the row of a job until the end of the transaction, so that it cannot be
+   * deleted (e.g. purged by another instance) before the transaction ends.
+   *
+   * @param id the id of the job
+   * @return the id, or empty if there is no job with that id
+   */
+  @Query(nativeQuery = true, value = "SELECT id FROM jobs WHERE id = :id FOR UPDATE")
+  Optional<Long> lockById(@Param("id") long id);
+
+  /**
+   * This method stores the compressed log of a job in place of its uncompressed one, unless it has
+   * already been compacted (e.g. by another instance).
+   *
+   * @param id the id of the job
+   * @param logGz the log, gzipped
+   * @param logLength the length of the log in characters
+   * @return the number of rows updated: 1, or 0 if the log had already been compacted
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update jobs j set j.logGz = :logGz, j.logLength = :logLength, j.log = null
+      where j.id = :id and j.logGz is null
+      """)
+  int storeCompressedLog(
+      @Param("id") long id, @Param("logGz") byte[] logGz, @Param("logLength") long logLength);
+
+  /**
+   * This method returns the ids of the jobs with one of the given statuses, last saved before a
+   * given time, oldest first.
+   *
+   * @param statuses the statuses of the jobs
+   * @param before only jobs last saved before this time
+   * @param afterId only jobs with an id greater than this (the keyset cursor)
+   * @param pageable limits the number of ids returned
+   * @return the ids of the jobs
+   */
+  @Query(
+      """
+      select j.id from jobs j
+      where j.status in :statuses and j.updatedAt < :before and j.id > :afterId
+      order by j.id
+      """)
+  List<Long> findIdsToPurge(
+      @Param("statuses") Collection<String> statuses,
+      @Param("before") ZonedDateTime before,
+      @Param("afterId") long afterId,
+      Pageable pageable);
+
+  /**
+   * This method returns the number of bytes the logs of the given jobs take up in the jobs table,
+   * compressed or not; the lines in job_log_lines are counted by JobLogLinesRepository. This is SQL
+   * rather than JPQL, which has no octet_length for binary columns.
+   *
+   * @param ids the ids of the jobs
+   * @return the number of bytes
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT COALESCE(SUM(OCTET_LENGTH(log)), 0) + COALESCE(SUM(OCTET_LENGTH(log_gz)), 0)
+          FROM jobs WHERE id IN (:ids)
+          """)
+  long sumLogBytes(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method deletes the given jobs with a single delete statement; their log lines are deleted
+   * with them by the database (on delete cascade).
+   *
+   * @param ids the ids of the jobs
+   * @return the number of jobs deleted
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from jobs j where j.id in :ids")
+  int deleteByIds(@Param("ids") Collection<Long> ids);
+}
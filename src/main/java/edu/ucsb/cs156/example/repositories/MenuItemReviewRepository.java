@@ -1,9 +1,72 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The MenuItemReviewRepository is a repository for MenuItemReview entities */
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {}
+public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+  /**
+   * This method streams all MenuItemReview entities, fetched from the database 500 rows at a time.
+   * It must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all MenuItemReview entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<MenuItemReview> streamAllBy();
+
+  /**
+   * This method deletes the MenuItemReview with the given id with a single delete statement,
+   * without loading it first.
+   *
+   * @param id the id of the MenuItemReview
+   * @return the number of rows deleted: 1, or 0 if there is no MenuItemReview with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from menuitemreview e where e.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+
+  /**
+   * This method replaces every field of the MenuItemReview with the given id with a single update
+   * statement, without loading it first.
+   *
+   * @param id the id of the MenuItemReview
+   * @param itemId the new itemId
+   * @param reviewerEmail the new reviewerEmail
+   * @param stars the new stars
+   * @param dateReviewed the new dateReviewed
+   * @param comments the new comments
+   * @return the number of rows updated: 1, or 0 if there is no MenuItemReview with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update menuitemreview e
+      set
+          e.itemId = :itemId,
+          e.reviewerEmail = :reviewerEmail,
+          e.stars = :stars,
+          e.dateReviewed = :dateReviewed,
+          e.comments = :comments
+      where e.id = :id
+      """)
+  int updateFieldsById(
+      @Param("id") Long id,
+      @Param("itemId") long itemId,
+      @Param("reviewerEmail") String reviewerEmail,
+      @Param("stars") int stars,
+      @Param("dateReviewed") LocalDateTime dateReviewed,
+      @Param("comments") String comments);
+}
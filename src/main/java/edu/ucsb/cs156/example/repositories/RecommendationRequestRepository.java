@@ -1,9 +1,75 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface RecommendationRequestRepository
-    extends CrudRepository<RecommendationRequest, Long> {}
+    extends CrudRepository<RecommendationRequest, Long> {
+  /**
+   * This method streams all RecommendationRequest entities, fetched from the database 500 rows at a
+   * time. It must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all RecommendationRequest entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<RecommendationRequest> streamAllBy();
+
+  /**
+   * This method deletes the RecommendationRequest with the given id with a single delete statement,
+   * without loading it first.
+   *
+   * @param id the id of the RecommendationRequest
+   * @return the number of rows deleted: 1, or 0 if there is no RecommendationRequest with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from recommendationrequest e where e.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+
+  /**
+   * This method replaces every field of the RecommendationRequest with the given id with a single
+   * update statement, without loading it first.
+   *
+   * @param id the id of the RecommendationRequest
+   * @param requesterEmail the new requesterEmail
+   * @param professorEmail the new professorEmail
+   * @param explanation the new explanation
+   * @param dateRequested the new dateRequested
+   * @param dateNeeded the new dateNeeded
+   * @param done the new done
+   * @return the number of rows updated: 1, or 0 if there is no RecommendationRequest with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update recommendationrequest e
+      set
+          e.requesterEmail = :requesterEmail,
+          e.professorEmail = :professorEmail,
+          e.explanation = :explanation,
+          e.dateRequested = :dateRequested,
+          e.dateNeeded = :dateNeeded,
+          e.done = :done
+      where e.id = :id
+      """)
+  int updateFieldsById(
+      @Param("id") Long id,
+      @Param("requesterEmail") String requesterEmail,
+      @Param("professorEmail") String professorEmail,
+      @Param("explanation") String explanation,
+      @Param("dateRequested") LocalDateTime dateRequested,
+      @Param("dateNeeded") LocalDateTime dateNeeded,
+      @Param("done") boolean done);
+}
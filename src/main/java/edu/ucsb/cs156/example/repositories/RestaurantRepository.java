@@ -1,9 +1,60 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The RestaurantRepository is a repository for Restaurant entities */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {}
+public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+  /**
+   * This method streams all Restaurant entities, fetched from the database 500 rows at a time. It
+   * must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all Restaurant entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<Restaurant> streamAllBy();
+
+  /**
+   * This method deletes the Restaurant with the given id with a single delete statement, without
+   * loading it first.
+   *
+   * @param id the id of the Restaurant
+   * @return the number of rows deleted: 1, or 0 if there is no Restaurant with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from restaurants e where e.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+
+  /**
+   * This method replaces every field of the Restaurant with the given id with a single update
+   * statement, without loading it first.
+   *
+   * @param id the id of the Restaurant
+   * @param name the new name
+   * @param description the new description
+   * @return the number of rows updated: 1, or 0 if there is no Restaurant with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update restaurants e
+      set
+          e.name = :name,
+          e.description = :description
+      where e.id = :id
+      """)
+  int updateFieldsById(
+      @Param("id") Long id, @Param("name") String name, @Param("description") String description);
+}
@@ -1,18 +1,77 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBDateRepository is a repository for UCSBDate entities. */
 @Repository
 public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
   /**
-   * This method returns all UCSBDate entities with a given quarterYYYYQ.
+   * This method returns all UCSBDate entities with a given quarterYYYYQ. The result is kept in
+   * Hibernate's query cache until ucsbdates is next written to.
    *
    * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024, 20242 for Spring
    *     2024, 20243 for Summer 2024, 20244 for Fall 2024)
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
+
+  /**
+   * This method streams all UCSBDate entities, fetched from the database 500 rows at a time. It
+   * must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all UCSBDate entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBDate> streamAllBy();
+
+  /**
+   * This method deletes the UCSBDate with the given id with a single delete statement, without
+   * loading it first.
+   *
+   * @param id the id of the UCSBDate
+   * @return the number of rows deleted: 1, or 0 if there is no UCSBDate with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from ucsbdates e where e.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+
+  /**
+   * This method replaces every field of the UCSBDate with the given id with a single update
+   * statement, without loading it first.
+   *
+   * @param id the id of the UCSBDate
+   * @param quarterYYYYQ the new quarterYYYYQ
+   * @param name the new name
+   * @param localDateTime the new localDateTime
+   * @return the number of rows updated: 1, or 0 if there is no UCSBDate with that id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update ucsbdates e
+      set
+          e.quarterYYYYQ = :quarterYYYYQ,
+          e.name = :name,
+          e.localDateTime = :localDateTime
+      where e.id = :id
+      """)
+  int updateFieldsById(
+      @Param("id") Long id,
+      @Param("quarterYYYYQ") String quarterYYYYQ,
+      @Param("name") String name,
+      @Param("localDateTime") LocalDateTime localDateTime);
 }
@@ -1,10 +1,68 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
 public interface UCSBDiningCommonsMenuItemRepository
-    extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {}
+    extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
+  /**
+   * This method streams all UCSBDiningCommonsMenuItem entities, fetched from the database 500 rows
+   * at a time. It must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all UCSBDiningCommonsMenuItem entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBDiningCommonsMenuItem> streamAllBy();
+
+  /**
+   * This method deletes the UCSBDiningCommonsMenuItem with the given id with a single delete
+   * statement, without loading it first.
+   *
+   * @param id the id of the UCSBDiningCommonsMenuItem
+   * @return the number of rows deleted: 1, or 0 if there is no UCSBDiningCommonsMenuItem with that
+   *     id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from UCSBDiningCommonsMenuItem e where e.id = :id")
+  int deleteByIdReturningCount(@Param("id") Long id);
+
+  /**
+   * This method replaces every field of the UCSBDiningCommonsMenuItem with the given id with a
+   * single update statement, without loading it first.
+   *
+   * @param id the id of the UCSBDiningCommonsMenuItem
+   * @param diningCommonsCode the new diningCommonsCode
+   * @param name the new name
+   * @param station the new station
+   * @return the number of rows updated: 1, or 0 if there is no UCSBDiningCommonsMenuItem with that
+   *     id
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update UCSBDiningCommonsMenuItem e
+      set
+          e.diningCommonsCode = :diningCommonsCode,
+          e.name = :name,
+          e.station = :station
+      where e.id = :id
+      """)
+  int updateFieldsById(
+      @Param("id") Long id,
+      @Param("diningCommonsCode") String diningCommonsCode,
+      @Param("name") String name,
+      @Param("station") String station);
+}
@@ -1,9 +1,74 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {}
+public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
+  /**
+   * This method streams all UCSBDiningCommons entities, fetched from the database 500 rows at a
+   * time. It must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all UCSBDiningCommons entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBDiningCommons> streamAllBy();
+
+  /**
+   * This method deletes the UCSBDiningCommons with the given code with a single delete statement,
+   * without loading it first.
+   *
+   * @param code the code of the UCSBDiningCommons
+   * @return the number of rows deleted: 1, or 0 if there is no UCSBDiningCommons with that code
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from ucsbdiningcommons e where e.code = :code")
+  int deleteByIdReturningCount(@Param("code") String code);
+
+  /**
+   * This method replaces every field of the UCSBDiningCommons with the given code with a single
+   * update statement, without loading it first.
+   *
+   * @param code the code of the UCSBDiningCommons
+   * @param name the new name
+   * @param hasSackMeal the new hasSackMeal
+   * @param hasTakeOutMeal the new hasTakeOutMeal
+   * @param hasDiningCam the new hasDiningCam
+   * @param latitude the new latitude
+   * @param longitude the new longitude
+   * @return the number of rows updated: 1, or 0 if there is no UCSBDiningCommons with that code
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update ucsbdiningcommons e
+      set
+          e.name = :name,
+          e.hasSackMeal = :hasSackMeal,
+          e.hasTakeOutMeal = :hasTakeOutMeal,
+          e.hasDiningCam = :hasDiningCam,
+          e.latitude = :latitude,
+          e.longitude = :longitude
+      where e.code = :code
+      """)
+  int updateFieldsById(
+      @Param("code") String code,
+      @Param("name") String name,
+      @Param("hasSackMeal") boolean hasSackMeal,
+      @Param("hasTakeOutMeal") boolean hasTakeOutMeal,
+      @Param("hasDiningCam") boolean hasDiningCam,
+      @Param("latitude") Double latitude,
+      @Param("longitude") Double longitude);
+}
@@ -1,8 +1,64 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {}
+public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
+  /**
+   * This method streams all UCSBOrganization entities, fetched from the database 500 rows at a
+   * time. It must be called inside a transaction, and the stream must be closed.
+   *
+   * @return all UCSBOrganization entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  Stream<UCSBOrganization> streamAllBy();
+
+  /**
+   * This method deletes the UCSBOrganization with the given orgCode with a single delete statement,
+   * without loading it first.
+   *
+   * @param orgCode the orgCode of the UCSBOrganization
+   * @return the number of rows deleted: 1, or 0 if there is no UCSBOrganization with that orgCode
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from UCSBORGANIZATION e where e.orgCode = :orgCode")
+  int deleteByIdReturningCount(@Param("orgCode") String orgCode);
+
+  /**
+   * This method replaces every field of the UCSBOrganization with the given orgCode with a single
+   * update statement, without loading it first.
+   *
+   * @param orgCode the orgCode of the UCSBOrganization
+   * @param orgTranslationShort the new orgTranslationShort
+   * @param orgTranslation the new orgTranslation
+   * @param inactive the new inactive
+   * @return the number of rows updated: 1, or 0 if there is no UCSBOrganization with that orgCode
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(
+      """
+      update UCSBORGANIZATION e
+      set
+          e.orgTranslationShort = :orgTranslationShort,
+          e.orgTranslation = :orgTranslation,
+          e.inactive = :inactive
+      where e.orgCode = :orgCode
+      """)
+  int updateFieldsById(
+      @Param("orgCode") String orgCode,
+      @Param("orgTranslationShort") String orgTranslationShort,
+      @Param("orgTranslation") String orgTranslation,
+      @Param("inactive") boolean inactive);
+}
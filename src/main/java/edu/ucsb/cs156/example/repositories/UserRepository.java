@@ -7,9 +7,10 @@ import org.springframework.stereotype.Repository;
 
 /** The UserRepository is a repository for User entities. */
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, UserRepositoryCustom {
   /**
-   * This method returns a User entity with a given email.
+   * This method returns a User entity with a given email. Emails are unique, and looked up with the
+   * index USERS_EMAIL_IDX.
    *
    * @param email email address of the user
    * @return Optional of User (empty if not found)
@@ -0,0 +1,15 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+
+/** Queries of the UserRepository that Spring Data cannot derive; see UserRepositoryCustomImpl. */
+public interface UserRepositoryCustom {
+  /**
+   * Insert a user, or update the user with the same email, with a single statement. An existing
+   * user keeps their id, and stays an admin if they already are one.
+   *
+   * @param user the user's email, profile, and whether they should be an admin; the id is ignored
+   * @return the user as stored, with their id and admin flag
+   */
+  User upsert(User user);
+}
@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.annotation.PostConstruct;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * The implementation of {@link UserRepositoryCustom#upsert}, which stores a user with one statement
+ * keyed on their email: a new user is inserted, and an existing user has their profile refreshed,
+ * keeping their id. The statement returns the stored row, so the caller gets the user's id and
+ * admin flag in the same round trip.
+ *
+ * <p>On PostgreSQL this is an {@code INSERT ... ON CONFLICT (email) DO UPDATE ... RETURNING}, which
+ * is atomic, so concurrent first logins with the same email store a single user. On H2 it is a
+ * {@code MERGE ... USING} read through {@code FINAL TABLE}; there, a concurrent insert of the same
+ * email fails on the unique index USERS_EMAIL_IDX, and the statement is run once more, as an
+ * update.
+ *
+ * <p>The admin flag is only ever set: a user who is an admin stays one, even when they are no
+ * longer in {@code app.admin.emails}.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+  static final String POSTGRES_SQL =
+      """
+      INSERT INTO users (id, email, google_sub, picture_url, full_name, given_name, family_name,
+          email_verified, locale, hosted_domain, admin)
+      VALUES (nextval('users_seq'), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+      ON CONFLICT (email) DO UPDATE SET
+          google_sub = EXCLUDED.google_sub, picture_url = EXCLUDED.picture_url,
+          full_name = EXCLUDED.full_name, given_name = EXCLUDED.given_name,
+          family_name = EXCLUDED.family_name, email_verified = EXCLUDED.email_verified,
+          locale = EXCLUDED.locale, hosted_domain = EXCLUDED.hosted_domain,
+          admin = users.admin OR EXCLUDED.admin
+      RETURNING *
+      """;
+
+  static final String H2_SQL =
+      """
+      SELECT * FROM FINAL TABLE (
+        MERGE INTO users u
+        USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)),
+            CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)),
+            CAST(? AS BOOLEAN), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)),
+            CAST(? AS BOOLEAN)))
+          AS s (email, google_sub, picture_url, full_name, given_name, family_name,
+            email_verified, locale, hosted_domain, admin)
+        ON u.email = s.email
+        WHEN MATCHED THEN UPDATE SET
+          google_sub = s.google_sub, picture_url = s.picture_url, full_name = s.full_name,
+          given_name = s.given_name, family_name = s.family_name,
+          email_verified = s.email_verified, locale = s.locale, hosted_domain = s.hosted_domain,
+          admin = u.admin OR s.admin
+        WHEN NOT MATCHED THEN INSERT (id, email, google_sub, picture_url, full_name, given_name,
+            family_name, email_verified, locale, hosted_domain, admin)
+          VALUES (NEXT VALUE FOR users_seq, s.email, s.google_sub, s.picture_url, s.full_name,
+            s.given_name, s.family_name, s.email_verified, s.locale, s.hosted_domain, s.admin))
+      """;
+
+  private static final RowMapper<User> USER_ROW_MAPPER = UserRepositoryCustomImpl::mapUser;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private String upsertSql;
+
+  /** Pick the statement for the database, once the JdbcTemplate has been injected */
+  @PostConstruct
+  void chooseUpsertSql() {
+    String databaseProductName =
+        jdbcTemplate.execute(
+            (ConnectionCallback<String>)
+                connection -> connection.getMetaData().getDatabaseProductName());
+    upsertSql = upsertSql(databaseProductName);
+  }
+
+  /**
+   * The upsert statement for a database
+   *
+   * @param databaseProductName the name the JDBC driver gives the database
+   * @return the statement for PostgreSQL, or for H2 for any other database
+   */
+  static String upsertSql(String databaseProductName) {
+    return "PostgreSQL".equals(databaseProductName) ? POSTGRES_SQL : H2_SQL;
+  }
+
+  @Override
+  public User upsert(User user) {
+    Object[] values = {
+      user.getEmail(),
+      user.getGoogleSub(),
+      user.getPictureUrl(),
+      user.getFullName(),
+      user.getGivenName(),
+      user.getFamilyName(),
+      user.getEmailVerified(),
+      user.getLocale(),
+      user.getHostedDomain(),
+      user.getAdmin()
+    };
+    try {
+      return runUpsert(values);
+    } catch (DuplicateKeyException e) {
+      return runUpsert(values);
+    }
+  }
+
+  private User runUpsert(Object[] values) {
+    return jdbcTemplate
+        .query(upsertSql, new ArgumentPreparedStatementSetter(values), USER_ROW_MAPPER)
+        .get(0);
+  }
+
+  private static User mapUser(ResultSet rs, int rowNum) throws SQLException {
+    return User.builder()
+        .id(rs.getLong("id"))
+        .email(rs.getString("email"))
+        .googleSub(rs.getString("google_sub"))
+        .pictureUrl(rs.getString("picture_url"))
+        .fullName(rs.getString("full_name"))
+        .givenName(rs.getString("given_name"))
+        .familyName(rs.getString("family_name"))
+        .emailVerified(rs.getBoolean("email_verified"))
+        .locale(rs.getString("locale"))
+        .hostedDomain(rs.getString("hosted_domain"))
+        .admin(rs.getBoolean("admin"))
+        .build();
+  }
+}
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import java.util.Collection;
+import java.util.Map;
 import org.springframework.security.core.GrantedAuthority;
 
 /**
@@ -33,6 +34,15 @@ public abstract class CurrentUserService {
    */
   public abstract Collection<? extends GrantedAuthority> getRoles();
 
+  /**
+   * This method stores a user who has logged in with OAuth2, inserting them or refreshing their
+   * profile, and returns them as stored.
+   *
+   * @param attributes the attributes of the OAuth2 user
+   * @return the user, with their id and admin flag
+   */
+  public abstract User upsertUser(Map<String, Object> attributes);
+
   /**
    * This method returns whether the current user is logged in.
    *
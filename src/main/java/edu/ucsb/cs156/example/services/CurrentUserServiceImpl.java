@@ -1,11 +1,17 @@
 package edu.ucsb.cs156.example.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.cache.CacheRegistry;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,18 +29,48 @@ import org.springframework.stereotype.Service;
  * This is a service that provides information about the current user.
  *
  * <p>This is the version of the service used in production.
+ *
+ * <p>Users are cached by email, for at most {@code app.users.cache.ttlSeconds}, so that most
+ * authenticated requests do not look the user up in the database. Each entry remembers the version
+ * of the users table it was read at (see {@link TableVersions}), and is only served while the table
+ * is still at that version. Every write to the users table through the application bumps the
+ * version, so a user whose admin flag changes, on any instance, is read again by their next request
+ * (on another instance, once its version of the table is refreshed). The cache's hit rate is shown,
+ * and it can be cleared, at /api/admin/caches.
  */
 @Slf4j
 @Service("currentUser")
 @Primary
 public class CurrentUserServiceImpl extends CurrentUserService {
+  private record Versioned(long version, User user) {}
+
   @Autowired private UserRepository userRepository;
 
   @Autowired GrantedAuthoritiesService grantedAuthoritiesService;
 
+  @Autowired private CacheRegistry cacheRegistry;
+
+  @Autowired private TableVersions tableVersions;
+
   @Value("${app.admin.emails}")
   private final List<String> adminEmails = new ArrayList<String>();
 
+  @Value("${app.users.cache.maxSize:10000}")
+  private int userCacheMaxSize;
+
+  @Value("${app.users.cache.ttlSeconds:300}")
+  private long userCacheTtlSeconds;
+
+  private Cache<String, Versioned> userCache;
+
+  /** Create the cache of users, once the cache settings have been injected */
+  @PostConstruct
+  void createUserCache() {
+    userCache =
+        cacheRegistry.cache("users", userCacheMaxSize, Duration.ofSeconds(userCacheTtlSeconds));
+    tableVersions.addListener(User.class, userCache::invalidateAll);
+  }
+
   /**
    * This method returns the current user as a User object.
    *
@@ -51,7 +87,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * automatically injected by Spring.
    *
    * <p>This method also has a side effect of storing the user in the database if they are not
-   * already there.
+   * already there, or if they should now be an admin. The user is normally stored when they log in,
+   * and then cached, so this usually reads neither the user nor (if it was read recently) the
+   * version of the users table.
    *
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -61,43 +99,51 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
-    String googleSub = oAuthUser.getAttribute("sub");
-    String pictureUrl = oAuthUser.getAttribute("picture");
-    String fullName = oAuthUser.getAttribute("name");
-    String givenName = oAuthUser.getAttribute("given_name");
-    String familyName = oAuthUser.getAttribute("family_name");
-    boolean emailVerified = oAuthUser.getAttribute("email_verified");
-    String locale = oAuthUser.getAttribute("locale");
-    String hostedDomain = oAuthUser.getAttribute("hd");
-
-    java.util.Map<java.lang.String, java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}", attrs);
-
-    Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
+
+    long version = tableVersions.version(User.class);
+    Versioned cached = userCache.getIfPresent(email);
+    if (cached != null && cached.version() == version) {
+      return cached.user();
     }
+    Optional<User> stored = userRepository.findByEmail(email);
+    User user =
+        stored.isPresent() && (stored.get().getAdmin() || !adminEmails.contains(email))
+            ? stored.get()
+            : upsertUser(oAuthUser.getAttributes());
+    // cached at the version read before the user was, so a user read across a write is not served
+    // after it
+    userCache.put(email, new Versioned(version, user));
+    return user;
+  }
 
+  /**
+   * Store a user who has logged in with OAuth2, with one statement that inserts them or refreshes
+   * their profile (see {@link UserRepository#upsert}), and bump the version of the users table in
+   * the same transaction. A user whose email is in {@code app.admin.emails} is made an admin. This
+   * is called when the user logs in, to map their authorities, and again only if they are missing
+   * or should now be an admin.
+   *
+   * @param attributes the attributes of the OAuth2 user
+   * @return the user as stored, with their id and admin flag
+   */
+  @Override
+  public User upsertUser(Map<String, Object> attributes) {
+    log.info("attrs={}", attributes);
+    String email = (String) attributes.get("email");
     User u =
         User.builder()
-            .googleSub(googleSub)
+            .googleSub((String) attributes.get("sub"))
             .email(email)
-            .pictureUrl(pictureUrl)
-            .fullName(fullName)
-            .givenName(givenName)
-            .familyName(familyName)
-            .emailVerified(emailVerified)
-            .locale(locale)
-            .hostedDomain(hostedDomain)
+            .pictureUrl((String) attributes.get("picture"))
+            .fullName((String) attributes.get("name"))
+            .givenName((String) attributes.get("given_name"))
+            .familyName((String) attributes.get("family_name"))
+            .emailVerified(Boolean.TRUE.equals(attributes.get("email_verified")))
+            .locale((String) attributes.get("locale"))
+            .hostedDomain((String) attributes.get("hd"))
             .admin(adminEmails.contains(email))
             .build();
-    userRepository.save(u);
-    return u;
+    return tableVersions.write(User.class, () -> userRepository.upsert(u));
   }
 
   /**
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.services.batch;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fetches the rows of an entity table with a list of ids, using one query ({@code findAllById}, a
+ * where id in (...) clause) rather than one request per id.
+ *
+ * <p>The rows come back in the order their ids were asked for, with each id at most once however
+ * often it was asked for; the ids that have no row are listed separately, so callers can tell a
+ * missing row from one that was not asked for.
+ */
+@Service
+public class BatchFetcher {
+  static final int MAX_IDS = 100;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * Fetch rows by id
+   *
+   * @param <T> the entity type
+   * @param <ID> the type of its id
+   * @param repository the repository of the entity
+   * @param ids the ids of the rows to fetch; empty values are ignored
+   * @return the rows found, in the order of {@code ids}, and the ids with no row
+   * @throws InvalidRequestException if there are more than {@value #MAX_IDS} distinct ids
+   */
+  public <T, ID> BatchResult<T> fetch(CrudRepository<T, ID> repository, List<ID> ids) {
+    List<ID> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+    if (distinct.size() > MAX_IDS) {
+      throw new InvalidRequestException(
+          "At most %d ids can be fetched at once, not %d".formatted(MAX_IDS, distinct.size()));
+    }
+
+    PersistenceUnitUtil util = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+    Map<Object, T> found = new HashMap<>();
+    for (T row : repository.findAllById(distinct)) {
+      found.put(util.getIdentifier(row), row);
+    }
+
+    List<T> content = new ArrayList<>(found.size());
+    List<Object> missing = new ArrayList<>();
+    for (ID id : distinct) {
+      T row = found.get(id);
+      if (row != null) {
+        content.add(row);
+      } else {
+        missing.add(id);
+      }
+    }
+    return BatchResult.<T>builder().content(content).missing(missing).build();
+  }
+}
@@ -0,0 +1,291 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Creates, updates or deletes many rows of an entity table in one transaction.
+ *
+ * <p>Every row is checked before anything is written: all the fields other than the id must be
+ * given (as they must be for the single row /post endpoints), ids must not repeat, and the rows to
+ * update or delete must exist while the rows to create must not. Whether ids exist is looked up
+ * {@value #CHUNK_SIZE} at a time with one query per chunk. If any row is invalid nothing is
+ * written, and the response is a 400 with the reason for each invalid row.
+ *
+ * <p>Otherwise the rows are written {@value #CHUNK_SIZE} at a time, and the persistence context is
+ * flushed and cleared after each chunk, so Hibernate sends the statements in JDBC batches
+ * (hibernate.jdbc.batch_size) and does not keep every row in memory until the commit. The table's
+ * version in {@link TableVersions} is bumped when the transaction commits.
+ */
+@Service
+public class BulkWriter {
+  static final int MAX_ROWS = 10000;
+  static final int CHUNK_SIZE = 1000;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired TableVersions tableVersions;
+
+  /**
+   * Insert new rows
+   *
+   * @param <T> the entity type
+   * @param entityType the entity class
+   * @param rows the rows to insert; ids generated by the database must not be given, and other ids
+   *     must be given and not already exist
+   * @return the ids of the new rows, or a 400 with the reason each invalid row was rejected
+   * @throws InvalidRequestException if there are more than {@value #MAX_ROWS} rows
+   */
+  @Transactional
+  public <T> ResponseEntity<BulkResult> create(Class<T> entityType, List<T> rows) {
+    Table<T> table = table(entityType, rows.size());
+    List<Object> ids = rows.stream().map(table::idOf).toList();
+    Set<Object> existing = table.generated() ? Set.of() : existingIds(table, ids);
+    Set<Object> seen = new HashSet<>();
+
+    List<String> errors = new ArrayList<>(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      Object id = ids.get(i);
+      String error = table.missingFields(rows.get(i));
+      if (error == null) {
+        error =
+            table.generated()
+                ? (isUnset(id) ? null : table.idName() + " is assigned by the database")
+                : checkNewId(table, id, seen, existing);
+      }
+      errors.add(error);
+    }
+    return write(table, table::idOf, rows, errors, chunk -> chunk.forEach(entityManager::persist));
+  }
+
+  /**
+   * Replace existing rows with new contents
+   *
+   * @param <T> the entity type
+   * @param entityType the entity class
+   * @param rows the new contents of the rows, each with the id of the row to replace
+   * @return the ids of the rows, or a 400 with the reason each invalid row was rejected
+   * @throws InvalidRequestException if there are more than {@value #MAX_ROWS} rows
+   */
+  @Transactional
+  public <T> ResponseEntity<BulkResult> update(Class<T> entityType, List<T> rows) {
+    Table<T> table = table(entityType, rows.size());
+    List<Object> ids = rows.stream().map(table::idOf).toList();
+    Set<Object> existing = existingIds(table, ids);
+    Set<Object> seen = new HashSet<>();
+
+    List<String> errors = new ArrayList<>(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      String error = table.missingFields(rows.get(i));
+      errors.add(error != null ? error : checkExistingId(table, ids.get(i), seen, existing));
+    }
+    return write(
+        table,
+        table::idOf,
+        rows,
+        errors,
+        chunk -> {
+          // load the chunk with one query, so that merge finds every row already managed
+          find(table, chunk.stream().map(table::idOf).toList());
+          chunk.forEach(entityManager::merge);
+        });
+  }
+
+  /**
+   * Delete rows
+   *
+   * @param <T> the entity type
+   * @param entityType the entity class
+   * @param ids the ids of the rows to delete
+   * @return the ids, or a 400 with the reason each invalid id was rejected
+   * @throws InvalidRequestException if there are more than {@value #MAX_ROWS} ids
+   */
+  @Transactional
+  public <T> ResponseEntity<BulkResult> delete(Class<T> entityType, List<?> ids) {
+    Table<T> table = table(entityType, ids.size());
+    List<Object> idList = new ArrayList<>(ids);
+    Set<Object> existing = existingIds(table, idList);
+    Set<Object> seen = new HashSet<>();
+
+    List<String> errors = new ArrayList<>(ids.size());
+    for (Object id : idList) {
+      errors.add(checkExistingId(table, id, seen, existing));
+    }
+    return write(
+        table,
+        id -> id,
+        idList,
+        errors,
+        chunk -> find(table, chunk).forEach(entityManager::remove));
+  }
+
+  /*
+   * Write the rows a chunk at a time if none has an error; idOf gives the id of a row, which for a
+   * created row is assigned when it is written
+   */
+  private <R> ResponseEntity<BulkResult> write(
+      Table<?> table,
+      Function<R, Object> idOf,
+      List<R> rows,
+      List<String> errors,
+      Consumer<List<R>> writeChunk) {
+    boolean valid = errors.stream().allMatch(Objects::isNull);
+    if (valid) {
+      for (List<R> chunk : chunks(rows)) {
+        writeChunk.accept(chunk);
+        entityManager.flush();
+        entityManager.clear();
+      }
+      tableVersions.bump(table.type());
+    }
+    List<BulkRowResult> results = new ArrayList<>(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      results.add(
+          BulkRowResult.builder()
+              .index(i)
+              .id(idOf.apply(rows.get(i)))
+              .error(errors.get(i))
+              .build());
+    }
+    BulkResult result = BulkResult.builder().count(valid ? rows.size() : 0).rows(results).build();
+    return valid ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+  }
+
+  private static String checkId(Table<?> table, Object id, Set<Object> seen) {
+    if (isUnset(id)) {
+      return table.idName() + " is required";
+    }
+    if (!seen.add(id)) {
+      return "Duplicate %s %s".formatted(table.idName(), id);
+    }
+    return null;
+  }
+
+  private static String checkNewId(
+      Table<?> table, Object id, Set<Object> seen, Set<Object> existing) {
+    String error = checkId(table, id, seen);
+    if (error == null && existing.contains(id)) {
+      error = "%s with id %s already exists".formatted(table.type().getSimpleName(), id);
+    }
+    return error;
+  }
+
+  private static String checkExistingId(
+      Table<?> table, Object id, Set<Object> seen, Set<Object> existing) {
+    String error = checkId(table, id, seen);
+    if (error == null && !existing.contains(id)) {
+      error = "%s with id %s not found".formatted(table.type().getSimpleName(), id);
+    }
+    return error;
+  }
+
+  // a generated id that has not been assigned yet is null, or 0 if it is a primitive long
+  private static boolean isUnset(Object id) {
+    return id == null || id.equals(0L);
+  }
+
+  private <T> Set<Object> existingIds(Table<T> table, List<Object> ids) {
+    List<Object> candidates = ids.stream().filter(id -> !isUnset(id)).distinct().toList();
+    Set<Object> existing = new HashSet<>();
+    for (List<Object> chunk : chunks(candidates)) {
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      CriteriaQuery<Object> query = cb.createQuery(Object.class);
+      Root<T> root = query.from(table.type());
+      query.select(root.get(table.id())).where(root.get(table.id()).in(chunk));
+      existing.addAll(entityManager.createQuery(query).getResultList());
+    }
+    return existing;
+  }
+
+  private <T> List<T> find(Table<T> table, List<?> ids) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> query = cb.createQuery(table.type());
+    Root<T> root = query.from(table.type());
+    query.where(root.get(table.id()).in(ids));
+    return entityManager.createQuery(query).getResultList();
+  }
+
+  private static <R> List<List<R>> chunks(List<R> rows) {
+    List<List<R>> chunks = new ArrayList<>();
+    for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+      chunks.add(rows.subList(from, Math.min(from + CHUNK_SIZE, rows.size())));
+    }
+    return chunks;
+  }
+
+  private <T> Table<T> table(Class<T> entityType, int size) {
+    if (size > MAX_ROWS) {
+      throw new InvalidRequestException(
+          "At most %d rows can be written at once, not %d".formatted(MAX_ROWS, size));
+    }
+    EntityType<T> entity = entityManager.getMetamodel().entity(entityType);
+    List<SingularAttribute<? super T, ?>> attributes =
+        entity.getSingularAttributes().stream()
+            .sorted(Comparator.comparing(SingularAttribute::getName))
+            .toList();
+    SingularAttribute<? super T, ?> id =
+        attributes.stream().filter(SingularAttribute::isId).findFirst().get();
+    List<SingularAttribute<? super T, ?>> required =
+        attributes.stream()
+            .filter(attribute -> !attribute.isId() && !attribute.getJavaType().isPrimitive())
+            .toList();
+    boolean generated = field(id).isAnnotationPresent(GeneratedValue.class);
+    return new Table<>(entityType, id, generated, required);
+  }
+
+  private static Field field(SingularAttribute<?, ?> attribute) {
+    Field field = (Field) attribute.getJavaMember();
+    ReflectionUtils.makeAccessible(field);
+    return field;
+  }
+
+  /** What the writer needs to know about an entity: its id and which fields must be given */
+  private record Table<T>(
+      Class<T> type,
+      SingularAttribute<? super T, ?> id,
+      boolean generated,
+      List<SingularAttribute<? super T, ?>> required) {
+
+    String idName() {
+      return id.getName();
+    }
+
+    Object idOf(Object row) {
+      return ReflectionUtils.getField(field(id), row);
+    }
+
+    // null if every required field has a value
+    String missingFields(Object row) {
+      List<String> missing =
+          required.stream()
+              .filter(attribute -> ReflectionUtils.getField(field(attribute), row) == null)
+              .map(SingularAttribute::getName)
+              .toList();
+      return missing.isEmpty() ? null : "Missing " + String.join(", ", missing);
+    }
+  }
+}
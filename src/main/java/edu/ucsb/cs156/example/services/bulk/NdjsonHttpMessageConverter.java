@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads a request body of newline-delimited JSON (NDJSON: one JSON value per line, Content-Type
+ * application/x-ndjson) into a {@code List}, so that endpoints taking a {@code @RequestBody
+ * List<T>} accept NDJSON as well as a JSON array. Each line is read with the application's
+ * ObjectMapper, as the rows of a JSON array would be. Only reading is supported.
+ */
+@Component
+public class NdjsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<?>> {
+  public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+  @Autowired ObjectMapper mapper;
+
+  public NdjsonHttpMessageConverter() {
+    super(NDJSON);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return clazz == List.class;
+  }
+
+  @Override
+  public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+    return type instanceof ParameterizedType list
+        && supports((Class<?>) list.getRawType())
+        && canRead(mediaType);
+  }
+
+  @Override
+  public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  public List<?> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+      throws IOException {
+    JavaType rowType = mapper.constructType(((ParameterizedType) type).getActualTypeArguments()[0]);
+    try (MappingIterator<Object> rows =
+        mapper.readerFor(rowType).readValues(inputMessage.getBody())) {
+      return rows.readAll();
+    } catch (JsonProcessingException e) {
+      throw new HttpMessageNotReadableException(
+          "Invalid NDJSON: " + e.getOriginalMessage(), e, inputMessage);
+    }
+  }
+
+  @Override
+  protected List<?> readInternal(Class<? extends List<?>> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException(
+        "NDJSON can only be read into a List with a known element type", inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(List<?> rows, Type type, HttpOutputMessage outputMessage) {
+    throw new UnsupportedOperationException("NDJSON responses are not supported");
+  }
+}
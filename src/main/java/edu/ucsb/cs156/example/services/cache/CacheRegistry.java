@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.Ticker;
+import edu.ucsb.cs156.example.models.CacheStats;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Service;
+
+/**
+ * This service creates the application's in-memory caches and keeps track of them, so that their
+ * statistics can be reported and admins can clear them.
+ *
+ * <p>The caches are Caffeine caches, which evict with W-TinyLFU once they are full, so that a burst
+ * of keys that are each used once (such as a scan) does not push out the keys that are used all the
+ * time. They record their statistics, and do their upkeep (evicting and expiring entries) on the
+ * thread that uses them, so the statistics are up to date whenever they are read.
+ */
+@Service
+public class CacheRegistry {
+  private final Ticker ticker;
+  private final Map<String, Cache<?, ?>> caches = new ConcurrentSkipListMap<>();
+
+  public CacheRegistry() {
+    this(Ticker.systemTicker());
+  }
+
+  CacheRegistry(Ticker ticker) {
+    this.ticker = ticker;
+  }
+
+  /**
+   * Get the cache registered under a name, creating and registering it if there is none. Caches are
+   * shared by name, so every bean that asks for the same name gets the same cache.
+   *
+   * @param name name of the cache
+   * @param maxSize maximum number of entries, if the cache is created
+   * @param ttl how long an entry is kept after it is put, if the cache is created
+   * @param <K> type of the keys
+   * @param <V> type of the values
+   * @return the cache
+   */
+  @SuppressWarnings("unchecked")
+  public <K, V> Cache<K, V> cache(String name, int maxSize, Duration ttl) {
+    return (Cache<K, V>)
+        caches.computeIfAbsent(
+            name,
+            n ->
+                Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl)
+                    .ticker(ticker)
+                    .executor(Runnable::run)
+                    .recordStats()
+                    .build());
+  }
+
+  /**
+   * Register a cache that was created elsewhere, such as a region of Hibernate's second-level
+   * cache, so that it is reported and can be cleared like the others. It should record its
+   * statistics.
+   *
+   * @param name name of the cache
+   * @param cache the cache
+   */
+  public void register(String name, Cache<?, ?> cache) {
+    caches.put(name, cache);
+  }
+
+  /**
+   * Look up a cache by name
+   *
+   * @param name name of the cache
+   * @return the cache, if there is one with that name
+   */
+  public Optional<Cache<?, ?>> get(String name) {
+    return Optional.ofNullable(caches.get(name));
+  }
+
+  /**
+   * This method returns the statistics of every cache, ordered by name.
+   *
+   * @return the statistics of each cache
+   */
+  public List<CacheStats> getStats() {
+    return caches.entrySet().stream().map(e -> stats(e.getKey(), e.getValue())).toList();
+  }
+
+  /**
+   * This method returns the statistics of one cache.
+   *
+   * @param name name of the cache
+   * @return the statistics, if there is a cache with that name
+   */
+  public Optional<CacheStats> getStats(String name) {
+    return get(name).map(cache -> stats(name, cache));
+  }
+
+  private static CacheStats stats(String name, Cache<?, ?> cache) {
+    // drop the expired entries, so that they are not counted in the size
+    cache.cleanUp();
+    com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+    Policy<?, ?> policy = cache.policy();
+    return CacheStats.builder()
+        .name(name)
+        .size(cache.estimatedSize())
+        .maxSize(policy.eviction().map(Policy.Eviction::getMaximum).orElse(0L))
+        .ttlSeconds(
+            policy
+                .expireAfterWrite()
+                .map(expiration -> expiration.getExpiresAfter(TimeUnit.SECONDS))
+                .orElse(0L))
+        .hits(stats.hitCount())
+        .misses(stats.missCount())
+        .evictions(stats.evictionCount())
+        // Caffeine reports a hit rate of 1 before the first lookup
+        .hitRate(stats.requestCount() == 0 ? 0.0 : stats.hitRate())
+        .build();
+  }
+}
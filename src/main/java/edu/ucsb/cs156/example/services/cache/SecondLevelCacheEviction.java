@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts an entity's region of Hibernate's second-level cache, and the cached query results, every
+ * time {@link TableVersions} sees a new version of the entity's table. The second-level cache is
+ * local to each instance, so this is how a write through another instance, or with plain JDBC (as
+ * SeedDataJob does), stops being hidden by entities and query results cached before it: the regions
+ * are evicted as soon as the version the write made is read, rather than when the stale entries
+ * expire.
+ */
+@Component
+public class SecondLevelCacheEviction {
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Autowired private TableVersions tableVersions;
+
+  @PostConstruct
+  void addListeners() {
+    org.hibernate.Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+      Class<?> entityType = entity.getJavaType();
+      if (entityType.isAnnotationPresent(Cache.class)) {
+        tableVersions.addListener(
+            entityType,
+            () -> {
+              cache.evictEntityData(entityType);
+              cache.evictQueryRegions();
+            });
+      }
+    }
+  }
+}
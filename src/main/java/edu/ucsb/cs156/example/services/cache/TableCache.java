@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.util.Streamable;
+import org.springframework.stereotype.Service;
+
+/**
+ * This service caches the rows of small tables that are read much more often than they are written,
+ * such as the dining commons, so that listing them or getting one by id does not go to the database
+ * every time.
+ *
+ * <p>Each table has its own cache from the {@link CacheRegistry}, named after the entity class,
+ * which is listed (with its hit rate) and can be cleared through /api/admin/caches. Lookups of ids
+ * that do not exist are cached too.
+ *
+ * <p>Each entry remembers the table version it was loaded at, and is only served while {@link
+ * TableVersions} still reports that version. The versions are kept in the database, and
+ * TableVersions reads a table's version from it at most once every {@code
+ * app.tables.versions.maxAgeMs}, so a hit costs no database round trip as long as the version has
+ * been read recently (for instance by the ETag check of the same request), and a write made on
+ * another instance, or by SeedDataJob, is seen within that time. A load that overlaps a write is
+ * never served after the write. A table's cache is also cleared when this instance writes to the
+ * table. Only writes that bypass TableVersions altogether (e.g. by hand in SQL) are seen just once
+ * the entries expire, after {@code app.tables.cache.ttlSeconds}. With {@code
+ * app.tables.cache.enabled=false} (as in the tests) every call goes straight to the repository.
+ */
+@Service
+public class TableCache {
+  private record Versioned(long version, Object value) {}
+
+  private enum Key {
+    ALL
+  }
+
+  @Autowired private CacheRegistry cacheRegistry;
+
+  @Autowired private TableVersions tableVersions;
+
+  @Value("${app.tables.cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.tables.cache.maxSize:1000}")
+  private int maxSize;
+
+  @Value("${app.tables.cache.ttlSeconds:600}")
+  private long ttlSeconds;
+
+  private final Map<Class<?>, Cache<Object, Versioned>> caches = new ConcurrentHashMap<>();
+
+  /**
+   * List every row of a table
+   *
+   * @param entityType the entity class
+   * @param repository the repository of the entity, used if the rows are not cached
+   * @param <T> type of the entity
+   * @param <ID> type of the entity's id
+   * @return the rows, which must not be modified
+   */
+  @SuppressWarnings("unchecked")
+  public <T, ID> List<T> findAll(Class<T> entityType, CrudRepository<T, ID> repository) {
+    Supplier<List<T>> loader = () -> Streamable.of(repository.findAll()).toList();
+    return enabled ? (List<T>) load(entityType, Key.ALL, loader) : loader.get();
+  }
+
+  /**
+   * Get a row of a table by id
+   *
+   * @param entityType the entity class
+   * @param repository the repository of the entity, used if the row is not cached
+   * @param id the id
+   * @param <T> type of the entity
+   * @param <ID> type of the entity's id
+   * @return the row, which must not be modified, if there is one with that id
+   */
+  @SuppressWarnings("unchecked")
+  public <T, ID> Optional<T> findById(
+      Class<T> entityType, CrudRepository<T, ID> repository, ID id) {
+    Supplier<Optional<T>> loader = () -> repository.findById(id);
+    return enabled ? (Optional<T>) load(entityType, id, loader) : loader.get();
+  }
+
+  private Object load(Class<?> entityType, Object key, Supplier<?> loader) {
+    Cache<Object, Versioned> cache = caches.computeIfAbsent(entityType, this::createCache);
+    long version = tableVersions.version(entityType);
+    Versioned cached = cache.getIfPresent(key);
+    if (cached != null && cached.version() == version) {
+      return cached.value();
+    }
+    Object value = loader.get();
+    cache.put(key, new Versioned(version, value));
+    return value;
+  }
+
+  private Cache<Object, Versioned> createCache(Class<?> entityType) {
+    Cache<Object, Versioned> cache =
+        cacheRegistry.cache(entityType.getSimpleName(), maxSize, Duration.ofSeconds(ttlSeconds));
+    tableVersions.addListener(entityType, cache::invalidateAll);
+    return cache;
+  }
+}
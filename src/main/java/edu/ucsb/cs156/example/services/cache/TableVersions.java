@@ -0,0 +1,285 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * This service keeps a version number for each entity table, which every write to the table bumps,
+ * and uses it as the ETag of the table's list and get endpoints. A client that sends the ETag back
+ * in If-None-Match gets a 304 without the table being read, until the table is written to.
+ *
+ * <p>When the application has a database, the versions are kept in its table_versions table, one
+ * row per entity, so that every instance sees the writes made through the others, and through
+ * SeedDataJob. A bump updates the row in the caller's transaction, if any, so the new version
+ * commits, or rolls back, with the write; until then other transactions read the old version, and
+ * concurrent writers of a table take turns on its row. The ETags include the time the row was
+ * created, so that they never match after the database has been recreated. Writes that do not go
+ * through the application are not seen.
+ *
+ * <p>Outside a transaction, a table's row is read at most once every {@code maxAgeMs} and
+ * remembered in between, so that a request (or a cache hit) does not cost a round trip to the
+ * database for each check of the version. A write made through this instance is seen at once; one
+ * made through another instance is seen within {@code maxAgeMs}. Inside a transaction the row is
+ * always read, so that the transaction sees its own bumps.
+ *
+ * <p>Without a database (e.g. in controller tests), the versions are kept in memory, a bump made
+ * inside a transaction takes effect when the transaction commits, and the ETags include the time
+ * the application started, so that ETags handed out before a restart never match.
+ *
+ * <p>Other beans can ask to be told when a table's version changes, as {@link TableCache} does to
+ * drop the rows it has cached, and {@link SecondLevelCacheEviction} does to evict Hibernate's
+ * second-level cache. They are told as soon as a write through this instance commits, and, for a
+ * write through another instance, once this instance reads the version that write made.
+ */
+@Service
+public class TableVersions {
+  /** The request attribute that holds the ETag of a response that is not a 304, without quotes */
+  public static final String ETAG_ATTRIBUTE = TableVersions.class.getName() + ".etag";
+
+  private static final String CACHE_CONTROL =
+      CacheControl.noCache().cachePrivate().getHeaderValue();
+
+  static final String SELECT_SQL = "SELECT version, created_at FROM table_versions WHERE name = ?";
+
+  static final String POSTGRES_BUMP_SQL =
+      """
+      INSERT INTO table_versions (name, version) VALUES (?, 1)
+      ON CONFLICT (name) DO UPDATE SET version = table_versions.version + 1
+      """;
+
+  static final String H2_BUMP_SQL =
+      """
+      MERGE INTO table_versions t
+      USING (VALUES (CAST(? AS VARCHAR(255)))) AS s (name)
+      ON t.name = s.name
+      WHEN MATCHED THEN UPDATE SET version = t.version + 1
+      WHEN NOT MATCHED THEN INSERT (name, version) VALUES (s.name, 1)
+      """;
+
+  private record Row(long version, String createdAt) {}
+
+  // a row (or null, if there was none), and when it was read
+  private record Read(Row row, long atMillis) {}
+
+  @Autowired(required = false)
+  private JdbcTemplate jdbcTemplate;
+
+  @Value("${app.tables.versions.maxAgeMs:1000}")
+  private long maxAgeMs;
+
+  private String bumpSql;
+
+  private final Clock clock;
+  private final String startedAt;
+  private final Map<Class<?>, Read> reads = new ConcurrentHashMap<>();
+  // the last version of each table this instance knows of, read or made
+  private final Map<Class<?>, Long> seen = new ConcurrentHashMap<>();
+  private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+  private final Map<Class<?>, List<Runnable>> listeners = new ConcurrentHashMap<>();
+
+  public TableVersions() {
+    this(Clock.systemUTC());
+  }
+
+  TableVersions(Clock clock) {
+    this.clock = clock;
+    this.startedAt = Long.toString(clock.millis(), 36);
+  }
+
+  /** Pick the statement for the database, if there is one, once it has been injected */
+  @PostConstruct
+  void chooseBumpSql() {
+    if (jdbcTemplate == null) {
+      return;
+    }
+    String databaseProductName =
+        jdbcTemplate.execute(
+            (ConnectionCallback<String>)
+                connection -> connection.getMetaData().getDatabaseProductName());
+    bumpSql = bumpSql(databaseProductName);
+  }
+
+  /**
+   * The statement that bumps the version of a table, inserting its row if it has none
+   *
+   * @param databaseProductName the name the JDBC driver gives the database
+   * @return the statement for PostgreSQL, or for H2 for any other database
+   */
+  static String bumpSql(String databaseProductName) {
+    return "PostgreSQL".equals(databaseProductName) ? POSTGRES_BUMP_SQL : H2_BUMP_SQL;
+  }
+
+  /**
+   * Record that the table of an entity has been written to. Inside a transaction, the version
+   * changes once the transaction commits, and not at all if it rolls back.
+   *
+   * @param entityType the entity class
+   */
+  public void bump(Class<?> entityType) {
+    if (jdbcTemplate != null) {
+      String name = entityType.getSimpleName();
+      try {
+        jdbcTemplate.update(bumpSql, name);
+      } catch (DuplicateKeyException e) {
+        // on H2, another transaction inserted the row first; it is there now
+        jdbcTemplate.update(bumpSql, name);
+      }
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              increment(entityType);
+            }
+          });
+    } else {
+      increment(entityType);
+    }
+  }
+
+  /**
+   * Make a write to the table of an entity, and bump the table's version, in one transaction (the
+   * caller's, if there is one), so that the new version commits with the write, and neither does if
+   * either fails
+   *
+   * @param entityType the entity class
+   * @param write the write, which must only write to that table
+   * @param <T> type of the write's result
+   * @return the write's result
+   */
+  @Transactional
+  public <T> T write(Class<?> entityType, Supplier<T> write) {
+    T result = write.get();
+    bump(entityType);
+    return result;
+  }
+
+  // the in-memory version is only read when there is no database, but the listeners always are
+  private void increment(Class<?> entityType) {
+    reads.remove(entityType);
+    // the bump that committed is the next version, so reading it is not news
+    seen.computeIfPresent(entityType, (type, version) -> version + 1);
+    versions.computeIfAbsent(entityType, type -> new AtomicLong()).incrementAndGet();
+    notifyListeners(entityType);
+  }
+
+  private void notifyListeners(Class<?> entityType) {
+    listeners.getOrDefault(entityType, List.of()).forEach(Runnable::run);
+  }
+
+  // the row of a table, or null if it has never been written to
+  private Row row(Class<?> entityType) {
+    boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+    long now = clock.millis();
+    Read read = reads.get(entityType);
+    if (!inTransaction && read != null && now - read.atMillis() < maxAgeMs) {
+      return read.row();
+    }
+    List<Row> rows =
+        jdbcTemplate.query(
+            SELECT_SQL,
+            (rs, rowNum) ->
+                new Row(
+                    rs.getLong("version"),
+                    Long.toString(rs.getTimestamp("created_at").getTime(), 36)),
+            entityType.getSimpleName());
+    Row row = rows.isEmpty() ? null : rows.get(0);
+    if (!inTransaction) {
+      reads.put(entityType, new Read(row, now));
+      // a version this instance has not seen was made by another (or before it first looked)
+      long version = row == null ? 0 : row.version();
+      Long previous = seen.put(entityType, version);
+      if (previous == null || previous != version) {
+        notifyListeners(entityType);
+      }
+    }
+    return row;
+  }
+
+  /**
+   * Run a callback every time the version of the table of an entity changes: just after a write
+   * through this instance commits, or when this instance reads a version it has not seen before
+   *
+   * @param entityType the entity class
+   * @param listener the callback
+   */
+  public void addListener(Class<?> entityType, Runnable listener) {
+    listeners.computeIfAbsent(entityType, type -> new CopyOnWriteArrayList<>()).add(listener);
+  }
+
+  /**
+   * The current version of the table of an entity
+   *
+   * @param entityType the entity class
+   * @return the number of writes to the table since its row was created (or, without a database,
+   *     since startup)
+   */
+  public long version(Class<?> entityType) {
+    if (jdbcTemplate != null) {
+      Row row = row(entityType);
+      return row == null ? 0 : row.version();
+    }
+    AtomicLong version = versions.get(entityType);
+    return version == null ? 0 : version.get();
+  }
+
+  /**
+   * The ETag of the current contents of the table of an entity
+   *
+   * @param entityType the entity class
+   * @return the ETag, without quotes
+   */
+  public String etag(Class<?> entityType) {
+    if (jdbcTemplate != null) {
+      Row row = row(entityType);
+      return row == null ? "0-0" : row.createdAt() + "-" + row.version();
+    }
+    return startedAt + "-" + version(entityType);
+  }
+
+  /**
+   * Check the ETag of a response from the table of an entity against the request's If-None-Match
+   * header. Call this before reading the table, and return null without reading it if this returns
+   * true; the response is then a 304 with no body, and the ETag. Otherwise the ETag is kept in the
+   * request attribute {@link #ETAG_ATTRIBUTE}, and sent only if the response is a success with a
+   * body (see {@link edu.ucsb.cs156.example.controllers.TableETagAdvice}), so that an error such as
+   * a 404 does not carry the ETag of the table.
+   *
+   * <p>The response is also marked private, no-cache (rather than no-store, which Spring Security
+   * sends by default), so that browsers keep it and send If-None-Match when they fetch it again.
+   *
+   * @param request the request
+   * @param entityType the entity class
+   * @return true if the client already has the current contents
+   */
+  public boolean notModified(ServletWebRequest request, Class<?> entityType) {
+    request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    String etag = etag(entityType);
+    // without a response, the check only compares the ETag, and sets no headers
+    if (new ServletWebRequest(request.getRequest()).checkNotModified(etag)) {
+      return request.checkNotModified(etag);
+    }
+    request.setAttribute(ETAG_ATTRIBUTE, etag, RequestAttributes.SCOPE_REQUEST);
+    return false;
+  }
+}
@@ -0,0 +1,162 @@
+package edu.ucsb.cs156.example.services.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Exports every row of an entity table as NDJSON (one JSON object per line) or CSV.
+ *
+ * <p>Rows come from a repository query that returns a {@code Stream}, so the JDBC driver fetches
+ * them from the database a batch at a time rather than all at once. Each row is written to the
+ * response as soon as it is read and then detached from the persistence context, so memory use
+ * stays the same however many rows the table has. The query runs in a read-only transaction, which
+ * Spring Data requires for streams and which spares Hibernate from keeping a snapshot of each row
+ * for dirty checking.
+ */
+@Service
+public class EntityExporter {
+  static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+  static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+  // CSV fields containing any of these are quoted (RFC 4180)
+  private static final Pattern NEEDS_QUOTES = Pattern.compile("[,\"\r\n]");
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * Build a response that streams every row to the client
+   *
+   * @param <T> the entity type
+   * @param entityType the entity class; its JSON properties are the CSV columns
+   * @param name the name of the download, without the extension, e.g. "restaurants"
+   * @param format ndjson or csv
+   * @param rows opens the stream of rows, e.g. a repository's streamAllBy method; called once the
+   *     response starts, inside a read-only transaction
+   * @return a response whose body is written when the client reads it
+   * @throws InvalidRequestException if the format is not ndjson or csv
+   */
+  public <T> ResponseEntity<StreamingResponseBody> export(
+      Class<T> entityType, String name, String format, Supplier<Stream<T>> rows) {
+    MediaType mediaType =
+        switch (format) {
+          case "ndjson" -> NDJSON;
+          case "csv" -> CSV;
+          default ->
+              throw new InvalidRequestException("format must be ndjson or csv, not " + format);
+        };
+    String filename = name + "." + format;
+    StreamingResponseBody body = out -> write(entityType, mediaType == CSV, rows, out);
+    return ResponseEntity.ok()
+        .contentType(mediaType)
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(filename).build().toString())
+        .body(body);
+  }
+
+  <T> void write(Class<T> entityType, boolean csv, Supplier<Stream<T>> rows, OutputStream out)
+      throws IOException {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    try {
+      transaction.executeWithoutResult(
+          status -> {
+            try (Stream<T> stream = rows.get()) {
+              if (csv) {
+                writeCsv(entityType, stream.iterator(), out);
+              } else {
+                writeNdjson(stream.iterator(), out);
+              }
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private <T> void writeNdjson(Iterator<T> rows, OutputStream out) throws IOException {
+    ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    JsonGenerator generator = mapper.getFactory().createGenerator(out);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    generator.setRootValueSeparator(null);
+    while (rows.hasNext()) {
+      T row = rows.next();
+      writer.writeValue(generator, row);
+      generator.writeRaw('\n');
+      entityManager.detach(row);
+    }
+    generator.close();
+  }
+
+  private <T> void writeCsv(Class<T> entityType, Iterator<T> rows, OutputStream out)
+      throws IOException {
+    List<String> columns =
+        mapper
+            .getSerializationConfig()
+            .introspect(mapper.constructType(entityType))
+            .findProperties()
+            .stream()
+            .map(BeanPropertyDefinition::getName)
+            .toList();
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writeCsvLine(writer, columns);
+    while (rows.hasNext()) {
+      T row = rows.next();
+      JsonNode node = mapper.valueToTree(row);
+      writeCsvLine(writer, columns.stream().map(column -> node.path(column).asText("")).toList());
+      entityManager.detach(row);
+    }
+    writer.flush();
+  }
+
+  private static void writeCsvLine(Writer writer, List<String> fields) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(csvField(fields.get(i)));
+    }
+    writer.write("\r\n");
+  }
+
+  static String csvField(String value) {
+    if (!NEEDS_QUOTES.matcher(value).find()) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
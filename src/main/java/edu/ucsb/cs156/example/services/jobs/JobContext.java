@@ -1,20 +1,138 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import java.time.Clock;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
+/**
+ * This is what a running job is given to log to, report its progress to, record checkpoints with
+ * and find out whether it has been cancelled.
+ *
+ * <p>A job that records checkpoints can be resumed: when a queued job is run again, e.g. because
+ * its instance restarted, {@link #getCheckpoint()} returns the cursor it last recorded, and the job
+ * should carry on from there.
+ *
+ * <p>Cancellation is cooperative: a long job should call {@link #checkCancelled()} between units of
+ * work. JobService also interrupts the job's thread, so a job blocked in {@code Thread.sleep} or
+ * {@code wait} stops straight away.
+ */
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
-  private Job job;
+  private final JobLogWriter logWriter;
+  private final Job job;
+  private final Consumer<Job> jobSaver;
+  private final long progressSaveIntervalMs;
+  private final Clock clock;
+
+  private volatile boolean cancelled;
+  private long nextProgressSaveAtMs;
+
+  /**
+   * Create a context whose progress and checkpoints are kept on the job but not saved
+   *
+   * @param logWriter writer the log lines go to (may be null)
+   * @param job the job
+   */
+  public JobContext(JobLogWriter logWriter, Job job) {
+    this(logWriter, job, null, 0, Clock.systemUTC());
+  }
+
+  /**
+   * Create a context
+   *
+   * @param logWriter writer the log lines go to (may be null)
+   * @param job the job
+   * @param jobSaver saves the job when its progress or checkpoint has changed (may be null)
+   * @param progressSaveIntervalMs minimum time in milliseconds between two saves of the progress
+   * @param clock clock used to throttle the saves
+   */
+  public JobContext(
+      JobLogWriter logWriter,
+      Job job,
+      Consumer<Job> jobSaver,
+      long progressSaveIntervalMs,
+      Clock clock) {
+    this.logWriter = logWriter;
+    this.job = job;
+    this.jobSaver = jobSaver;
+    this.progressSaveIntervalMs = progressSaveIntervalMs;
+    this.clock = clock;
+  }
 
   public void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    if (logWriter != null) logWriter.append(message);
+  }
+
+  /**
+   * Report how much of its work the job has done. The percentage is set on the job at once, and
+   * saved at most once per save interval, and always when it reaches 100, so that a job may report
+   * after every row without a write per row.
+   *
+   * @param done units of work done
+   * @param total units of work in all; if not positive, the job counts as done
+   */
+  public void progress(long done, long total) {
+    int percent = total <= 0 ? 100 : Math.clamp(done * 100 / total, 0, 100);
+    Integer last = job.getProgress();
+    if (last != null && last == percent) {
+      return;
+    }
+    job.setProgress(percent);
+    long now = clock.millis();
+    if (jobSaver != null && (percent == 100 || now >= nextProgressSaveAtMs)) {
+      jobSaver.accept(job);
+      nextProgressSaveAtMs = now + progressSaveIntervalMs;
+    }
+  }
+
+  /**
+   * Record how far the job has got, so that if it is run again it resumes from here rather than
+   * from the start. The job is saved straight away, so a job should record a checkpoint once the
+   * work before it is committed, or in the transaction that commits it.
+   *
+   * @param cursor where to resume from, in a form only the job needs to understand
+   */
+  public void checkpoint(String cursor) {
+    job.setCheckpoint(cursor);
+    if (jobSaver != null) {
+      jobSaver.accept(job);
+    }
+  }
+
+  /**
+   * This method returns the cursor of the job's last checkpoint.
+   *
+   * @return the cursor, or null if the job has not recorded one, i.e. is starting from scratch
+   */
+  public String getCheckpoint() {
+    return job.getCheckpoint();
+  }
+
+  /**
+   * Stop the job if it has been cancelled.
+   *
+   * @throws JobCancelledException if the job has been cancelled or its thread interrupted
+   */
+  public void checkCancelled() {
+    if (cancelled || Thread.currentThread().isInterrupted()) {
+      throw new JobCancelledException(job.getId());
+    }
+  }
+
+  /**
+   * This method returns whether the job has been cancelled.
+   *
+   * @return true if {@link #cancel()} has been called
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /** Mark the job as cancelled; it stops at its next call to {@link #checkCancelled()}. */
+  void cancel() {
+    cancelled = true;
   }
 }
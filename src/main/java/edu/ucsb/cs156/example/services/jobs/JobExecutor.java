@@ -0,0 +1,146 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.models.JobExecutorStats;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is the executor that JobService runs jobs on.
+ *
+ * <p>At most {@code app.jobs.executor.maxConcurrency} jobs run at once, and at most {@code
+ * app.jobs.executor.queueCapacity} more wait for a free slot; any job submitted beyond that is
+ * rejected with a JobRejectedException rather than piling up in memory. Jobs run on platform
+ * threads or, with {@code app.jobs.executor.mode=virtual}, on virtual threads.
+ */
+@Slf4j
+@Service
+public class JobExecutor {
+  private final String mode;
+  private final int maxConcurrency;
+  private final int queueCapacity;
+  private final ThreadPoolExecutor executor;
+
+  private final LongAdder rejectedJobs = new LongAdder();
+  private final LongAdder startedJobs = new LongAdder();
+  private final LongAdder totalWaitMs = new LongAdder();
+  private final LongAccumulator maxWaitMs = new LongAccumulator(Long::max, 0);
+  // jobs submitted and not yet finished; the pool's own counts miss a job between its submission
+  // and the moment a thread picks it up
+  private final AtomicInteger unfinishedJobs = new AtomicInteger();
+
+  /**
+   * Create the executor
+   *
+   * @param mode "platform" or "virtual"
+   * @param maxConcurrency maximum number of jobs running at once
+   * @param queueCapacity maximum number of jobs waiting to run
+   */
+  public JobExecutor(
+      @Value("${app.jobs.executor.mode:platform}") String mode,
+      @Value("${app.jobs.executor.maxConcurrency:4}") int maxConcurrency,
+      @Value("${app.jobs.executor.queueCapacity:100}") int queueCapacity) {
+    this.mode = mode;
+    this.maxConcurrency = maxConcurrency;
+    this.queueCapacity = queueCapacity;
+    this.executor =
+        new ThreadPoolExecutor(
+            maxConcurrency,
+            maxConcurrency,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            threadFactory(mode),
+            new ThreadPoolExecutor.AbortPolicy());
+    log.info(
+        "JobExecutor: mode={} maxConcurrency={} queueCapacity={}",
+        mode,
+        maxConcurrency,
+        queueCapacity);
+  }
+
+  private static ThreadFactory threadFactory(String mode) {
+    return switch (mode) {
+      case "platform" -> Thread.ofPlatform().name("job-", 0).factory();
+      case "virtual" -> Thread.ofVirtual().name("job-", 0).factory();
+      default ->
+          throw new IllegalArgumentException(
+              "app.jobs.executor.mode must be platform or virtual, not " + mode);
+    };
+  }
+
+  /**
+   * Queue a job to run as soon as a slot is free
+   *
+   * @param task the job
+   * @throws JobRejectedException if all slots are busy and the queue is full
+   */
+  public void submit(Runnable task) {
+    long submittedAt = System.currentTimeMillis();
+    unfinishedJobs.incrementAndGet();
+    try {
+      executor.execute(
+          () -> {
+            long waitMs = System.currentTimeMillis() - submittedAt;
+            startedJobs.increment();
+            totalWaitMs.add(waitMs);
+            maxWaitMs.accumulate(waitMs);
+            try {
+              task.run();
+            } finally {
+              unfinishedJobs.decrementAndGet();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      unfinishedJobs.decrementAndGet();
+      rejectedJobs.increment();
+      throw new JobRejectedException(maxConcurrency, queueCapacity);
+    }
+  }
+
+  /**
+   * This method returns the number of jobs that could be submitted now and start straight away,
+   * i.e. the free slots less the jobs already running or waiting for one.
+   *
+   * @return the number of free slots, at least 0
+   */
+  public int getFreeSlots() {
+    return Math.max(0, maxConcurrency - unfinishedJobs.get());
+  }
+
+  /**
+   * This method returns the current queue depth, number of running jobs and wait time statistics.
+   *
+   * @return a snapshot of the executor statistics
+   */
+  public JobExecutorStats getStats() {
+    long started = startedJobs.sum();
+    return JobExecutorStats.builder()
+        .mode(mode)
+        .maxConcurrency(maxConcurrency)
+        .queueCapacity(queueCapacity)
+        .queueDepth(executor.getQueue().size())
+        .activeJobs(executor.getActiveCount())
+        .completedJobs(executor.getCompletedTaskCount())
+        .rejectedJobs(rejectedJobs.sum())
+        .averageWaitMs(started == 0 ? 0.0 : (double) totalWaitMs.sum() / started)
+        .maxWaitMs(maxWaitMs.get())
+        .build();
+  }
+
+  /** Stop accepting jobs; jobs that are already running are left to finish. */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.Map;
+
+/**
+ * Creates the jobs of one type from the parameters they were queued with. A job queued through
+ * JobQueue is stored as its type and parameters, so that whichever instance of the application
+ * claims it can create and run it.
+ */
+public interface JobFactory {
+  /**
+   * This method returns the type of the jobs this factory creates, as stored on their jobs rows.
+   *
+   * @return the type
+   */
+  String getType();
+
+  /**
+   * This method creates a job.
+   *
+   * @param params the parameters of the job, as read back from JSON
+   * @return the job
+   */
+  JobContextConsumer create(Map<String, Object> params);
+}
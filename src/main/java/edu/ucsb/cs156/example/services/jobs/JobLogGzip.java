@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips job logs for the jobs.log_gz column, and reads them back. An empty log is stored as no
+ * bytes at all rather than as the 20 bytes of an empty gzip stream.
+ */
+final class JobLogGzip {
+  private JobLogGzip() {}
+
+  /**
+   * Compress a log
+   *
+   * @param log the text of the log
+   * @return the text, UTF-8 encoded and gzipped
+   */
+  static byte[] compress(String log) {
+    if (log.isEmpty()) {
+      return new byte[0];
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    compress(log, bytes);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Compress a log to a stream
+   *
+   * @param log the text of the log
+   * @param out the stream the text is written to, UTF-8 encoded and gzipped; it is closed
+   * @throws UncheckedIOException if the stream cannot be written to
+   */
+  static void compress(String log, OutputStream out) {
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(log.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Decompress a log
+   *
+   * @param logGz a log compressed by {@link #compress}
+   * @return the text of the log
+   * @throws UncheckedIOException if logGz is not valid gzip data
+   */
+  static String decompress(byte[] logGz) {
+    if (logGz.length == 0) {
+      return "";
+    }
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(logGz))) {
+      return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
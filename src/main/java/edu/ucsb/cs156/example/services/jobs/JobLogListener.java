@@ -0,0 +1,7 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/** Callback that is told about every line appended to a job log. */
+@FunctionalInterface
+public interface JobLogListener {
+  void lineAppended(long seq, String text);
+}
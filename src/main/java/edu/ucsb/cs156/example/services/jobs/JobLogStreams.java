@@ -0,0 +1,73 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps track of the clients following each job log, and passes log lines and the final job status
+ * on to them as JobService reports them.
+ */
+@Component
+public class JobLogStreams {
+  private final Map<Long, List<JobLogSubscription>> subscriptions = new ConcurrentHashMap<>();
+
+  public void add(long jobId, JobLogSubscription subscription) {
+    subscriptions.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(subscription);
+  }
+
+  public void remove(long jobId, JobLogSubscription subscription) {
+    subscriptions.computeIfPresent(
+        jobId,
+        (id, list) -> {
+          list.remove(subscription);
+          return list.isEmpty() ? null : list;
+        });
+  }
+
+  /**
+   * Send a line to every client following the job
+   *
+   * @param jobId id of the job
+   * @param seq line number
+   * @param text text of the line
+   */
+  public void publish(long jobId, long seq, String text) {
+    List<JobLogSubscription> list = subscriptions.get(jobId);
+    if (list == null) {
+      return;
+    }
+    for (JobLogSubscription subscription : list) {
+      if (!subscription.send(seq, text)) {
+        remove(jobId, subscription);
+      }
+    }
+  }
+
+  /**
+   * Send the final status to every client following the job and close their streams
+   *
+   * @param jobId id of the job
+   * @param status final status of the job
+   */
+  public void complete(long jobId, String status) {
+    List<JobLogSubscription> list = subscriptions.remove(jobId);
+    if (list == null) {
+      return;
+    }
+    list.forEach(subscription -> subscription.finish(status));
+  }
+
+  /**
+   * The number of clients following a job
+   *
+   * @param jobId id of the job
+   * @return number of open subscriptions
+   */
+  public int subscriberCount(long jobId) {
+    List<JobLogSubscription> list = subscriptions.get(jobId);
+    return list == null ? 0 : list.size();
+  }
+}
@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.io.IOException;
+import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * One client following a job log over Server-Sent Events.
+ *
+ * <p>Each line is sent as a {@code line} event whose id is the line number, so a client that
+ * reconnects can resume from the line after its {@code Last-Event-ID}. When the job finishes, a
+ * {@code status} event with the final status is sent and the stream is closed.
+ *
+ * <p>Lines reach a subscription both from the backlog read when it is opened and from the job as it
+ * logs, so lines below {@link #getNextSeq()} are dropped to keep each line from being sent twice.
+ */
+public class JobLogSubscription {
+  private final SseEmitter emitter;
+  private long nextSeq;
+  private boolean finished;
+
+  /**
+   * Create a subscription
+   *
+   * @param emitter the emitter the events are sent on
+   * @param fromLine number of the first line the client wants
+   */
+  public JobLogSubscription(SseEmitter emitter, long fromLine) {
+    this.emitter = emitter;
+    this.nextSeq = fromLine;
+  }
+
+  /**
+   * Send a line, unless it has already been sent
+   *
+   * @param seq line number
+   * @param text text of the line
+   * @return false if the client has gone away or the stream is finished
+   */
+  public synchronized boolean send(long seq, String text) {
+    if (finished) {
+      return false;
+    }
+    if (seq < nextSeq) {
+      return true;
+    }
+    try {
+      emitter.send(SseEmitter.event().id(Long.toString(seq)).name("line").data(text));
+    } catch (IOException | IllegalStateException e) {
+      finished = true;
+      return false;
+    }
+    nextSeq = seq + 1;
+    return true;
+  }
+
+  /**
+   * Send consecutive lines
+   *
+   * @param fromSeq line number of the first line
+   * @param lines text of the lines
+   * @return false if the client has gone away or the stream is finished
+   */
+  public synchronized boolean sendAll(long fromSeq, List<String> lines) {
+    for (int i = 0; i < lines.size(); i++) {
+      if (!send(fromSeq + i, lines.get(i))) {
+        return false;
+      }
+    }
+    return !finished;
+  }
+
+  /**
+   * Send the final status of the job and close the stream
+   *
+   * @param status final status of the job
+   */
+  public synchronized void finish(String status) {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    try {
+      emitter.send(SseEmitter.event().name("status").data(status));
+      emitter.complete();
+    } catch (IOException | IllegalStateException e) {
+      emitter.completeWithError(e);
+    }
+  }
+
+  public synchronized long getNextSeq() {
+    return nextSeq;
+  }
+
+  public synchronized boolean isFinished() {
+    return finished;
+  }
+}
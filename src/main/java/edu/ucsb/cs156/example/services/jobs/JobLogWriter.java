@@ -0,0 +1,131 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers the log lines written by a single job and appends them to the job_log_lines table in
+ * batches.
+ *
+ * <p>The buffer is flushed when it holds {@code batchSize} lines, or when its oldest line has been
+ * waiting for at least {@code flushIntervalMs} milliseconds. The time based flush is checked on
+ * every append and by {@link #flushIfStale()}, which JobService calls periodically so that a job
+ * that goes quiet still has its last lines written.
+ *
+ * <p>If a listener is given, it is told about each line as soon as it is appended, before the line
+ * is written to the database.
+ */
+public class JobLogWriter {
+  private final JobLogLinesRepository jobLogLinesRepository;
+  private final long jobId;
+  private final int batchSize;
+  private final long flushIntervalMs;
+  private final Clock clock;
+  private final JobLogListener listener;
+
+  private final List<JobLogLine> buffer = new ArrayList<>();
+  private long nextSeq;
+  private long oldestBufferedAtMs;
+
+  /**
+   * Create a log writer for a job
+   *
+   * @param jobLogLinesRepository repository the lines are written to (may be null, in which case
+   *     lines are only counted)
+   * @param jobId id of the job the lines belong to
+   * @param nextSeq sequence number of the first line written by this writer
+   * @param batchSize maximum number of lines held before the buffer is flushed
+   * @param flushIntervalMs maximum age in milliseconds of a buffered line before it is flushed
+   * @param clock clock used to timestamp lines and decide when the buffer is stale
+   * @param listener told about every appended line (may be null)
+   */
+  public JobLogWriter(
+      JobLogLinesRepository jobLogLinesRepository,
+      long jobId,
+      long nextSeq,
+      int batchSize,
+      long flushIntervalMs,
+      Clock clock,
+      JobLogListener listener) {
+    this.jobLogLinesRepository = jobLogLinesRepository;
+    this.jobId = jobId;
+    this.nextSeq = nextSeq;
+    this.batchSize = batchSize;
+    this.flushIntervalMs = flushIntervalMs;
+    this.clock = clock;
+    this.listener = listener;
+  }
+
+  /**
+   * Append a line to the log
+   *
+   * @param text the text of the line
+   * @return the sequence number assigned to the line
+   */
+  public long append(String text) {
+    long seq;
+    synchronized (this) {
+      long now = clock.millis();
+      if (buffer.isEmpty()) {
+        oldestBufferedAtMs = now;
+      }
+      seq = nextSeq++;
+      buffer.add(
+          JobLogLine.builder()
+              .jobId(jobId)
+              .seq(seq)
+              .createdAt(ZonedDateTime.now(clock))
+              .text(text)
+              .build());
+      if (buffer.size() >= batchSize || isStale(now)) {
+        flush();
+      }
+    }
+    // called without holding the lock, since listeners may need to flush this writer
+    if (listener != null) {
+      listener.lineAppended(seq, text);
+    }
+    return seq;
+  }
+
+  /**
+   * Flush the buffer if its oldest line has been waiting for at least {@code flushIntervalMs}
+   *
+   * @return true if lines were written
+   */
+  public synchronized boolean flushIfStale() {
+    if (buffer.isEmpty() || !isStale(clock.millis())) {
+      return false;
+    }
+    flush();
+    return true;
+  }
+
+  /** Write all buffered lines to the repository in a single batch */
+  public synchronized void flush() {
+    if (buffer.isEmpty()) {
+      return;
+    }
+    if (jobLogLinesRepository != null) {
+      jobLogLinesRepository.saveAll(new ArrayList<>(buffer));
+    }
+    buffer.clear();
+  }
+
+  /**
+   * The number of lines appended so far, including lines still in the buffer
+   *
+   * @return the sequence number that the next line will be given
+   */
+  public synchronized long getNextSeq() {
+    return nextSeq;
+  }
+
+  private boolean isStale(long now) {
+    return now - oldestBufferedAtMs >= flushIntervalMs;
+  }
+}
@@ -0,0 +1,191 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.models.JobExecutorStats;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import jakarta.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a durable queue of jobs on the jobs table, shared by every instance of the application. A
+ * job is queued as its type (see {@link JobFactory}) and parameters, and is run by the {@link
+ * JobWorker} of whichever instance claims it first; this instance polls every {@code
+ * app.jobs.queue.pollIntervalMs}, and straight after a job is queued on it.
+ *
+ * <p>At most {@code app.jobs.queue.capacity} jobs wait on the table, across all instances; a job
+ * queued beyond that is rejected with a JobRejectedException, as the executor rejects jobs when its
+ * own queue is full. The queued jobs are counted before each job is queued, so jobs queued at the
+ * same moment through different instances may go a few over the capacity.
+ *
+ * <p>When the instance starts, the jobs it was running when it last stopped are queued again, to be
+ * resumed from their last checkpoints; this needs {@code app.jobs.queue.workerId} to stay the same
+ * across restarts. Jobs of instances that stopped for good are queued again once their leases run
+ * out.
+ *
+ * <p>With {@code app.jobs.queue.enabled=false}, queued jobs are run in-process with {@link
+ * JobService#runAsJob} instead, and are neither shared nor resumed.
+ */
+@Slf4j
+@Service
+public class JobQueue {
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private JobExecutor jobExecutor;
+
+  @Autowired private CurrentUserService currentUserService;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private List<JobFactory> jobFactories;
+
+  @Value("${app.jobs.queue.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.jobs.queue.capacity:100}")
+  private int capacity;
+
+  @Value("${app.jobs.queue.workerId:}")
+  private String workerId;
+
+  @Value("${app.jobs.queue.leaseSeconds:60}")
+  private int leaseSeconds;
+
+  @Value("${app.jobs.queue.maxAttempts:3}")
+  private int maxAttempts;
+
+  private Map<String, JobFactory> factoriesByType;
+
+  private JobWorker worker;
+
+  private final LongAdder rejectedJobs = new LongAdder();
+
+  /**
+   * Create the worker of this instance, once the settings have been injected, and recover the jobs
+   * interrupted when the instance last stopped, before the first poll can start any
+   */
+  @PostConstruct
+  void createWorker() {
+    factoriesByType =
+        jobFactories.stream().collect(Collectors.toMap(JobFactory::getType, Function.identity()));
+    // the JVM's name is the process id and host name, which is unique among running instances
+    String id = workerId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : workerId;
+    worker =
+        JobWorker.builder()
+            .jdbcTemplate(jdbcTemplate)
+            .transactionTemplate(new TransactionTemplate(transactionManager))
+            .jobsRepository(jobsRepository)
+            .jobService(jobService)
+            .jobExecutor(jobExecutor)
+            .mapper(mapper)
+            .jobFactories(factoriesByType)
+            .workerId(id)
+            .leaseSeconds(leaseSeconds)
+            .maxAttempts(maxAttempts)
+            .build();
+    log.info("JobQueue: enabled={} workerId={} leaseSeconds={}", enabled, id, leaseSeconds);
+    if (enabled) {
+      worker.recover();
+    }
+  }
+
+  /**
+   * This method returns the types of job that can be queued.
+   *
+   * @return the types of the JobFactories
+   */
+  public Set<String> getJobTypes() {
+    return factoriesByType.keySet();
+  }
+
+  /**
+   * Queue a job, to be run by the first instance with a free slot.
+   *
+   * @param type the type of the job, i.e. that of a JobFactory
+   * @param params the parameters the JobFactory creates the job from; they are stored as JSON
+   * @return the queued job
+   * @throws IllegalArgumentException if there is no JobFactory for the type
+   * @throws JobRejectedException if {@code capacity} jobs are already queued
+   * @throws JsonProcessingException if the parameters cannot be written as JSON
+   */
+  public Job enqueue(String type, Map<String, Object> params) throws JsonProcessingException {
+    JobFactory jobFactory = factoriesByType.get(type);
+    if (jobFactory == null) {
+      throw new IllegalArgumentException("No JobFactory for job type " + type);
+    }
+    if (!enabled) {
+      return jobService.runAsJob(jobFactory.create(params));
+    }
+    if (jobsRepository.countByStatus("queued") >= capacity) {
+      rejectedJobs.increment();
+      throw new JobRejectedException(capacity);
+    }
+
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .status("queued")
+            .type(type)
+            .params(mapper.writeValueAsString(params))
+            .build();
+    jobsRepository.save(job);
+    worker.poll();
+    return job;
+  }
+
+  /**
+   * This method returns the statistics of the executor of this instance, with the number of jobs
+   * queued on the table, and those rejected because it was full, in place of the executor's own
+   * queue, which holds no jobs when the queue is enabled (jobs are only claimed for free slots).
+   *
+   * @return a snapshot of the executor statistics
+   */
+  public JobExecutorStats getStats() {
+    JobExecutorStats stats = jobExecutor.getStats();
+    if (enabled) {
+      stats.setQueueCapacity(capacity);
+      stats.setQueueDepth((int) jobsRepository.countByStatus("queued"));
+      stats.setRejectedJobs(stats.getRejectedJobs() + rejectedJobs.sum());
+    }
+    return stats;
+  }
+
+  /** Claim and start queued jobs, if this instance has free slots */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.pollIntervalMs:1000}")
+  public void poll() {
+    if (enabled) {
+      worker.poll();
+    }
+  }
+
+  /** Renew the leases of the jobs running here, and queue again those that have expired */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.heartbeatIntervalMs:10000}")
+  public void heartbeat() {
+    if (enabled) {
+      worker.heartbeat();
+    }
+  }
+}
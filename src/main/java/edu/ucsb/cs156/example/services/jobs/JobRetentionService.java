@@ -0,0 +1,145 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the jobs table from growing without bound. Every {@code app.jobs.retention.intervalMs}:
+ *
+ * <ul>
+ *   <li>finished jobs last saved more than {@code app.jobs.retention.days} ago are deleted, with
+ *       their logs, {@code batchSize} jobs per delete statement (0 days keeps every job);
+ *   <li>the logs of the other jobs that finished more than {@code compactAfterMinutes} ago are
+ *       gzipped into jobs.log_gz, and their lines deleted, one job per transaction.
+ * </ul>
+ *
+ * <p>JobService reads a compacted log back transparently. Every instance runs this; a log compacted
+ * by two instances at once is only stored once, so the work is wasted but nothing breaks.
+ */
+@Slf4j
+@Service
+public class JobRetentionService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Value("${app.jobs.retention.days:30}")
+  private int retentionDays = 30;
+
+  @Value("${app.jobs.retention.compactAfterMinutes:10}")
+  private int compactAfterMinutes = 10;
+
+  @Value("${app.jobs.retention.batchSize:100}")
+  private int batchSize = 100;
+
+  private record Compacted(long bytesBefore, long bytesAfter) {}
+
+  /** Run {@link #compactAndPurge()} on the schedule */
+  @Scheduled(
+      fixedDelayString = "${app.jobs.retention.intervalMs:3600000}",
+      initialDelayString = "${app.jobs.retention.intervalMs:3600000}")
+  public void scheduledCompactAndPurge() {
+    compactAndPurge();
+  }
+
+  /**
+   * Delete the finished jobs that are older than the retention, then compress the logs of the other
+   * finished jobs.
+   *
+   * @return what was deleted and compressed, and the bytes of log this freed
+   */
+  public JobRetentionReport compactAndPurge() {
+    Set<String> finished = JobService.FINISHED_STATUSES;
+    ZonedDateTime now = ZonedDateTime.now();
+    PageRequest batch = PageRequest.of(0, batchSize);
+
+    int purgedJobs = 0;
+    long purgedBytes = 0;
+    if (retentionDays > 0) {
+      ZonedDateTime purgeBefore = now.minusDays(retentionDays);
+      // page forward by id, so that a job that cannot be deleted is not listed again
+      List<Long> ids = jobsRepository.findIdsToPurge(finished, purgeBefore, 0, batch);
+      while (!ids.isEmpty()) {
+        purgedBytes += jobsRepository.sumLogBytes(ids) + jobLogLinesRepository.sumTextBytes(ids);
+        purgedJobs += jobsRepository.deleteByIds(ids);
+        long afterId = ids.get(ids.size() - 1);
+        ids = jobsRepository.findIdsToPurge(finished, purgeBefore, afterId, batch);
+      }
+    }
+
+    int compactedJobs = 0;
+    long bytesBefore = 0;
+    long bytesAfter = 0;
+    ZonedDateTime compactBefore = now.minusMinutes(compactAfterMinutes);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    List<Long> ids = jobsRepository.findIdsToCompact(finished, compactBefore, 0, batch);
+    while (!ids.isEmpty()) {
+      for (Long id : ids) {
+        Compacted compacted = compactLog(transactionTemplate, id);
+        if (compacted != null) {
+          compactedJobs++;
+          bytesBefore += compacted.bytesBefore();
+          bytesAfter += compacted.bytesAfter();
+        }
+      }
+      long afterId = ids.get(ids.size() - 1);
+      ids = jobsRepository.findIdsToCompact(finished, compactBefore, afterId, batch);
+    }
+
+    JobRetentionReport report =
+        JobRetentionReport.builder()
+            .compactedJobs(compactedJobs)
+            .compactedBytesBefore(bytesBefore)
+            .compactedBytesAfter(bytesAfter)
+            .purgedJobs(purgedJobs)
+            .purgedBytes(purgedBytes)
+            .reclaimedBytes(bytesBefore - bytesAfter + purgedBytes)
+            .build();
+    log.info(
+        "Job retention: compacted {} logs from {} to {} bytes, purged {} jobs with {} bytes of log,"
+            + " reclaimed {} bytes",
+        compactedJobs,
+        bytesBefore,
+        bytesAfter,
+        purgedJobs,
+        purgedBytes,
+        report.getReclaimedBytes());
+    return report;
+  }
+
+  // store the job's log gzipped in place of its lines, unless another instance got there first
+  // or the job has been deleted since it was listed; the job is locked so that it stays until then
+  private Compacted compactLog(TransactionTemplate transactionTemplate, long jobId) {
+    return transactionTemplate.execute(
+        status -> {
+          if (jobsRepository.lockById(jobId).isEmpty()) {
+            log.info("Job retention: job {} was deleted before its log was compacted", jobId);
+            return null;
+          }
+          String text = jobService.getJobLogs(jobId);
+          byte[] logGz = JobLogGzip.compress(text);
+          if (jobsRepository.storeCompressedLog(jobId, logGz, text.length()) == 0) {
+            return null;
+          }
+          jobLogLinesRepository.deleteByJobId(jobId);
+          return new Compacted(text.getBytes(StandardCharsets.UTF_8).length, logGz.length);
+        });
+  }
+}
@@ -0,0 +1,200 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the recurring jobs of the job_schedules table. Every instance looks for due schedules every
+ * {@code app.jobs.schedules.pollIntervalMs}, and claims each due tick with {@link
+ * JobSchedulesRepository#claimTick}, so that the tick fires on exactly one instance. The instance
+ * that claims it queues the schedule's job with {@link JobQueue#enqueue}, so each run is a normal
+ * job, with its own log, that any instance may run.
+ *
+ * <p>Cron expressions are read in {@code app.jobs.schedules.timeZone}. Ticks missed while every
+ * instance was down, or while a schedule was paused, are skipped rather than made up. A tick is
+ * lost, not fired twice, if its instance stops between claiming it and queueing its job.
+ */
+@Slf4j
+@Service
+public class JobScheduler {
+  private static final TypeReference<Map<String, Object>> PARAMS_TYPE = new TypeReference<>() {};
+
+  @Autowired private JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired private JobQueue jobQueue;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Value("${app.jobs.schedules.timeZone:America/Los_Angeles}")
+  private String timeZone = "America/Los_Angeles";
+
+  /**
+   * This method returns every schedule.
+   *
+   * @return the schedules, by name
+   */
+  public List<JobSchedule> getSchedules() {
+    return jobSchedulesRepository.findAllByOrderByNameAsc();
+  }
+
+  /**
+   * Create a schedule, which fires first at the next tick of its cron expression.
+   *
+   * @param name the name of the schedule, which must be unique
+   * @param cron a Spring cron expression: second, minute, hour, day of month, month, day of week
+   * @param type the type of the job, i.e. that of a JobFactory
+   * @param params the parameters of the job (null for none)
+   * @return the saved schedule
+   * @throws InvalidRequestException if the name is taken, the cron expression is not valid or never
+   *     fires, or there is no JobFactory for the type
+   * @throws JsonProcessingException if the parameters cannot be written as JSON
+   */
+  public JobSchedule createSchedule(
+      String name, String cron, String type, Map<String, Object> params)
+      throws JsonProcessingException {
+    if (jobSchedulesRepository.existsByName(name)) {
+      throw new InvalidRequestException("There is already a schedule named " + name);
+    }
+    ZonedDateTime nextRunAt = firstRunAt(cron);
+    if (!jobQueue.getJobTypes().contains(type)) {
+      throw new InvalidRequestException("No JobFactory for job type " + type);
+    }
+
+    JobSchedule schedule =
+        JobSchedule.builder()
+            .name(name)
+            .cron(cron)
+            .type(type)
+            .params(mapper.writeValueAsString(params == null ? Map.of() : params))
+            .nextRunAt(nextRunAt)
+            .build();
+    return jobSchedulesRepository.save(schedule);
+  }
+
+  /**
+   * Pause a schedule, so that it does not fire until it is resumed.
+   *
+   * @param id the id of the schedule
+   * @return the paused schedule
+   * @throws EntityNotFoundException if there is no schedule with that id
+   */
+  public JobSchedule pauseSchedule(long id) {
+    if (jobSchedulesRepository.setPaused(id, true, null) == 0) {
+      throw new EntityNotFoundException(JobSchedule.class, id);
+    }
+    return getSchedule(id);
+  }
+
+  /**
+   * Resume a schedule, which fires next at the next tick of its cron expression from now.
+   *
+   * @param id the id of the schedule
+   * @return the resumed schedule
+   * @throws EntityNotFoundException if there is no schedule with that id
+   * @throws InvalidRequestException if its cron expression never fires again
+   */
+  public JobSchedule resumeSchedule(long id) {
+    JobSchedule schedule = getSchedule(id);
+    jobSchedulesRepository.setPaused(id, false, firstRunAt(schedule.getCron()));
+    return getSchedule(id);
+  }
+
+  /**
+   * Queue the job of a schedule now, whether or not the schedule is paused. The next tick of the
+   * schedule still fires as usual.
+   *
+   * @param id the id of the schedule
+   * @return the queued job
+   * @throws EntityNotFoundException if there is no schedule with that id
+   * @throws JsonProcessingException if the parameters of the schedule are not valid JSON
+   */
+  public Job triggerSchedule(long id) throws JsonProcessingException {
+    return run(getSchedule(id), ZonedDateTime.now());
+  }
+
+  /**
+   * Delete a schedule. The jobs it has already queued are kept.
+   *
+   * @param id the id of the schedule
+   * @throws EntityNotFoundException if there is no schedule with that id
+   */
+  public void deleteSchedule(long id) {
+    if (jobSchedulesRepository.deleteByIdReturningCount(id) == 0) {
+      throw new EntityNotFoundException(JobSchedule.class, id);
+    }
+  }
+
+  /**
+   * Fire the due schedules whose ticks this instance claims. A schedule whose cron expression never
+   * fires again after its tick is paused, with no next run, once that tick is claimed.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.schedules.pollIntervalMs:5000}")
+  public void fireDueSchedules() {
+    for (JobSchedule schedule : jobSchedulesRepository.findDue(ZonedDateTime.now())) {
+      try {
+        ZonedDateTime tick = schedule.getNextRunAt();
+        // the next tick is counted from now, so ticks missed while nothing was polling are skipped
+        ZonedDateTime next = nextRunAt(schedule.getCron());
+        if (jobSchedulesRepository.claimTick(schedule.getId(), tick, next) == 1) {
+          if (next == null) {
+            jobSchedulesRepository.setPaused(schedule.getId(), true, null);
+            log.info("JobScheduler: schedule {} never fires again; paused", schedule.getName());
+          }
+          run(schedule, tick);
+        }
+      } catch (Exception e) {
+        log.error("JobScheduler: schedule {} could not be fired", schedule.getName(), e);
+      }
+    }
+  }
+
+  private JobSchedule getSchedule(long id) {
+    return jobSchedulesRepository
+        .findById(id)
+        .orElseThrow(() -> new EntityNotFoundException(JobSchedule.class, id));
+  }
+
+  // the next tick of a cron expression from now, or null if it never fires again
+  private ZonedDateTime nextRunAt(String cron) {
+    CronExpression expression;
+    try {
+      expression = CronExpression.parse(cron);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestException("Invalid cron expression: " + e.getMessage());
+    }
+    return expression.next(ZonedDateTime.now(ZoneId.of(timeZone)));
+  }
+
+  // as nextRunAt, for a schedule that is about to be (re)started, which must fire at least once
+  private ZonedDateTime firstRunAt(String cron) {
+    ZonedDateTime next = nextRunAt(cron);
+    if (next == null) {
+      throw new InvalidRequestException("Cron expression " + cron + " never fires");
+    }
+    return next;
+  }
+
+  private Job run(JobSchedule schedule, ZonedDateTime runAt) throws JsonProcessingException {
+    Map<String, Object> params = mapper.readValue(schedule.getParams(), PARAMS_TYPE);
+    Job job = jobQueue.enqueue(schedule.getType(), params);
+    jobSchedulesRepository.recordRun(schedule.getId(), job.getId(), runAt);
+    log.info("JobScheduler: schedule {} queued job {}", schedule.getName(), job.getId());
+    return job;
+  }
+}
@@ -1,44 +1,187 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.models.JobLogTail;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Service
 public class JobService {
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
   @Autowired private CurrentUserService currentUserService;
 
-  @Lazy @Autowired private JobService self;
+  @Autowired private JobExecutor jobExecutor;
+
+  @Autowired private JobLogStreams jobLogStreams;
+
+  @Value("${app.jobs.log.batchSize:100}")
+  private int logBatchSize = 100;
+
+  @Value("${app.jobs.log.flushIntervalMs:1000}")
+  private long logFlushIntervalMs = 1000;
+
+  @Value("${app.jobs.log.streamTimeoutMs:1800000}")
+  private long logStreamTimeoutMs = 1800000;
+
+  @Value("${app.jobs.progress.saveIntervalMs:1000}")
+  private long progressSaveIntervalMs = 1000;
+
+  /** Statuses after which a job writes no more log lines */
+  public static final Set<String> FINISHED_STATUSES =
+      Set.of("complete", "error", "rejected", "cancelled");
+
+  // log writers of the jobs running on this instance, keyed by job id
+  private final Map<Long, JobLogWriter> activeLogWriters = new ConcurrentHashMap<>();
+
+  // jobs running on this instance and the threads running them, keyed by job id
+  private final Map<Long, ActiveJob> activeJobs = new ConcurrentHashMap<>();
+
+  private record ActiveJob(Thread thread, JobContext context) {}
 
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    Job job = Job.builder().createdBy(currentUserService.getUser()).status("queued").build();
 
     jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+    // the caller gets a copy, which the thread running the job does not change under it
+    Job queued = job.toBuilder().build();
+    try {
+      // the job runs with the security context of the user who launched it
+      jobExecutor.submit(
+          DelegatingSecurityContextRunnable.create(() -> runJob(job, jobFunction), null));
+    } catch (JobRejectedException e) {
+      job.setStatus("rejected");
+      jobsRepository.save(job);
+      jobLogStreams.complete(job.getId(), job.getStatus());
+      throw e;
+    }
 
-    return job;
+    return queued;
   }
 
-  @Async
-  public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+  public void runJob(Job job, JobContextConsumer jobFunction) {
+    if (jobsRepository.existsByIdAndCancelRequestedTrue(job.getId())) {
+      // cancelled while it waited for a slot
+      job.setStatus("cancelled");
+      jobsRepository.save(job);
+      jobLogStreams.complete(job.getId(), job.getStatus());
+      return;
+    }
+    job.setStatus("running");
+    jobsRepository.save(job);
+
+    // a job queued again after its lease expired carries on after the lines of the last attempt
+    JobLogWriter logWriter =
+        new JobLogWriter(
+            jobLogLinesRepository,
+            job.getId(),
+            jobLogLinesRepository.countByJobId(job.getId()),
+            logBatchSize,
+            logFlushIntervalMs,
+            Clock.systemUTC(),
+            (seq, text) -> jobLogStreams.publish(job.getId(), seq, text));
+    activeLogWriters.put(job.getId(), logWriter);
+    JobContext context =
+        new JobContext(
+            logWriter, job, jobsRepository::save, progressSaveIntervalMs, Clock.systemUTC());
+    activeJobs.put(job.getId(), new ActiveJob(Thread.currentThread(), context));
 
     try {
       jobFunction.accept(context);
+      job.setStatus("complete");
     } catch (Exception e) {
-      job.setStatus("error");
-      context.log(e.getMessage());
-      return;
+      if (context.isCancelled()) {
+        job.setStatus("cancelled");
+        context.log("Job cancelled");
+      } else {
+        job.setStatus("error");
+        context.log(e.getMessage());
+      }
+    } finally {
+      // once the job is removed nothing interrupts its thread; an interrupt from before must not
+      // reach the saves below, nor the thread's next job
+      activeJobs.remove(job.getId());
+      Thread.interrupted();
+      // all lines must be stored before the final status is visible to readers
+      logWriter.flush();
+      activeLogWriters.remove(job.getId());
     }
 
-    job.setStatus("complete");
     jobsRepository.save(job);
+    jobLogStreams.complete(job.getId(), job.getStatus());
+  }
+
+  /**
+   * Write out log lines of running jobs that have been buffered for longer than the flush interval.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs:1000}")
+  public void flushStaleJobLogs() {
+    activeLogWriters.values().forEach(JobLogWriter::flushIfStale);
+  }
+
+  /**
+   * This method cancels a job. A queued job is cancelled at once. A running job is marked as
+   * cancelled and its thread interrupted, straight away if it runs on this instance and otherwise
+   * within app.jobs.cancel.checkIntervalMs; it stops at its next JobContext.checkCancelled(), or
+   * when it next blocks. Cancelling a finished job changes nothing.
+   *
+   * @param jobId id of the job
+   * @return the job, after the cancel request
+   * @throws EntityNotFoundException if there is no job with that id
+   */
+  public Job cancelJob(Long jobId) {
+    jobsRepository.requestCancel(jobId);
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+    if (job.getStatus().equals("cancelled")) {
+      jobLogStreams.complete(jobId, job.getStatus());
+    }
+    cancelActiveJob(jobId);
+    return job;
+  }
+
+  /** Cancel the jobs running on this instance that another instance was asked to cancel. */
+  @Scheduled(fixedDelayString = "${app.jobs.cancel.checkIntervalMs:1000}")
+  public void cancelRequestedJobs() {
+    if (!activeJobs.isEmpty()) {
+      jobsRepository
+          .findCancelRequestedIds(List.copyOf(activeJobs.keySet()))
+          .forEach(this::cancelActiveJob);
+    }
+  }
+
+  private void cancelActiveJob(long jobId) {
+    // atomic with the removal of the job in runJob, so a finished job's thread is never interrupted
+    activeJobs.computeIfPresent(
+        jobId,
+        (id, activeJob) -> {
+          if (!activeJob.context().isCancelled()) {
+            activeJob.context().cancel();
+            activeJob.thread().interrupt();
+          }
+          return activeJob;
+        });
   }
 
   public String getJobLogs(Long jobId) {
@@ -46,8 +189,104 @@ public class JobService {
         jobsRepository
             .findById(jobId)
             .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+    flushActiveLog(jobId);
 
-    String log = job.getLog();
-    return log != null ? log : "";
+    List<JobLogLine> lines = jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId);
+    if (lines.isEmpty()) {
+      String log = storedLog(job);
+      return log != null ? log : "";
+    }
+    return lines.stream().map(JobLogLine::getText).collect(Collectors.joining("\n"));
+  }
+
+  /**
+   * This method returns the lines of a job log starting at line {@code fromLine} (0 based), along
+   * with the line number to ask for next time, so that a client can follow a running job without
+   * downloading the whole log on every poll.
+   *
+   * @param jobId id of the job
+   * @param fromLine number of the first line to return
+   * @return the new lines, the cursor for the next request and the status of the job
+   * @throws EntityNotFoundException if there is no job with that id
+   */
+  public JobLogTail getJobLogTail(Long jobId, long fromLine) {
+    // read the status before the lines, so that a finished status guarantees the lines are complete
+    Job job =
+        jobsRepository
+            .findById(jobId)
+            .orElseThrow(() -> new EntityNotFoundException(Job.class, jobId));
+    flushActiveLog(jobId);
+    long from = Math.max(fromLine, 0);
+
+    List<String> lines =
+        jobLogLinesRepository
+            .findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(jobId, from)
+            .stream()
+            .map(JobLogLine::getText)
+            .collect(Collectors.toList());
+    String storedLog = lines.isEmpty() ? storedLog(job) : null;
+    if (storedLog != null && !storedLog.isEmpty()) {
+      List<String> storedLines = Arrays.asList(storedLog.split("\n", -1));
+      lines = storedLines.subList((int) Math.min(from, storedLines.size()), storedLines.size());
+    }
+
+    return JobLogTail.builder()
+        .jobId(jobId)
+        .status(job.getStatus())
+        .fromLine(from)
+        .nextLine(from + lines.size())
+        .lines(lines)
+        .build();
+  }
+
+  /**
+   * This method opens a Server-Sent Events stream of a job log. The lines from {@code fromLine}
+   * that have already been written are sent first, followed by each new line as the job logs it;
+   * the stream is closed with the final status once the job is finished.
+   *
+   * @param jobId id of the job
+   * @param fromLine number of the first line to send
+   * @return the emitter for the stream
+   * @throws EntityNotFoundException if there is no job with that id
+   */
+  public SseEmitter streamJobLogs(Long jobId, long fromLine) {
+    SseEmitter emitter = new SseEmitter(logStreamTimeoutMs);
+    JobLogSubscription subscription = new JobLogSubscription(emitter, Math.max(fromLine, 0));
+    Runnable unsubscribe = () -> jobLogStreams.remove(jobId, subscription);
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(e -> unsubscribe.run());
+
+    // Subscribe before reading the backlog so that no line falls between the two; lines published
+    // while the backlog is sent wait for the lock, and any already in the backlog are skipped.
+    synchronized (subscription) {
+      jobLogStreams.add(jobId, subscription);
+      JobLogTail tail;
+      try {
+        tail = getJobLogTail(jobId, fromLine);
+      } catch (RuntimeException e) {
+        unsubscribe.run();
+        throw e;
+      }
+      subscription.sendAll(tail.getFromLine(), tail.getLines());
+      if (FINISHED_STATUSES.contains(tail.getStatus())) {
+        subscription.finish(tail.getStatus());
+        unsubscribe.run();
+      }
+    }
+    return emitter;
+  }
+
+  // the log of a job without lines: compacted by JobRetentionService, or, for jobs that ran before
+  // the line store existed, kept on the job itself
+  private static String storedLog(Job job) {
+    return job.getLogGz() != null ? JobLogGzip.decompress(job.getLogGz()) : job.getLog();
+  }
+
+  private void flushActiveLog(Long jobId) {
+    JobLogWriter activeLogWriter = activeLogWriters.get(jobId);
+    if (activeLogWriter != null) {
+      activeLogWriter.flush();
+    }
   }
 }
@@ -0,0 +1,200 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the jobs queued on the jobs table on one instance of the application. Every instance has a
+ * worker, and they share the work through the table alone:
+ *
+ * <ul>
+ *   <li>{@link #poll()} claims as many queued jobs as the executor has free slots, with {@code
+ *       SELECT ... FOR UPDATE SKIP LOCKED}, so that two workers never claim the same job and never
+ *       wait for each other. A claimed job is leased to the worker for {@code leaseSeconds}.
+ *   <li>{@link #heartbeat()} renews the leases of the jobs running on this worker, then queues
+ *       again the jobs whose lease has expired on any worker, i.e. whose instance has stopped. A
+ *       job is run at most {@code maxAttempts} times; after that, an expired job is marked as an
+ *       error.
+ *   <li>{@link #recover()}, called when the instance starts, queues again at once the jobs still
+ *       leased to this worker's id, which were interrupted when the instance last stopped.
+ * </ul>
+ *
+ * <p>A job that is run again resumes from its last checkpoint, if it recorded one (see {@link
+ * JobContext#checkpoint}).
+ *
+ * <p>Lease times are read from the database's clock, so the instances' clocks need not agree. A job
+ * may run more than once if its instance stalls for longer than the lease, so jobs should be safe
+ * to run again; a re-run appends to the log of the earlier attempts.
+ */
+@Builder
+@Slf4j
+public class JobWorker {
+  static final String CLAIM_SQL =
+      """
+      SELECT id FROM jobs WHERE status = 'queued' AND type IS NOT NULL
+      ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED
+      """;
+
+  static final String LEASE_SQL =
+      """
+      UPDATE jobs SET status = 'running', lease_owner = ?,
+        lease_expires_at = CURRENT_TIMESTAMP + CAST(? AS INTEGER) * INTERVAL '1' SECOND,
+        attempts = attempts + 1
+      WHERE id = ?
+      """;
+
+  static final String UNCLAIM_SQL =
+      """
+      UPDATE jobs SET status = 'queued', lease_owner = NULL, lease_expires_at = NULL,
+        attempts = attempts - 1
+      WHERE id = ? AND lease_owner = ?
+      """;
+
+  static final String RELEASE_SQL =
+      "UPDATE jobs SET lease_expires_at = NULL WHERE id = ? AND lease_owner = ?";
+
+  static final String RENEW_SQL =
+      """
+      UPDATE jobs
+      SET lease_expires_at = CURRENT_TIMESTAMP + CAST(? AS INTEGER) * INTERVAL '1' SECOND
+      WHERE status = 'running' AND lease_owner = ?
+      """;
+
+  static final String REQUEUE_SQL =
+      """
+      UPDATE jobs SET status = 'queued', lease_owner = NULL, lease_expires_at = NULL
+      WHERE status = 'running' AND lease_expires_at < CURRENT_TIMESTAMP AND attempts < ?
+      """;
+
+  static final String RECOVER_SQL =
+      """
+      UPDATE jobs SET status = 'queued', lease_owner = NULL, lease_expires_at = NULL
+      WHERE status = 'running' AND lease_owner = ? AND attempts < ?
+      """;
+
+  static final String ABANDON_OWN_SQL =
+      """
+      UPDATE jobs SET status = 'error', lease_expires_at = NULL
+      WHERE status = 'running' AND lease_owner = ?
+      """;
+
+  static final String ABANDON_SQL =
+      """
+      UPDATE jobs SET status = 'error', lease_expires_at = NULL
+      WHERE status = 'running' AND lease_expires_at < CURRENT_TIMESTAMP
+      """;
+
+  private static final TypeReference<Map<String, Object>> PARAMS_TYPE = new TypeReference<>() {};
+
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private JobsRepository jobsRepository;
+  private JobService jobService;
+  private JobExecutor jobExecutor;
+  private ObjectMapper mapper;
+  private Map<String, JobFactory> jobFactories;
+  private String workerId;
+  private int leaseSeconds;
+  private int maxAttempts;
+
+  /**
+   * Claim queued jobs and start them, as many as the executor has free slots for.
+   *
+   * @return the number of jobs claimed
+   */
+  public int poll() {
+    int slots = jobExecutor.getFreeSlots();
+    if (slots == 0) {
+      return 0;
+    }
+    List<Long> ids =
+        transactionTemplate.execute(
+            status -> {
+              List<Long> claimed = jdbcTemplate.queryForList(CLAIM_SQL, Long.class, slots);
+              for (Long id : claimed) {
+                jdbcTemplate.update(LEASE_SQL, workerId, leaseSeconds, id);
+              }
+              return claimed;
+            });
+    for (Long id : ids) {
+      jobsRepository.findById(id).ifPresent(this::start);
+    }
+    return ids.size();
+  }
+
+  private void start(Job job) {
+    JobFactory jobFactory = jobFactories.get(job.getType());
+    JobContextConsumer jobFunction =
+        ctx -> {
+          if (job.getAttempts() > 1) {
+            ctx.log(
+                "Attempt %d of %d: the last attempt was interrupted"
+                    .formatted(job.getAttempts(), maxAttempts));
+          }
+          if (job.getCheckpoint() != null) {
+            ctx.log("Resuming from checkpoint " + job.getCheckpoint());
+          }
+          if (jobFactory == null) {
+            throw new IllegalStateException("No JobFactory for job type " + job.getType());
+          }
+          jobFactory.create(mapper.readValue(job.getParams(), PARAMS_TYPE)).accept(ctx);
+        };
+    try {
+      jobExecutor.submit(
+          () -> {
+            try {
+              jobService.runJob(job, jobFunction);
+            } finally {
+              jdbcTemplate.update(RELEASE_SQL, job.getId(), workerId);
+            }
+          });
+    } catch (JobRejectedException e) {
+      // a job launched in-process took the slot; leave this one for the next poll
+      jdbcTemplate.update(UNCLAIM_SQL, job.getId(), workerId);
+    }
+  }
+
+  /**
+   * Queue again, or mark as errors, the jobs still leased to this worker's id, then do a heartbeat.
+   * This must be called before the worker starts any job, i.e. when the instance starts; it only
+   * finds jobs if the worker id is the same as before the restart.
+   */
+  public void recover() {
+    int requeued = jdbcTemplate.update(RECOVER_SQL, workerId, maxAttempts);
+    int abandoned = jdbcTemplate.update(ABANDON_OWN_SQL, workerId);
+    if (requeued + abandoned > 0) {
+      log.warn(
+          "Worker {}: {} jobs interrupted by a restart queued again, {} marked as errors",
+          workerId,
+          requeued,
+          abandoned);
+    }
+    heartbeat();
+  }
+
+  /**
+   * Renew the leases of the jobs running on this worker, then queue again, or mark as errors, the
+   * jobs whose lease has expired.
+   */
+  public void heartbeat() {
+    jdbcTemplate.update(RENEW_SQL, leaseSeconds, workerId);
+    int requeued = jdbcTemplate.update(REQUEUE_SQL, maxAttempts);
+    int abandoned = jdbcTemplate.update(ABANDON_SQL);
+    if (requeued + abandoned > 0) {
+      log.warn(
+          "Worker {}: {} jobs with an expired lease queued again, {} marked as errors",
+          workerId,
+          requeued,
+          abandoned);
+    }
+  }
+}
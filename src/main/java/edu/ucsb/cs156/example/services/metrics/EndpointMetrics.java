@@ -0,0 +1,142 @@
+package edu.ucsb.cs156.example.services.metrics;
+
+import edu.ucsb.cs156.example.models.EndpointStats;
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Service;
+
+/**
+ * This service keeps a latency histogram for each controller method, which LoggingAspect records
+ * every call into, and reports their statistics as JSON or in the Prometheus text format.
+ */
+@Service
+public class EndpointMetrics {
+  private static final String LATENCY = "http_server_handler_seconds";
+  private static final String LATENCY_MAX = "http_server_handler_seconds_max";
+  private static final String ERRORS = "http_server_handler_errors_total";
+
+  private final Clock clock;
+  private final Map<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  public EndpointMetrics() {
+    this(Clock.systemUTC());
+  }
+
+  EndpointMetrics(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Record one call of a controller method
+   *
+   * @param method the controller method
+   * @param nanos how long the call took, in nanoseconds
+   * @param error whether the call threw an exception
+   */
+  public void record(Method method, long nanos, boolean error) {
+    LatencyHistogram histogram = histograms.get(method);
+    if (histogram == null) {
+      histogram =
+          histograms.computeIfAbsent(method, m -> new LatencyHistogram(nameOf(m), clock.millis()));
+    }
+    histogram.record(nanos / 1000, error);
+  }
+
+  /**
+   * The name a method is reported under: the simple class name and method name, plus the parameter
+   * types if the class has more than one method of that name
+   */
+  static String nameOf(Method method) {
+    Class<?> type = method.getDeclaringClass();
+    String name = type.getSimpleName() + "." + method.getName();
+    long sameName =
+        Arrays.stream(type.getDeclaredMethods())
+            .filter(m -> m.getName().equals(method.getName()))
+            .count();
+    if (sameName == 1) {
+      return name;
+    }
+    return Arrays.stream(method.getParameterTypes())
+        .map(Class::getSimpleName)
+        .collect(Collectors.joining(",", name + "(", ")"));
+  }
+
+  /**
+   * This method returns the statistics of every controller method that has been called since
+   * startup or the last reset.
+   *
+   * @return the statistics, sorted by handler name
+   */
+  public List<EndpointStats> getStats() {
+    long now = clock.millis();
+    return histograms.values().stream()
+        .map(histogram -> toStats(histogram, now))
+        .sorted(Comparator.comparing(EndpointStats::getHandler))
+        .toList();
+  }
+
+  // a histogram is put in the map before its first call is recorded, so it may be empty
+  static EndpointStats toStats(LatencyHistogram histogram, long now) {
+    long[] percentiles = histogram.percentilesMicros(50, 95, 99);
+    long count = histogram.getCount();
+    double elapsedSeconds = Math.max(now - histogram.getStartedAtMillis(), 1) / 1000.0;
+    return EndpointStats.builder()
+        .handler(histogram.getName())
+        .count(count)
+        .errors(histogram.getErrors())
+        .throughputPerSecond(count / elapsedSeconds)
+        .meanMs(count == 0 ? 0.0 : histogram.getTotalMicros() / 1000.0 / count)
+        .p50Ms(percentiles[0] / 1000.0)
+        .p95Ms(percentiles[1] / 1000.0)
+        .p99Ms(percentiles[2] / 1000.0)
+        .maxMs(histogram.getMaxMicros() / 1000.0)
+        .build();
+  }
+
+  /**
+   * This method returns the statistics in the Prometheus text exposition format: a summary of
+   * handler latencies in seconds, and counters of handler errors.
+   *
+   * @return the statistics as Prometheus text
+   */
+  public String toPrometheus() {
+    List<EndpointStats> stats = getStats();
+    StringBuilder text = new StringBuilder();
+    text.append("# HELP " + LATENCY + " Latency of controller methods\n");
+    text.append("# TYPE " + LATENCY + " summary\n");
+    for (EndpointStats s : stats) {
+      String handler = "handler=\"" + s.getHandler() + "\"";
+      appendSample(text, LATENCY, handler + ",quantile=\"0.5\"", s.getP50Ms() / 1000.0);
+      appendSample(text, LATENCY, handler + ",quantile=\"0.95\"", s.getP95Ms() / 1000.0);
+      appendSample(text, LATENCY, handler + ",quantile=\"0.99\"", s.getP99Ms() / 1000.0);
+      appendSample(text, LATENCY + "_sum", handler, s.getMeanMs() * s.getCount() / 1000.0);
+      appendSample(text, LATENCY + "_count", handler, s.getCount());
+    }
+    text.append("# HELP " + LATENCY_MAX + " Slowest call of each controller method\n");
+    text.append("# TYPE " + LATENCY_MAX + " gauge\n");
+    for (EndpointStats s : stats) {
+      appendSample(text, LATENCY_MAX, "handler=\"" + s.getHandler() + "\"", s.getMaxMs() / 1000.0);
+    }
+    text.append("# HELP " + ERRORS + " Calls of controller methods that threw an exception\n");
+    text.append("# TYPE " + ERRORS + " counter\n");
+    for (EndpointStats s : stats) {
+      appendSample(text, ERRORS, "handler=\"" + s.getHandler() + "\"", s.getErrors());
+    }
+    return text.toString();
+  }
+
+  private static void appendSample(StringBuilder text, String metric, String labels, Object value) {
+    text.append(metric).append('{').append(labels).append("} ").append(value).append('\n');
+  }
+
+  /** Discard all statistics recorded so far */
+  public void reset() {
+    histograms.clear();
+  }
+}
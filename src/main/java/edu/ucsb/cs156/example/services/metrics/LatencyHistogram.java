@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram.
+ *
+ * <p>Latencies are recorded in microseconds into log-linear buckets: values below 8 get a bucket
+ * each, and every power of two above that is split into 8 buckets, so a percentile read from the
+ * histogram is at most 12.5% above the true value. Each bucket and total is a LongAdder, which
+ * spreads concurrent updates over striped cells instead of contending on one counter.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // 2^40 microseconds is about 12 days; longer latencies are counted as that
+  private static final int MAX_EXPONENT = 40;
+  private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+  static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+  private final String name;
+  private final long startedAtMillis;
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+
+  /**
+   * Create an empty histogram
+   *
+   * @param name name reported with the statistics, e.g. the controller method
+   * @param startedAtMillis time the histogram was created, used to compute throughput
+   */
+  public LatencyHistogram(String name, long startedAtMillis) {
+    this.name = name;
+    this.startedAtMillis = startedAtMillis;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  static int bucketIndex(long micros) {
+    long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+  }
+
+  /** The largest value that falls in a bucket */
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+    return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Record one call
+   *
+   * @param micros how long the call took, in microseconds
+   * @param error whether the call failed
+   */
+  public void record(long micros, boolean error) {
+    buckets[bucketIndex(micros)].increment();
+    count.increment();
+    totalMicros.add(micros);
+    maxMicros.accumulate(micros);
+    if (error) {
+      errors.increment();
+    }
+  }
+
+  /**
+   * Estimate percentiles of the recorded latencies from a single pass over the buckets
+   *
+   * @param percentiles the percentiles wanted, each between 0 and 100, in increasing order
+   * @return for each percentile, the upper bound in microseconds of the bucket it falls in (never
+   *     more than the maximum recorded), or 0 if nothing has been recorded
+   */
+  public long[] percentilesMicros(double... percentiles) {
+    long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    long max = maxMicros.get();
+
+    long[] result = new long[percentiles.length];
+    long seen = 0;
+    int bucket = 0;
+    for (int p = 0; p < percentiles.length; p++) {
+      if (total == 0) {
+        continue;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentiles[p] / 100.0 * total));
+      while (seen + counts[bucket] < rank) {
+        seen += counts[bucket];
+        bucket++;
+      }
+      result[p] = Math.min(bucketUpperBound(bucket), max);
+    }
+    return result;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getStartedAtMillis() {
+    return startedAtMillis;
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  public long getTotalMicros() {
+    return totalMicros.sum();
+  }
+
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+}
@@ -0,0 +1,270 @@
+package edu.ucsb.cs156.example.services.paging;
+
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Lists the rows of an entity table a page at a time, with keyset (cursor) pagination.
+ *
+ * <p>Rows are ordered by the sort field and then by id, so the order is total even when the sort
+ * field has duplicates; null values of the sort field come last in ascending order and first in
+ * descending order. The cursor returned with a page holds the sort value and id of its last row,
+ * and the next page is the rows that come after that row, so fetching a page costs the same however
+ * deep into the table it is, and rows inserted or deleted meanwhile do not shift the pages.
+ *
+ * <p>Each caller passes the fields of its entity that may be sorted and filtered on, so that only
+ * columns the caller chooses (and can index) end up in the where and order by clauses.
+ */
+@Service
+public class KeysetPager {
+  static final int DEFAULT_PAGE_SIZE = 50;
+  static final int MAX_PAGE_SIZE = 500;
+
+  private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+  private static final String NULL_IN_CURSOR = "~";
+
+  private static final Map<Class<?>, Function<String, Object>> PARSERS =
+      Map.ofEntries(
+          Map.entry(String.class, text -> text),
+          Map.entry(long.class, Long::valueOf),
+          Map.entry(Long.class, Long::valueOf),
+          Map.entry(int.class, Integer::valueOf),
+          Map.entry(Integer.class, Integer::valueOf),
+          Map.entry(double.class, Double::valueOf),
+          Map.entry(Double.class, Double::valueOf),
+          Map.entry(boolean.class, KeysetPager::parseBoolean),
+          Map.entry(Boolean.class, KeysetPager::parseBoolean),
+          Map.entry(LocalDateTime.class, LocalDateTime::parse));
+
+  @PersistenceContext private EntityManager entityManager;
+
+  /**
+   * Get one page of rows
+   *
+   * @param <T> the entity type
+   * @param entityType the entity class
+   * @param fields the fields that may be sorted and filtered on, besides the id
+   * @param query the sort, filters, cursor and page size requested
+   * @return the rows of the page, and the cursor for the next page (null if this is the last)
+   * @throws InvalidRequestException if the query names a field not in {@code fields}, or has a
+   *     malformed filter, value or cursor
+   */
+  @Transactional(readOnly = true)
+  public <T> KeysetPage<T> page(Class<T> entityType, Set<String> fields, PageQuery query) {
+    EntityType<T> entity = entityManager.getMetamodel().entity(entityType);
+    SingularAttribute<? super T, ?> id = idAttribute(entity);
+    SingularAttribute<? super T, ?> sort =
+        query.getSort() == null ? id : attribute(entity, id, fields, query.getSort());
+    boolean descending = isDescending(query.getDirection());
+    int size = query.getSize() == null ? DEFAULT_PAGE_SIZE : query.getSize();
+    int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+    HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+    CriteriaQuery<T> criteria = cb.createQuery(entityType);
+    Root<T> root = criteria.from(entityType);
+
+    List<Predicate> predicates = new ArrayList<>();
+    if (query.getFilter() != null) {
+      for (String filter : query.getFilter()) {
+        predicates.add(filterPredicate(cb, root, entity, id, fields, filter));
+      }
+    }
+    if (query.getCursor() != null) {
+      predicates.add(afterCursor(cb, root, id, sort, descending, query.getCursor()));
+    }
+    criteria.where(predicates.toArray(Predicate[]::new));
+    if (sort == id) {
+      criteria.orderBy(descending ? cb.desc(root.get(id)) : cb.asc(root.get(id)));
+    } else {
+      criteria.orderBy(
+          descending ? cb.desc(root.get(sort), true) : cb.asc(root.get(sort), false),
+          descending ? cb.desc(root.get(id)) : cb.asc(root.get(id)));
+    }
+
+    // fetch one extra row to find out whether there is another page
+    List<T> rows = entityManager.createQuery(criteria).setMaxResults(pageSize + 1).getResultList();
+    String nextCursor = null;
+    if (rows.size() > pageSize) {
+      rows = rows.subList(0, pageSize);
+      T last = rows.get(pageSize - 1);
+      nextCursor = encodeCursor(valueOf(id, last), sort == id ? null : valueOf(sort, last), sort);
+    }
+    return KeysetPage.<T>builder().content(rows).nextCursor(nextCursor).build();
+  }
+
+  private static <T> SingularAttribute<? super T, ?> idAttribute(EntityType<T> entity) {
+    return entity.getSingularAttributes().stream()
+        .filter(SingularAttribute::isId)
+        .findFirst()
+        .get();
+  }
+
+  private static <T> SingularAttribute<? super T, ?> attribute(
+      EntityType<T> entity, SingularAttribute<? super T, ?> id, Set<String> fields, String name) {
+    if (name.equals(id.getName())) {
+      return id;
+    }
+    if (!fields.contains(name)) {
+      throw new InvalidRequestException(
+          "Cannot sort or filter on %s; use one of %s".formatted(name, new TreeSet<>(fields)));
+    }
+    SingularAttribute<? super T, ?> attribute = entity.getSingularAttribute(name);
+    if (!PARSERS.containsKey(attribute.getJavaType())) {
+      throw new InvalidRequestException(
+          "Cannot sort or filter on %s, which is a %s"
+              .formatted(name, attribute.getJavaType().getSimpleName()));
+    }
+    return attribute;
+  }
+
+  private static boolean isDescending(String direction) {
+    if (direction == null || direction.equals("asc")) {
+      return false;
+    }
+    if (direction.equals("desc")) {
+      return true;
+    }
+    throw new InvalidRequestException("direction must be asc or desc, not " + direction);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <T> Predicate filterPredicate(
+      HibernateCriteriaBuilder cb,
+      Root<T> root,
+      EntityType<T> entity,
+      SingularAttribute<? super T, ?> id,
+      Set<String> fields,
+      String filter) {
+    String[] parts = filter.split(":", 3);
+    if (parts.length < 3) {
+      throw new InvalidRequestException(
+          "Filter %s is not of the form field:op:value".formatted(filter));
+    }
+    SingularAttribute<? super T, ?> attribute = attribute(entity, id, fields, parts[0]);
+    Expression<Comparable> path = (Expression) root.get(attribute);
+    Comparable value = parse(attribute, parts[2]);
+    return switch (parts[1]) {
+      case "eq" -> cb.equal(path, value);
+      case "lt" -> cb.lessThan(path, value);
+      case "lte" -> cb.lessThanOrEqualTo(path, value);
+      case "gt" -> cb.greaterThan(path, value);
+      case "gte" -> cb.greaterThanOrEqualTo(path, value);
+      default ->
+          throw new InvalidRequestException(
+              "Filter operator must be eq, lt, lte, gt or gte, not " + parts[1]);
+    };
+  }
+
+  /*
+   * The rows after (id, value) in the order (sort nulls last, id) when ascending, or
+   * (sort desc nulls first, id desc) when descending.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <T> Predicate afterCursor(
+      HibernateCriteriaBuilder cb,
+      Root<T> root,
+      SingularAttribute<? super T, ?> id,
+      SingularAttribute<? super T, ?> sort,
+      boolean descending,
+      String cursor) {
+    String[] parts = decodeCursor(cursor, sort == id);
+    Expression<Comparable> idPath = (Expression) root.get(id);
+    Comparable lastId = parse(id, parts[0]);
+    Predicate afterId = descending ? cb.lessThan(idPath, lastId) : cb.greaterThan(idPath, lastId);
+    if (sort == id) {
+      return afterId;
+    }
+
+    Expression<Comparable> sortPath = (Expression) root.get(sort);
+    if (parts[1] == null) {
+      Predicate sameValue = cb.and(cb.isNull(sortPath), afterId);
+      return descending ? cb.or(cb.isNotNull(sortPath), sameValue) : sameValue;
+    }
+    Comparable lastValue = parse(sort, parts[1]);
+    Predicate sameValue = cb.and(cb.equal(sortPath, lastValue), afterId);
+    return descending
+        ? cb.or(cb.lessThan(sortPath, lastValue), sameValue)
+        : cb.or(cb.greaterThan(sortPath, lastValue), sameValue, cb.isNull(sortPath));
+  }
+
+  private static String encodeCursor(Object id, Object value, SingularAttribute<?, ?> sort) {
+    String encodedId = encode(id.toString());
+    if (sort.isId()) {
+      return encodedId;
+    }
+    return encodedId + "." + (value == null ? NULL_IN_CURSOR : encode(value.toString()));
+  }
+
+  // returns the id and, unless sorting by id, the sort value (null for a null value)
+  private static String[] decodeCursor(String cursor, boolean sortById) {
+    String[] parts = cursor.split("\\.", -1);
+    if (parts.length != (sortById ? 1 : 2)) {
+      throw new InvalidRequestException("Invalid cursor " + cursor);
+    }
+    try {
+      String id = decode(parts[0]);
+      if (sortById) {
+        return new String[] {id};
+      }
+      return new String[] {id, parts[1].equals(NULL_IN_CURSOR) ? null : decode(parts[1])};
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestException("Invalid cursor " + cursor);
+    }
+  }
+
+  private static String encode(String text) {
+    return CURSOR_ENCODER.encodeToString(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decode(String text) {
+    return new String(CURSOR_DECODER.decode(text), StandardCharsets.UTF_8);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static Comparable parse(SingularAttribute<?, ?> attribute, String text) {
+    try {
+      return (Comparable) PARSERS.get(attribute.getJavaType()).apply(text);
+    } catch (IllegalArgumentException | DateTimeException e) {
+      throw new InvalidRequestException(
+          "Invalid value %s for %s".formatted(text, attribute.getName()));
+    }
+  }
+
+  private static Boolean parseBoolean(String text) {
+    if (!text.equals("true") && !text.equals("false")) {
+      throw new IllegalArgumentException(text);
+    }
+    return Boolean.valueOf(text);
+  }
+
+  private static Object valueOf(SingularAttribute<?, ?> attribute, Object row) {
+    Field field = (Field) attribute.getJavaMember();
+    ReflectionUtils.makeAccessible(field);
+    return ReflectionUtils.getField(field, row);
+  }
+}
@@ -53,4 +53,20 @@ public class ApiControllerTests extends ControllerTestCase {
     assertEquals("EntityNotFoundException", json.get("type"));
     assertEquals("String with id 7 not found", json.get("message"));
   }
+
+  @Test
+  public void test_that_invalid_request_exception_is_a_bad_request() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/dummycontroller/invalid"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidRequestException", json.get("type"));
+    assertEquals("This request is never valid", json.get("message"));
+  }
 }
@@ -1,35 +1,58 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = ArticlesController.class)
 @Import(TestConfig.class)
@@ -39,6 +62,16 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean KeysetPager keysetPager;
+
+  @MockBean EntityExporter entityExporter;
+
+  @MockBean BulkWriter bulkWriter;
+
+  @MockBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/articles/admin/all
 
   @Test
@@ -208,18 +241,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_article() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-    Article articleOrig =
-        Article.builder()
-            .title("origArticle")
-            .url("orig-article.com")
-            .explanation("orig article")
-            .email("orig@article.com")
-            .dateAdded(ldt1)
-            .build();
-
     Article articleEdited =
         Article.builder()
             .title("editedArticle")
@@ -231,7 +254,17 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(articleEdited);
 
-    when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+    when(articleRepository.updateFieldsById(
+            67L,
+            articleEdited.getTitle(),
+            articleEdited.getUrl(),
+            articleEdited.getExplanation(),
+            articleEdited.getEmail(),
+            articleEdited.getDateAdded()))
+        .thenReturn(1);
+    Article stored = mapper.readValue(requestBody, Article.class);
+    stored.setId(67L);
+    when(articleRepository.findById(67L)).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -246,10 +279,18 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
+    verify(articleRepository, times(1))
+        .updateFieldsById(
+            67L,
+            articleEdited.getTitle(),
+            articleEdited.getUrl(),
+            articleEdited.getExplanation(),
+            articleEdited.getEmail(),
+            articleEdited.getDateAdded());
     verify(articleRepository, times(1)).findById(67L);
-    verify(articleRepository, times(1)).save(articleEdited); // should be saved with correct user
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    articleEdited.setId(67L);
+    assertEquals(mapper.writeValueAsString(articleEdited), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -270,7 +311,14 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(articleEdited);
 
-    when(articleRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(articleRepository.updateFieldsById(
+            67L,
+            articleEdited.getTitle(),
+            articleEdited.getUrl(),
+            articleEdited.getExplanation(),
+            articleEdited.getEmail(),
+            articleEdited.getDateAdded()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -285,7 +333,14 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(articleRepository, times(1)).findById(67L);
+    verify(articleRepository, times(1))
+        .updateFieldsById(
+            67L,
+            articleEdited.getTitle(),
+            articleEdited.getUrl(),
+            articleEdited.getExplanation(),
+            articleEdited.getEmail(),
+            articleEdited.getDateAdded());
     Map<String, Object> json = responseToJson(response);
     assertEquals("Article with id 67 not found", json.get("message"));
   }
@@ -294,18 +349,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
   @Test
   public void admin_can_delete_an_article() throws Exception {
     // arrange
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    Article article1 =
-        Article.builder()
-            .title("firstArticle")
-            .url("first-article.com")
-            .explanation("first article")
-            .email("first@article.com")
-            .dateAdded(ldt1)
-            .build();
 
-    when(articleRepository.findById(eq(15L))).thenReturn(Optional.of(article1));
+    when(articleRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -315,8 +360,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(articleRepository, times(1)).findById(15L);
-    verify(articleRepository, times(1)).delete(any());
+    verify(articleRepository, times(1)).deleteByIdReturningCount(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("Article with id 15 deleted", json.get("message"));
@@ -328,7 +372,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(articleRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(articleRepository.deleteByIdReturningCount(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -338,8 +382,352 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(articleRepository, times(1)).findById(15L);
+    verify(articleRepository, times(1)).deleteByIdReturningCount(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("Article with id 15 not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(articleRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/articles/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(articleRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(Article.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(Article.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles?id=15").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(articleRepository, never()).findById(15L);
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(Article.class) + "\"";
+    when(articleRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
+    when(articleRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc.perform(delete("/api/articles?id=15").with(csrf())).andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articleRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(Article.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/articles/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/articles/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    Article article =
+        Article.builder()
+            .id(1L)
+            .title("Using testing-playground with React Testing Library")
+            .url("https://testing-playground.com")
+            .explanation("Helpful when we get to front end development")
+            .email("phtcon@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .build();
+    KeysetPage<Article> page =
+        KeysetPage.<Article>builder().content(List.of(article)).nextCursor("MQ").build();
+    when(keysetPager.page(eq(Article.class), eq(ArticlesController.PAGE_FIELDS), any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/articles/page")
+                    .param("sort", "dateAdded")
+                    .param("direction", "desc")
+                    .param(
+                        "filter", "email:eq:phtcon@ucsb.edu", "dateAdded:gte:2022-01-01T00:00:00")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            Article.class,
+            ArticlesController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("dateAdded")
+                .direction("desc")
+                .filter(List.of("email:eq:phtcon@ucsb.edu", "dateAdded:gte:2022-01-01T00:00:00"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/articles/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/articles/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<Article> rows = Stream.empty();
+    when(articleRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/articles/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<Article>>> source = ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(eq(Article.class), eq("articles"), eq("csv"), source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/articles/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1)).export(eq(Article.class), eq("articles"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/articles/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/articles/batch?ids=1,3,1")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    Article article =
+        Article.builder()
+            .id(1L)
+            .title("Using testing-playground with React Testing Library")
+            .url("https://testing-playground.com")
+            .explanation("Helpful when we get to front end development")
+            .email("phtcon@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .build();
+    BatchResult<Article> result =
+        BatchResult.<Article>builder().content(List.of(article)).missing(List.of(3L)).build();
+    when(batchFetcher.fetch(articleRepository, List.of(1L, 3L, 1L))).thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/batch?ids=1,3,1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(articleRepository, List.of(1L, 3L, 1L));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/articles/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/articles/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/articles/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    Article row =
+        Article.builder()
+            .title("Bulk")
+            .url("https://example.org")
+            .explanation("loaded in bulk")
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.create(eq(Article.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(Article.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    Article row =
+        Article.builder()
+            .title("Bulk")
+            .url("https://example.org")
+            .explanation("loaded in bulk")
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .build();
+    row.setId(1L);
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.update(eq(Article.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(Article.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(Article.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[1, 2]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(Article.class, List.of(1L, 2L));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
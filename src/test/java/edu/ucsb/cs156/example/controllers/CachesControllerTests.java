@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.cache.CacheRegistry;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = CachesController.class)
+@Import(TestConfig.class)
+public class CachesControllerTests extends ControllerTestCase {
+
+  @MockitoBean UserRepository userRepository;
+
+  @Autowired CacheRegistry cacheRegistry;
+
+  @Test
+  public void caches__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/caches")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void caches__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/caches")).andExpect(status().is(403));
+    mockMvc
+        .perform(delete("/api/admin/caches?name=example").with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void caches__admin_logged_in() throws Exception {
+
+    // arrange
+
+    Cache<String, String> cache = cacheRegistry.cache("example", 100, Duration.ofSeconds(300));
+    cache.invalidateAll();
+    cache.put("cgaucho@ucsb.edu", "Chris");
+    cache.getIfPresent("cgaucho@ucsb.edu");
+    List<CacheStats> expectedStats = cacheRegistry.getStats();
+
+    // act
+
+    MvcResult response =
+        mockMvc.perform(get("/api/admin/caches")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    String expectedJson = mapper.writeValueAsString(expectedStats);
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_clear_a_cache() throws Exception {
+
+    // arrange
+
+    Cache<String, String> cache = cacheRegistry.cache("example", 100, Duration.ofSeconds(300));
+    cache.put("cgaucho@ucsb.edu", "Chris");
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/admin/caches?name=example").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Cache example cleared", json.get("message"));
+    assertEquals(0, cache.estimatedSize());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void clearing_an_unknown_cache_returns_404() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/admin/caches?name=nothing").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("EntityNotFoundException", json.get("type"));
+    assertEquals("Cache with id nothing not found", json.get("message"));
+  }
+}
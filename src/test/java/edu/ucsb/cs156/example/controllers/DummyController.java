@@ -1,12 +1,13 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-/** This class is used to test ApiController and EntityNotFoundException */
+/** This class is used to test ApiController, EntityNotFoundException and InvalidRequestException */
 @RequestMapping("/dummycontroller")
 @RestController
 public class DummyController extends ApiController {
@@ -18,4 +19,9 @@ public class DummyController extends ApiController {
     }
     throw new EntityNotFoundException(String.class, id);
   }
+
+  @GetMapping("/invalid")
+  public String invalid() throws InvalidRequestException {
+    throw new InvalidRequestException("This request is never valid");
+  }
 }
@@ -1,35 +1,58 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = HelpRequestController.class)
 @Import(TestConfig.class)
@@ -39,6 +62,16 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean KeysetPager keysetPager;
+
+  @MockBean EntityExporter entityExporter;
+
+  @MockBean BulkWriter bulkWriter;
+
+  @MockBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Tests for GET
 
   @Test
@@ -246,19 +279,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_help_request() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    HelpRequest helpRequest1 =
-        HelpRequest.builder()
-            .requesterEmail("cgaucho@ucsb.edu")
-            .teamId("04")
-            .tableOrBreakoutRoom("04")
-            .requestTime(ldt1)
-            .explanation("test_solved")
-            .solved(true)
-            .build();
-
-    when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(helpRequest1));
+    when(helpRequestRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -268,8 +289,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(helpRequestRepository, times(1)).findById(15L);
-    verify(helpRequestRepository, times(1)).delete(any());
+    verify(helpRequestRepository, times(1)).deleteByIdReturningCount(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -281,7 +301,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(helpRequestRepository.deleteByIdReturningCount(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -291,7 +311,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(helpRequestRepository, times(1)).findById(15L);
+    verify(helpRequestRepository, times(1)).deleteByIdReturningCount(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 15 not found", json.get("message"));
   }
@@ -303,19 +323,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_help_request() throws Exception {
 
     // arrange
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-    HelpRequest helpRequestOrig =
-        HelpRequest.builder()
-            .requesterEmail("alice@ucsb.edu")
-            .teamId("01")
-            .tableOrBreakoutRoom("01")
-            .requestTime(ldt1)
-            .explanation("test alice")
-            .solved(false)
-            .build();
-
     HelpRequest helpRequestEdited =
         HelpRequest.builder()
             .requesterEmail("bob@ucsb.edu")
@@ -328,7 +337,18 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
-    when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestOrig));
+    when(helpRequestRepository.updateFieldsById(
+            67L,
+            helpRequestEdited.getRequesterEmail(),
+            helpRequestEdited.getTeamId(),
+            helpRequestEdited.getTableOrBreakoutRoom(),
+            helpRequestEdited.getRequestTime(),
+            helpRequestEdited.getExplanation(),
+            helpRequestEdited.getSolved()))
+        .thenReturn(1);
+    HelpRequest stored = mapper.readValue(requestBody, HelpRequest.class);
+    stored.setId(67L);
+    when(helpRequestRepository.findById(67L)).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -343,11 +363,19 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(helpRequestRepository, times(1)).findById(67L);
     verify(helpRequestRepository, times(1))
-        .save(helpRequestEdited); // should be saved with correct user
+        .updateFieldsById(
+            67L,
+            helpRequestEdited.getRequesterEmail(),
+            helpRequestEdited.getTeamId(),
+            helpRequestEdited.getTableOrBreakoutRoom(),
+            helpRequestEdited.getRequestTime(),
+            helpRequestEdited.getExplanation(),
+            helpRequestEdited.getSolved());
+    verify(helpRequestRepository, times(1)).findById(67L);
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    helpRequestEdited.setId(67L);
+    assertEquals(mapper.writeValueAsString(helpRequestEdited), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -369,7 +397,15 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
-    when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(helpRequestRepository.updateFieldsById(
+            67L,
+            helpRequestEdited.getRequesterEmail(),
+            helpRequestEdited.getTeamId(),
+            helpRequestEdited.getTableOrBreakoutRoom(),
+            helpRequestEdited.getRequestTime(),
+            helpRequestEdited.getExplanation(),
+            helpRequestEdited.getSolved()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -384,8 +420,367 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(helpRequestRepository, times(1)).findById(67L);
+    verify(helpRequestRepository, times(1))
+        .updateFieldsById(
+            67L,
+            helpRequestEdited.getRequesterEmail(),
+            helpRequestEdited.getTeamId(),
+            helpRequestEdited.getTableOrBreakoutRoom(),
+            helpRequestEdited.getRequestTime(),
+            helpRequestEdited.getExplanation(),
+            helpRequestEdited.getSolved());
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 67 not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(helpRequestRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/HelpRequest/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/HelpRequest/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(HelpRequest.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(HelpRequest.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/HelpRequest?id=15").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, never()).findById(15L);
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(HelpRequest.class) + "\"";
+    when(helpRequestRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
+    when(helpRequestRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc.perform(delete("/api/HelpRequest?id=15").with(csrf())).andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/HelpRequest/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(HelpRequest.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/HelpRequest/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/HelpRequest/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    HelpRequest helpRequest =
+        HelpRequest.builder()
+            .id(1L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .teamId("s22-5pm-3")
+            .tableOrBreakoutRoom("7")
+            .requestTime(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .explanation("Need help with Swagger-ui")
+            .solved(false)
+            .build();
+    KeysetPage<HelpRequest> page =
+        KeysetPage.<HelpRequest>builder().content(List.of(helpRequest)).nextCursor("MQ").build();
+    when(keysetPager.page(eq(HelpRequest.class), eq(HelpRequestController.PAGE_FIELDS), any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/HelpRequest/page")
+                    .param("sort", "requestTime")
+                    .param("direction", "desc")
+                    .param("filter", "solved:eq:false", "requestTime:gte:2022-01-01T00:00:00")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            HelpRequest.class,
+            HelpRequestController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("requestTime")
+                .direction("desc")
+                .filter(List.of("solved:eq:false", "requestTime:gte:2022-01-01T00:00:00"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/HelpRequest/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/HelpRequest/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<HelpRequest> rows = Stream.empty();
+    when(helpRequestRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/HelpRequest/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<HelpRequest>>> source = ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(eq(HelpRequest.class), eq("helprequests"), eq("csv"), source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/HelpRequest/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(eq(HelpRequest.class), eq("helprequests"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/HelpRequest/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/HelpRequest/batch?ids=1,3,1")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    HelpRequest helpRequest =
+        HelpRequest.builder()
+            .id(1L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .teamId("s22-5pm-3")
+            .tableOrBreakoutRoom("7")
+            .requestTime(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .explanation("Need help with Swagger-ui")
+            .solved(false)
+            .build();
+    BatchResult<HelpRequest> result =
+        BatchResult.<HelpRequest>builder()
+            .content(List.of(helpRequest))
+            .missing(List.of(3L))
+            .build();
+    when(batchFetcher.fetch(helpRequestRepository, List.of(1L, 3L, 1L))).thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/HelpRequest/batch?ids=1,3,1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(helpRequestRepository, List.of(1L, 3L, 1L));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/HelpRequest/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/HelpRequest/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/HelpRequest/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    HelpRequest row =
+        HelpRequest.builder()
+            .requesterEmail("cgaucho@ucsb.edu")
+            .teamId("04")
+            .tableOrBreakoutRoom("04")
+            .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .explanation("loaded in bulk")
+            .solved(false)
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.create(eq(HelpRequest.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/HelpRequest/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(HelpRequest.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    HelpRequest row =
+        HelpRequest.builder()
+            .requesterEmail("cgaucho@ucsb.edu")
+            .teamId("04")
+            .tableOrBreakoutRoom("04")
+            .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .explanation("loaded in bulk")
+            .solved(false)
+            .build();
+    row.setId(1L);
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.update(eq(HelpRequest.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/HelpRequest/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(HelpRequest.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(HelpRequest.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/HelpRequest/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[1, 2]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(HelpRequest.class, List.of(1L, 2L));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
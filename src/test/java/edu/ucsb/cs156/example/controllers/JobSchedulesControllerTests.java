@@ -0,0 +1,225 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobScheduler;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = JobSchedulesController.class)
+@Import(TestConfig.class)
+public class JobSchedulesControllerTests extends ControllerTestCase {
+
+  @MockitoBean UserRepository userRepository;
+
+  @MockitoBean JobScheduler jobScheduler;
+
+  private final JobSchedule schedule =
+      JobSchedule.builder()
+          .id(1L)
+          .name("nightly")
+          .cron("0 0 3 * * *")
+          .type("TestJob")
+          .params("{\"fail\":false,\"sleepMs\":0}")
+          .nextRunAt(ZonedDateTime.parse("2025-10-02T03:00:00-07:00"))
+          .build();
+
+  @Test
+  public void logged_out_users_cannot_see_schedules() throws Exception {
+    mockMvc.perform(get("/api/jobs/schedules")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_manage_schedules() throws Exception {
+    mockMvc.perform(get("/api/jobs/schedules")).andExpect(status().is(403));
+    mockMvc
+        .perform(
+            post("/api/jobs/schedules")
+                .param("name", "nightly")
+                .param("cron", "0 0 3 * * *")
+                .param("type", "TestJob")
+                .with(csrf()))
+        .andExpect(status().is(403));
+    mockMvc.perform(post("/api/jobs/schedules/1/pause").with(csrf())).andExpect(status().is(403));
+    mockMvc.perform(post("/api/jobs/schedules/1/resume").with(csrf())).andExpect(status().is(403));
+    mockMvc.perform(post("/api/jobs/schedules/1/trigger").with(csrf())).andExpect(status().is(403));
+    mockMvc.perform(delete("/api/jobs/schedules?id=1").with(csrf())).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_list_schedules() throws Exception {
+
+    // arrange
+    when(jobScheduler.getSchedules()).thenReturn(List.of(schedule));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/schedules")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(List.of(schedule)), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_create_a_schedule() throws Exception {
+
+    // arrange
+    Map<String, Object> params = Map.of("fail", false, "sleepMs", 0);
+    when(jobScheduler.createSchedule("nightly", "0 0 3 * * *", "TestJob", params))
+        .thenReturn(schedule);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/schedules")
+                    .param("name", "nightly")
+                    .param("cron", "0 0 3 * * *")
+                    .param("type", "TestJob")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(params))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(jobScheduler, times(1)).createSchedule("nightly", "0 0 3 * * *", "TestJob", params);
+    assertEquals(mapper.writeValueAsString(schedule), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_schedule_that_cannot_run_is_a_bad_request() throws Exception {
+
+    // arrange
+    when(jobScheduler.createSchedule("nightly", "every night", "TestJob", null))
+        .thenThrow(new InvalidRequestException("Invalid cron expression"));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/schedules")
+                    .param("name", "nightly")
+                    .param("cron", "every night")
+                    .param("type", "TestJob")
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidRequestException", json.get("type"));
+    assertEquals("Invalid cron expression", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_pause_and_resume_a_schedule() throws Exception {
+
+    // arrange
+    when(jobScheduler.pauseSchedule(1L)).thenReturn(schedule);
+    when(jobScheduler.resumeSchedule(1L)).thenReturn(schedule);
+
+    // act
+    MvcResult paused =
+        mockMvc
+            .perform(post("/api/jobs/schedules/1/pause").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult resumed =
+        mockMvc
+            .perform(post("/api/jobs/schedules/1/resume").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(jobScheduler, times(1)).pauseSchedule(1L);
+    verify(jobScheduler, times(1)).resumeSchedule(1L);
+    assertEquals(mapper.writeValueAsString(schedule), paused.getResponse().getContentAsString());
+    assertEquals(mapper.writeValueAsString(schedule), resumed.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_trigger_a_schedule() throws Exception {
+
+    // arrange
+    Job job = Job.builder().id(7L).status("queued").type("TestJob").build();
+    when(jobScheduler.triggerSchedule(1L)).thenReturn(job);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/schedules/1/trigger").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(jobScheduler, times(1)).triggerSchedule(1L);
+    assertEquals(mapper.writeValueAsString(job), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_delete_a_schedule() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/schedules?id=1").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(jobScheduler, times(1)).deleteSchedule(1L);
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobSchedule with id 1 deleted", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_schedule_that_does_not_exist_is_not_found() throws Exception {
+
+    // arrange
+    when(jobScheduler.pauseSchedule(2L))
+        .thenThrow(new EntityNotFoundException(JobSchedule.class, 2L));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/schedules/2/pause").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("EntityNotFoundException", json.get("type"));
+    assertEquals("JobSchedule with id 2 not found", json.get("message"));
+  }
+}
@@ -4,6 +4,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -11,41 +12,82 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.jobs.ResumableTestJobFactory;
+import edu.ucsb.cs156.example.jobs.SeedDataJobFactory;
+import edu.ucsb.cs156.example.jobs.SeedTable;
+import edu.ucsb.cs156.example.jobs.TestJobFactory;
+import edu.ucsb.cs156.example.models.JobExecutorStats;
+import edu.ucsb.cs156.example.models.JobLogTail;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobExecutor;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreams;
+import edu.ucsb.cs156.example.services.jobs.JobQueue;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MvcResult;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({
+  JobService.class,
+  JobExecutor.class,
+  JobLogStreams.class,
+  JobQueue.class,
+  TestJobFactory.class,
+  ResumableTestJobFactory.class,
+  SeedDataJobFactory.class
+})
 @AutoConfigureDataJpa
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean JdbcTemplate jdbcTemplate;
+
   @Autowired JobService jobService;
 
+  @MockitoSpyBean JobExecutor jobExecutor;
+
+  @Autowired JobQueue jobQueue;
+
+  @MockitoBean JobRetentionService jobRetentionService;
+
   @Autowired ObjectMapper objectMapper;
 
   @WithMockUser(roles = {"ADMIN"})
@@ -222,33 +264,53 @@ public class JobsControllerTests extends ControllerTestCase {
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
-  public void admin_can_launch_test_job() throws Exception {
+  public void admin_can_cancel_a_job() throws Exception {
 
     // arrange
+    Job job = Job.builder().id(5L).status("cancelled").build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
 
-    User user = currentUserService.getUser();
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/{id}/cancel", 5L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
+    // assert
+    verify(jobsRepository, times(1)).requestCancel(5L);
+    assertEquals(mapper.writeValueAsString(job), response.getResponse().getContentAsString());
+  }
 
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancelling_a_missing_job_returns_404() throws Exception {
+
+    // arrange
+    when(jobsRepository.findById(6L)).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/{id}/cancel", 6L).with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("EntityNotFoundException", json.get("type"));
+    assertEquals("Job with id 6 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_cancel_a_job() throws Exception {
+    mockMvc.perform(post("/api/jobs/5/cancel").with(csrf())).andExpect(status().isForbidden());
+  }
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job() throws Exception {
 
     // act
     MvcResult response =
@@ -261,64 +323,493 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals("queued", jobReturned.getStatus());
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(3))
+                    .save(argThat((Job job) -> "complete".equals(job.getStatus()))));
+    assertEquals(List.of("Hello World! from test job!", "Goodbye from test job!"), savedLogLines());
   }
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_launch_test_job_that_fails() throws Exception {
 
-    // arrange
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
 
-    User user = currentUserService.getUser();
+    String responseString = response.getResponse().getContentAsString();
+    Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
+    assertEquals("queued", jobReturned.getStatus());
 
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(3))
+                    .save(argThat((Job job) -> "error".equals(job.getStatus()))));
+    assertEquals(List.of("Hello World! from test job!", "Fail!"), savedLogLines());
+  }
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_resumable_test_job() throws Exception {
 
     // act
     MvcResult response =
         mockMvc
-            .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+            .perform(post("/api/jobs/launch/resumabletestjob?steps=1&sleepMs=0").with(csrf()))
             .andExpect(status().isOk())
             .andReturn();
 
-    String responseString = response.getResponse().getContentAsString();
-    Job jobReturned = objectMapper.readValue(responseString, Job.class);
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("queued", jobReturned.getStatus());
 
-    assertEquals("running", jobReturned.getStatus());
+    // queued, running, checkpoint, progress, complete
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(5))
+                    .save(argThat((Job job) -> "complete".equals(job.getStatus()))));
+    assertEquals(List.of("Step 1 of 1 done"), savedLogLines());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_launch_resumable_test_job() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/launch/resumabletestjob").with(csrf()))
+        .andExpect(status().isForbidden());
+  }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launching_a_job_when_the_executor_is_full_returns_429() throws Exception {
+
+    // arrange
+
+    doThrow(new JobRejectedException(4, 100)).when(jobExecutor).submit(any(Runnable.class));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isTooManyRequests())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("JobRejectedException", json.get("type"));
+    assertEquals(
+        "Job rejected: 4 jobs are running and 100 are queued; try again later",
+        json.get("message"));
+    verify(jobsRepository, times(2)).save(argThat((Job job) -> "rejected".equals(job.getStatus())));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launching_a_job_when_the_queue_is_full_returns_429() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.countByStatus("queued")).thenReturn(100L);
+    ReflectionTestUtils.setField(jobQueue, "enabled", true);
+
+    try {
+      // act
+      MvcResult response =
+          mockMvc
+              .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+              .andExpect(status().isTooManyRequests())
+              .andReturn();
+
+      // assert
+      Map<String, Object> json = responseToJson(response);
+      assertEquals("JobRejectedException", json.get("type"));
+      assertEquals("Job rejected: 100 jobs are queued; try again later", json.get("message"));
+      verify(jobsRepository, never()).save(any(Job.class));
+    } finally {
+      ReflectionTestUtils.setField(jobQueue, "enabled", false);
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_seed_data_job() throws Exception {
+
+    // arrange
+    when(jdbcTemplate.queryForObject("select nextval('restaurants_seq')", Long.class))
+        .thenReturn(50L);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/seeddata?tables=RESTAURANTS&rows=3&seed=7&batchSize=2")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("queued", jobReturned.getStatus());
+
+    // queued, running, a checkpoint per batch, progress when first reported and at 100%,
+    // complete
     await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(7))
+                    .save(argThat((Job job) -> "complete".equals(job.getStatus()))));
+    verify(jdbcTemplate, times(2))
+        .batchUpdate(
+            eq("insert into restaurants (id, name, description) values (?, ?, ?)"), anyList());
+    List<String> lines = savedLogLines();
+    assertEquals("Seeding 1 tables with seed 7", lines.get(0));
+    assertEquals("restaurants: inserting 3 rows from row 0", lines.get(1));
+    assertEquals("Seeding complete", lines.get(lines.size() - 1));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void seed_data_job_fills_every_table_by_default() throws Exception {
+
+    // arrange
+    when(jdbcTemplate.queryForObject(startsWith("select nextval("), eq(Long.class)))
+        .thenReturn(50L);
+
+    // act
+    mockMvc
+        .perform(post("/api/jobs/launch/seeddata?rows=1").with(csrf()))
+        .andExpect(status().isOk());
 
+    // assert
+    // queued, running, a checkpoint per table, progress when first reported (after the first
+    // checkpoint) and at 100% (after the last), complete
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(5 + SeedTable.values().length))
+                    .save(argThat((Job job) -> "complete".equals(job.getStatus()))));
+    for (SeedTable table : SeedTable.values()) {
+      verify(jdbcTemplate, times(1))
+          .batchUpdate(startsWith("insert into " + table.getTableName() + " ("), anyList());
+    }
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_launch_seed_data_job() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/launch/seeddata").with(csrf()))
+        .andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_compact_jobs_and_see_the_bytes_reclaimed() throws Exception {
+
+    // arrange
+    JobRetentionReport report =
+        JobRetentionReport.builder()
+            .compactedJobs(2)
+            .compactedBytesBefore(1000)
+            .compactedBytesAfter(100)
+            .purgedJobs(1)
+            .purgedBytes(50)
+            .reclaimedBytes(950)
+            .build();
+    when(jobRetentionService.compactAndPurge()).thenReturn(report);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/compact").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        objectMapper.writeValueAsString(report), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_compact_jobs() throws Exception {
+    mockMvc.perform(post("/api/jobs/compact").with(csrf())).andExpect(status().isForbidden());
+    verify(jobRetentionService, never()).compactAndPurge();
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_executor_stats() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    JobExecutorStats stats =
+        objectMapper.readValue(response.getResponse().getContentAsString(), JobExecutorStats.class);
+    assertEquals("platform", stats.getMode());
+    assertEquals(4, stats.getMaxConcurrency());
+    assertEquals(100, stats.getQueueCapacity());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void executor_stats_report_the_jobs_queued_on_the_table_when_the_queue_is_enabled()
+      throws Exception {
+
+    // arrange
+
+    when(jobsRepository.countByStatus("queued")).thenReturn(7L);
+    ReflectionTestUtils.setField(jobQueue, "enabled", true);
+
+    try {
+      // act
+      MvcResult response =
+          mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isOk()).andReturn();
+
+      // assert
+      JobExecutorStats stats =
+          objectMapper.readValue(
+              response.getResponse().getContentAsString(), JobExecutorStats.class);
+      assertEquals(7, stats.getQueueDepth());
+      assertEquals(100, stats.getQueueCapacity());
+    } finally {
+      ReflectionTestUtils.setField(jobQueue, "enabled", false);
+    }
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_get_executor_stats() throws Exception {
+    mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_list_job_summaries_with_filters_and_next_cursor() throws Exception {
+
+    // arrange
+
+    ZonedDateTime after = ZonedDateTime.parse("2025-01-01T00:00:00Z");
+    ZonedDateTime before = ZonedDateTime.parse("2025-02-01T00:00:00Z");
+    JobSummary summary9 =
+        JobSummary.builder()
+            .id(9L)
+            .status("complete")
+            .createdBy("a@ucsb.edu")
+            .logLength(12)
+            .build();
+    JobSummary summary7 = JobSummary.builder().id(7L).status("complete").logLength(0).build();
+    JobSummary summary4 = JobSummary.builder().id(4L).status("complete").logLength(3).build();
+    when(jobsRepository.findSummaries(
+            eq(10L), eq("complete"), eq(after), eq(before), eq(PageRequest.of(0, 3))))
+        .thenReturn(List.of(summary9, summary7, summary4));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/summaries")
+                    .param("status", "complete")
+                    .param("createdAfter", "2025-01-01T00:00:00Z")
+                    .param("createdBefore", "2025-02-01T00:00:00Z")
+                    .param("cursor", "10")
+                    .param("size", "2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    KeysetPage<JobSummary> expected =
+        KeysetPage.<JobSummary>builder()
+            .content(List.of(summary9, summary7))
+            .nextCursor("7")
+            .build();
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void last_page_of_job_summaries_has_no_next_cursor() throws Exception {
+
+    // arrange
+
+    JobSummary summary = JobSummary.builder().id(1L).status("error").logLength(5).build();
+    when(jobsRepository.findSummaries(null, null, null, null, PageRequest.of(0, 51)))
+        .thenReturn(List.of(summary));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/summaries")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(null, json.get("nextCursor"));
+    assertEquals(1, ((List<?>) json.get("content")).size());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_summary_page_size_is_clamped() throws Exception {
+
+    // act
+    mockMvc.perform(get("/api/jobs/summaries?size=100000")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/jobs/summaries?size=0")).andExpect(status().isOk());
+
+    // assert
+    verify(jobsRepository, times(1)).findSummaries(null, null, null, null, PageRequest.of(0, 501));
+    verify(jobsRepository, times(1)).findSummaries(null, null, null, null, PageRequest.of(0, 2));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_list_job_summaries() throws Exception {
+    mockMvc.perform(get("/api/jobs/summaries")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_log_lines_from_a_cursor() throws Exception {
+
+    // arrange
+
+    Job job = Job.builder().id(3L).status("running").build();
+    when(jobsRepository.findById(3L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(3L, 1L))
+        .thenReturn(List.of(JobLogLine.builder().jobId(3L).seq(1).text("second").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}?fromLine=1", 3L))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    JobLogTail expected =
+        JobLogTail.builder()
+            .jobId(3L)
+            .status("running")
+            .fromLine(1)
+            .nextLine(2)
+            .lines(List.of("second"))
+            .build();
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_log_lines_of_missing_job_return_404() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.findById(4L)).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}?fromLine=0", 4L))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("EntityNotFoundException", json.get("type"));
+    assertEquals("Job with id 4 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_finished_job() throws Exception {
+
+    // arrange
+
+    Job job = Job.builder().id(5L).status("complete").build();
+    when(jobsRepository.findById(5L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(5L, 0L))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(5L).seq(0).text("hello").build(),
+                JobLogLine.builder().jobId(5L).seq(1).text("bye").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream", 5L))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "id:0\nevent:line\ndata:hello\n\n"
+            + "id:1\nevent:line\ndata:bye\n\n"
+            + "event:status\ndata:complete\n\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_resumes_after_last_event_id() throws Exception {
+
+    // arrange
+
+    Job job = Job.builder().id(6L).status("error").build();
+    when(jobsRepository.findById(6L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(6L, 8L))
+        .thenReturn(List.of(JobLogLine.builder().jobId(6L).seq(8).text("Fail!").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream?fromLine=0", 6L).header("Last-Event-ID", "7"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "id:8\nevent:line\ndata:Fail!\n\nevent:status\ndata:error\n\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void streaming_log_of_missing_job_returns_404() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.findById(7L)).thenReturn(Optional.empty());
+
+    // act & assert
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 7L)).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_stream_job_logs() throws Exception {
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 1L)).andExpect(status().isForbidden());
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<String> savedLogLines() {
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, atLeastOnce()).saveAll(captor.capture());
+    return captor.getAllValues().stream().flatMap(List::stream).map(JobLogLine::getText).toList();
   }
 }
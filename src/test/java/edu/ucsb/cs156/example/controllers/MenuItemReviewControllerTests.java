@@ -1,35 +1,58 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
 @Import(TestConfig.class)
@@ -39,6 +62,16 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean KeysetPager keysetPager;
+
+  @MockBean EntityExporter entityExporter;
+
+  @MockBean BulkWriter bulkWriter;
+
+  @MockBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/menuitemreview/admin/all
 
   @Test
@@ -197,15 +230,6 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
   @Test
   public void admin_can_edit_an_existing_menuitemreview() throws Exception {
     // arrange
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-    MenuItemReview menuItemReviewOrig =
-        MenuItemReview.builder()
-            .itemId(30)
-            .reviewerEmail("carumugam@ucsb.edu")
-            .stars(1)
-            .dateReviewed(ldt1)
-            .comments("tastes bad")
-            .build();
 
     LocalDateTime ldt2 = LocalDateTime.parse("2022-03-11T00:00:00");
 
@@ -220,7 +244,17 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-    when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+    when(menuItemReviewRepository.updateFieldsById(
+            67L,
+            menuItemReviewEdited.getItemId(),
+            menuItemReviewEdited.getReviewerEmail(),
+            menuItemReviewEdited.getStars(),
+            menuItemReviewEdited.getDateReviewed(),
+            menuItemReviewEdited.getComments()))
+        .thenReturn(1);
+    MenuItemReview stored = mapper.readValue(requestBody, MenuItemReview.class);
+    stored.setId(67L);
+    when(menuItemReviewRepository.findById(67L)).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -235,11 +269,18 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(67L);
     verify(menuItemReviewRepository, times(1))
-        .save(menuItemReviewEdited); // should be saved with correct user
+        .updateFieldsById(
+            67L,
+            menuItemReviewEdited.getItemId(),
+            menuItemReviewEdited.getReviewerEmail(),
+            menuItemReviewEdited.getStars(),
+            menuItemReviewEdited.getDateReviewed(),
+            menuItemReviewEdited.getComments());
+    verify(menuItemReviewRepository, times(1)).findById(67L);
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    menuItemReviewEdited.setId(67L);
+    assertEquals(mapper.writeValueAsString(menuItemReviewEdited), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -259,7 +300,14 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-    when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(menuItemReviewRepository.updateFieldsById(
+            67L,
+            menuItemReviewEdited.getItemId(),
+            menuItemReviewEdited.getReviewerEmail(),
+            menuItemReviewEdited.getStars(),
+            menuItemReviewEdited.getDateReviewed(),
+            menuItemReviewEdited.getComments()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -274,7 +322,14 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(67L);
+    verify(menuItemReviewRepository, times(1))
+        .updateFieldsById(
+            67L,
+            menuItemReviewEdited.getItemId(),
+            menuItemReviewEdited.getReviewerEmail(),
+            menuItemReviewEdited.getStars(),
+            menuItemReviewEdited.getDateReviewed(),
+            menuItemReviewEdited.getComments());
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 67 not found", json.get("message"));
   }
@@ -284,17 +339,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_menuitemreview() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-    MenuItemReview menuItemReview1 =
-        MenuItemReview.builder()
-            .itemId(30)
-            .reviewerEmail("carumugam@ucsb.edu")
-            .stars(1)
-            .dateReviewed(ldt1)
-            .comments("tastes bad")
-            .build();
-
-    when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+    when(menuItemReviewRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -304,8 +349,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(15L);
-    verify(menuItemReviewRepository, times(1)).delete(any());
+    verify(menuItemReviewRepository, times(1)).deleteByIdReturningCount(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -317,7 +361,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(menuItemReviewRepository.deleteByIdReturningCount(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -327,8 +371,360 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(15L);
+    verify(menuItemReviewRepository, times(1)).deleteByIdReturningCount(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 15 not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(menuItemReviewRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/menuitemreview/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(MenuItemReview.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(MenuItemReview.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview?id=15").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, never()).findById(15L);
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(MenuItemReview.class) + "\"";
+    when(menuItemReviewRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
+    when(menuItemReviewRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc.perform(delete("/api/menuitemreview?id=15").with(csrf())).andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(MenuItemReview.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/menuitemreview/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    MenuItemReview menuItemReview =
+        MenuItemReview.builder()
+            .id(1L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(5)
+            .dateReviewed(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .comments("Delicious")
+            .build();
+    KeysetPage<MenuItemReview> page =
+        KeysetPage.<MenuItemReview>builder()
+            .content(List.of(menuItemReview))
+            .nextCursor("MQ")
+            .build();
+    when(keysetPager.page(
+            eq(MenuItemReview.class), eq(MenuItemReviewController.PAGE_FIELDS), any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/menuitemreview/page")
+                    .param("sort", "dateReviewed")
+                    .param("direction", "desc")
+                    .param("filter", "stars:gte:4", "dateReviewed:gte:2022-01-01T00:00:00")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            MenuItemReview.class,
+            MenuItemReviewController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("dateReviewed")
+                .direction("desc")
+                .filter(List.of("stars:gte:4", "dateReviewed:gte:2022-01-01T00:00:00"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/menuitemreview/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<MenuItemReview> rows = Stream.empty();
+    when(menuItemReviewRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/menuitemreview/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<MenuItemReview>>> source =
+        ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(eq(MenuItemReview.class), eq("menuitemreviews"), eq("csv"), source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/menuitemreview/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(eq(MenuItemReview.class), eq("menuitemreviews"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/menuitemreview/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/batch?ids=1,3,1")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    MenuItemReview menuItemReview =
+        MenuItemReview.builder()
+            .id(1L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(5)
+            .dateReviewed(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .comments("Delicious")
+            .build();
+    BatchResult<MenuItemReview> result =
+        BatchResult.<MenuItemReview>builder()
+            .content(List.of(menuItemReview))
+            .missing(List.of(3L))
+            .build();
+    when(batchFetcher.fetch(menuItemReviewRepository, List.of(1L, 3L, 1L))).thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/batch?ids=1,3,1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(menuItemReviewRepository, List.of(1L, 3L, 1L));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/menuitemreview/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/menuitemreview/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/menuitemreview/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    MenuItemReview row =
+        MenuItemReview.builder()
+            .itemId(30)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .comments("loaded in bulk")
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.create(eq(MenuItemReview.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(MenuItemReview.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    MenuItemReview row =
+        MenuItemReview.builder()
+            .itemId(30)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .comments("loaded in bulk")
+            .build();
+    row.setId(1L);
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.update(eq(MenuItemReview.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(MenuItemReview.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(MenuItemReview.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[1, 2]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(MenuItemReview.class, List.of(1L, 2L));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
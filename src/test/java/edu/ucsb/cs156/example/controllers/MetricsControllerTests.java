@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.EndpointStats;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.metrics.EndpointMetrics;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = MetricsController.class)
+@Import(TestConfig.class)
+public class MetricsControllerTests extends ControllerTestCase {
+
+  @MockitoBean EndpointMetrics endpointMetrics;
+
+  @MockitoBean UserRepository userRepository;
+
+  @Test
+  public void metrics__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void metrics__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/metrics")).andExpect(status().is(403));
+    mockMvc.perform(get("/api/admin/metrics/prometheus")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void metrics__admin_logged_in() throws Exception {
+
+    // arrange
+
+    List<EndpointStats> expectedStats =
+        List.of(
+            EndpointStats.builder()
+                .handler("JobsController.allJobs")
+                .count(3)
+                .errors(1)
+                .throughputPerSecond(0.5)
+                .meanMs(2.0)
+                .p50Ms(1.5)
+                .p95Ms(3.0)
+                .p99Ms(3.0)
+                .maxMs(3.0)
+                .build());
+    when(endpointMetrics.getStats()).thenReturn(expectedStats);
+
+    // act
+
+    MvcResult response =
+        mockMvc.perform(get("/api/admin/metrics")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals(
+        mapper.writeValueAsString(expectedStats), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void prometheus__admin_logged_in() throws Exception {
+
+    // arrange
+
+    String text = "http_server_handler_seconds_count{handler=\"JobsController.allJobs\"} 3\n";
+    when(endpointMetrics.toPrometheus()).thenReturn(text);
+
+    // act & assert
+
+    mockMvc
+        .perform(get("/api/admin/metrics/prometheus"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith("text/plain"))
+        .andExpect(content().string(text));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void reset__admin_logged_in() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/admin/metrics").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    verify(endpointMetrics, times(1)).reset();
+    assertEquals(Map.of("message", "Endpoint metrics reset"), responseToJson(response));
+  }
+}
@@ -1,35 +1,58 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = RecommendationRequestController.class)
 @Import(TestConfig.class)
@@ -39,6 +62,16 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean KeysetPager keysetPager;
+
+  @MockBean EntityExporter entityExporter;
+
+  @MockBean BulkWriter bulkWriter;
+
+  @MockBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/recommendationrequests/all
 
   @Test
@@ -232,20 +265,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_request() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    RecommendationRequest recommendationRequest1 =
-        RecommendationRequest.builder()
-            .requesterEmail("max@ucsb.edu")
-            .professorEmail("pconrad@ucsb.edu")
-            .explanation("more food please")
-            .dateRequested(ldt1)
-            .dateNeeded(ldt1)
-            .done(false)
-            .build();
-
-    when(recommendationRequestRepository.findById(eq(15L)))
-        .thenReturn(Optional.of(recommendationRequest1));
+    when(recommendationRequestRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -255,8 +275,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationRequestRepository, times(1)).findById(15L);
-    verify(recommendationRequestRepository, times(1)).delete(any());
+    verify(recommendationRequestRepository, times(1)).deleteByIdReturningCount(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("Recommendation request with id 15 deleted", json.get("message"));
@@ -269,7 +288,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
           throws Exception {
     // arrange
 
-    when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(recommendationRequestRepository.deleteByIdReturningCount(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -279,7 +298,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationRequestRepository, times(1)).findById(15L);
+    verify(recommendationRequestRepository, times(1)).deleteByIdReturningCount(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
   }
@@ -296,19 +315,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_recommendationrequest() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2022-03-11T00:00:00");
 
-    RecommendationRequest recommendationRequestOrig =
-        RecommendationRequest.builder()
-            .requesterEmail("max@ucsb.edu")
-            .professorEmail("pconrad@ucsb.edu")
-            .explanation("more food please")
-            .dateRequested(ldt1)
-            .dateNeeded(ldt1)
-            .done(false)
-            .build();
-
     RecommendationRequest recommendationRequestEdited =
         RecommendationRequest.builder()
             .requesterEmail("maxwellchang@ucsb.edu")
@@ -321,8 +329,18 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(recommendationRequestEdited);
 
-    when(recommendationRequestRepository.findById(eq(67L)))
-        .thenReturn(Optional.of(recommendationRequestOrig));
+    when(recommendationRequestRepository.updateFieldsById(
+            67L,
+            recommendationRequestEdited.getRequesterEmail(),
+            recommendationRequestEdited.getProfessorEmail(),
+            recommendationRequestEdited.getExplanation(),
+            recommendationRequestEdited.getDateRequested(),
+            recommendationRequestEdited.getDateNeeded(),
+            recommendationRequestEdited.getDone()))
+        .thenReturn(1);
+    RecommendationRequest stored = mapper.readValue(requestBody, RecommendationRequest.class);
+    stored.setId(67L);
+    when(recommendationRequestRepository.findById(67L)).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -337,12 +355,20 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationRequestRepository, times(1)).findById(67L);
     verify(recommendationRequestRepository, times(1))
-        .save(recommendationRequestEdited); // should be saved with
+        .updateFieldsById(
+            67L,
+            recommendationRequestEdited.getRequesterEmail(),
+            recommendationRequestEdited.getProfessorEmail(),
+            recommendationRequestEdited.getExplanation(),
+            recommendationRequestEdited.getDateRequested(),
+            recommendationRequestEdited.getDateNeeded(),
+            recommendationRequestEdited.getDone());
     // correct user
+    verify(recommendationRequestRepository, times(1)).findById(67L);
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    recommendationRequestEdited.setId(67L);
+    assertEquals(mapper.writeValueAsString(recommendationRequestEdited), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -364,7 +390,15 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(recommendationRequestDate);
 
-    when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(recommendationRequestRepository.updateFieldsById(
+            67L,
+            recommendationRequestDate.getRequesterEmail(),
+            recommendationRequestDate.getProfessorEmail(),
+            recommendationRequestDate.getExplanation(),
+            recommendationRequestDate.getDateRequested(),
+            recommendationRequestDate.getDateNeeded(),
+            recommendationRequestDate.getDone()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -379,8 +413,384 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationRequestRepository, times(1)).findById(67L);
+    verify(recommendationRequestRepository, times(1))
+        .updateFieldsById(
+            67L,
+            recommendationRequestDate.getRequesterEmail(),
+            recommendationRequestDate.getProfessorEmail(),
+            recommendationRequestDate.getExplanation(),
+            recommendationRequestDate.getDateRequested(),
+            recommendationRequestDate.getDateNeeded(),
+            recommendationRequestDate.getDone());
     Map<String, Object> json = responseToJson(response);
     assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(recommendationRequestRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/recommendationrequests/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(RecommendationRequest.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(RecommendationRequest.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests?id=15").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, never()).findById(15L);
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(RecommendationRequest.class) + "\"";
+    when(recommendationRequestRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
+    when(recommendationRequestRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc
+        .perform(delete("/api/recommendationrequests?id=15").with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(RecommendationRequest.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/recommendationrequests/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/recommendationrequests/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    RecommendationRequest recommendationRequest =
+        RecommendationRequest.builder()
+            .id(1L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("BS/MS program")
+            .dateRequested(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00"))
+            .done(false)
+            .build();
+    KeysetPage<RecommendationRequest> page =
+        KeysetPage.<RecommendationRequest>builder()
+            .content(List.of(recommendationRequest))
+            .nextCursor("MQ")
+            .build();
+    when(keysetPager.page(
+            eq(RecommendationRequest.class),
+            eq(RecommendationRequestController.PAGE_FIELDS),
+            any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/recommendationrequests/page")
+                    .param("sort", "dateNeeded")
+                    .param("direction", "desc")
+                    .param("filter", "done:eq:false", "dateNeeded:gte:2022-01-01T00:00:00")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            RecommendationRequest.class,
+            RecommendationRequestController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("dateNeeded")
+                .direction("desc")
+                .filter(List.of("done:eq:false", "dateNeeded:gte:2022-01-01T00:00:00"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/recommendationrequests/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/recommendationrequests/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<RecommendationRequest> rows = Stream.empty();
+    when(recommendationRequestRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/recommendationrequests/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<RecommendationRequest>>> source =
+        ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(
+            eq(RecommendationRequest.class),
+            eq("recommendationrequests"),
+            eq("csv"),
+            source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/recommendationrequests/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(eq(RecommendationRequest.class), eq("recommendationrequests"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/recommendationrequests/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/recommendationrequests/batch?ids=1,3,1")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    RecommendationRequest recommendationRequest =
+        RecommendationRequest.builder()
+            .id(1L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("BS/MS program")
+            .dateRequested(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00"))
+            .done(false)
+            .build();
+    BatchResult<RecommendationRequest> result =
+        BatchResult.<RecommendationRequest>builder()
+            .content(List.of(recommendationRequest))
+            .missing(List.of(3L))
+            .build();
+    when(batchFetcher.fetch(recommendationRequestRepository, List.of(1L, 3L, 1L)))
+        .thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/batch?ids=1,3,1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(recommendationRequestRepository, List.of(1L, 3L, 1L));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/recommendationrequests/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/recommendationrequests/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/recommendationrequests/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    RecommendationRequest row =
+        RecommendationRequest.builder()
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("loaded in bulk")
+            .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+            .done(false)
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.create(eq(RecommendationRequest.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(RecommendationRequest.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    RecommendationRequest row =
+        RecommendationRequest.builder()
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("loaded in bulk")
+            .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+            .done(false)
+            .build();
+    row.setId(1L);
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.update(eq(RecommendationRequest.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(RecommendationRequest.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(RecommendationRequest.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[1, 2]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(RecommendationRequest.class, List.of(1L, 2L));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
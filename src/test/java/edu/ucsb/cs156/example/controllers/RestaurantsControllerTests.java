@@ -1,8 +1,11 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -12,20 +15,38 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = RestaurantsController.class)
 @Import(TestConfig.class)
@@ -35,6 +56,16 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean KeysetPager keysetPager;
+
+  @MockitoBean EntityExporter entityExporter;
+
+  @MockitoBean BulkWriter bulkWriter;
+
+  @MockitoBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/phones/admin/all
 
   @Test
@@ -116,6 +147,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("EntityNotFoundException", json.get("type"));
     assertEquals("Restaurant with id 7 not found", json.get("message"));
+    assertNull(response.getResponse().getHeader("ETag"));
   }
 
   @WithMockUser(roles = {"USER"})
@@ -173,9 +205,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_restaurant() throws Exception {
     // arrange
 
-    Restaurant restaurant = Restaurant.builder().name("Taco Bell").description("Mexican").build();
-
-    when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant));
+    when(restaurantRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -185,8 +215,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(15L);
-    verify(restaurantRepository, times(1)).delete(any());
+    verify(restaurantRepository, times(1)).deleteByIdReturningCount(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -198,7 +227,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(restaurantRepository.deleteByIdReturningCount(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -208,7 +237,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(15L);
+    verify(restaurantRepository, times(1)).deleteByIdReturningCount(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 15 not found", json.get("message"));
   }
@@ -218,15 +247,17 @@ public class RestaurantsControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_restaurant() throws Exception {
     // arrange
 
-    Restaurant restaurantOrig =
-        Restaurant.builder().id(67L).name("Chipotle").description("Mexican").build();
-
     Restaurant restaurantEdited =
         Restaurant.builder().id(67L).name("Taco Bell").description("American").build();
 
     String requestBody = mapper.writeValueAsString(restaurantEdited);
 
-    when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantOrig));
+    when(restaurantRepository.updateFieldsById(
+            67L, restaurantEdited.getName(), restaurantEdited.getDescription()))
+        .thenReturn(1);
+    Restaurant stored = mapper.readValue(requestBody, Restaurant.class);
+    stored.setId(67L);
+    when(restaurantRepository.findById(67L)).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -241,11 +272,12 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(67L);
     verify(restaurantRepository, times(1))
-        .save(restaurantEdited); // should be saved with correct user
+        .updateFieldsById(67L, restaurantEdited.getName(), restaurantEdited.getDescription());
+    verify(restaurantRepository, times(1)).findById(67L);
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    restaurantEdited.setId(67L);
+    assertEquals(mapper.writeValueAsString(restaurantEdited), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -258,7 +290,9 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(editedRestaurant);
 
-    when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(restaurantRepository.updateFieldsById(
+            67L, editedRestaurant.getName(), editedRestaurant.getDescription()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -273,8 +307,359 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(67L);
+    verify(restaurantRepository, times(1))
+        .updateFieldsById(67L, editedRestaurant.getName(), editedRestaurant.getDescription());
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 67 not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(restaurantRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/restaurants/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(Restaurant.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(Restaurant.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants?id=15").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, never()).findById(15L);
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(Restaurant.class) + "\"";
+    when(restaurantRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
+    when(restaurantRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc.perform(delete("/api/restaurants?id=15").with(csrf())).andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(Restaurant.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/restaurants/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/restaurants/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    Restaurant restaurant =
+        Restaurant.builder().id(1L).name("Chipotle").description("Mexican").build();
+    KeysetPage<Restaurant> page =
+        KeysetPage.<Restaurant>builder().content(List.of(restaurant)).nextCursor("MQ").build();
+    when(keysetPager.page(eq(Restaurant.class), eq(RestaurantsController.PAGE_FIELDS), any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/restaurants/page")
+                    .param("sort", "name")
+                    .param("direction", "desc")
+                    .param("filter", "name:lt:D", "name:gte:C")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            Restaurant.class,
+            RestaurantsController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("name")
+                .direction("desc")
+                .filter(List.of("name:lt:D", "name:gte:C"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_filter_whose_value_contains_a_comma_is_not_split() throws Exception {
+
+    // arrange
+    when(keysetPager.page(eq(Restaurant.class), eq(RestaurantsController.PAGE_FIELDS), any()))
+        .thenReturn(KeysetPage.<Restaurant>builder().content(List.of()).build());
+
+    // act
+    mockMvc
+        .perform(get("/api/restaurants/page").param("filter", "description:eq:Tacos, burritos"))
+        .andExpect(status().isOk());
+    mockMvc
+        .perform(
+            get("/api/restaurants/page")
+                .param("filter", "description:eq:Tacos, burritos", "name:gte:C"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            Restaurant.class,
+            RestaurantsController.PAGE_FIELDS,
+            PageQuery.builder().filter(List.of("description:eq:Tacos, burritos")).build());
+    verify(keysetPager, times(1))
+        .page(
+            Restaurant.class,
+            RestaurantsController.PAGE_FIELDS,
+            PageQuery.builder()
+                .filter(List.of("description:eq:Tacos, burritos", "name:gte:C"))
+                .build());
+  }
+
+  // Tests for /api/restaurants/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/restaurants/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<Restaurant> rows = Stream.empty();
+    when(restaurantRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/restaurants/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<Restaurant>>> source = ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(eq(Restaurant.class), eq("restaurants"), eq("csv"), source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/restaurants/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(eq(Restaurant.class), eq("restaurants"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/restaurants/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/restaurants/batch?ids=1,3,1")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    Restaurant restaurant =
+        Restaurant.builder().id(1L).name("Chipotle").description("Mexican").build();
+    BatchResult<Restaurant> result =
+        BatchResult.<Restaurant>builder().content(List.of(restaurant)).missing(List.of(3L)).build();
+    when(batchFetcher.fetch(restaurantRepository, List.of(1L, 3L, 1L))).thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/batch?ids=1,3,1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(restaurantRepository, List.of(1L, 3L, 1L));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/restaurants/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/restaurants/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/restaurants/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    Restaurant row = Restaurant.builder().name("Chipotle").description("Mexican").build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.create(eq(Restaurant.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(Restaurant.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    Restaurant row = Restaurant.builder().name("Chipotle").description("Mexican").build();
+    row.setId(1L);
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.update(eq(Restaurant.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(Restaurant.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(Restaurant.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[1, 2]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(Restaurant.class, List.of(1L, 2L));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
@@ -0,0 +1,67 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class TableETagAdviceTests {
+
+  private final TableETagAdvice advice = new TableETagAdvice();
+
+  // the ETag header the advice sends, for a response with a status and body
+  private String etagSent(String etag, int status, Object body) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/restaurants/all");
+    if (etag != null) {
+      request.setAttribute(TableVersions.ETAG_ATTRIBUTE, etag);
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    response.setStatus(status);
+    ServletServerHttpResponse serverResponse = new ServletServerHttpResponse(response);
+    Object written =
+        advice.beforeBodyWrite(
+            body,
+            null,
+            MediaType.APPLICATION_JSON,
+            MappingJackson2HttpMessageConverter.class,
+            new ServletServerHttpRequest(request),
+            serverResponse);
+    assertEquals(body, written);
+    return serverResponse.getHeaders().getETag();
+  }
+
+  @Test
+  public void supports_every_response() {
+    assertTrue(advice.supports(null, MappingJackson2HttpMessageConverter.class));
+  }
+
+  @Test
+  public void the_etag_is_sent_with_a_successful_response() {
+    assertEquals("\"1000-3\"", etagSent("1000-3", 200, List.of()));
+  }
+
+  @Test
+  public void the_etag_is_not_sent_with_an_error() {
+    assertNull(etagSent("1000-3", 404, Map.of("type", "EntityNotFoundException")));
+  }
+
+  @Test
+  public void the_etag_is_not_sent_without_a_body() {
+    assertNull(etagSent("1000-3", 200, null));
+  }
+
+  @Test
+  public void nothing_is_sent_for_a_response_that_is_not_from_a_table() {
+    assertNull(etagSent(null, 200, List.of()));
+  }
+}
@@ -1,8 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -12,21 +14,39 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
 @Import(TestConfig.class)
@@ -36,6 +56,16 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean KeysetPager keysetPager;
+
+  @MockitoBean EntityExporter entityExporter;
+
+  @MockitoBean BulkWriter bulkWriter;
+
+  @MockitoBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/ucsbdates/admin/all
 
   @Test
@@ -201,16 +231,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_date() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    UCSBDate ucsbDate1 =
-        UCSBDate.builder()
-            .name("firstDayOfClasses")
-            .quarterYYYYQ("20222")
-            .localDateTime(ldt1)
-            .build();
-
-    when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+    when(ucsbDateRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -220,8 +241,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDateRepository, times(1)).findById(15L);
-    verify(ucsbDateRepository, times(1)).delete(any());
+    verify(ucsbDateRepository, times(1)).deleteByIdReturningCount(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -233,7 +253,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(ucsbDateRepository.deleteByIdReturningCount(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -243,7 +263,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDateRepository, times(1)).findById(15L);
+    verify(ucsbDateRepository, times(1)).deleteByIdReturningCount(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 15 not found", json.get("message"));
   }
@@ -253,16 +273,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_ucsbdate() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-    UCSBDate ucsbDateOrig =
-        UCSBDate.builder()
-            .name("firstDayOfClasses")
-            .quarterYYYYQ("20222")
-            .localDateTime(ldt1)
-            .build();
-
     UCSBDate ucsbDateEdited =
         UCSBDate.builder()
             .name("firstDayOfFestivus")
@@ -272,7 +284,15 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
-    when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+    when(ucsbDateRepository.updateFieldsById(
+            67L,
+            ucsbDateEdited.getQuarterYYYYQ(),
+            ucsbDateEdited.getName(),
+            ucsbDateEdited.getLocalDateTime()))
+        .thenReturn(1);
+    UCSBDate stored = mapper.readValue(requestBody, UCSBDate.class);
+    stored.setId(67L);
+    when(ucsbDateRepository.findById(67L)).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -287,10 +307,16 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
+    verify(ucsbDateRepository, times(1))
+        .updateFieldsById(
+            67L,
+            ucsbDateEdited.getQuarterYYYYQ(),
+            ucsbDateEdited.getName(),
+            ucsbDateEdited.getLocalDateTime());
     verify(ucsbDateRepository, times(1)).findById(67L);
-    verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    ucsbDateEdited.setId(67L);
+    assertEquals(mapper.writeValueAsString(ucsbDateEdited), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -309,7 +335,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(ucsbEditedDate);
 
-    when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(ucsbDateRepository.updateFieldsById(
+            67L,
+            ucsbEditedDate.getQuarterYYYYQ(),
+            ucsbEditedDate.getName(),
+            ucsbEditedDate.getLocalDateTime()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -324,8 +355,350 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDateRepository, times(1)).findById(67L);
+    verify(ucsbDateRepository, times(1))
+        .updateFieldsById(
+            67L,
+            ucsbEditedDate.getQuarterYYYYQ(),
+            ucsbEditedDate.getName(),
+            ucsbEditedDate.getLocalDateTime());
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 67 not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/ucsbdates/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(UCSBDate.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBDate.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates?id=15").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, never()).findById(15L);
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBDate.class) + "\"";
+    when(ucsbDateRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
+    when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc.perform(delete("/api/ucsbdates?id=15").with(csrf())).andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(UCSBDate.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/ucsbdates/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    UCSBDate ucsbDate =
+        UCSBDate.builder()
+            .id(1L)
+            .quarterYYYYQ("20222")
+            .name("firstDayOfClasses")
+            .localDateTime(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .build();
+    KeysetPage<UCSBDate> page =
+        KeysetPage.<UCSBDate>builder().content(List.of(ucsbDate)).nextCursor("MQ").build();
+    when(keysetPager.page(eq(UCSBDate.class), eq(UCSBDatesController.PAGE_FIELDS), any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/ucsbdates/page")
+                    .param("sort", "localDateTime")
+                    .param("direction", "desc")
+                    .param(
+                        "filter", "quarterYYYYQ:eq:20222", "localDateTime:gte:2022-01-01T00:00:00")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            UCSBDate.class,
+            UCSBDatesController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("localDateTime")
+                .direction("desc")
+                .filter(List.of("quarterYYYYQ:eq:20222", "localDateTime:gte:2022-01-01T00:00:00"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsbdates/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<UCSBDate> rows = Stream.empty();
+    when(ucsbDateRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/ucsbdates/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<UCSBDate>>> source = ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(eq(UCSBDate.class), eq("ucsbdates"), eq("csv"), source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/ucsbdates/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(eq(UCSBDate.class), eq("ucsbdates"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/ucsbdates/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates/batch?ids=1,3,1")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    UCSBDate ucsbDate =
+        UCSBDate.builder()
+            .id(1L)
+            .quarterYYYYQ("20222")
+            .name("firstDayOfClasses")
+            .localDateTime(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .build();
+    BatchResult<UCSBDate> result =
+        BatchResult.<UCSBDate>builder().content(List.of(ucsbDate)).missing(List.of(3L)).build();
+    when(batchFetcher.fetch(ucsbDateRepository, List.of(1L, 3L, 1L))).thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/batch?ids=1,3,1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(ucsbDateRepository, List.of(1L, 3L, 1L));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsbdates/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    UCSBDate row =
+        UCSBDate.builder()
+            .quarterYYYYQ("20222")
+            .name("firstDayOfClasses")
+            .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.create(eq(UCSBDate.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(UCSBDate.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    UCSBDate row =
+        UCSBDate.builder()
+            .quarterYYYYQ("20222")
+            .name("firstDayOfClasses")
+            .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .build();
+    row.setId(1L);
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.update(eq(UCSBDate.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(UCSBDate.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(UCSBDate.class), any())).thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[1, 2]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(UCSBDate.class, List.of(1L, 2L));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
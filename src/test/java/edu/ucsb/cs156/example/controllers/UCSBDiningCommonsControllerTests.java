@@ -1,8 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -12,20 +14,38 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
 @Import(TestConfig.class)
@@ -35,6 +55,16 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean KeysetPager keysetPager;
+
+  @MockitoBean EntityExporter entityExporter;
+
+  @MockitoBean BulkWriter bulkWriter;
+
+  @MockitoBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/ucsbdiningcommons/admin/all
 
   @Test
@@ -216,18 +246,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_date() throws Exception {
     // arrange
 
-    UCSBDiningCommons portola =
-        UCSBDiningCommons.builder()
-            .name("Portola")
-            .code("portola")
-            .hasSackMeal(true)
-            .hasTakeOutMeal(true)
-            .hasDiningCam(true)
-            .latitude(34.417723)
-            .longitude(-119.867427)
-            .build();
-
-    when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+    when(ucsbDiningCommonsRepository.deleteByIdReturningCount(eq("portola"))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -237,8 +256,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-    verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+    verify(ucsbDiningCommonsRepository, times(1)).deleteByIdReturningCount("portola");
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -250,7 +268,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.deleteByIdReturningCount(eq("munger-hall"))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -260,7 +278,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+    verify(ucsbDiningCommonsRepository, times(1)).deleteByIdReturningCount("munger-hall");
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
   }
@@ -270,17 +288,6 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_commons() throws Exception {
     // arrange
 
-    UCSBDiningCommons carrilloOrig =
-        UCSBDiningCommons.builder()
-            .name("Carrillo")
-            .code("carrillo")
-            .hasSackMeal(false)
-            .hasTakeOutMeal(false)
-            .hasDiningCam(true)
-            .latitude(34.409953)
-            .longitude(-119.85277)
-            .build();
-
     UCSBDiningCommons carrilloEdited =
         UCSBDiningCommons.builder()
             .name("Carrillo Dining Hall")
@@ -294,8 +301,17 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(carrilloEdited);
 
-    when(ucsbDiningCommonsRepository.findById(eq("carrillo")))
-        .thenReturn(Optional.of(carrilloOrig));
+    when(ucsbDiningCommonsRepository.updateFieldsById(
+            "carrillo",
+            carrilloEdited.getName(),
+            carrilloEdited.getHasSackMeal(),
+            carrilloEdited.getHasTakeOutMeal(),
+            carrilloEdited.getHasDiningCam(),
+            carrilloEdited.getLatitude(),
+            carrilloEdited.getLongitude()))
+        .thenReturn(1);
+    UCSBDiningCommons stored = mapper.readValue(requestBody, UCSBDiningCommons.class);
+    when(ucsbDiningCommonsRepository.findById("carrillo")).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -310,9 +326,16 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
     verify(ucsbDiningCommonsRepository, times(1))
-        .save(carrilloEdited); // should be saved with updated info
+        .updateFieldsById(
+            "carrillo",
+            carrilloEdited.getName(),
+            carrilloEdited.getHasSackMeal(),
+            carrilloEdited.getHasTakeOutMeal(),
+            carrilloEdited.getHasDiningCam(),
+            carrilloEdited.getLatitude(),
+            carrilloEdited.getLongitude());
+    verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -335,7 +358,15 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(editedCommons);
 
-    when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.updateFieldsById(
+            "munger-hall",
+            editedCommons.getName(),
+            editedCommons.getHasSackMeal(),
+            editedCommons.getHasTakeOutMeal(),
+            editedCommons.getHasDiningCam(),
+            editedCommons.getLatitude(),
+            editedCommons.getLongitude()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -350,8 +381,379 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+    verify(ucsbDiningCommonsRepository, times(1))
+        .updateFieldsById(
+            "munger-hall",
+            editedCommons.getName(),
+            editedCommons.getHasSackMeal(),
+            editedCommons.getHasTakeOutMeal(),
+            editedCommons.getHasDiningCam(),
+            editedCommons.getLatitude(),
+            editedCommons.getLongitude());
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(UCSBDiningCommons.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBDiningCommons.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons?code=ortega").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, never()).findById("ortega");
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBDiningCommons.class) + "\"";
+    when(ucsbDiningCommonsRepository.deleteByIdReturningCount(eq("ortega"))).thenReturn(1);
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc
+        .perform(delete("/api/ucsbdiningcommons?code=ortega").with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(UCSBDiningCommons.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/ucsbdiningcommons/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommons/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    UCSBDiningCommons commons =
+        UCSBDiningCommons.builder()
+            .code("ortega")
+            .name("Ortega")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(true)
+            .hasDiningCam(true)
+            .latitude(34.410987)
+            .longitude(-119.84709)
+            .build();
+    KeysetPage<UCSBDiningCommons> page =
+        KeysetPage.<UCSBDiningCommons>builder().content(List.of(commons)).nextCursor("MQ").build();
+    when(keysetPager.page(
+            eq(UCSBDiningCommons.class), eq(UCSBDiningCommonsController.PAGE_FIELDS), any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/ucsbdiningcommons/page")
+                    .param("sort", "name")
+                    .param("direction", "desc")
+                    .param("filter", "hasSackMeal:eq:true", "name:gte:C")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            UCSBDiningCommons.class,
+            UCSBDiningCommonsController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("name")
+                .direction("desc")
+                .filter(List.of("hasSackMeal:eq:true", "name:gte:C"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsbdiningcommons/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommons/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<UCSBDiningCommons> rows = Stream.empty();
+    when(ucsbDiningCommonsRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<UCSBDiningCommons>>> source =
+        ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(eq(UCSBDiningCommons.class), eq("ucsbdiningcommons"), eq("csv"), source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/ucsbdiningcommons/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(eq(UCSBDiningCommons.class), eq("ucsbdiningcommons"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/ucsbdiningcommons/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc
+        .perform(get("/api/ucsbdiningcommons/batch?ids=ortega,dlg,ortega"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    UCSBDiningCommons commons =
+        UCSBDiningCommons.builder()
+            .code("ortega")
+            .name("Ortega")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(true)
+            .hasDiningCam(true)
+            .latitude(34.410987)
+            .longitude(-119.84709)
+            .build();
+    BatchResult<UCSBDiningCommons> result =
+        BatchResult.<UCSBDiningCommons>builder()
+            .content(List.of(commons))
+            .missing(List.of("dlg"))
+            .build();
+    when(batchFetcher.fetch(ucsbDiningCommonsRepository, List.of("ortega", "dlg", "ortega")))
+        .thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/batch?ids=ortega,dlg,ortega"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1))
+        .fetch(ucsbDiningCommonsRepository, List.of("ortega", "dlg", "ortega"));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsbdiningcommons/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommons/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommons/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    UCSBDiningCommons row =
+        UCSBDiningCommons.builder()
+            .code("ortega")
+            .name("Ortega")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(true)
+            .hasDiningCam(true)
+            .latitude(34.410987)
+            .longitude(-119.84709)
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(row.getCode()).build()))
+            .build();
+    when(bulkWriter.create(eq(UCSBDiningCommons.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(UCSBDiningCommons.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    UCSBDiningCommons row =
+        UCSBDiningCommons.builder()
+            .code("ortega")
+            .name("Ortega")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(true)
+            .hasDiningCam(true)
+            .latitude(34.410987)
+            .longitude(-119.84709)
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(row.getCode()).build()))
+            .build();
+    when(bulkWriter.update(eq(UCSBDiningCommons.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(UCSBDiningCommons.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(UCSBDiningCommons.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[\"a\", \"b\"]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(UCSBDiningCommons.class, List.of("a", "b"));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
@@ -1,34 +1,58 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.bulk.NdjsonHttpMessageConverter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = UCSBDiningCommonsMenuItemController.class)
 @Import(TestConfig.class)
@@ -38,6 +62,16 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
   @MockBean UserRepository userRepository;
 
+  @MockBean KeysetPager keysetPager;
+
+  @MockBean EntityExporter entityExporter;
+
+  @MockBean BulkWriter bulkWriter;
+
+  @MockBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/ucsbdiningcommonsmenuitem/all
 
   @Test
@@ -182,13 +216,6 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
   public void admin_can_edit_an_existing_ucsbdiningcommonsmenuitem() throws Exception {
     // arrange
 
-    UCSBDiningCommonsMenuItem ucsbItemOrig =
-        UCSBDiningCommonsMenuItem.builder()
-            .diningCommonsCode("DLG")
-            .name("Pancakes")
-            .station("Breakfast")
-            .build();
-
     UCSBDiningCommonsMenuItem ucsbItemEdit =
         UCSBDiningCommonsMenuItem.builder()
             .diningCommonsCode("Carillo")
@@ -198,9 +225,16 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
     String requestBody = mapper.writeValueAsString(ucsbItemEdit);
 
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L)))
-        .thenReturn(Optional.of(ucsbItemOrig));
-    when(ucsbDiningCommonsMenuItemRepository.save(eq(ucsbItemEdit))).thenReturn(ucsbItemEdit);
+    when(ucsbDiningCommonsMenuItemRepository.updateFieldsById(
+            67L,
+            ucsbItemEdit.getDiningCommonsCode(),
+            ucsbItemEdit.getName(),
+            ucsbItemEdit.getStation()))
+        .thenReturn(1);
+    UCSBDiningCommonsMenuItem stored =
+        mapper.readValue(requestBody, UCSBDiningCommonsMenuItem.class);
+    stored.setId(67L);
+    when(ucsbDiningCommonsMenuItemRepository.findById(67L)).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -215,10 +249,16 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
+    verify(ucsbDiningCommonsMenuItemRepository, times(1))
+        .updateFieldsById(
+            67L,
+            ucsbItemEdit.getDiningCommonsCode(),
+            ucsbItemEdit.getName(),
+            ucsbItemEdit.getStation());
     verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).save(ucsbItemEdit);
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    ucsbItemEdit.setId(67L);
+    assertEquals(mapper.writeValueAsString(ucsbItemEdit), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -237,7 +277,12 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
     String requestBody = mapper.writeValueAsString(ucsbItemEdit);
 
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsMenuItemRepository.updateFieldsById(
+            67L,
+            ucsbItemEdit.getDiningCommonsCode(),
+            ucsbItemEdit.getName(),
+            ucsbItemEdit.getStation()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -252,7 +297,12 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
+    verify(ucsbDiningCommonsMenuItemRepository, times(1))
+        .updateFieldsById(
+            67L,
+            ucsbItemEdit.getDiningCommonsCode(),
+            ucsbItemEdit.getName(),
+            ucsbItemEdit.getStation());
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
   }
@@ -262,17 +312,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
   public void admin_can_delete_a_menuitem() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    UCSBDiningCommonsMenuItem ucsbItemEdit =
-        UCSBDiningCommonsMenuItem.builder()
-            .diningCommonsCode("Carillo")
-            .name("Sandwiches")
-            .station("Lunch")
-            .build();
-
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L)))
-        .thenReturn(Optional.of(ucsbItemEdit));
+    when(ucsbDiningCommonsMenuItemRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -282,8 +322,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteByIdReturningCount(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -296,7 +335,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
           throws Exception {
     // arrange
 
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsMenuItemRepository.deleteByIdReturningCount(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -306,8 +345,413 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteByIdReturningCount(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(UCSBDiningCommonsMenuItem.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBDiningCommonsMenuItem.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem?id=15").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsMenuItemRepository, never()).findById(15L);
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBDiningCommonsMenuItem.class) + "\"";
+    when(ucsbDiningCommonsMenuItemRepository.deleteByIdReturningCount(eq(15L))).thenReturn(1);
+    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc
+        .perform(delete("/api/ucsbdiningcommonsmenuitem?id=15").with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(UCSBDiningCommonsMenuItem.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/ucsbdiningcommonsmenuitem/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    UCSBDiningCommonsMenuItem menuItem =
+        UCSBDiningCommonsMenuItem.builder()
+            .id(1L)
+            .diningCommonsCode("ortega")
+            .name("Baked Pesto Pasta with Chicken")
+            .station("Entree Specials")
+            .build();
+    KeysetPage<UCSBDiningCommonsMenuItem> page =
+        KeysetPage.<UCSBDiningCommonsMenuItem>builder()
+            .content(List.of(menuItem))
+            .nextCursor("MQ")
+            .build();
+    when(keysetPager.page(
+            eq(UCSBDiningCommonsMenuItem.class),
+            eq(UCSBDiningCommonsMenuItemController.PAGE_FIELDS),
+            any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/ucsbdiningcommonsmenuitem/page")
+                    .param("sort", "name")
+                    .param("direction", "desc")
+                    .param("filter", "diningCommonsCode:eq:ortega", "name:gte:B")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            UCSBDiningCommonsMenuItem.class,
+            UCSBDiningCommonsMenuItemController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("name")
+                .direction("desc")
+                .filter(List.of("diningCommonsCode:eq:ortega", "name:gte:B"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsbdiningcommonsmenuitem/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<UCSBDiningCommonsMenuItem> rows = Stream.empty();
+    when(ucsbDiningCommonsMenuItemRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<UCSBDiningCommonsMenuItem>>> source =
+        ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(
+            eq(UCSBDiningCommonsMenuItem.class),
+            eq("ucsbdiningcommonsmenuitems"),
+            eq("csv"),
+            source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc
+        .perform(get("/api/ucsbdiningcommonsmenuitem/export"))
+        .andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(
+            eq(UCSBDiningCommonsMenuItem.class),
+            eq("ucsbdiningcommonsmenuitems"),
+            eq("ndjson"),
+            any());
+  }
+
+  // Tests for /api/ucsbdiningcommonsmenuitem/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc
+        .perform(get("/api/ucsbdiningcommonsmenuitem/batch?ids=1,3,1"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    UCSBDiningCommonsMenuItem menuItem =
+        UCSBDiningCommonsMenuItem.builder()
+            .id(1L)
+            .diningCommonsCode("ortega")
+            .name("Baked Pesto Pasta with Chicken")
+            .station("Entree Specials")
+            .build();
+    BatchResult<UCSBDiningCommonsMenuItem> result =
+        BatchResult.<UCSBDiningCommonsMenuItem>builder()
+            .content(List.of(menuItem))
+            .missing(List.of(3L))
+            .build();
+    when(batchFetcher.fetch(ucsbDiningCommonsMenuItemRepository, List.of(1L, 3L, 1L)))
+        .thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/batch?ids=1,3,1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(ucsbDiningCommonsMenuItemRepository, List.of(1L, 3L, 1L));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsbdiningcommonsmenuitem/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommonsmenuitem/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommonsmenuitem/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    UCSBDiningCommonsMenuItem row =
+        UCSBDiningCommonsMenuItem.builder()
+            .diningCommonsCode("ortega")
+            .name("Baked Pesto Pasta with Chicken")
+            .station("Entree Specials")
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.create(eq(UCSBDiningCommonsMenuItem.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(UCSBDiningCommonsMenuItem.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create_from_ndjson() throws Exception {
+
+    // arrange
+    UCSBDiningCommonsMenuItem row =
+        UCSBDiningCommonsMenuItem.builder()
+            .diningCommonsCode("ortega")
+            .name("Baked Pesto Pasta with Chicken")
+            .station("Entree Specials")
+            .build();
+    UCSBDiningCommonsMenuItem another =
+        UCSBDiningCommonsMenuItem.builder()
+            .diningCommonsCode("ortega")
+            .name("Chicken Tikka Masala")
+            .station("Entree Specials")
+            .build();
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.create(eq(UCSBDiningCommonsMenuItem.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(NdjsonHttpMessageConverter.NDJSON)
+                    .content(
+                        mapper.writeValueAsString(row)
+                            + "\n"
+                            + mapper.writeValueAsString(another)
+                            + "\n"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(UCSBDiningCommonsMenuItem.class, List.of(row, another));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    UCSBDiningCommonsMenuItem row =
+        UCSBDiningCommonsMenuItem.builder()
+            .diningCommonsCode("ortega")
+            .name("Baked Pesto Pasta with Chicken")
+            .station("Entree Specials")
+            .build();
+    row.setId(1L);
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(1L).build()))
+            .build();
+    when(bulkWriter.update(eq(UCSBDiningCommonsMenuItem.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(UCSBDiningCommonsMenuItem.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(UCSBDiningCommonsMenuItem.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[1, 2]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(UCSBDiningCommonsMenuItem.class, List.of(1L, 2L));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
@@ -1,34 +1,57 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.batch.BatchFetcher;
+import edu.ucsb.cs156.example.services.bulk.BulkWriter;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.export.EntityExporter;
+import edu.ucsb.cs156.example.services.paging.KeysetPager;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
 @Import(TestConfig.class)
@@ -38,6 +61,16 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean KeysetPager keysetPager;
+
+  @MockBean EntityExporter entityExporter;
+
+  @MockBean BulkWriter bulkWriter;
+
+  @MockBean BatchFetcher batchFetcher;
+
+  @Autowired TableVersions tableVersions;
+
   @Test
   public void logged_out_users_cannot_get_all() throws Exception {
     mockMvc
@@ -235,13 +268,6 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     // arrange
 
-    UCSBOrganization organizationOrig =
-        UCSBOrganization.builder()
-            .orgTranslationShort("first-organ")
-            .orgTranslation("first-organization")
-            .inactive(false)
-            .build();
-
     UCSBOrganization organizationOneEdited =
         UCSBOrganization.builder()
             .orgTranslationShort("third-organ")
@@ -251,7 +277,15 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(organizationOneEdited);
 
-    when(ucsbOrganizationRepository.findById(eq("FIR"))).thenReturn(Optional.of(organizationOrig));
+    when(ucsbOrganizationRepository.updateFieldsById(
+            "FIR",
+            organizationOneEdited.getOrgTranslationShort(),
+            organizationOneEdited.getOrgTranslation(),
+            organizationOneEdited.getInactive()))
+        .thenReturn(1);
+    UCSBOrganization stored = mapper.readValue(requestBody, UCSBOrganization.class);
+    stored.setOrgCode("FIR");
+    when(ucsbOrganizationRepository.findById("FIR")).thenReturn(Optional.of(stored));
 
     // act
     MvcResult response =
@@ -266,11 +300,16 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("FIR");
     verify(ucsbOrganizationRepository, times(1))
-        .save(organizationOneEdited); // should be saved with updated info
+        .updateFieldsById(
+            "FIR",
+            organizationOneEdited.getOrgTranslationShort(),
+            organizationOneEdited.getOrgTranslation(),
+            organizationOneEdited.getInactive());
+    verify(ucsbOrganizationRepository, times(1)).findById("FIR");
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(requestBody, responseString);
+    organizationOneEdited.setOrgCode("FIR");
+    assertEquals(mapper.writeValueAsString(organizationOneEdited), responseString);
   }
 
   @WithMockUser(roles = {"ADMIN", "USER"})
@@ -287,7 +326,12 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(organizationOneEdited);
 
-    when(ucsbOrganizationRepository.findById(eq("FIR"))).thenReturn(Optional.empty());
+    when(ucsbOrganizationRepository.updateFieldsById(
+            "FIR",
+            organizationOneEdited.getOrgTranslationShort(),
+            organizationOneEdited.getOrgTranslation(),
+            organizationOneEdited.getInactive()))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -302,7 +346,12 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("FIR");
+    verify(ucsbOrganizationRepository, times(1))
+        .updateFieldsById(
+            "FIR",
+            organizationOneEdited.getOrgTranslationShort(),
+            organizationOneEdited.getOrgTranslation(),
+            organizationOneEdited.getInactive());
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id FIR not found", json.get("message"));
   }
@@ -312,14 +361,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
   public void admin_can_delete_an_organization() throws Exception {
     // arrange
 
-    UCSBOrganization organizationOne =
-        UCSBOrganization.builder()
-            .orgTranslationShort("third-organ")
-            .orgTranslation("third-organization")
-            .inactive(true)
-            .build();
-
-    when(ucsbOrganizationRepository.findById(eq("FIR"))).thenReturn(Optional.of(organizationOne));
+    when(ucsbOrganizationRepository.deleteByIdReturningCount(eq("FIR"))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -329,8 +371,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("FIR");
-    verify(ucsbOrganizationRepository, times(1)).delete(any());
+    verify(ucsbOrganizationRepository, times(1)).deleteByIdReturningCount("FIR");
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id FIR deleted", json.get("message"));
@@ -342,7 +383,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(ucsbOrganizationRepository.findById(eq("FIR"))).thenReturn(Optional.empty());
+    when(ucsbOrganizationRepository.deleteByIdReturningCount(eq("FIR"))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -352,8 +393,359 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("FIR");
+    verify(ucsbOrganizationRepository, times(1)).deleteByIdReturningCount("FIR");
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id FIR not found", json.get("message"));
   }
+
+  // Tests for ETags and If-None-Match
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    when(ucsbOrganizationRepository.findAll()).thenReturn(new ArrayList<>());
+    String etag =
+        mockMvc
+            .perform(get("/api/ucsborganization/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+    assertEquals(tableVersions.etag(UCSBOrganization.class), etag.replace("\"", ""));
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_returns_304_without_reading_the_table_when_the_etag_matches()
+      throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBOrganization.class) + "\"";
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization?orgCode=ZPR").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, never()).findById("ZPR");
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_write_changes_the_etag() throws Exception {
+
+    // arrange
+    String etag = "\"" + tableVersions.etag(UCSBOrganization.class) + "\"";
+    when(ucsbOrganizationRepository.deleteByIdReturningCount(eq("ZPR"))).thenReturn(1);
+    when(ucsbOrganizationRepository.findAll()).thenReturn(new ArrayList<>());
+
+    // act
+    mockMvc
+        .perform(delete("/api/ucsborganization?orgCode=ZPR").with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+    String expectedEtag = "\"" + tableVersions.etag(UCSBOrganization.class) + "\"";
+    assertEquals(expectedEtag, response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for /api/ucsborganization/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsborganization/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page() throws Exception {
+
+    // arrange
+    UCSBOrganization organization =
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("ZETA PHI RHO")
+            .inactive(false)
+            .build();
+    KeysetPage<UCSBOrganization> page =
+        KeysetPage.<UCSBOrganization>builder()
+            .content(List.of(organization))
+            .nextCursor("MQ")
+            .build();
+    when(keysetPager.page(
+            eq(UCSBOrganization.class), eq(UCSBOrganizationController.PAGE_FIELDS), any()))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/ucsborganization/page")
+                    .param("sort", "orgTranslationShort")
+                    .param("direction", "desc")
+                    .param("filter", "inactive:eq:false", "orgTranslationShort:gte:Z")
+                    .param("cursor", "MQ")
+                    .param("size", "10"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(keysetPager, times(1))
+        .page(
+            UCSBOrganization.class,
+            UCSBOrganizationController.PAGE_FIELDS,
+            PageQuery.builder()
+                .sort("orgTranslationShort")
+                .direction("desc")
+                .filter(List.of("inactive:eq:false", "orgTranslationShort:gte:Z"))
+                .cursor("MQ")
+                .size(10)
+                .build());
+    String expectedJson = mapper.writeValueAsString(page);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsborganization/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/ucsborganization/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> out.write("exported".getBytes(StandardCharsets.UTF_8));
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+    Stream<UCSBOrganization> rows = Stream.empty();
+    when(ucsbOrganizationRepository.streamAllBy()).thenReturn(rows);
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/ucsborganization/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string("exported"));
+
+    // assert
+    ArgumentCaptor<Supplier<Stream<UCSBOrganization>>> source =
+        ArgumentCaptor.forClass(Supplier.class);
+    verify(entityExporter, times(1))
+        .export(eq(UCSBOrganization.class), eq("ucsborganizations"), eq("csv"), source.capture());
+    assertSame(rows, source.getValue().get());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void export_format_defaults_to_ndjson() throws Exception {
+
+    // arrange
+    StreamingResponseBody body = out -> {};
+    when(entityExporter.export(any(), any(), any(), any()))
+        .thenReturn(ResponseEntity.ok().body(body));
+
+    // act
+    mockMvc.perform(get("/api/ucsborganization/export")).andExpect(request().asyncStarted());
+
+    // assert
+    verify(entityExporter, times(1))
+        .export(eq(UCSBOrganization.class), eq("ucsborganizations"), eq("ndjson"), any());
+  }
+
+  // Tests for /api/ucsborganization/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/ucsborganization/batch?ids=ZPR,SKY,ZPR")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_batch() throws Exception {
+
+    // arrange
+    UCSBOrganization organization =
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("ZETA PHI RHO")
+            .inactive(false)
+            .build();
+    BatchResult<UCSBOrganization> result =
+        BatchResult.<UCSBOrganization>builder()
+            .content(List.of(organization))
+            .missing(List.of("SKY"))
+            .build();
+    when(batchFetcher.fetch(ucsbOrganizationRepository, List.of("ZPR", "SKY", "ZPR")))
+        .thenReturn(result);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/batch?ids=ZPR,SKY,ZPR"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(batchFetcher, times(1)).fetch(ucsbOrganizationRepository, List.of("ZPR", "SKY", "ZPR"));
+    String expectedJson = mapper.writeValueAsString(result);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for /api/ucsborganization/bulk
+
+  @Test
+  public void logged_out_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsborganization/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_bulk_create() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsborganization/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_create() throws Exception {
+
+    // arrange
+    UCSBOrganization row =
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("ZETA PHI RHO")
+            .inactive(false)
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(row.getOrgCode()).build()))
+            .build();
+    when(bulkWriter.create(eq(UCSBOrganization.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).create(UCSBOrganization.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_update() throws Exception {
+
+    // arrange
+    UCSBOrganization row =
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("ZETA PHI RHO")
+            .inactive(false)
+            .build();
+    BulkResult result =
+        BulkResult.builder()
+            .count(1)
+            .rows(List.of(BulkRowResult.builder().index(0).id(row.getOrgCode()).build()))
+            .build();
+    when(bulkWriter.update(eq(UCSBOrganization.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(row))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).update(UCSBOrganization.class, List.of(row));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_bulk_delete() throws Exception {
+
+    // arrange
+    BulkResult result = BulkResult.builder().count(2).rows(List.of()).build();
+    when(bulkWriter.delete(eq(UCSBOrganization.class), any()))
+        .thenReturn(ResponseEntity.ok(result));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[\"a\", \"b\"]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(bulkWriter, times(1)).delete(UCSBOrganization.class, List.of("a", "b"));
+    assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+  }
 }
@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -12,12 +13,14 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -85,4 +88,94 @@ public class RestaurantIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_edit_a_restaurant() throws Exception {
+    // arrange
+
+    Restaurant restaurant = Restaurant.builder().name("Taco Bell").description("Mexican").build();
+    restaurantRepository.save(restaurant);
+
+    Restaurant restaurantEdited =
+        Restaurant.builder()
+            .id(restaurant.getId())
+            .name("Chipotle")
+            .description("Burritos")
+            .build();
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/restaurants?id=" + restaurant.getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(restaurantEdited))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(restaurantEdited);
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    assertEquals(restaurantEdited, restaurantRepository.findById(restaurant.getId()).get());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_restaurant_read_from_the_cache_is_replaced_once_it_is_edited() throws Exception {
+    // arrange
+
+    Restaurant restaurant = Restaurant.builder().name("Taco Bell").description("Mexican").build();
+    restaurantRepository.save(restaurant);
+    String url = "/api/restaurants?id=" + restaurant.getId();
+    mockMvc.perform(get(url)).andExpect(status().isOk());
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+
+    Restaurant restaurantEdited =
+        Restaurant.builder()
+            .id(restaurant.getId())
+            .name("Chipotle")
+            .description("Burritos")
+            .build();
+
+    // act
+    mockMvc
+        .perform(
+            put(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(restaurantEdited))
+                .with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult one = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+    MvcResult all =
+        mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(restaurantEdited), one.getResponse().getContentAsString());
+    assertEquals(
+        mapper.writeValueAsString(List.of(restaurantEdited)),
+        all.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_a_restaurant() throws Exception {
+    // arrange
+
+    Restaurant restaurant = Restaurant.builder().name("Taco Bell").description("Mexican").build();
+    restaurantRepository.save(restaurant);
+
+    // act
+    mockMvc
+        .perform(delete("/api/restaurants?id=" + restaurant.getId()).with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertFalse(restaurantRepository.existsById(restaurant.getId()));
+    mockMvc
+        .perform(delete("/api/restaurants?id=" + restaurant.getId()).with(csrf()))
+        .andExpect(status().isNotFound());
+  }
 }
@@ -0,0 +1,184 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.cache.CacheRegistry;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@TestPropertySource(properties = {"app.tables.versions.maxAgeMs=0"})
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class SecondLevelCacheIT {
+  @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @Autowired CacheRegistry cacheRegistry;
+
+  @Autowired TableVersions tableVersions;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockitoBean UserRepository userRepository;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  public void enableStatistics() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  private UCSBDate date(String quarterYYYYQ, String name) {
+    return UCSBDate.builder()
+        .quarterYYYYQ(quarterYYYYQ)
+        .name(name)
+        .localDateTime(LocalDateTime.parse("2024-01-08T08:00:00"))
+        .build();
+  }
+
+  @Test
+  public void a_repeated_lookup_of_a_dining_commons_issues_no_sql() {
+    // arrange
+
+    UCSBDiningCommons commons =
+        UCSBDiningCommons.builder()
+            .code("ortega")
+            .name("Ortega")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(true)
+            .hasDiningCam(true)
+            .latitude(34.410987)
+            .longitude(-119.84709)
+            .build();
+    ucsbDiningCommonsRepository.save(commons);
+    ucsbDiningCommonsRepository.findById("ortega");
+    statistics.clear();
+
+    // act
+    Optional<UCSBDiningCommons> again = ucsbDiningCommonsRepository.findById("ortega");
+
+    // assert
+    assertEquals(commons, again.get());
+    assertEquals(0, statistics.getPrepareStatementCount());
+    assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    assertEquals(1, statistics.getDomainDataRegionStatistics("ucsbdiningcommons").getHitCount());
+    assertEquals(1, cacheRegistry.getStats("hibernate.ucsbdiningcommons").get().getHits());
+  }
+
+  @Test
+  public void a_repeated_lookup_of_an_organization_issues_no_sql() {
+    // arrange
+
+    UCSBOrganization organization =
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("ZETA PHI RHO")
+            .inactive(false)
+            .build();
+    ucsbOrganizationRepository.save(organization);
+    ucsbOrganizationRepository.findById("ZPR");
+    statistics.clear();
+
+    // act
+    Optional<UCSBOrganization> again = ucsbOrganizationRepository.findById("ZPR");
+
+    // assert
+    assertEquals(organization, again.get());
+    assertEquals(0, statistics.getPrepareStatementCount());
+    assertEquals(1, statistics.getSecondLevelCacheHitCount());
+  }
+
+  @Test
+  public void a_repeated_query_for_a_quarter_issues_no_sql_until_the_table_is_written_to() {
+    // arrange
+
+    UCSBDate first = ucsbDateRepository.save(date("20241", "firstDayOfClasses"));
+    UCSBDate last = ucsbDateRepository.save(date("20241", "lastDayOfClasses"));
+    ucsbDateRepository.save(date("20242", "firstDayOfClasses"));
+    ucsbDateRepository.findAllByQuarterYYYYQ("20241");
+    statistics.clear();
+
+    // act
+    Iterable<UCSBDate> again = ucsbDateRepository.findAllByQuarterYYYYQ("20241");
+    long statementsAgain = statistics.getPrepareStatementCount();
+    UCSBDate finals = ucsbDateRepository.save(date("20241", "finalsWeek"));
+    statistics.clear();
+    Iterable<UCSBDate> afterWrite = ucsbDateRepository.findAllByQuarterYYYYQ("20241");
+
+    // assert
+    assertEquals(List.of(first, last), again);
+    assertEquals(0, statementsAgain);
+    assertEquals(List.of(first, last, finals), afterWrite);
+    assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  @Test
+  public void a_write_made_on_another_instance_is_seen_once_its_version_is_read() {
+    // arrange
+
+    ucsbOrganizationRepository.save(
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("ZETA PHI RHO")
+            .inactive(false)
+            .build());
+    tableVersions.version(UCSBOrganization.class);
+    ucsbOrganizationRepository.findById("ZPR");
+    // another instance updates the row and bumps the shared version
+    jdbcTemplate.update(
+        "UPDATE ucsborganization SET org_translation_short = 'ZPR' WHERE org_code = 'ZPR'");
+    TableVersions otherInstance = new TableVersions();
+    ReflectionTestUtils.setField(otherInstance, "jdbcTemplate", jdbcTemplate);
+    ReflectionTestUtils.invokeMethod(otherInstance, "chooseBumpSql");
+    otherInstance.bump(UCSBOrganization.class);
+    String beforeVersionRead =
+        ucsbOrganizationRepository.findById("ZPR").get().getOrgTranslationShort();
+
+    // act
+    tableVersions.version(UCSBOrganization.class);
+    String afterVersionRead =
+        ucsbOrganizationRepository.findById("ZPR").get().getOrgTranslationShort();
+
+    // assert
+    assertEquals("ZETA PHI RHO", beforeVersionRead);
+    assertEquals("ZPR", afterVersionRead);
+  }
+}
@@ -1,6 +1,8 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -12,12 +14,14 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -101,4 +105,102 @@ public class UCSBOrganizationIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_edit_a_ucsborganization() throws Exception {
+    // arrange
+
+    ucsbOrganizationRepository.save(
+        UCSBOrganization.builder()
+            .orgCode("FIR")
+            .orgTranslationShort("first-organ")
+            .orgTranslation("first-organization")
+            .inactive(false)
+            .build());
+
+    UCSBOrganization organizationEdited =
+        UCSBOrganization.builder()
+            .orgCode("FIR")
+            .orgTranslationShort("first-org")
+            .orgTranslation("the first organization")
+            .inactive(true)
+            .build();
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsborganization?orgCode=FIR")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(organizationEdited))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(organizationEdited);
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    assertEquals(organizationEdited, ucsbOrganizationRepository.findById("FIR").get());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_a_ucsborganization() throws Exception {
+    // arrange
+
+    ucsbOrganizationRepository.save(
+        UCSBOrganization.builder()
+            .orgCode("FIR")
+            .orgTranslationShort("first-organ")
+            .orgTranslation("first-organization")
+            .inactive(false)
+            .build());
+
+    // act
+    mockMvc
+        .perform(delete("/api/ucsborganization?orgCode=FIR").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertFalse(ucsbOrganizationRepository.existsById("FIR"));
+    mockMvc
+        .perform(delete("/api/ucsborganization?orgCode=FIR").with(csrf()))
+        .andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void the_list_is_not_modified_until_the_table_is_written_to() throws Exception {
+    // arrange
+
+    String etag =
+        mockMvc
+            .perform(get("/api/ucsborganization/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    mockMvc
+        .perform(get("/api/ucsborganization/all").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+    mockMvc
+        .perform(
+            post("/api/ucsborganization/post?orgCode=FIR&orgTranslationShort=first-organ&orgTranslation=first-organization&inactive=false")
+                .with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(List.of(ucsbOrganizationRepository.findById("FIR").get()));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    assertNotEquals(etag, response.getResponse().getHeader("ETag"));
+  }
 }
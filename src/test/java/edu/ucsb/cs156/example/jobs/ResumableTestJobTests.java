@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.jobs;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+public class ResumableTestJobTests {
+
+  private final JobContext ctx = mock(JobContext.class);
+
+  @Test
+  public void a_new_job_runs_every_step_and_records_a_checkpoint_after_each() throws Exception {
+
+    // arrange
+    ResumableTestJob job = ResumableTestJob.builder().steps(2).sleepMs(0).build();
+
+    // act
+    job.accept(ctx);
+
+    // assert
+    InOrder steps = inOrder(ctx);
+    steps.verify(ctx).checkCancelled();
+    steps.verify(ctx).log("Step 1 of 2 done");
+    steps.verify(ctx).checkpoint("1");
+    steps.verify(ctx).progress(1, 2);
+    steps.verify(ctx).checkCancelled();
+    steps.verify(ctx).log("Step 2 of 2 done");
+    steps.verify(ctx).checkpoint("2");
+    steps.verify(ctx).progress(2, 2);
+  }
+
+  @Test
+  public void a_resumed_job_carries_on_from_the_step_after_its_checkpoint() throws Exception {
+
+    // arrange
+    when(ctx.getCheckpoint()).thenReturn("2");
+    ResumableTestJob job = ResumableTestJob.builder().steps(3).sleepMs(0).build();
+
+    // act
+    job.accept(ctx);
+
+    // assert
+    verify(ctx, times(1)).log(anyString());
+    verify(ctx).log("Step 3 of 3 done");
+    verify(ctx).checkpoint("3");
+    verify(ctx, times(1)).progress(anyLong(), anyLong());
+  }
+}
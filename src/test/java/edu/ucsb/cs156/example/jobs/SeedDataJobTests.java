@@ -0,0 +1,248 @@
+package edu.ucsb.cs156.example.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class SeedDataJobTests {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final PlatformTransactionManager transactionManager =
+      mock(PlatformTransactionManager.class);
+  private final JobContext ctx = mock(JobContext.class);
+  private final TableVersions tableVersions = mock(TableVersions.class);
+
+  private SeedDataJob job(Map<SeedTable, Integer> rowCounts, int batchSize) {
+    return SeedDataJob.builder()
+        .jdbcTemplate(jdbcTemplate)
+        .transactionTemplate(new TransactionTemplate(transactionManager))
+        .tableVersions(tableVersions)
+        .rowCounts(rowCounts)
+        .seed(42)
+        .batchSize(batchSize)
+        .build();
+  }
+
+  @Test
+  public void inserts_rows_in_batches_after_the_existing_rows() throws Exception {
+
+    // arrange
+    when(jdbcTemplate.queryForObject("select count(*) from restaurants", Long.class))
+        .thenReturn(3L);
+    when(jdbcTemplate.queryForObject("select nextval('restaurants_seq')", Long.class))
+        .thenReturn(100L);
+    SeedDataJob seedDataJob = job(Map.of(SeedTable.RESTAURANTS, 5), 2);
+
+    // act
+    seedDataJob.accept(ctx);
+
+    // assert
+    ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(3))
+        .batchUpdate(
+            eq("insert into restaurants (id, name, description) values (?, ?, ?)"),
+            batches.capture());
+    assertEquals(List.of(2, 2, 1), batches.getAllValues().stream().map(List::size).toList());
+    Object[] first = batches.getAllValues().get(0).get(0);
+    assertEquals(51L, first[0]);
+    assertArrayEquals(
+        SeedTable.RESTAURANTS.row(new SyntheticData(42, 3), 3),
+        Arrays.copyOfRange(first, 1, first.length));
+    Object[] last = batches.getAllValues().get(2).get(0);
+    assertEquals(55L, last[0]);
+    assertArrayEquals(
+        SeedTable.RESTAURANTS.row(new SyntheticData(42, 7), 7),
+        Arrays.copyOfRange(last, 1, last.length));
+
+    // one transaction per batch, which also bumps the table's version
+    verify(transactionManager, times(3)).commit(any());
+    verify(tableVersions, times(3)).bump(Restaurant.class);
+
+    InOrder logs = inOrder(ctx);
+    logs.verify(ctx).log("Seeding 1 tables with seed 42");
+    logs.verify(ctx).log("restaurants: inserting 5 rows from row 3");
+    logs.verify(ctx).log(argThat(line -> line.matches("restaurants: 2/5 rows \\(\\d+ rows/s\\)")));
+    logs.verify(ctx).log(argThat(line -> line.matches("restaurants: 4/5 rows \\(\\d+ rows/s\\)")));
+    logs.verify(ctx).log(argThat(line -> line.matches("restaurants: 5/5 rows \\(\\d+ rows/s\\)")));
+    logs.verify(ctx).log("Seeding complete");
+
+    InOrder progress = inOrder(ctx);
+    progress.verify(ctx).progress(2, 5);
+    progress.verify(ctx).progress(4, 5);
+    progress.verify(ctx).progress(5, 5);
+
+    InOrder checkpoints = inOrder(ctx);
+    checkpoints.verify(ctx).checkpoint("RESTAURANTS:2");
+    checkpoints.verify(ctx).checkpoint("RESTAURANTS:4");
+    checkpoints.verify(ctx).checkpoint("RESTAURANTS:5");
+  }
+
+  @Test
+  public void a_resumed_job_skips_the_tables_and_rows_before_its_checkpoint() throws Exception {
+
+    // arrange
+    Map<SeedTable, Integer> rowCounts = new LinkedHashMap<>();
+    rowCounts.put(SeedTable.UCSB_ORGANIZATIONS, 3);
+    rowCounts.put(SeedTable.RESTAURANTS, 10);
+    when(ctx.getCheckpoint()).thenReturn("RESTAURANTS:4");
+    // 3 rows from before the job, and the 4 it inserted before it was interrupted
+    when(jdbcTemplate.queryForObject("select count(*) from restaurants", Long.class))
+        .thenReturn(7L);
+    when(jdbcTemplate.queryForObject("select nextval('restaurants_seq')", Long.class))
+        .thenReturn(50L);
+    SeedDataJob seedDataJob = job(rowCounts, 4);
+
+    // act
+    seedDataJob.accept(ctx);
+
+    // assert
+    verify(jdbcTemplate, never())
+        .queryForObject("select count(*) from ucsborganization", Long.class);
+    ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+    assertEquals(List.of(4, 2), batches.getAllValues().stream().map(List::size).toList());
+    Object[] first = batches.getAllValues().get(0).get(0);
+    assertArrayEquals(
+        SeedTable.RESTAURANTS.row(new SyntheticData(42, 7), 7),
+        Arrays.copyOfRange(first, 1, first.length));
+
+    InOrder resumed = inOrder(ctx);
+    resumed.verify(ctx).log("restaurants: resuming after 4 of 10 rows");
+    resumed.verify(ctx).checkpoint("RESTAURANTS:8");
+    resumed.verify(ctx).progress(11, 13);
+    resumed.verify(ctx).checkpoint("RESTAURANTS:10");
+    resumed.verify(ctx).progress(13, 13);
+    resumed.verify(ctx).log("Seeding complete");
+  }
+
+  @Test
+  public void a_cancelled_job_stops_between_batches() throws Exception {
+
+    // arrange
+    when(jdbcTemplate.queryForObject("select nextval('restaurants_seq')", Long.class))
+        .thenReturn(50L);
+    doNothing().doThrow(new JobCancelledException(1)).when(ctx).checkCancelled();
+    SeedDataJob seedDataJob = job(Map.of(SeedTable.RESTAURANTS, 5), 2);
+
+    // act
+    assertThrows(JobCancelledException.class, () -> seedDataJob.accept(ctx));
+
+    // assert
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    verify(transactionManager, times(1)).commit(any());
+    verify(tableVersions, times(1)).bump(Restaurant.class);
+    verify(ctx, never()).log("Seeding complete");
+  }
+
+  @Test
+  public void progress_is_logged_every_ten_percent() throws Exception {
+
+    // arrange
+    when(jdbcTemplate.queryForObject("select count(*) from ucsbdates", Long.class)).thenReturn(0L);
+    when(jdbcTemplate.queryForObject("select nextval('ucsbdates_seq')", Long.class))
+        .thenReturn(50L);
+    SeedDataJob seedDataJob = job(Map.of(SeedTable.UCSB_DATES, 1000), 10);
+
+    // act
+    seedDataJob.accept(ctx);
+
+    // assert
+    verify(jdbcTemplate, times(100)).batchUpdate(anyString(), anyList());
+    verify(ctx, times(10)).log(argThat(line -> line.matches("ucsbdates: \\d+0/1000 rows .*")));
+  }
+
+  @Test
+  public void fills_each_table_in_turn_and_treats_a_missing_count_as_empty() throws Exception {
+
+    // arrange
+    Map<SeedTable, Integer> rowCounts = new LinkedHashMap<>();
+    rowCounts.put(SeedTable.UCSB_ORGANIZATIONS, 0);
+    rowCounts.put(SeedTable.ARTICLES, 1);
+    when(jdbcTemplate.queryForObject("select nextval('articles_seq')", Long.class)).thenReturn(50L);
+    SeedDataJob seedDataJob = job(rowCounts, 1000);
+
+    // act
+    seedDataJob.accept(ctx);
+
+    // assert
+    InOrder logs = inOrder(ctx);
+    logs.verify(ctx).log("Seeding 2 tables with seed 42");
+    logs.verify(ctx).log("ucsborganization: inserting 0 rows from row 0");
+    logs.verify(ctx).log("articles: inserting 1 rows from row 0");
+    logs.verify(ctx).log(argThat(line -> line.startsWith("articles: 1/1 rows")));
+    logs.verify(ctx).log("Seeding complete");
+    verify(ctx, times(1)).progress(1, 1);
+    verify(jdbcTemplate, never())
+        .batchUpdate(argThat(sql -> sql.contains("ucsborganization")), anyList());
+    verify(jdbcTemplate, times(1)).batchUpdate(argThat(sql -> sql.contains("articles")), anyList());
+  }
+
+  @Test
+  public void a_table_keyed_by_row_number_is_numbered_on_from_its_highest_seeded_key()
+      throws Exception {
+
+    // arrange
+    when(jdbcTemplate.queryForObject(SeedTable.UCSB_ORGANIZATIONS.nextRowSql(), Long.class))
+        .thenReturn(5L);
+    SeedDataJob seedDataJob = job(Map.of(SeedTable.UCSB_ORGANIZATIONS, 2), 10);
+
+    // act
+    seedDataJob.accept(ctx);
+
+    // assert
+    ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batches.capture());
+    assertEquals(List.of("ORG5", "ORG6"), batches.getValue().stream().map(row -> row[0]).toList());
+    verify(ctx).log("ucsborganization: inserting 2 rows from row 5");
+  }
+
+  @Test
+  public void ids_are_taken_from_the_sequence_a_block_at_a_time() throws Exception {
+
+    // arrange
+    when(jdbcTemplate.queryForObject("select nextval('restaurants_seq')", Long.class))
+        .thenReturn(50L, 100L, 500L);
+    SeedDataJob seedDataJob = job(Map.of(SeedTable.RESTAURANTS, 120), 100);
+
+    // act
+    seedDataJob.accept(ctx);
+
+    // assert
+    verify(jdbcTemplate, times(3)).queryForObject("select nextval('restaurants_seq')", Long.class);
+    ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+    List<Object> ids =
+        batches.getAllValues().stream().flatMap(List::stream).map(row -> row[0]).toList();
+    assertEquals(1L, ids.get(0));
+    assertEquals(100L, ids.get(99));
+    assertEquals(451L, ids.get(100));
+    assertEquals(470L, ids.get(119));
+  }
+}
@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class SeedTableDatabaseTests {
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockitoBean WiremockService wiremockService;
+
+  private long nextRow(SeedTable table) {
+    return jdbcTemplate.queryForObject(table.nextRowSql(), Long.class);
+  }
+
+  private void insertDiningCommons(String... codes) {
+    for (String code : codes) {
+      jdbcTemplate.update(
+          "INSERT INTO ucsbdiningcommons (code, name, has_sack_meal, has_take_out_meal,"
+              + " has_dining_cam, latitude, longitude) VALUES (?, 'Commons', true, true, true, 0, 0)",
+          code);
+    }
+  }
+
+  @Test
+  public void a_keyed_table_without_seeded_keys_starts_at_row_0() {
+
+    // arrange
+    insertDiningCommons("ortega", "dc-", "dc-north");
+
+    // act
+    long next = nextRow(SeedTable.UCSB_DINING_COMMONS);
+
+    // assert
+    assertEquals(0, next);
+  }
+
+  @Test
+  public void a_keyed_table_is_numbered_on_from_its_highest_seeded_key_after_deletes() {
+
+    // arrange
+    insertDiningCommons("dc-0", "dc-1", "dc-2", "dc-10", "carrillo");
+    jdbcTemplate.update("DELETE FROM ucsbdiningcommons WHERE code IN ('dc-0', 'dc-2')");
+    jdbcTemplate.update(
+        "INSERT INTO ucsborganization (org_code, org_translation_short, org_translation, inactive)"
+            + " VALUES ('ORG7', 'Org', 'Organization', false),"
+            + " ('ORGANIC', 'Organic', 'Organic Club', false)");
+
+    // act
+    long nextDiningCommons = nextRow(SeedTable.UCSB_DINING_COMMONS);
+    long nextOrganization = nextRow(SeedTable.UCSB_ORGANIZATIONS);
+
+    // assert
+    assertEquals(11, nextDiningCommons);
+    assertEquals(8, nextOrganization);
+  }
+
+  @Test
+  public void a_table_with_generated_ids_is_numbered_on_from_its_row_count() {
+
+    // arrange
+    jdbcTemplate.update(
+        "INSERT INTO restaurants (id, name, description) VALUES (1000, 'Chipotle', 'Mexican'),"
+            + " (1001, 'Taco Bell', 'Tacos')");
+
+    // act
+    long next = nextRow(SeedTable.RESTAURANTS);
+
+    // assert
+    assertEquals(2, next);
+  }
+}
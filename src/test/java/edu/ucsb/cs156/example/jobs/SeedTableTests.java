@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import jakarta.persistence.Entity;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class SeedTableTests {
+
+  @Test
+  public void insertSql_has_a_parameter_for_each_column() {
+    assertEquals(
+        "insert into restaurants (id, name, description) values (?, ?, ?)",
+        SeedTable.RESTAURANTS.insertSql());
+    assertEquals(
+        "insert into ucsborganization (org_code, org_translation_short, org_translation, inactive)"
+            + " values (?, ?, ?, ?)",
+        SeedTable.UCSB_ORGANIZATIONS.insertSql());
+  }
+
+  @Test
+  public void every_table_holds_an_entity() {
+    for (SeedTable table : SeedTable.values()) {
+      assertTrue(
+          table.getEntityType().isAnnotationPresent(Entity.class), table.getEntityType().getName());
+    }
+    assertEquals(Restaurant.class, SeedTable.RESTAURANTS.getEntityType());
+  }
+
+  @Test
+  public void every_table_generates_one_value_per_column() {
+    for (SeedTable table : SeedTable.values()) {
+      long parameters = table.insertSql().chars().filter(c -> c == '?').count();
+      long columns = table.getSequenceName() == null ? parameters : parameters - 1;
+      for (long n = 0; n < 100; n++) {
+        Object[] row = table.row(new SyntheticData(42, n), n);
+        assertEquals(columns, row.length, table.name());
+        assertFalse(Arrays.asList(row).contains(null), table.name());
+      }
+    }
+  }
+
+  @Test
+  public void rows_depend_only_on_the_seed_and_row_number() {
+    for (SeedTable table : SeedTable.values()) {
+      assertArrayEquals(
+          table.row(new SyntheticData(42, 7), 7), table.row(new SyntheticData(42, 7), 7));
+      assertFalse(
+          Arrays.equals(
+              table.row(new SyntheticData(42, 7), 7), table.row(new SyntheticData(43, 7), 7)),
+          table.name());
+    }
+  }
+
+  @Test
+  public void keys_that_are_not_generated_are_made_from_the_row_number() {
+    assertEquals("dc-7", SeedTable.UCSB_DINING_COMMONS.row(new SyntheticData(1, 7), 7)[0]);
+    assertEquals("ORG7", SeedTable.UCSB_ORGANIZATIONS.row(new SyntheticData(1, 7), 7)[0]);
+  }
+
+  @Test
+  public void recommendation_requests_are_needed_after_they_are_requested() {
+    for (long n = 0; n < 100; n++) {
+      Object[] row = SeedTable.RECOMMENDATION_REQUESTS.row(new SyntheticData(42, n), n);
+      LocalDateTime requested = (LocalDateTime) row[3];
+      LocalDateTime needed = (LocalDateTime) row[4];
+      assertTrue(needed.isAfter(requested));
+    }
+  }
+
+  @Test
+  public void only_tables_with_generated_ids_have_a_sequence() {
+    assertEquals("restaurants_seq", SeedTable.RESTAURANTS.getSequenceName());
+    assertNull(SeedTable.UCSB_DINING_COMMONS.getSequenceName());
+    assertNull(SeedTable.UCSB_ORGANIZATIONS.getSequenceName());
+  }
+
+  @Test
+  public void getTableName_returns_the_table_name() {
+    assertEquals(
+        "ucsbdining_commons_menu_item", SeedTable.UCSB_DINING_COMMONS_MENU_ITEMS.getTableName());
+  }
+}
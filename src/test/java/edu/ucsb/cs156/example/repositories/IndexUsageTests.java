@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Checks, with EXPLAIN, that the lookups and filters on columns other than the primary keys use the
+ * indexes the Liquibase changesets create, rather than scanning the whole table.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+public class IndexUsageTests {
+
+  @Autowired TestEntityManager testEntityManager;
+
+  @MockitoBean WiremockService wiremockService;
+
+  /*
+   * The plan of a query. On Postgres, sequential scans are turned off for the transaction first,
+   * so that the plan shows whether an index can be used at all, rather than whether it is cheaper
+   * than a scan of the few rows in a test database.
+   */
+  private String plan(String sql) {
+    EntityManager entityManager = testEntityManager.getEntityManager();
+    String database =
+        entityManager
+            .unwrap(Session.class)
+            .doReturningWork(connection -> connection.getMetaData().getDatabaseProductName());
+    if (database.equals("PostgreSQL")) {
+      entityManager.createNativeQuery("SET LOCAL enable_seqscan = off").executeUpdate();
+    }
+    List<?> rows = entityManager.createNativeQuery("EXPLAIN " + sql).getResultList();
+    return rows.stream().map(Object::toString).collect(Collectors.joining("\n"));
+  }
+
+  private void assertUsesIndex(String indexName, String sql) {
+    String plan = plan(sql);
+    assertTrue(plan.toUpperCase(Locale.ROOT).contains(indexName), plan);
+    assertFalse(plan.contains("tableScan") || plan.contains("Seq Scan"), plan);
+  }
+
+  @Test
+  public void users_are_looked_up_by_email_with_an_index() {
+    assertUsesIndex("USERS_EMAIL_IDX", "SELECT * FROM users WHERE email = 'cgaucho@ucsb.edu'");
+  }
+
+  @Test
+  public void dates_are_looked_up_by_quarter_with_an_index() {
+    assertUsesIndex(
+        "UCSBDATES_QUARTERYYYYQ_IDX", "SELECT * FROM ucsbdates WHERE quarteryyyyq = '20241'");
+  }
+
+  @Test
+  public void menu_item_reviews_are_looked_up_by_item_with_an_index() {
+    assertUsesIndex("MENUITEMREVIEW_ITEM_ID_IDX", "SELECT * FROM menuitemreview WHERE item_id = 1");
+  }
+
+  @Test
+  public void help_requests_are_filtered_by_solved_with_an_index() {
+    assertUsesIndex("HELPREQUEST_SOLVED_IDX", "SELECT * FROM helprequest WHERE solved = FALSE");
+  }
+
+  @Test
+  public void recommendation_requests_are_filtered_by_date_needed_with_an_index() {
+    assertUsesIndex(
+        "RECOMMENDATIONREQUEST_DATE_NEEDED_IDX",
+        "SELECT * FROM recommendationrequest WHERE date_needed < TIMESTAMP '2025-01-01 00:00:00'");
+  }
+}
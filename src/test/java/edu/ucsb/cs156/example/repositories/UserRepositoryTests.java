@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class UserRepositoryTests {
+
+  @Autowired UserRepository userRepository;
+
+  @MockitoSpyBean JdbcTemplate jdbcTemplate;
+
+  @MockitoBean WiremockService wiremockService;
+
+  private User user(String fullName, boolean admin) {
+    return User.builder()
+        .email("cgaucho@ucsb.edu")
+        .googleSub("115856948234298493496")
+        .pictureUrl("https://example.org/cgaucho.jpg")
+        .fullName(fullName)
+        .givenName("Chris")
+        .familyName("Gaucho")
+        .emailVerified(true)
+        .locale("en")
+        .hostedDomain("ucsb.edu")
+        .admin(admin)
+        .build();
+  }
+
+  @Test
+  public void upsert_inserts_a_user_who_is_not_there() {
+
+    // act
+    User stored = userRepository.upsert(user("Chris Gaucho", false));
+
+    // assert
+    User expected = user("Chris Gaucho", false);
+    expected.setId(stored.getId());
+    assertEquals(expected, stored);
+    assertEquals(stored, userRepository.findByEmail("cgaucho@ucsb.edu").get());
+  }
+
+  @Test
+  public void upsert_refreshes_a_user_who_is_there_keeping_their_id_and_admin_flag() {
+
+    // arrange
+    User first = userRepository.upsert(user("Chris Gaucho", true));
+
+    // act
+    User second = userRepository.upsert(user("Christopher Gaucho", false));
+
+    // assert
+    assertEquals(first.getId(), second.getId());
+    assertEquals("Christopher Gaucho", second.getFullName());
+    assertTrue(second.getAdmin());
+    assertEquals(1, userRepository.count());
+  }
+
+  @Test
+  public void upsert_makes_a_user_who_is_there_an_admin() {
+
+    // arrange
+    userRepository.upsert(user("Chris Gaucho", false));
+
+    // act
+    User stored = userRepository.upsert(user("Chris Gaucho", true));
+
+    // assert
+    assertTrue(stored.getAdmin());
+    assertTrue(userRepository.findByEmail("cgaucho@ucsb.edu").get().getAdmin());
+  }
+
+  @Test
+  public void upsert_runs_again_when_a_concurrent_login_has_inserted_the_same_email() {
+
+    // arrange
+    userRepository.upsert(user("Chris Gaucho", false));
+    doThrow(new DuplicateKeyException("USERS_EMAIL_IDX"))
+        .doCallRealMethod()
+        .when(jdbcTemplate)
+        .query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+
+    // act
+    User stored = userRepository.upsert(user("Christopher Gaucho", false));
+
+    // assert
+    assertEquals("Christopher Gaucho", stored.getFullName());
+    assertFalse(stored.getAdmin());
+    verify(jdbcTemplate, times(3))
+        .query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+  }
+
+  @Test
+  public void upsertSql_uses_insert_on_conflict_on_postgres_and_merge_otherwise() {
+    assertEquals(
+        UserRepositoryCustomImpl.POSTGRES_SQL, UserRepositoryCustomImpl.upsertSql("PostgreSQL"));
+    assertEquals(UserRepositoryCustomImpl.H2_SQL, UserRepositoryCustomImpl.upsertSql("H2"));
+  }
+}
@@ -1,21 +1,52 @@
 package edu.ucsb.cs156.example.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.models.JobLogTail;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobExecutor;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreams;
+import edu.ucsb.cs156.example.services.jobs.JobLogSubscription;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobExecutor jobExecutor;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobLogStreams jobLogStreams;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -30,6 +61,7 @@ public class JobLogsServiceTests {
     Job job = Job.builder().build();
     job.setLog("This is a job log");
     when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId)).thenReturn(List.of());
 
     // Act
     String result = jobService.getJobLogs(jobId);
@@ -45,6 +77,7 @@ public class JobLogsServiceTests {
     Job job = Job.builder().build();
     job.setLog(null);
     when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId)).thenReturn(List.of());
 
     // Act
     String result = jobService.getJobLogs(jobId);
@@ -53,6 +86,25 @@ public class JobLogsServiceTests {
     assertEquals("", result);
   }
 
+  @Test
+  void test_getJobLogs_with_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().id(jobId).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(0).text("first line").build(),
+                JobLogLine.builder().jobId(jobId).seq(1).text("second line").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("first line\nsecond line", result);
+  }
+
   @Test
   void test_getJobLogs_job_not_found() {
     // Arrange
@@ -62,4 +114,447 @@ public class JobLogsServiceTests {
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  @Test
+  void test_runJob_success_stores_log_lines_and_marks_complete() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(5L).status("running").build();
+
+    // Act
+    jobService.runJob(
+        job,
+        ctx -> {
+          ctx.log("line one");
+          jobService.flushStaleJobLogs();
+          ctx.log("line two");
+        });
+
+    // Assert
+    assertEquals("complete", job.getStatus());
+    assertEquals(List.of("line one", "line two"), savedLogLines(1));
+    verify(jobRepository, times(2)).save(job);
+    verify(jobLogStreams, times(1)).publish(5L, 0L, "line one");
+    verify(jobLogStreams, times(1)).publish(5L, 1L, "line two");
+    verify(jobLogStreams, times(1)).complete(5L, "complete");
+  }
+
+  @Test
+  void test_runJob_failure_logs_message_and_marks_error() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(6L).status("running").build();
+
+    // Act
+    jobService.runJob(
+        job,
+        ctx -> {
+          ctx.log("about to fail");
+          throw new Exception("Fail!");
+        });
+
+    // Assert
+    assertEquals("error", job.getStatus());
+    assertEquals(List.of("about to fail", "Fail!"), savedLogLines(1));
+    verify(jobRepository, times(2)).save(job);
+    verify(jobLogStreams, times(1)).complete(6L, "error");
+  }
+
+  @Test
+  void test_getJobLogs_flushes_lines_of_running_job() throws Exception {
+    // Arrange
+    Long jobId = 7L;
+    Job job = Job.builder().id(jobId).status("running").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId))
+        .thenReturn(List.of(JobLogLine.builder().jobId(jobId).seq(0).text("working").build()));
+
+    // Act
+    jobService.runJob(
+        job,
+        ctx -> {
+          ctx.log("working");
+          assertEquals("working", jobService.getJobLogs(jobId));
+          assertEquals(List.of("working"), savedLogLines(1));
+        });
+
+    // Assert
+    assertEquals(List.of("working"), savedLogLines(1));
+  }
+
+  @Test
+  void test_runAsJob_submits_queued_job_to_executor() {
+    // Act
+    Job job = jobService.runAsJob(ctx -> {});
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    verify(jobRepository, times(1)).save(job);
+    verify(jobExecutor, times(1)).submit(any(Runnable.class));
+  }
+
+  @Test
+  void test_runAsJob_marks_job_rejected_when_executor_is_full() {
+    // Arrange
+    doThrow(new JobRejectedException(4, 100)).when(jobExecutor).submit(any(Runnable.class));
+    ArgumentCaptor<Job> captor = ArgumentCaptor.forClass(Job.class);
+
+    // Act & Assert
+    assertThrows(JobRejectedException.class, () -> jobService.runAsJob(ctx -> {}));
+    verify(jobRepository, times(2)).save(captor.capture());
+    assertEquals("rejected", captor.getValue().getStatus());
+    verify(jobLogStreams, times(1)).complete(captor.getValue().getId(), "rejected");
+  }
+
+  @Test
+  void test_getJobLogTail_returns_lines_from_cursor() {
+    // Arrange
+    Long jobId = 8L;
+    Job job = Job.builder().id(jobId).status("running").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(jobId, 2L))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(2).text("third").build(),
+                JobLogLine.builder().jobId(jobId).seq(3).text("fourth").build()));
+
+    // Act
+    JobLogTail tail = jobService.getJobLogTail(jobId, 2);
+
+    // Assert
+    JobLogTail expected =
+        JobLogTail.builder()
+            .jobId(jobId)
+            .status("running")
+            .fromLine(2)
+            .nextLine(4)
+            .lines(List.of("third", "fourth"))
+            .build();
+    assertEquals(expected, tail);
+  }
+
+  @Test
+  void test_getJobLogTail_no_new_lines_keeps_cursor() {
+    // Arrange
+    Long jobId = 9L;
+    Job job = Job.builder().id(jobId).status("running").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(jobId, 0L))
+        .thenReturn(List.of());
+
+    // Act
+    JobLogTail tail = jobService.getJobLogTail(jobId, -5);
+
+    // Assert
+    assertEquals(0L, tail.getFromLine());
+    assertEquals(0L, tail.getNextLine());
+    assertEquals(List.of(), tail.getLines());
+  }
+
+  @Test
+  void test_getJobLogTail_splits_legacy_log() {
+    // Arrange
+    Long jobId = 10L;
+    Job job = Job.builder().id(jobId).status("complete").log("a\nb\nc").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            eq(jobId), anyLong()))
+        .thenReturn(List.of());
+
+    // Act
+    JobLogTail fromOne = jobService.getJobLogTail(jobId, 1);
+    JobLogTail pastEnd = jobService.getJobLogTail(jobId, 7);
+
+    // Assert
+    assertEquals(List.of("b", "c"), fromOne.getLines());
+    assertEquals(3L, fromOne.getNextLine());
+    assertEquals(List.of(), pastEnd.getLines());
+    assertEquals(7L, pastEnd.getNextLine());
+  }
+
+  @Test
+  void test_getJobLogs_decompresses_compacted_log() throws Exception {
+    // Arrange
+    Long jobId = 13L;
+    Job job = Job.builder().id(jobId).status("complete").logGz(gzip("first\nsecond")).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(jobId)).thenReturn(List.of());
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("first\nsecond", result);
+  }
+
+  @Test
+  void test_getJobLogTail_splits_compacted_log() throws Exception {
+    // Arrange
+    Long jobId = 14L;
+    Job job = Job.builder().id(jobId).status("complete").logGz(gzip("a\nb\nc")).build();
+    Job empty = Job.builder().id(15L).status("rejected").logGz(new byte[0]).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobRepository.findById(15L)).thenReturn(Optional.of(empty));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            anyLong(), anyLong()))
+        .thenReturn(List.of());
+
+    // Act
+    JobLogTail fromOne = jobService.getJobLogTail(jobId, 1);
+    JobLogTail emptyTail = jobService.getJobLogTail(15L, 0);
+
+    // Assert
+    assertEquals(List.of("b", "c"), fromOne.getLines());
+    assertEquals(3L, fromOne.getNextLine());
+    assertEquals(List.of(), emptyTail.getLines());
+    assertEquals(0L, emptyTail.getNextLine());
+  }
+
+  private static byte[] gzip(String text) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  void test_getJobLogTail_job_not_found() {
+    // Arrange
+    when(jobRepository.findById(11L)).thenReturn(Optional.empty());
+
+    // Act & Assert
+    EntityNotFoundException e =
+        assertThrows(EntityNotFoundException.class, () -> jobService.getJobLogTail(11L, 0));
+    assertEquals("Job with id 11 not found", e.getMessage());
+  }
+
+  @Test
+  void test_streamJobLogs_of_finished_job_sends_backlog_and_closes() {
+    // Arrange
+    Long jobId = 12L;
+    Job job = Job.builder().id(jobId).status("complete").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(jobId, 1L))
+        .thenReturn(List.of(JobLogLine.builder().jobId(jobId).seq(1).text("done").build()));
+    ArgumentCaptor<JobLogSubscription> captor = ArgumentCaptor.forClass(JobLogSubscription.class);
+
+    // Act
+    SseEmitter emitter = jobService.streamJobLogs(jobId, 1);
+
+    // Assert
+    assertNotNull(emitter);
+    verify(jobLogStreams, times(1)).add(eq(jobId), captor.capture());
+    verify(jobLogStreams, times(1)).remove(jobId, captor.getValue());
+    assertTrue(captor.getValue().isFinished());
+    assertEquals(2L, captor.getValue().getNextSeq());
+  }
+
+  @Test
+  void test_streamJobLogs_of_running_job_stays_subscribed() {
+    // Arrange
+    Long jobId = 13L;
+    Job job = Job.builder().id(jobId).status("running").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(jobId, 0L))
+        .thenReturn(List.of());
+    ArgumentCaptor<JobLogSubscription> captor = ArgumentCaptor.forClass(JobLogSubscription.class);
+
+    // Act
+    jobService.streamJobLogs(jobId, 0);
+
+    // Assert
+    verify(jobLogStreams, times(1)).add(eq(jobId), captor.capture());
+    verify(jobLogStreams, never()).remove(anyLong(), any());
+    assertFalse(captor.getValue().isFinished());
+  }
+
+  @Test
+  void test_streamJobLogs_job_not_found_unsubscribes() {
+    // Arrange
+    when(jobRepository.findById(14L)).thenReturn(Optional.empty());
+    ArgumentCaptor<JobLogSubscription> captor = ArgumentCaptor.forClass(JobLogSubscription.class);
+
+    // Act & Assert
+    assertThrows(EntityNotFoundException.class, () -> jobService.streamJobLogs(14L, 0));
+    verify(jobLogStreams, times(1)).add(eq(14L), captor.capture());
+    verify(jobLogStreams, times(1)).remove(14L, captor.getValue());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_streamJobLogs_unsubscribes_when_emitter_closes() {
+    // Arrange
+    Long jobId = 15L;
+    Job job = Job.builder().id(jobId).status("running").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(jobId, 0L))
+        .thenReturn(List.of());
+
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+      // Act
+      SseEmitter emitter = jobService.streamJobLogs(jobId, 0);
+      ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+      ArgumentCaptor<Runnable> onTimeout = ArgumentCaptor.forClass(Runnable.class);
+      ArgumentCaptor<Consumer<Throwable>> onError = ArgumentCaptor.forClass(Consumer.class);
+      verify(emitter).onCompletion(onCompletion.capture());
+      verify(emitter).onTimeout(onTimeout.capture());
+      verify(emitter).onError(onError.capture());
+      onCompletion.getValue().run();
+      onTimeout.getValue().run();
+      onError.getValue().accept(new RuntimeException("broken pipe"));
+
+      // Assert
+      verify(jobLogStreams, times(3)).remove(eq(jobId), any(JobLogSubscription.class));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void test_runJob_does_not_start_a_job_cancelled_while_it_was_queued() {
+    // Arrange
+    Job job = Job.builder().id(8L).status("queued").build();
+    when(jobRepository.existsByIdAndCancelRequestedTrue(8L)).thenReturn(true);
+    AtomicBoolean ran = new AtomicBoolean();
+
+    // Act
+    jobService.runJob(job, ctx -> ran.set(true));
+
+    // Assert
+    assertFalse(ran.get());
+    assertEquals("cancelled", job.getStatus());
+    verify(jobRepository, times(1)).save(job);
+    verify(jobLogStreams, times(1)).complete(8L, "cancelled");
+  }
+
+  @Test
+  void test_cancelJob_interrupts_a_running_job_once_and_marks_it_cancelled() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+    when(jobRepository.findById(9L)).thenReturn(Optional.of(job));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean interruptedAfterwards = new AtomicBoolean(true);
+    Thread thread =
+        new Thread(
+            () -> {
+              jobService.runJob(
+                  job,
+                  ctx -> {
+                    started.countDown();
+                    try {
+                      Thread.sleep(60000);
+                    } catch (InterruptedException e) {
+                      // a job may tidy up before it stops
+                      release.await();
+                    }
+                    ctx.checkCancelled();
+                  });
+              interruptedAfterwards.set(Thread.currentThread().isInterrupted());
+            });
+    thread.start();
+    started.await();
+
+    // Act
+    Job cancelled = jobService.cancelJob(9L);
+    jobService.cancelJob(9L);
+    release.countDown();
+    thread.join(10000);
+
+    // Assert
+    assertEquals(job, cancelled);
+    verify(jobRepository, times(2)).requestCancel(9L);
+    assertEquals("cancelled", job.getStatus());
+    assertEquals(List.of("Job cancelled"), savedLogLines(1));
+    verify(jobLogStreams, times(1)).complete(9L, "cancelled");
+    assertFalse(interruptedAfterwards.get());
+  }
+
+  @Test
+  void test_cancelJob_of_a_queued_job_closes_its_log_streams() {
+    // Arrange
+    Job job = Job.builder().id(10L).status("cancelled").build();
+    when(jobRepository.findById(10L)).thenReturn(Optional.of(job));
+
+    // Act
+    Job cancelled = jobService.cancelJob(10L);
+
+    // Assert
+    assertEquals("cancelled", cancelled.getStatus());
+    verify(jobRepository, times(1)).requestCancel(10L);
+    verify(jobLogStreams, times(1)).complete(10L, "cancelled");
+  }
+
+  @Test
+  void test_cancelJob_of_a_finished_job_changes_nothing() {
+    // Arrange
+    Job job = Job.builder().id(11L).status("complete").build();
+    when(jobRepository.findById(11L)).thenReturn(Optional.of(job));
+
+    // Act
+    Job result = jobService.cancelJob(11L);
+
+    // Assert
+    assertEquals("complete", result.getStatus());
+    verify(jobLogStreams, never()).complete(anyLong(), any());
+  }
+
+  @Test
+  void test_cancelJob_job_not_found() {
+    // Arrange
+    when(jobRepository.findById(12L)).thenReturn(Optional.empty());
+
+    // Act & Assert
+    EntityNotFoundException e =
+        assertThrows(EntityNotFoundException.class, () -> jobService.cancelJob(12L));
+    assertEquals("Job with id 12 not found", e.getMessage());
+  }
+
+  @Test
+  void test_cancelRequestedJobs_cancels_jobs_cancelled_on_other_instances() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(13L).status("running").build();
+    when(jobRepository.findCancelRequestedIds(List.of(13L))).thenReturn(List.of(13L));
+    CountDownLatch started = new CountDownLatch(1);
+    Thread thread =
+        new Thread(
+            () ->
+                jobService.runJob(
+                    job,
+                    ctx -> {
+                      started.countDown();
+                      while (true) {
+                        ctx.checkCancelled();
+                        Thread.onSpinWait();
+                      }
+                    }));
+    thread.start();
+    started.await();
+
+    // Act
+    jobService.cancelRequestedJobs();
+    thread.join(10000);
+    jobService.cancelRequestedJobs();
+
+    // Assert
+    assertEquals("cancelled", job.getStatus());
+    verify(jobRepository, times(1)).findCancelRequestedIds(any());
+  }
+
+  @Test
+  void test_progress_of_a_running_job_is_saved() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(14L).status("running").build();
+
+    // Act
+    jobService.runJob(job, ctx -> ctx.progress(1, 4));
+
+    // Assert
+    assertEquals(25, job.getProgress());
+    verify(jobRepository, times(3)).save(job);
+  }
+
+  private List<String> savedLogLines(int invocations) {
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, times(invocations)).saveAll(captor.capture());
+    return captor.getAllValues().stream().flatMap(List::stream).map(JobLogLine::getText).toList();
+  }
 }
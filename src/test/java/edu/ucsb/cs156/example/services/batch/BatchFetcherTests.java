@@ -0,0 +1,138 @@
+package edu.ucsb.cs156.example.services.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(BatchFetcher.class)
+public class BatchFetcherTests {
+
+  @Autowired BatchFetcher batchFetcher;
+
+  @Autowired RestaurantRepository restaurantRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockitoBean WiremockService wiremockService;
+
+  private Restaurant restaurant(String name) {
+    return restaurantRepository.save(
+        Restaurant.builder().name(name).description("Restaurant " + name).build());
+  }
+
+  private UCSBOrganization organization(String orgCode) {
+    return ucsbOrganizationRepository.save(
+        UCSBOrganization.builder()
+            .orgCode(orgCode)
+            .orgTranslationShort("Org " + orgCode)
+            .orgTranslation("Organization " + orgCode)
+            .inactive(false)
+            .build());
+  }
+
+  @Test
+  public void fetch_returns_the_rows_in_the_order_asked_for() {
+
+    // arrange
+    Restaurant first = restaurant("A");
+    Restaurant second = restaurant("B");
+    Restaurant third = restaurant("C");
+
+    // act
+    BatchResult<Restaurant> result =
+        batchFetcher.fetch(
+            restaurantRepository, List.of(third.getId(), first.getId(), second.getId()));
+
+    // assert
+    BatchResult<Restaurant> expected =
+        BatchResult.<Restaurant>builder()
+            .content(List.of(third, first, second))
+            .missing(List.of())
+            .build();
+    assertEquals(expected, result);
+  }
+
+  @Test
+  public void fetch_reports_missing_ids_and_ignores_repeated_and_empty_ones() {
+
+    // arrange
+    UCSBOrganization zpr = organization("ZPR");
+    UCSBOrganization osli = organization("OSLI");
+
+    // act
+    BatchResult<UCSBOrganization> result =
+        batchFetcher.fetch(
+            ucsbOrganizationRepository, Arrays.asList("SKY", "OSLI", null, "ZPR", "OSLI", "KRC"));
+
+    // assert
+    BatchResult<UCSBOrganization> expected =
+        BatchResult.<UCSBOrganization>builder()
+            .content(List.of(osli, zpr))
+            .missing(List.of("SKY", "KRC"))
+            .build();
+    assertEquals(expected, result);
+  }
+
+  @Test
+  public void fetch_of_no_ids_returns_nothing() {
+
+    // act
+    BatchResult<Restaurant> result = batchFetcher.fetch(restaurantRepository, List.of());
+
+    // assert
+    assertEquals(BatchResult.builder().content(List.of()).missing(List.of()).build(), result);
+  }
+
+  @Test
+  public void at_most_max_ids_can_be_fetched_at_once() {
+
+    // arrange
+    List<Long> ids = new ArrayList<>();
+    for (long id = 1; id <= BatchFetcher.MAX_IDS + 1; id++) {
+      ids.add(id);
+    }
+
+    // act
+    InvalidRequestException e =
+        assertThrows(
+            InvalidRequestException.class, () -> batchFetcher.fetch(restaurantRepository, ids));
+
+    // assert
+    assertEquals("At most 100 ids can be fetched at once, not 101", e.getMessage());
+  }
+
+  @Test
+  public void repeated_ids_count_once_towards_the_limit() {
+
+    // arrange
+    Restaurant restaurant = restaurant("A");
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i <= BatchFetcher.MAX_IDS; i++) {
+      ids.add(restaurant.getId());
+    }
+
+    // act
+    BatchResult<Restaurant> result = batchFetcher.fetch(restaurantRepository, ids);
+
+    // assert
+    assertEquals(List.of(restaurant), result.getContent());
+  }
+}
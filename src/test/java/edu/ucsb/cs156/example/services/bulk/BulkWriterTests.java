@@ -0,0 +1,323 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.BulkResult;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({BulkWriter.class, TableVersions.class})
+public class BulkWriterTests {
+
+  @Autowired BulkWriter bulkWriter;
+
+  @Autowired RestaurantRepository restaurantRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired TableVersions tableVersions;
+
+  @MockitoBean WiremockService wiremockService;
+
+  private static Restaurant restaurant(String name) {
+    return Restaurant.builder().name(name).description("Restaurant " + name).build();
+  }
+
+  private static UCSBOrganization organization(String orgCode) {
+    return UCSBOrganization.builder()
+        .orgCode(orgCode)
+        .orgTranslationShort("Org " + orgCode)
+        .orgTranslation("Organization " + orgCode)
+        .inactive(false)
+        .build();
+  }
+
+  private static BulkRowResult row(int index, Object id, String error) {
+    return BulkRowResult.builder().index(index).id(id).error(error).build();
+  }
+
+  @Test
+  public void create_inserts_every_row_a_chunk_at_a_time() {
+
+    // arrange
+    List<Restaurant> rows = new ArrayList<>();
+    for (int i = 0; i < BulkWriter.CHUNK_SIZE + 1; i++) {
+      rows.add(restaurant("R" + i));
+    }
+
+    // act
+    ResponseEntity<BulkResult> response = bulkWriter.create(Restaurant.class, rows);
+
+    // assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(BulkWriter.CHUNK_SIZE + 1, response.getBody().getCount());
+    assertEquals(BulkWriter.CHUNK_SIZE + 1, restaurantRepository.count());
+    BulkRowResult last = response.getBody().getRows().get(BulkWriter.CHUNK_SIZE);
+    assertEquals(BulkWriter.CHUNK_SIZE, last.getIndex());
+    Restaurant saved = restaurantRepository.findById((Long) last.getId()).get();
+    assertEquals("R" + BulkWriter.CHUNK_SIZE, saved.getName());
+  }
+
+  @Test
+  public void create_of_no_rows_writes_nothing() {
+
+    // act
+    ResponseEntity<BulkResult> response = bulkWriter.create(Restaurant.class, List.of());
+
+    // assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(BulkResult.builder().count(0).rows(List.of()).build(), response.getBody());
+  }
+
+  @Test
+  public void create_rejects_generated_ids_and_missing_fields() {
+
+    // arrange
+    Restaurant withId = restaurant("B");
+    withId.setId(5L);
+    Restaurant missing = Restaurant.builder().build();
+
+    // act
+    ResponseEntity<BulkResult> response =
+        bulkWriter.create(Restaurant.class, List.of(restaurant("A"), withId, missing));
+
+    // assert
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    BulkResult expected =
+        BulkResult.builder()
+            .count(0)
+            .rows(
+                List.of(
+                    row(0, 0L, null),
+                    row(1, 5L, "id is assigned by the database"),
+                    row(2, 0L, "Missing description, name")))
+            .build();
+    assertEquals(expected, response.getBody());
+    assertEquals(0, restaurantRepository.count());
+  }
+
+  @Test
+  public void create_with_assigned_ids_inserts_the_rows() {
+
+    // act
+    ResponseEntity<BulkResult> response =
+        bulkWriter.create(
+            UCSBOrganization.class, List.of(organization("ZPR"), organization("SKY")));
+
+    // assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    BulkResult expected =
+        BulkResult.builder()
+            .count(2)
+            .rows(List.of(row(0, "ZPR", null), row(1, "SKY", null)))
+            .build();
+    assertEquals(expected, response.getBody());
+    assertEquals(organization("SKY"), ucsbOrganizationRepository.findById("SKY").get());
+  }
+
+  @Test
+  public void create_with_assigned_ids_rejects_missing_duplicate_and_existing_ids() {
+
+    // arrange
+    ucsbOrganizationRepository.save(organization("ZPR"));
+
+    // act
+    ResponseEntity<BulkResult> response =
+        bulkWriter.create(
+            UCSBOrganization.class,
+            List.of(
+                organization("SKY"), organization(null), organization("SKY"), organization("ZPR")));
+
+    // assert
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    BulkResult expected =
+        BulkResult.builder()
+            .count(0)
+            .rows(
+                List.of(
+                    row(0, "SKY", null),
+                    row(1, null, "orgCode is required"),
+                    row(2, "SKY", "Duplicate orgCode SKY"),
+                    row(3, "ZPR", "UCSBOrganization with id ZPR already exists")))
+            .build();
+    assertEquals(expected, response.getBody());
+    assertFalse(ucsbOrganizationRepository.findById("SKY").isPresent());
+  }
+
+  @Test
+  public void update_replaces_the_rows() {
+
+    // arrange
+    Restaurant first = restaurantRepository.save(restaurant("A"));
+    Restaurant second = restaurantRepository.save(restaurant("B"));
+    Restaurant newFirst = restaurant("C");
+    newFirst.setId(first.getId());
+    Restaurant newSecond = restaurant("D");
+    newSecond.setId(second.getId());
+
+    // act
+    ResponseEntity<BulkResult> response =
+        bulkWriter.update(Restaurant.class, List.of(newFirst, newSecond));
+
+    // assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    BulkResult expected =
+        BulkResult.builder()
+            .count(2)
+            .rows(List.of(row(0, first.getId(), null), row(1, second.getId(), null)))
+            .build();
+    assertEquals(expected, response.getBody());
+    assertEquals(newFirst, restaurantRepository.findById(first.getId()).get());
+    assertEquals(newSecond, restaurantRepository.findById(second.getId()).get());
+  }
+
+  @Test
+  public void update_rejects_missing_fields_and_missing_duplicate_and_unknown_ids() {
+
+    // arrange
+    Restaurant existing = restaurantRepository.save(restaurant("A"));
+    Restaurant valid = restaurant("B");
+    valid.setId(existing.getId());
+    Restaurant missing = Restaurant.builder().id(existing.getId()).name("C").build();
+    Restaurant noId = restaurant("D");
+    Restaurant duplicate = restaurant("E");
+    duplicate.setId(existing.getId());
+    Restaurant unknown = restaurant("F");
+    unknown.setId(existing.getId() + 1000);
+
+    // act
+    ResponseEntity<BulkResult> response =
+        bulkWriter.update(Restaurant.class, List.of(valid, missing, noId, duplicate, unknown));
+
+    // assert
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    BulkResult expected =
+        BulkResult.builder()
+            .count(0)
+            .rows(
+                List.of(
+                    row(0, existing.getId(), null),
+                    row(1, existing.getId(), "Missing description"),
+                    row(2, 0L, "id is required"),
+                    row(3, existing.getId(), "Duplicate id " + existing.getId()),
+                    row(
+                        4,
+                        existing.getId() + 1000,
+                        "Restaurant with id " + (existing.getId() + 1000) + " not found")))
+            .build();
+    assertEquals(expected, response.getBody());
+    assertEquals("A", restaurantRepository.findById(existing.getId()).get().getName());
+  }
+
+  @Test
+  public void delete_removes_the_rows() {
+
+    // arrange
+    ucsbOrganizationRepository.save(organization("ZPR"));
+    ucsbOrganizationRepository.save(organization("SKY"));
+    ucsbOrganizationRepository.save(organization("OSLI"));
+
+    // act
+    ResponseEntity<BulkResult> response =
+        bulkWriter.delete(UCSBOrganization.class, List.of("ZPR", "SKY"));
+
+    // assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    BulkResult expected =
+        BulkResult.builder()
+            .count(2)
+            .rows(List.of(row(0, "ZPR", null), row(1, "SKY", null)))
+            .build();
+    assertEquals(expected, response.getBody());
+    assertEquals(List.of(organization("OSLI")), ucsbOrganizationRepository.findAll());
+  }
+
+  @Test
+  public void delete_rejects_missing_duplicate_and_unknown_ids() {
+
+    // arrange
+    ucsbOrganizationRepository.save(organization("ZPR"));
+
+    // act
+    ResponseEntity<BulkResult> response =
+        bulkWriter.delete(UCSBOrganization.class, Arrays.asList("ZPR", null, "ZPR", "SKY"));
+
+    // assert
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    BulkResult expected =
+        BulkResult.builder()
+            .count(0)
+            .rows(
+                List.of(
+                    row(0, "ZPR", null),
+                    row(1, null, "orgCode is required"),
+                    row(2, "ZPR", "Duplicate orgCode ZPR"),
+                    row(3, "SKY", "UCSBOrganization with id SKY not found")))
+            .build();
+    assertEquals(expected, response.getBody());
+    assertEquals(1, ucsbOrganizationRepository.count());
+  }
+
+  @Test
+  public void at_most_max_rows_can_be_written_at_once() {
+
+    // arrange
+    List<Restaurant> rows = Collections.nCopies(BulkWriter.MAX_ROWS + 1, restaurant("A"));
+
+    // act
+    InvalidRequestException e =
+        assertThrows(
+            InvalidRequestException.class, () -> bulkWriter.create(Restaurant.class, rows));
+
+    // assert
+    assertEquals("At most 10000 rows can be written at once, not 10001", e.getMessage());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void committed_writes_bump_the_table_version_and_rejected_ones_do_not() {
+
+    // arrange
+    long before = tableVersions.version(Restaurant.class);
+
+    // act
+    bulkWriter.create(Restaurant.class, List.of(Restaurant.builder().build()));
+    long afterRejected = tableVersions.version(Restaurant.class);
+    ResponseEntity<BulkResult> created =
+        bulkWriter.create(Restaurant.class, List.of(restaurant("A"), restaurant("B")));
+    long afterCreate = tableVersions.version(Restaurant.class);
+    bulkWriter.delete(
+        Restaurant.class, created.getBody().getRows().stream().map(BulkRowResult::getId).toList());
+    long afterDelete = tableVersions.version(Restaurant.class);
+
+    // assert
+    assertEquals(before, afterRejected);
+    assertEquals(before + 1, afterCreate);
+    assertEquals(before + 2, afterDelete);
+    assertEquals(0, restaurantRepository.count());
+  }
+}
@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.services.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+public class NdjsonHttpMessageConverterTests {
+
+  private static final Type ORGANIZATIONS =
+      ResolvableType.forClassWithGenerics(List.class, UCSBOrganization.class).getType();
+
+  private NdjsonHttpMessageConverter converter;
+
+  @BeforeEach
+  public void setUp() {
+    converter = new NdjsonHttpMessageConverter();
+    converter.mapper = new ObjectMapper();
+  }
+
+  private static MockHttpInputMessage message(String body) {
+    return new MockHttpInputMessage(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void reads_one_row_per_line() throws Exception {
+
+    // arrange
+    String body =
+        """
+        {"orgCode":"ZPR","orgTranslationShort":"ZETA PHI RHO","orgTranslation":"ZETA PHI RHO"}
+        {"orgCode":"SKY","orgTranslationShort":"SKYDIVING CLUB","inactive":true}
+        """;
+
+    // act
+    List<?> rows = converter.read(ORGANIZATIONS, null, message(body));
+
+    // assert
+    List<UCSBOrganization> expected =
+        List.of(
+            UCSBOrganization.builder()
+                .orgCode("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO")
+                .build(),
+            UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB")
+                .inactive(true)
+                .build());
+    assertEquals(expected, rows);
+  }
+
+  @Test
+  public void an_empty_body_is_an_empty_list() throws Exception {
+    assertEquals(List.of(), converter.read(ORGANIZATIONS, null, message("")));
+  }
+
+  @Test
+  public void invalid_json_is_not_readable() {
+    HttpMessageNotReadableException e =
+        assertThrows(
+            HttpMessageNotReadableException.class,
+            () -> converter.read(ORGANIZATIONS, null, message("{\"orgCode\":")));
+    assertTrue(e.getMessage().startsWith("Invalid NDJSON: "), e.getMessage());
+  }
+
+  @Test
+  public void only_ndjson_lists_with_an_element_type_can_be_read() {
+    Type optional = ResolvableType.forClassWithGenerics(Optional.class, String.class).getType();
+
+    assertTrue(converter.canRead(ORGANIZATIONS, null, NdjsonHttpMessageConverter.NDJSON));
+    assertFalse(converter.canRead(ORGANIZATIONS, null, MediaType.APPLICATION_JSON));
+    assertFalse(converter.canRead(List.class, null, NdjsonHttpMessageConverter.NDJSON));
+    assertFalse(converter.canRead(optional, null, NdjsonHttpMessageConverter.NDJSON));
+  }
+
+  @Test
+  public void nothing_can_be_written() {
+    assertFalse(converter.canWrite(List.class, NdjsonHttpMessageConverter.NDJSON));
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> converter.writeInternal(List.of(), ORGANIZATIONS, new MockHttpOutputMessage()));
+  }
+
+  @Test
+  public void a_list_without_an_element_type_is_not_readable() {
+    HttpMessageNotReadableException e =
+        assertThrows(
+            HttpMessageNotReadableException.class,
+            () -> converter.readInternal(null, message("{}")));
+    assertEquals("NDJSON can only be read into a List with a known element type", e.getMessage());
+  }
+}
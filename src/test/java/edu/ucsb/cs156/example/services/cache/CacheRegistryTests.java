@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.ucsb.cs156.example.models.CacheStats;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class CacheRegistryTests {
+
+  @Test
+  public void cache_creates_a_cache_once_per_name() {
+
+    // arrange
+    CacheRegistry cacheRegistry = new CacheRegistry();
+
+    // act
+    Cache<String, String> first = cacheRegistry.cache("users", 10, Duration.ofSeconds(5));
+    Cache<String, String> second = cacheRegistry.cache("users", 20, Duration.ofSeconds(9));
+
+    // assert
+    assertSame(first, second);
+    assertEquals(10, cacheRegistry.getStats("users").get().getMaxSize());
+    assertEquals(5, cacheRegistry.getStats("users").get().getTtlSeconds());
+    assertSame(first, cacheRegistry.get("users").get());
+    assertTrue(cacheRegistry.get("unknown").isEmpty());
+    assertTrue(cacheRegistry.getStats("unknown").isEmpty());
+  }
+
+  @Test
+  public void entries_expire_after_the_ttl() {
+
+    // arrange
+    AtomicLong nanos = new AtomicLong();
+    CacheRegistry cacheRegistry = new CacheRegistry(nanos::get);
+    Cache<String, String> cache = cacheRegistry.cache("users", 10, Duration.ofSeconds(5));
+    cache.put("a", "apple");
+
+    // act
+    nanos.addAndGet(Duration.ofSeconds(4).toNanos());
+    String beforeTtl = cache.getIfPresent("a");
+    nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+    String afterTtl = cache.getIfPresent("a");
+
+    // assert
+    assertEquals("apple", beforeTtl);
+    assertNull(afterTtl);
+    CacheStats stats = cacheRegistry.getStats("users").get();
+    assertEquals(0, stats.getSize());
+    assertEquals(1, stats.getHits());
+    assertEquals(1, stats.getMisses());
+    assertEquals(0.5, stats.getHitRate());
+  }
+
+  @Test
+  public void getStats_reports_every_cache_ordered_by_name() {
+
+    // arrange
+    CacheRegistry cacheRegistry = new CacheRegistry();
+    cacheRegistry.cache("users", 10, Duration.ofSeconds(5)).put("a", "b");
+    cacheRegistry.cache("organizations", 5, Duration.ofSeconds(5));
+
+    // act
+    List<CacheStats> stats = cacheRegistry.getStats();
+
+    // assert
+    assertEquals(
+        List.of("organizations", "users"), stats.stream().map(CacheStats::getName).toList());
+    assertEquals(1, stats.get(1).getSize());
+    assertEquals(0.0, stats.get(1).getHitRate());
+  }
+
+  @Test
+  public void register_adds_a_cache_created_elsewhere() {
+
+    // arrange
+    CacheRegistry cacheRegistry = new CacheRegistry();
+    Cache<String, String> cache = Caffeine.newBuilder().recordStats().build();
+    cache.put("a", "apple");
+
+    // act
+    cacheRegistry.register("hibernate.ucsbdates", cache);
+
+    // assert
+    assertSame(cache, cacheRegistry.get("hibernate.ucsbdates").get());
+    CacheStats stats = cacheRegistry.getStats("hibernate.ucsbdates").get();
+    assertEquals(1, stats.getSize());
+    assertEquals(0, stats.getMaxSize());
+    assertEquals(0, stats.getTtlSeconds());
+  }
+}
@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import java.util.Set;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class SecondLevelCacheEvictionTests {
+
+  @SuppressWarnings("unchecked")
+  private static <T> EntityType<T> entity(Class<T> javaType) {
+    EntityType<T> entity = mock(EntityType.class);
+    when(entity.getJavaType()).thenReturn(javaType);
+    return entity;
+  }
+
+  @Test
+  public void a_new_version_of_a_cached_entity_evicts_its_region_and_the_query_results() {
+
+    // arrange
+    Cache cache = mock(Cache.class);
+    SessionFactory sessionFactory = mock(SessionFactory.class);
+    when(sessionFactory.getCache()).thenReturn(cache);
+    Set<EntityType<?>> entities = Set.of(entity(UCSBOrganization.class), entity(Restaurant.class));
+    Metamodel metamodel = mock(Metamodel.class);
+    when(metamodel.getEntities()).thenReturn(entities);
+    EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+    when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+    when(entityManagerFactory.getMetamodel()).thenReturn(metamodel);
+    TableVersions tableVersions = new TableVersions();
+    SecondLevelCacheEviction eviction = new SecondLevelCacheEviction();
+    ReflectionTestUtils.setField(eviction, "entityManagerFactory", entityManagerFactory);
+    ReflectionTestUtils.setField(eviction, "tableVersions", tableVersions);
+    eviction.addListeners();
+
+    // act
+    tableVersions.bump(Restaurant.class);
+    tableVersions.bump(UCSBOrganization.class);
+
+    // assert
+    verify(cache, never()).evictEntityData(Restaurant.class);
+    InOrder evictions = Mockito.inOrder(cache);
+    evictions.verify(cache).evictEntityData(UCSBOrganization.class);
+    evictions.verify(cache).evictQueryRegions();
+  }
+}
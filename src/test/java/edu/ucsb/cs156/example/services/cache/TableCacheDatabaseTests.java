@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"app.tables.cache.enabled=true"})
+@Import({TableCache.class, CacheRegistry.class, TableVersions.class})
+public class TableCacheDatabaseTests {
+
+  @Autowired TableCache tableCache;
+
+  @Autowired RestaurantRepository restaurantRepository;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockitoBean WiremockService wiremockService;
+
+  @Test
+  public void a_write_made_on_another_instance_is_seen_by_the_next_read() {
+
+    // arrange
+    restaurantRepository.save(Restaurant.builder().name("Chipotle").description("Mexican").build());
+    List<Restaurant> before = tableCache.findAll(Restaurant.class, restaurantRepository);
+    // another instance (or SeedDataJob) inserts a row and bumps the shared version
+    jdbcTemplate.update(
+        "INSERT INTO restaurants (id, name, description) VALUES (1000, 'Taco Bell', 'Tacos')");
+    TableVersions otherInstance = new TableVersions();
+    ReflectionTestUtils.setField(otherInstance, "jdbcTemplate", jdbcTemplate);
+    otherInstance.chooseBumpSql();
+    otherInstance.bump(Restaurant.class);
+
+    // act
+    List<Restaurant> after = tableCache.findAll(Restaurant.class, restaurantRepository);
+
+    // assert
+    assertEquals(List.of("Chipotle"), before.stream().map(Restaurant::getName).toList());
+    assertEquals(
+        List.of("Chipotle", "Taco Bell"), after.stream().map(Restaurant::getName).toList());
+  }
+}
@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.CacheStats;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {TableCache.class, CacheRegistry.class, TableVersions.class})
+@TestPropertySource(properties = {"app.tables.cache.maxSize=10"})
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class TableCacheTests {
+
+  @Autowired TableCache tableCache;
+
+  @Autowired CacheRegistry cacheRegistry;
+
+  @Autowired TableVersions tableVersions;
+
+  private final RestaurantRepository restaurantRepository = mock(RestaurantRepository.class);
+
+  private final Restaurant restaurant =
+      Restaurant.builder().id(1L).name("Taco Bell").description("Mexican").build();
+
+  @Test
+  public void findAll_reads_the_table_once_until_it_is_written_to() {
+
+    // arrange
+    List<Restaurant> restaurants = new ArrayList<>(List.of(restaurant));
+    when(restaurantRepository.findAll()).thenReturn(restaurants);
+
+    // act
+    List<Restaurant> first = tableCache.findAll(Restaurant.class, restaurantRepository);
+    List<Restaurant> second = tableCache.findAll(Restaurant.class, restaurantRepository);
+    tableVersions.bump(Restaurant.class);
+    List<Restaurant> afterWrite = tableCache.findAll(Restaurant.class, restaurantRepository);
+
+    // assert
+    assertEquals(restaurants, first);
+    assertEquals(restaurants, second);
+    assertEquals(restaurants, afterWrite);
+    verify(restaurantRepository, times(2)).findAll();
+    CacheStats stats = cacheRegistry.getStats("Restaurant").get();
+    assertEquals(10, stats.getMaxSize());
+    assertEquals(600, stats.getTtlSeconds());
+    assertEquals(1, stats.getHits());
+    assertEquals(2, stats.getMisses());
+  }
+
+  @Test
+  public void findById_caches_rows_and_ids_that_do_not_exist() {
+
+    // arrange
+    when(restaurantRepository.findById(1L)).thenReturn(Optional.of(restaurant));
+    when(restaurantRepository.findById(2L)).thenReturn(Optional.empty());
+
+    // act
+    Optional<Restaurant> first = tableCache.findById(Restaurant.class, restaurantRepository, 1L);
+    Optional<Restaurant> second = tableCache.findById(Restaurant.class, restaurantRepository, 1L);
+    Optional<Restaurant> missing = tableCache.findById(Restaurant.class, restaurantRepository, 2L);
+    Optional<Restaurant> missingAgain =
+        tableCache.findById(Restaurant.class, restaurantRepository, 2L);
+
+    // assert
+    assertEquals(restaurant, first.get());
+    assertEquals(restaurant, second.get());
+    assertTrue(missing.isEmpty());
+    assertTrue(missingAgain.isEmpty());
+    verify(restaurantRepository, times(1)).findById(1L);
+    verify(restaurantRepository, times(1)).findById(2L);
+  }
+
+  @Test
+  public void a_row_loaded_while_the_table_is_written_to_is_loaded_again() {
+
+    // arrange
+    Restaurant edited =
+        Restaurant.builder().id(1L).name("Chipotle").description("Burritos").build();
+    when(restaurantRepository.findById(1L))
+        .thenAnswer(
+            invocation -> {
+              tableVersions.bump(Restaurant.class);
+              return Optional.of(restaurant);
+            })
+        .thenReturn(Optional.of(edited));
+
+    // act
+    Optional<Restaurant> first = tableCache.findById(Restaurant.class, restaurantRepository, 1L);
+    Optional<Restaurant> second = tableCache.findById(Restaurant.class, restaurantRepository, 1L);
+    Optional<Restaurant> third = tableCache.findById(Restaurant.class, restaurantRepository, 1L);
+
+    // assert
+    assertEquals(restaurant, first.get());
+    assertEquals(edited, second.get());
+    assertEquals(edited, third.get());
+    verify(restaurantRepository, times(2)).findById(1L);
+  }
+}
@@ -0,0 +1,168 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+// a bump commits with the transaction that makes it, so the tests must not run in one
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(TableVersions.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TableVersionsDatabaseTests {
+
+  @Autowired TableVersions tableVersions;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @MockitoBean WiremockService wiremockService;
+
+  // what another instance of the application, sharing the database, would see
+  private TableVersions otherInstance() {
+    TableVersions other = new TableVersions();
+    ReflectionTestUtils.setField(other, "jdbcTemplate", jdbcTemplate);
+    other.chooseBumpSql();
+    return other;
+  }
+
+  @Test
+  public void a_bump_is_seen_by_every_instance() {
+
+    // arrange
+    TableVersions other = otherInstance();
+    long before = other.version(Restaurant.class);
+
+    // act
+    tableVersions.bump(Restaurant.class);
+    tableVersions.bump(Restaurant.class);
+
+    // assert
+    assertEquals(before + 2, other.version(Restaurant.class));
+    assertEquals(before + 2, tableVersions.version(Restaurant.class));
+    assertEquals(tableVersions.etag(Restaurant.class), other.etag(Restaurant.class));
+    assertTrue(other.etag(Restaurant.class).endsWith("-" + (before + 2)));
+    assertEquals(
+        1,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM table_versions WHERE name = 'Restaurant'", Long.class));
+  }
+
+  @Test
+  public void a_bump_commits_or_rolls_back_with_the_write_that_made_it() {
+
+    // arrange
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    long before = tableVersions.version(UCSBOrganization.class);
+    List<String> calls = new ArrayList<>();
+    tableVersions.addListener(UCSBOrganization.class, () -> calls.add("bumped"));
+
+    // act
+    long inside =
+        transactionTemplate.execute(
+            status -> {
+              tableVersions.bump(UCSBOrganization.class);
+              status.setRollbackOnly();
+              return tableVersions.version(UCSBOrganization.class);
+            });
+    long afterRollback = tableVersions.version(UCSBOrganization.class);
+    List<String> callsAfterRollback = List.copyOf(calls);
+    transactionTemplate.executeWithoutResult(status -> tableVersions.bump(UCSBOrganization.class));
+
+    // assert
+    assertEquals(before + 1, inside);
+    assertEquals(before, afterRollback);
+    assertEquals(List.of(), callsAfterRollback);
+    assertEquals(before + 1, tableVersions.version(UCSBOrganization.class));
+    assertEquals(List.of("bumped"), calls);
+  }
+
+  @Test
+  public void write_commits_or_rolls_back_the_write_with_its_bump() {
+
+    // arrange
+    long before = tableVersions.version(Restaurant.class);
+    String insert =
+        "INSERT INTO restaurants (id, name, description) VALUES (?, 'Chipotle', 'Mexican')";
+
+    // act
+    boolean inTransaction =
+        tableVersions.write(
+            Restaurant.class,
+            () -> {
+              jdbcTemplate.update(insert, 2000);
+              return TransactionSynchronizationManager.isActualTransactionActive();
+            });
+    long afterWrite = tableVersions.version(Restaurant.class);
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            tableVersions.write(
+                Restaurant.class,
+                () -> {
+                  jdbcTemplate.update(insert, 2001);
+                  throw new IllegalStateException("failed");
+                }));
+
+    // assert
+    assertTrue(inTransaction);
+    assertEquals(before + 1, afterWrite);
+    assertEquals(before + 1, tableVersions.version(Restaurant.class));
+    assertEquals(
+        List.of(2000L),
+        jdbcTemplate.queryForList(
+            "SELECT id FROM restaurants WHERE id IN (2000, 2001)", Long.class));
+  }
+
+  @Test
+  public void an_etag_from_before_a_write_on_another_instance_does_not_match() {
+
+    // arrange
+    tableVersions.bump(Restaurant.class);
+    String etag = "\"" + tableVersions.etag(Restaurant.class) + "\"";
+    otherInstance().bump(Restaurant.class);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/restaurants/all");
+    request.addHeader("If-None-Match", etag);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // act
+    boolean notModified =
+        tableVersions.notModified(new ServletWebRequest(request, response), Restaurant.class);
+
+    // assert
+    assertFalse(notModified);
+    assertNotEquals(etag, response.getHeader("ETag"));
+  }
+
+  @Test
+  public void a_table_that_has_never_been_written_to_is_at_version_zero() {
+    assertEquals(0, tableVersions.version(JobSchedule.class));
+    assertEquals("0-0", tableVersions.etag(JobSchedule.class));
+  }
+}
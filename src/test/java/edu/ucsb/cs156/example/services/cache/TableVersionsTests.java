@@ -0,0 +1,295 @@
+package edu.ucsb.cs156.example.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class TableVersionsTests {
+
+  private TableVersions tableVersions;
+
+  @BeforeEach
+  public void setup() {
+    tableVersions =
+        new TableVersions(Clock.fixed(Instant.ofEpochMilli(36L * 36 * 36), ZoneOffset.UTC));
+  }
+
+  @AfterEach
+  public void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+  }
+
+  @Test
+  public void bump_outside_a_transaction_changes_the_version_at_once() {
+
+    // act
+    tableVersions.bump(Restaurant.class);
+    tableVersions.bump(Restaurant.class);
+
+    // assert
+    assertEquals(2, tableVersions.version(Restaurant.class));
+    assertEquals(0, tableVersions.version(UCSBOrganization.class));
+    assertEquals("1000-2", tableVersions.etag(Restaurant.class));
+    assertEquals("1000-0", tableVersions.etag(UCSBOrganization.class));
+  }
+
+  @Test
+  public void write_makes_the_write_and_then_bumps_the_version() {
+
+    // arrange
+    List<Long> versionsSeenByWrite = new ArrayList<>();
+
+    // act
+    String result =
+        tableVersions.write(
+            Restaurant.class,
+            () -> {
+              versionsSeenByWrite.add(tableVersions.version(Restaurant.class));
+              return "written";
+            });
+
+    // assert
+    assertEquals("written", result);
+    assertEquals(List.of(0L), versionsSeenByWrite);
+    assertEquals(1, tableVersions.version(Restaurant.class));
+  }
+
+  @Test
+  public void bump_inside_a_transaction_changes_the_version_when_it_commits() {
+
+    // arrange
+    TransactionSynchronizationManager.initSynchronization();
+
+    // act
+    tableVersions.bump(Restaurant.class);
+    long beforeCommit = tableVersions.version(Restaurant.class);
+    TransactionSynchronizationUtils.triggerAfterCommit();
+
+    // assert
+    assertEquals(0, beforeCommit);
+    assertEquals(1, tableVersions.version(Restaurant.class));
+  }
+
+  @Test
+  public void bump_inside_a_transaction_that_rolls_back_does_not_change_the_version() {
+
+    // arrange
+    TransactionSynchronizationManager.initSynchronization();
+
+    // act
+    tableVersions.bump(Restaurant.class);
+    TransactionSynchronizationUtils.triggerAfterCompletion(
+        TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    // assert
+    assertEquals(0, tableVersions.version(Restaurant.class));
+  }
+
+  @Test
+  public void listeners_are_called_when_the_version_of_their_table_changes() {
+
+    // arrange
+    List<String> calls = new ArrayList<>();
+    tableVersions.addListener(Restaurant.class, () -> calls.add("first"));
+    tableVersions.addListener(Restaurant.class, () -> calls.add("second"));
+    tableVersions.addListener(UCSBOrganization.class, () -> calls.add("organization"));
+    TransactionSynchronizationManager.initSynchronization();
+
+    // act
+    tableVersions.bump(Restaurant.class);
+    List<String> beforeCommit = List.copyOf(calls);
+    TransactionSynchronizationUtils.triggerAfterCommit();
+
+    // assert
+    assertEquals(List.of(), beforeCommit);
+    assertEquals(List.of("first", "second"), calls);
+  }
+
+  @Test
+  public void listeners_are_called_when_a_version_made_elsewhere_is_read() throws Exception {
+
+    // arrange
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getLong("version")).thenReturn(3L, 3L, 4L, 6L);
+    when(resultSet.getTimestamp("created_at")).thenReturn(new Timestamp(0));
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.query(eq(TableVersions.SELECT_SQL), any(RowMapper.class), eq("Restaurant")))
+        .thenAnswer(
+            invocation -> List.of(invocation.<RowMapper<?>>getArgument(1).mapRow(resultSet, 0)));
+    ReflectionTestUtils.setField(tableVersions, "jdbcTemplate", jdbcTemplate);
+    AtomicInteger calls = new AtomicInteger();
+    tableVersions.addListener(Restaurant.class, calls::incrementAndGet);
+
+    // act
+    tableVersions.version(Restaurant.class); // 3, the first this instance has seen
+    int afterFirstRead = calls.get();
+    tableVersions.version(Restaurant.class); // 3 again
+    int afterSameVersion = calls.get();
+    tableVersions.bump(Restaurant.class);
+    int afterBump = calls.get();
+    tableVersions.version(Restaurant.class); // 4, which the bump made
+    int afterOwnVersion = calls.get();
+    tableVersions.version(Restaurant.class); // 6, after two writes elsewhere
+    int afterWritesElsewhere = calls.get();
+
+    // assert
+    assertEquals(1, afterFirstRead);
+    assertEquals(1, afterSameVersion);
+    assertEquals(2, afterBump);
+    assertEquals(2, afterOwnVersion);
+    assertEquals(3, afterWritesElsewhere);
+  }
+
+  @Test
+  public void bump_runs_the_statement_again_when_another_transaction_inserted_the_row_first() {
+
+    // arrange
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.update(TableVersions.H2_BUMP_SQL, "Restaurant"))
+        .thenThrow(new DuplicateKeyException("TABLE_VERSIONS_PK"))
+        .thenReturn(1);
+    ReflectionTestUtils.setField(tableVersions, "jdbcTemplate", jdbcTemplate);
+    tableVersions.chooseBumpSql();
+
+    // act
+    tableVersions.bump(Restaurant.class);
+
+    // assert
+    verify(jdbcTemplate, times(2)).update(TableVersions.H2_BUMP_SQL, "Restaurant");
+  }
+
+  @Test
+  public void the_row_is_read_at_most_once_every_maxAgeMs_outside_a_transaction() {
+
+    // arrange
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(0L, 0L, 0L, 999L, 1000L, 1500L, 1500L);
+    tableVersions = new TableVersions(clock); // reads the clock once
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.query(eq(TableVersions.SELECT_SQL), any(RowMapper.class), eq("Restaurant")))
+        .thenReturn(List.of());
+    ReflectionTestUtils.setField(tableVersions, "jdbcTemplate", jdbcTemplate);
+    ReflectionTestUtils.setField(tableVersions, "maxAgeMs", 1000L);
+
+    // act
+    tableVersions.version(Restaurant.class); // read at 0
+    tableVersions.etag(Restaurant.class); // remembered
+    tableVersions.version(Restaurant.class); // remembered, at 999
+    tableVersions.version(Restaurant.class); // too old at 1000, read again
+    tableVersions.bump(Restaurant.class); // forgets it
+    tableVersions.version(Restaurant.class); // read again
+    tableVersions.version(Restaurant.class); // remembered
+
+    // assert
+    verify(jdbcTemplate, times(3))
+        .query(eq(TableVersions.SELECT_SQL), any(RowMapper.class), eq("Restaurant"));
+  }
+
+  @Test
+  public void the_row_is_read_every_time_inside_a_transaction() {
+
+    // arrange
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.query(eq(TableVersions.SELECT_SQL), any(RowMapper.class), eq("Restaurant")))
+        .thenReturn(List.of());
+    ReflectionTestUtils.setField(tableVersions, "jdbcTemplate", jdbcTemplate);
+    ReflectionTestUtils.setField(tableVersions, "maxAgeMs", 1000L);
+    tableVersions.version(Restaurant.class);
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+
+    // act
+    tableVersions.version(Restaurant.class);
+    tableVersions.version(Restaurant.class);
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+    tableVersions.version(Restaurant.class);
+
+    // assert
+    verify(jdbcTemplate, times(3))
+        .query(eq(TableVersions.SELECT_SQL), any(RowMapper.class), eq("Restaurant"));
+  }
+
+  @Test
+  public void bumpSql_is_chosen_for_the_database() {
+    assertEquals(TableVersions.POSTGRES_BUMP_SQL, TableVersions.bumpSql("PostgreSQL"));
+    assertEquals(TableVersions.H2_BUMP_SQL, TableVersions.bumpSql("H2"));
+  }
+
+  @Test
+  public void not_modified_matches_if_none_match_and_keeps_the_etag_for_a_response_with_a_body() {
+
+    // arrange
+    MockHttpServletRequest first = new MockHttpServletRequest("GET", "/api/restaurants/all");
+    MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+    MockHttpServletRequest second = new MockHttpServletRequest("GET", "/api/restaurants/all");
+    second.addHeader("If-None-Match", "\"1000-0\"");
+    MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+
+    // act
+    boolean firstNotModified =
+        tableVersions.notModified(new ServletWebRequest(first, firstResponse), Restaurant.class);
+    boolean secondNotModified =
+        tableVersions.notModified(new ServletWebRequest(second, secondResponse), Restaurant.class);
+
+    // assert
+    assertFalse(firstNotModified);
+    assertNull(firstResponse.getHeader("ETag"));
+    assertEquals("1000-0", first.getAttribute(TableVersions.ETAG_ATTRIBUTE));
+    assertEquals("no-cache, private", firstResponse.getHeader("Cache-Control"));
+    assertTrue(secondNotModified);
+    assertEquals(304, secondResponse.getStatus());
+    assertEquals("\"1000-0\"", secondResponse.getHeader("ETag"));
+  }
+
+  @Test
+  public void an_etag_from_before_a_write_does_not_match() {
+
+    // arrange
+    tableVersions.bump(Restaurant.class);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/restaurants/all");
+    request.addHeader("If-None-Match", "\"1000-0\"");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // act
+    boolean notModified =
+        tableVersions.notModified(new ServletWebRequest(request, response), Restaurant.class);
+
+    // assert
+    assertFalse(notModified);
+    assertEquals(200, response.getStatus());
+    assertEquals("1000-1", request.getAttribute(TableVersions.ETAG_ATTRIBUTE));
+  }
+}
@@ -0,0 +1,189 @@
+package edu.ucsb.cs156.example.services.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@DataJpaTest
+@AutoConfigureJson
+@ActiveProfiles("test")
+@Import(EntityExporter.class)
+public class EntityExporterTests {
+
+  @Autowired EntityExporter entityExporter;
+
+  @Autowired ArticleRepository articleRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired TestEntityManager testEntityManager;
+
+  @Autowired ObjectMapper mapper;
+
+  @MockitoBean WiremockService wiremockService;
+
+  private Article quoted;
+  private Article plain;
+
+  @BeforeEach
+  public void saveArticles() {
+    quoted =
+        articleRepository.save(
+            Article.builder()
+                .title("Commas, \"quotes\"")
+                .url("https://example.org")
+                .explanation("line 1\nline 2\r\nline 3")
+                .email("a@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2025-01-02T03:04:05"))
+                .build());
+    plain =
+        articleRepository.save(
+            Article.builder()
+                .url("https://example.com")
+                .explanation("plain")
+                .email("b@ucsb.edu")
+                .build());
+  }
+
+  private String body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void ndjson_has_one_object_per_line() throws Exception {
+
+    // act
+    ResponseEntity<StreamingResponseBody> response =
+        entityExporter.export(Article.class, "articles", "ndjson", articleRepository::streamAllBy);
+
+    // assert
+    assertEquals(EntityExporter.NDJSON, response.getHeaders().getContentType());
+    assertEquals(
+        "attachment; filename=\"articles.ndjson\"",
+        response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(
+        mapper.writeValueAsString(quoted) + "\n" + mapper.writeValueAsString(plain) + "\n",
+        body(response));
+  }
+
+  @Test
+  public void csv_has_a_header_and_quotes_fields_that_need_it() throws Exception {
+
+    // act
+    ResponseEntity<StreamingResponseBody> response =
+        entityExporter.export(Article.class, "articles", "csv", articleRepository::streamAllBy);
+
+    // assert
+    assertEquals(EntityExporter.CSV, response.getHeaders().getContentType());
+    assertEquals(
+        "attachment; filename=\"articles.csv\"",
+        response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    String expected =
+        "id,title,url,explanation,email,dateAdded\r\n"
+            + quoted.getId()
+            + ",\"Commas, \"\"quotes\"\"\",https://example.org,"
+            + "\"line 1\nline 2\r\nline 3\",a@ucsb.edu,2025-01-02T03:04:05\r\n"
+            + plain.getId()
+            + ",,https://example.com,plain,b@ucsb.edu,\r\n";
+    assertEquals(expected, body(response));
+  }
+
+  @Test
+  public void an_empty_table_exports_as_just_the_csv_header() throws Exception {
+
+    // act
+    ResponseEntity<StreamingResponseBody> response =
+        entityExporter.export(
+            UCSBOrganization.class,
+            "ucsborganizations",
+            "csv",
+            ucsbOrganizationRepository::streamAllBy);
+
+    // assert
+    assertEquals("orgCode,orgTranslationShort,orgTranslation,inactive\r\n", body(response));
+  }
+
+  @Test
+  public void rows_are_detached_and_the_stream_is_closed() throws Exception {
+
+    // arrange
+    AtomicBoolean closed = new AtomicBoolean(false);
+    assertTrue(testEntityManager.getEntityManager().contains(quoted));
+
+    // act
+    body(
+        entityExporter.export(
+            Article.class,
+            "articles",
+            "ndjson",
+            () -> articleRepository.streamAllBy().onClose(() -> closed.set(true))));
+
+    // assert
+    assertFalse(testEntityManager.getEntityManager().contains(quoted));
+    assertFalse(testEntityManager.getEntityManager().contains(plain));
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void the_format_must_be_ndjson_or_csv() {
+    InvalidRequestException e =
+        assertThrows(
+            InvalidRequestException.class,
+            () ->
+                entityExporter.export(
+                    Article.class, "articles", "xml", articleRepository::streamAllBy));
+    assertEquals("format must be ndjson or csv, not xml", e.getMessage());
+  }
+
+  @Test
+  public void errors_writing_the_response_are_passed_on() {
+
+    // arrange
+    OutputStream broken =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw new IOException("Broken pipe");
+          }
+        };
+    StreamingResponseBody body =
+        entityExporter
+            .export(Article.class, "articles", "csv", articleRepository::streamAllBy)
+            .getBody();
+
+    // act
+    IOException e = assertThrows(IOException.class, () -> body.writeTo(broken));
+
+    // assert
+    assertEquals("Broken pipe", e.getMessage());
+  }
+}
@@ -1,23 +1,192 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import java.time.Clock;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_log_writer_is_null_does_not_save() throws Exception {
 
     // arrange
 
     Job job1 = Job.builder().build();
     JobContext ctx = new JobContext(null, job1);
 
+    // act and assert
+    assertDoesNotThrow(() -> ctx.log("This is a log message"));
+  }
+
+  @Test
+  public void log_appends_message_to_log_writer() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(7L).build();
+    JobLogWriter logWriter = mock(JobLogWriter.class);
+    JobContext ctx = new JobContext(logWriter, job1);
+
     // act
     ctx.log("This is a log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    verify(logWriter, times(1)).append("This is a log message");
+  }
+
+  @Test
+  public void progress_is_saved_at_most_once_per_interval_and_always_at_100_percent() {
+
+    // arrange
+    Job job = Job.builder().id(7L).build();
+    Consumer<Job> progressSaver = mock(Consumer.class);
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(1000L, 1500L, 1999L, 2000L, 2100L);
+    JobContext ctx = new JobContext(null, job, progressSaver, 1000, clock);
+
+    // act and assert
+    ctx.progress(1, 10); // saved, as the first report
+    assertEquals(10, job.getProgress());
+    verify(progressSaver, times(1)).accept(job);
+
+    ctx.progress(2, 10);
+    ctx.progress(3, 10);
+    assertEquals(30, job.getProgress());
+    verify(progressSaver, times(1)).accept(job);
+
+    ctx.progress(4, 10); // saved, a second after the first save
+    verify(progressSaver, times(2)).accept(job);
+
+    ctx.progress(10, 10); // saved, as done
+    assertEquals(100, job.getProgress());
+    verify(progressSaver, times(3)).accept(job);
+  }
+
+  @Test
+  public void unchanged_progress_is_not_saved() {
+
+    // arrange
+    Job job = Job.builder().id(7L).build();
+    Consumer<Job> progressSaver = mock(Consumer.class);
+    JobContext ctx = new JobContext(null, job, progressSaver, 0, Clock.systemUTC());
+
+    // act
+    ctx.progress(1, 1000);
+    ctx.progress(2, 1000);
+    ctx.progress(3, 1000);
+
+    // assert
+    assertEquals(0, job.getProgress());
+    verify(progressSaver, times(1)).accept(job);
+  }
+
+  @Test
+  public void progress_is_clamped_and_counts_a_job_without_work_as_done() {
+
+    // arrange
+    Job job = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, job);
+
+    // act and assert
+    ctx.progress(-5, 10);
+    assertEquals(0, job.getProgress());
+    ctx.progress(15, 10);
+    assertEquals(100, job.getProgress());
+    ctx.progress(0, 0);
+    assertEquals(100, job.getProgress());
+  }
+
+  @Test
+  public void progress_of_a_context_without_a_saver_is_only_kept_on_the_job() {
+
+    // arrange
+    Job job = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, job);
+
+    // act
+    ctx.progress(1, 2);
+
+    // assert
+    assertEquals(50, job.getProgress());
+  }
+
+  @Test
+  public void checkpoint_is_set_on_the_job_and_saved_straight_away() {
+
+    // arrange
+    Job job = Job.builder().id(7L).build();
+    Consumer<Job> jobSaver = mock(Consumer.class);
+    JobContext ctx = new JobContext(null, job, jobSaver, 60000, Clock.systemUTC());
+
+    // act
+    String before = ctx.getCheckpoint();
+    ctx.checkpoint("3");
+    ctx.checkpoint("4");
+
+    // assert
+    assertNull(before);
+    assertEquals("4", ctx.getCheckpoint());
+    assertEquals("4", job.getCheckpoint());
+    verify(jobSaver, times(2)).accept(job);
+  }
+
+  @Test
+  public void checkpoint_of_a_context_without_a_saver_is_only_kept_on_the_job() {
+
+    // arrange
+    Job job = Job.builder().id(7L).checkpoint("2").build();
+    JobContext ctx = new JobContext(null, job);
+
+    // act
+    String before = ctx.getCheckpoint();
+    ctx.checkpoint("3");
+
+    // assert
+    assertEquals("2", before);
+    assertEquals("3", job.getCheckpoint());
+  }
+
+  @Test
+  public void checkCancelled_throws_once_the_job_is_cancelled() {
+
+    // arrange
+    Job job = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, job);
+
+    // act and assert
+    assertFalse(ctx.isCancelled());
+    assertDoesNotThrow(ctx::checkCancelled);
+    ctx.cancel();
+    assertTrue(ctx.isCancelled());
+    JobCancelledException e = assertThrows(JobCancelledException.class, ctx::checkCancelled);
+    assertEquals("Job 7 was cancelled", e.getMessage());
+  }
+
+  @Test
+  public void checkCancelled_throws_when_the_thread_is_interrupted() {
+
+    // arrange
+    JobContext ctx = new JobContext(null, Job.builder().id(7L).build());
+    Thread.currentThread().interrupt();
+
+    // act and assert
+    try {
+      assertThrows(JobCancelledException.class, ctx::checkCancelled);
+    } finally {
+      Thread.interrupted();
+    }
+    assertFalse(ctx.isCancelled());
   }
 }
@@ -0,0 +1,147 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.models.JobExecutorStats;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+public class JobExecutorTests {
+
+  @Test
+  public void new_executor_reports_empty_stats() {
+    // arrange
+    JobExecutor jobExecutor = new JobExecutor("platform", 2, 5);
+
+    // act
+    JobExecutorStats stats = jobExecutor.getStats();
+
+    // assert
+    assertEquals("platform", stats.getMode());
+    assertEquals(2, stats.getMaxConcurrency());
+    assertEquals(5, stats.getQueueCapacity());
+    assertEquals(0, stats.getQueueDepth());
+    assertEquals(0, stats.getActiveJobs());
+    assertEquals(0, stats.getCompletedJobs());
+    assertEquals(0, stats.getRejectedJobs());
+    assertEquals(0.0, stats.getAverageWaitMs());
+    assertEquals(0, stats.getMaxWaitMs());
+    jobExecutor.shutdown();
+  }
+
+  @Test
+  public void jobs_beyond_concurrency_are_queued_and_beyond_queue_are_rejected() throws Exception {
+    // arrange
+    JobExecutor jobExecutor = new JobExecutor("platform", 1, 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Runnable blockingJob =
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+
+    // act
+    jobExecutor.submit(blockingJob);
+    started.await();
+    jobExecutor.submit(blockingJob);
+    JobRejectedException e =
+        assertThrows(JobRejectedException.class, () -> jobExecutor.submit(blockingJob));
+
+    // assert
+    assertEquals(
+        "Job rejected: 1 jobs are running and 1 are queued; try again later", e.getMessage());
+    JobExecutorStats stats = jobExecutor.getStats();
+    assertEquals(1, stats.getActiveJobs());
+    assertEquals(1, stats.getQueueDepth());
+    assertEquals(1, stats.getRejectedJobs());
+
+    release.countDown();
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getStats().getCompletedJobs() == 2);
+    stats = jobExecutor.getStats();
+    assertEquals(0, stats.getActiveJobs());
+    assertEquals(0, stats.getQueueDepth());
+    assertTrue(stats.getMaxWaitMs() >= 0);
+    assertTrue(stats.getAverageWaitMs() <= stats.getMaxWaitMs());
+    jobExecutor.shutdown();
+  }
+
+  @Test
+  public void free_slots_exclude_running_and_queued_jobs() throws Exception {
+    // arrange
+    JobExecutor jobExecutor = new JobExecutor("platform", 2, 2);
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    Runnable blockingJob =
+        () -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+    assertEquals(2, jobExecutor.getFreeSlots());
+
+    // act
+    jobExecutor.submit(blockingJob);
+    jobExecutor.submit(blockingJob);
+    started.await();
+    jobExecutor.submit(blockingJob);
+
+    // assert
+    assertEquals(0, jobExecutor.getFreeSlots());
+    release.countDown();
+    await().atMost(5, SECONDS).until(() -> jobExecutor.getStats().getCompletedJobs() == 3);
+    assertEquals(2, jobExecutor.getFreeSlots());
+    jobExecutor.shutdown();
+  }
+
+  @Test
+  public void platform_mode_runs_jobs_on_platform_threads() throws Exception {
+    // arrange
+    JobExecutor jobExecutor = new JobExecutor("platform", 1, 1);
+    CompletableFuture<Thread> thread = new CompletableFuture<>();
+
+    // act
+    jobExecutor.submit(() -> thread.complete(Thread.currentThread()));
+
+    // assert
+    assertFalse(thread.get(5, SECONDS).isVirtual());
+    assertTrue(thread.get().getName().startsWith("job-"));
+    jobExecutor.shutdown();
+  }
+
+  @Test
+  public void virtual_mode_runs_jobs_on_virtual_threads() throws Exception {
+    // arrange
+    JobExecutor jobExecutor = new JobExecutor("virtual", 1, 1);
+    CompletableFuture<Thread> thread = new CompletableFuture<>();
+
+    // act
+    jobExecutor.submit(() -> thread.complete(Thread.currentThread()));
+
+    // assert
+    assertTrue(thread.get(5, SECONDS).isVirtual());
+    assertEquals("virtual", jobExecutor.getStats().getMode());
+    jobExecutor.shutdown();
+  }
+
+  @Test
+  public void unknown_mode_is_rejected() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> new JobExecutor("carrier", 1, 1));
+    assertEquals("app.jobs.executor.mode must be platform or virtual, not carrier", e.getMessage());
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import org.junit.jupiter.api.Test;
+
+public class JobLogGzipTests {
+
+  @Test
+  public void a_compressed_log_decompresses_to_the_same_text() {
+
+    // arrange
+    String log = "Step 1 of 2 done\nStep 2 of 2 done\nünïcödé\n".repeat(100);
+
+    // act
+    byte[] logGz = JobLogGzip.compress(log);
+
+    // assert
+    assertTrue(logGz.length < log.length() / 10);
+    assertEquals(log, JobLogGzip.decompress(logGz));
+  }
+
+  @Test
+  public void an_empty_log_is_stored_as_no_bytes() {
+
+    // act
+    byte[] logGz = JobLogGzip.compress("");
+
+    // assert
+    assertEquals(0, logGz.length);
+    assertEquals("", JobLogGzip.decompress(logGz));
+  }
+
+  @Test
+  public void decompress_rejects_bytes_that_are_not_gzip() {
+    assertThrows(UncheckedIOException.class, () -> JobLogGzip.decompress(new byte[] {1, 2, 3}));
+  }
+
+  @Test
+  public void compress_reports_a_stream_that_cannot_be_written_to() {
+
+    // arrange
+    OutputStream broken =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw new IOException("disk full");
+          }
+        };
+
+    // act
+    UncheckedIOException e =
+        assertThrows(UncheckedIOException.class, () -> JobLogGzip.compress("log", broken));
+
+    // assert
+    assertEquals("disk full", e.getCause().getMessage());
+  }
+}
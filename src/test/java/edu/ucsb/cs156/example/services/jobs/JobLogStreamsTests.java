@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+public class JobLogStreamsTests {
+
+  private final JobLogStreams jobLogStreams = new JobLogStreams();
+
+  @Test
+  public void publish_sends_line_to_subscribers_of_that_job_only() {
+    // arrange
+    JobLogSubscription first = mock(JobLogSubscription.class);
+    JobLogSubscription second = mock(JobLogSubscription.class);
+    JobLogSubscription other = mock(JobLogSubscription.class);
+    when(first.send(4L, "hello")).thenReturn(true);
+    when(second.send(4L, "hello")).thenReturn(true);
+    jobLogStreams.add(1L, first);
+    jobLogStreams.add(1L, second);
+    jobLogStreams.add(2L, other);
+
+    // act
+    jobLogStreams.publish(1L, 4L, "hello");
+    jobLogStreams.publish(3L, 0L, "nobody listening");
+
+    // assert
+    verify(first, times(1)).send(4L, "hello");
+    verify(second, times(1)).send(4L, "hello");
+    verify(other, never()).send(4L, "hello");
+    assertEquals(2, jobLogStreams.subscriberCount(1L));
+  }
+
+  @Test
+  public void publish_drops_subscribers_that_have_gone_away() {
+    // arrange
+    JobLogSubscription gone = mock(JobLogSubscription.class);
+    when(gone.send(0L, "hello")).thenReturn(false);
+    jobLogStreams.add(1L, gone);
+
+    // act
+    jobLogStreams.publish(1L, 0L, "hello");
+
+    // assert
+    assertEquals(0, jobLogStreams.subscriberCount(1L));
+  }
+
+  @Test
+  public void complete_finishes_and_removes_all_subscribers_of_the_job() {
+    // arrange
+    JobLogSubscription first = mock(JobLogSubscription.class);
+    JobLogSubscription other = mock(JobLogSubscription.class);
+    jobLogStreams.add(1L, first);
+    jobLogStreams.add(2L, other);
+
+    // act
+    jobLogStreams.complete(1L, "complete");
+    jobLogStreams.complete(3L, "error");
+
+    // assert
+    verify(first, times(1)).finish("complete");
+    verify(other, never()).finish("complete");
+    assertEquals(0, jobLogStreams.subscriberCount(1L));
+    assertEquals(1, jobLogStreams.subscriberCount(2L));
+  }
+
+  @Test
+  public void remove_keeps_other_subscribers() {
+    // arrange
+    JobLogSubscription first = mock(JobLogSubscription.class);
+    JobLogSubscription second = mock(JobLogSubscription.class);
+    jobLogStreams.add(1L, first);
+    jobLogStreams.add(1L, second);
+
+    // act
+    jobLogStreams.remove(1L, first);
+    jobLogStreams.remove(2L, first);
+
+    // assert
+    assertEquals(1, jobLogStreams.subscriberCount(1L));
+  }
+}
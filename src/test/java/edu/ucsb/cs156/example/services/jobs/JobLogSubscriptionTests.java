@@ -0,0 +1,133 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+public class JobLogSubscriptionTests {
+
+  private SseEmitter emitter;
+
+  @BeforeEach
+  public void setup() {
+    emitter = mock(SseEmitter.class);
+  }
+
+  private List<String> sentEvents(int invocations) throws IOException {
+    ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, times(invocations)).send(captor.capture());
+    return captor.getAllValues().stream()
+        .map(
+            event ->
+                event.build().stream()
+                    .map(data -> data.getData().toString())
+                    .collect(Collectors.joining()))
+        .toList();
+  }
+
+  @Test
+  public void lines_are_sent_with_their_line_number_as_event_id() throws Exception {
+    // arrange
+    JobLogSubscription subscription = new JobLogSubscription(emitter, 0);
+
+    // act
+    boolean open = subscription.sendAll(0, List.of("one", "two"));
+
+    // assert
+    assertTrue(open);
+    assertEquals(
+        List.of("id:0\nevent:line\ndata:one\n\n", "id:1\nevent:line\ndata:two\n\n"), sentEvents(2));
+    assertEquals(2L, subscription.getNextSeq());
+  }
+
+  @Test
+  public void lines_before_the_cursor_are_skipped() throws Exception {
+    // arrange
+    JobLogSubscription subscription = new JobLogSubscription(emitter, 2);
+
+    // act
+    subscription.send(1, "old");
+    subscription.send(2, "new");
+    subscription.send(2, "new");
+
+    // assert
+    assertEquals(List.of("id:2\nevent:line\ndata:new\n\n"), sentEvents(1));
+  }
+
+  @Test
+  public void finish_sends_status_and_completes_once() throws Exception {
+    // arrange
+    JobLogSubscription subscription = new JobLogSubscription(emitter, 0);
+
+    // act
+    subscription.finish("complete");
+    subscription.finish("complete");
+    boolean open = subscription.send(0, "too late");
+
+    // assert
+    assertFalse(open);
+    assertTrue(subscription.isFinished());
+    assertEquals(List.of("event:status\ndata:complete\n\n"), sentEvents(1));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void send_failure_closes_the_subscription() throws Exception {
+    // arrange
+    JobLogSubscription subscription = new JobLogSubscription(emitter, 0);
+    doThrow(new IOException("client went away")).when(emitter).send(any(SseEventBuilder.class));
+
+    // act
+    boolean open = subscription.sendAll(0, List.of("one", "two"));
+
+    // assert
+    assertFalse(open);
+    assertTrue(subscription.isFinished());
+    assertEquals(0L, subscription.getNextSeq());
+    sentEvents(1);
+  }
+
+  @Test
+  public void a_finished_subscription_is_closed_even_with_no_lines_to_send() throws Exception {
+    // arrange
+    JobLogSubscription subscription = new JobLogSubscription(emitter, 0);
+    subscription.finish("complete");
+
+    // act
+    boolean open = subscription.sendAll(0, List.of());
+
+    // assert
+    assertFalse(open);
+    sentEvents(1);
+  }
+
+  @Test
+  public void finish_failure_completes_with_error() throws Exception {
+    // arrange
+    JobLogSubscription subscription = new JobLogSubscription(emitter, 0);
+    IOException failure = new IOException("client went away");
+    doThrow(failure).when(emitter).send(any(SseEventBuilder.class));
+
+    // act
+    subscription.finish("error");
+
+    // assert
+    verify(emitter, never()).complete();
+    verify(emitter, times(1)).completeWithError(failure);
+  }
+}
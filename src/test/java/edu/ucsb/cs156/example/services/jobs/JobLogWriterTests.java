@@ -0,0 +1,192 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class JobLogWriterTests {
+
+  private JobLogLinesRepository jobLogLinesRepository;
+
+  private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+  private final Clock clock =
+      new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+          return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+          return this;
+        }
+
+        @Override
+        public Instant instant() {
+          return now;
+        }
+      };
+
+  @BeforeEach
+  public void setup() {
+    jobLogLinesRepository = mock(JobLogLinesRepository.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<JobLogLine> captureSavedLines(int invocations) {
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, times(invocations)).saveAll(captor.capture());
+    return captor.getAllValues().stream().flatMap(List::stream).toList();
+  }
+
+  @Test
+  public void lines_are_buffered_until_batch_size_is_reached() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(jobLogLinesRepository, 17L, 0, 3, 60_000, clock, null);
+
+    // act
+    writer.append("one");
+    writer.append("two");
+
+    // assert
+    verify(jobLogLinesRepository, never()).saveAll(any());
+
+    // act
+    writer.append("three");
+
+    // assert
+    List<JobLogLine> saved = captureSavedLines(1);
+    assertEquals(List.of("one", "two", "three"), saved.stream().map(JobLogLine::getText).toList());
+    assertEquals(List.of(0L, 1L, 2L), saved.stream().map(JobLogLine::getSeq).toList());
+    assertEquals(17L, saved.get(0).getJobId());
+    assertEquals(ZonedDateTime.ofInstant(now, ZoneOffset.UTC), saved.get(0).getCreatedAt());
+  }
+
+  @Test
+  public void append_returns_sequence_numbers_starting_at_next_seq() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(jobLogLinesRepository, 17L, 5, 100, 60_000, clock, null);
+
+    // act and assert
+    assertEquals(5L, writer.append("one"));
+    assertEquals(6L, writer.append("two"));
+    assertEquals(7L, writer.getNextSeq());
+  }
+
+  @Test
+  public void append_flushes_when_oldest_line_is_stale() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(jobLogLinesRepository, 17L, 0, 100, 1000, clock, null);
+    writer.append("one");
+    now = now.plus(Duration.ofMillis(999));
+    writer.append("two");
+    verify(jobLogLinesRepository, never()).saveAll(any());
+
+    // act
+    now = now.plus(Duration.ofMillis(1));
+    writer.append("three");
+
+    // assert
+    List<JobLogLine> saved = captureSavedLines(1);
+    assertEquals(List.of("one", "two", "three"), saved.stream().map(JobLogLine::getText).toList());
+  }
+
+  @Test
+  public void flushIfStale_only_flushes_stale_buffers() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(jobLogLinesRepository, 17L, 0, 100, 1000, clock, null);
+
+    // act and assert
+    assertFalse(writer.flushIfStale());
+
+    writer.append("one");
+    now = now.plus(Duration.ofMillis(500));
+    assertFalse(writer.flushIfStale());
+    verify(jobLogLinesRepository, never()).saveAll(any());
+
+    now = now.plus(Duration.ofMillis(500));
+    assertTrue(writer.flushIfStale());
+    assertEquals(List.of("one"), captureSavedLines(1).stream().map(JobLogLine::getText).toList());
+  }
+
+  @Test
+  public void flush_with_empty_buffer_does_nothing() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(jobLogLinesRepository, 17L, 0, 100, 1000, clock, null);
+
+    // act
+    writer.flush();
+
+    // assert
+    verify(jobLogLinesRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void flush_writes_remaining_lines_and_empties_buffer() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(jobLogLinesRepository, 17L, 0, 100, 1000, clock, null);
+    writer.append("one");
+
+    // act
+    writer.flush();
+    writer.flush();
+
+    // assert
+    assertEquals(List.of("one"), captureSavedLines(1).stream().map(JobLogLine::getText).toList());
+  }
+
+  @Test
+  public void when_repository_is_null_lines_are_only_counted() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(null, 17L, 0, 1, 1000, clock, null);
+
+    // act
+    writer.append("one");
+    writer.flush();
+
+    // assert
+    assertEquals(1L, writer.getNextSeq());
+  }
+
+  @Test
+  public void listener_is_told_about_each_line_before_it_is_flushed() {
+    // arrange
+    List<String> heard = new ArrayList<>();
+    JobLogWriter writer =
+        new JobLogWriter(
+            jobLogLinesRepository,
+            17L,
+            3,
+            100,
+            60_000,
+            clock,
+            (seq, text) -> heard.add(seq + ":" + text));
+
+    // act
+    writer.append("one");
+    writer.append("two");
+
+    // assert
+    assertEquals(List.of("3:one", "4:two"), heard);
+    verify(jobLogLinesRepository, never()).saveAll(any());
+  }
+}
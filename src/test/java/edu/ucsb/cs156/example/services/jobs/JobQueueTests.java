@@ -0,0 +1,213 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.jobs.TestJobFactory;
+import edu.ucsb.cs156.example.models.JobExecutorStats;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@DataJpaTest
+@AutoConfigureJson
+@ActiveProfiles("test")
+@TestPropertySource(
+    properties = {"app.jobs.queue.enabled=true", "app.jobs.queue.workerId=test-worker"})
+@Import({
+  JobQueue.class,
+  JobService.class,
+  JobExecutor.class,
+  JobLogStreams.class,
+  TestJobFactory.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JobQueueTests {
+
+  @Autowired JobQueue jobQueue;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean CurrentUserService currentUserService;
+
+  @MockitoBean WiremockService wiremockService;
+
+  @BeforeEach
+  public void deleteJobs() {
+    jobLogLinesRepository.deleteAll();
+    jobsRepository.deleteAll();
+  }
+
+  private Job queueTestJob() {
+    return jobsRepository.save(
+        Job.builder()
+            .status("queued")
+            .type(TestJobFactory.TYPE)
+            .params("{\"fail\":false,\"sleepMs\":0}")
+            .build());
+  }
+
+  private Job stored(Job job) {
+    return jobsRepository.findById(job.getId()).get();
+  }
+
+  private void awaitStatus(Job job, String status) {
+    await()
+        .atMost(10, SECONDS)
+        .until(
+            () ->
+                stored(job).getStatus().equals(status) && stored(job).getLeaseExpiresAt() == null);
+  }
+
+  @Test
+  public void enqueue_stores_the_type_and_parameters_of_the_job_and_starts_it() throws Exception {
+
+    // arrange
+    Map<String, Object> params = new LinkedHashMap<>();
+    params.put("fail", false);
+    params.put("sleepMs", 0);
+
+    // act
+    Job job = jobQueue.enqueue(TestJobFactory.TYPE, params);
+
+    // assert
+    assertEquals(TestJobFactory.TYPE, job.getType());
+    assertEquals("{\"fail\":false,\"sleepMs\":0}", job.getParams());
+    awaitStatus(job, "complete");
+    assertEquals("test-worker", stored(job).getLeaseOwner());
+    assertEquals(1, stored(job).getAttempts());
+  }
+
+  @Test
+  public void enqueue_rejects_a_type_without_a_factory() {
+
+    // act
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobQueue.enqueue("NoSuchJob", Map.of()));
+
+    // assert
+    assertEquals("No JobFactory for job type NoSuchJob", e.getMessage());
+    assertEquals(0, jobsRepository.count());
+  }
+
+  @Test
+  public void enqueue_rejects_a_job_once_capacity_jobs_are_queued() {
+
+    // arrange
+    queueTestJob();
+    queueTestJob();
+    long rejectedBefore = jobQueue.getStats().getRejectedJobs();
+    ReflectionTestUtils.setField(jobQueue, "capacity", 2);
+
+    try {
+      // act
+      JobRejectedException e =
+          assertThrows(
+              JobRejectedException.class,
+              () -> jobQueue.enqueue(TestJobFactory.TYPE, Map.of("fail", false, "sleepMs", 0)));
+      JobExecutorStats stats = jobQueue.getStats();
+
+      // assert
+      assertEquals("Job rejected: 2 jobs are queued; try again later", e.getMessage());
+      assertEquals(2, jobsRepository.count());
+      assertEquals(2, stats.getQueueDepth());
+      assertEquals(2, stats.getQueueCapacity());
+      assertEquals(rejectedBefore + 1, stats.getRejectedJobs());
+    } finally {
+      ReflectionTestUtils.setField(jobQueue, "capacity", 100);
+    }
+  }
+
+  @Test
+  public void poll_starts_jobs_queued_by_other_instances() {
+
+    // arrange
+    Job job = queueTestJob();
+
+    // act
+    jobQueue.poll();
+
+    // assert
+    awaitStatus(job, "complete");
+    assertEquals("test-worker", stored(job).getLeaseOwner());
+  }
+
+  @Test
+  public void heartbeat_queues_again_the_jobs_whose_lease_expired() {
+
+    // arrange
+    Job job = queueTestJob();
+    jdbcTemplate.update(
+        """
+        UPDATE jobs SET status = 'running', lease_owner = 'stopped-worker', attempts = 1,
+          lease_expires_at = CURRENT_TIMESTAMP - INTERVAL '5' SECOND
+        WHERE id = ?
+        """,
+        job.getId());
+
+    // act
+    jobQueue.heartbeat();
+
+    // assert
+    assertEquals("queued", stored(job).getStatus());
+    assertNull(stored(job).getLeaseOwner());
+  }
+
+  @Test
+  public void a_disabled_queue_runs_jobs_in_process_and_leaves_the_table_alone() throws Exception {
+
+    // arrange
+    Job queued = queueTestJob();
+    jdbcTemplate.update(
+        """
+        UPDATE jobs SET status = 'running', lease_owner = 'stopped-worker', attempts = 1,
+          lease_expires_at = CURRENT_TIMESTAMP - INTERVAL '5' SECOND
+        WHERE id = ?
+        """,
+        queueTestJob().getId());
+    ReflectionTestUtils.setField(jobQueue, "enabled", false);
+
+    try {
+      // act
+      Job job = jobQueue.enqueue(TestJobFactory.TYPE, Map.of("fail", false, "sleepMs", 0));
+      jobQueue.poll();
+      jobQueue.heartbeat();
+
+      // assert
+      assertNull(job.getType());
+      await().atMost(10, SECONDS).until(() -> stored(job).getStatus().equals("complete"));
+      assertEquals("queued", stored(queued).getStatus());
+      assertEquals(
+          1,
+          jdbcTemplate.queryForObject(
+              "SELECT COUNT(*) FROM jobs WHERE lease_owner = 'stopped-worker'", Integer.class));
+    } finally {
+      ReflectionTestUtils.setField(jobQueue, "enabled", true);
+    }
+  }
+}
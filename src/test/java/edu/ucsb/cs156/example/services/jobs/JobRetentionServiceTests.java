@@ -0,0 +1,274 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// each log is compacted in a transaction of its own, so the tests must not run in one
+@DataJpaTest
+@AutoConfigureJson
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"app.jobs.retention.batchSize=2"})
+@Import({JobRetentionService.class, JobService.class, JobExecutor.class, JobLogStreams.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JobRetentionServiceTests {
+
+  @Autowired JobRetentionService jobRetentionService;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockitoSpyBean JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoSpyBean JobService jobService;
+
+  @MockitoBean CurrentUserService currentUserService;
+
+  @MockitoBean WiremockService wiremockService;
+
+  @BeforeEach
+  public void deleteJobs() {
+    jobLogLinesRepository.deleteAll();
+    jobsRepository.deleteAll();
+  }
+
+  // a job with the given log lines, last saved the given time ago
+  private Job job(String status, Duration age, String... lines) {
+    Job job = jobsRepository.save(Job.builder().status(status).build());
+    jobLogLinesRepository.saveAll(
+        IntStream.range(0, lines.length)
+            .mapToObj(
+                seq -> JobLogLine.builder().jobId(job.getId()).seq(seq).text(lines[seq]).build())
+            .toList());
+    jdbcTemplate.update(
+        "UPDATE jobs SET updated_at = ? WHERE id = ?",
+        Timestamp.from(Instant.now().minus(age)),
+        job.getId());
+    return job;
+  }
+
+  private Job stored(Job job) {
+    return jobsRepository.findById(job.getId()).get();
+  }
+
+  private long countLines(Job job) {
+    return jobLogLinesRepository.countByJobId(job.getId());
+  }
+
+  @Test
+  public void finished_jobs_older_than_the_retention_are_deleted_with_their_logs() {
+
+    // arrange
+    Duration old = Duration.ofDays(31);
+    List<Job> finished =
+        List.of(
+            job("complete", old, "aa", "bbb"),
+            job("error", old, "aa", "bbb"),
+            job("cancelled", old, "aa", "bbb"));
+    Job running = job("running", old, "still going");
+    Job recent = job("complete", Duration.ofMinutes(1), "recent");
+
+    // act
+    JobRetentionReport report = jobRetentionService.compactAndPurge();
+
+    // assert
+    assertEquals(3, report.getPurgedJobs());
+    assertEquals(15, report.getPurgedBytes());
+    assertEquals(0, report.getCompactedJobs());
+    assertEquals(15, report.getReclaimedBytes());
+    finished.forEach(job -> assertFalse(jobsRepository.existsById(job.getId())));
+    finished.forEach(job -> assertEquals(0, countLines(job)));
+    assertTrue(jobsRepository.existsById(running.getId()));
+    assertEquals(1, countLines(running));
+    assertEquals(1, countLines(recent));
+  }
+
+  @Test
+  public void logs_of_finished_jobs_are_compressed_and_read_back_transparently() {
+
+    // arrange
+    Duration hour = Duration.ofHours(1);
+    List<Job> finished =
+        List.of(
+            job("complete", hour, "Hello", "World"),
+            job("error", hour, "Hello", "World"),
+            job("complete", hour, "Hello", "World"));
+    Job legacy = jobsRepository.save(Job.builder().status("complete").log("a\nb").build());
+    jdbcTemplate.update(
+        "UPDATE jobs SET updated_at = ? WHERE id = ?",
+        Timestamp.from(Instant.now().minus(hour)),
+        legacy.getId());
+    Job running = job("running", hour, "Hello");
+    Job recent = job("complete", Duration.ofMinutes(1), "Hello");
+
+    // act
+    JobRetentionReport report = jobRetentionService.compactAndPurge();
+    JobRetentionReport again = jobRetentionService.compactAndPurge();
+
+    // assert
+    long gzipped =
+        3 * JobLogGzip.compress("Hello\nWorld").length + JobLogGzip.compress("a\nb").length;
+    assertEquals(4, report.getCompactedJobs());
+    assertEquals(3 * 11 + 3, report.getCompactedBytesBefore());
+    assertEquals(gzipped, report.getCompactedBytesAfter());
+    assertEquals(3 * 11 + 3 - gzipped, report.getReclaimedBytes());
+    assertEquals(0, report.getPurgedJobs());
+    assertEquals(0, again.getCompactedJobs());
+
+    for (Job job : finished) {
+      assertEquals(0, countLines(job));
+      assertEquals(11L, stored(job).getLogLength());
+      assertEquals("Hello\nWorld", jobService.getJobLogs(job.getId()));
+      assertEquals(List.of("World"), jobService.getJobLogTail(job.getId(), 1).getLines());
+    }
+    assertNull(stored(legacy).getLog());
+    assertEquals("a\nb", jobService.getJobLogs(legacy.getId()));
+    assertNull(stored(running).getLogGz());
+    assertEquals(1, countLines(running));
+    assertNull(stored(recent).getLogGz());
+
+    List<JobSummary> summaries =
+        jobsRepository.findSummaries(null, null, null, null, PageRequest.of(0, 10));
+    assertEquals(
+        List.of(5L, 5L, 3L, 11L, 11L, 11L),
+        summaries.stream().map(JobSummary::getLogLength).toList());
+  }
+
+  @Test
+  public void a_retention_of_zero_days_keeps_every_job() {
+
+    // arrange
+    Job old = job("complete", Duration.ofDays(365), "Hello");
+    ReflectionTestUtils.setField(jobRetentionService, "retentionDays", 0);
+
+    try {
+      // act
+      JobRetentionReport report = jobRetentionService.compactAndPurge();
+
+      // assert
+      assertEquals(0, report.getPurgedJobs());
+      assertEquals(1, report.getCompactedJobs());
+      assertEquals("Hello", jobService.getJobLogs(old.getId()));
+    } finally {
+      ReflectionTestUtils.setField(jobRetentionService, "retentionDays", 30);
+    }
+  }
+
+  @Test
+  public void a_log_compacted_by_another_instance_meanwhile_is_not_counted_twice() {
+
+    // arrange
+    Job job = job("complete", Duration.ofHours(1), "Hello");
+    doAnswer(
+            invocation -> {
+              Object log = invocation.callRealMethod();
+              // another instance stores the compressed log first
+              jdbcTemplate.update(
+                  "UPDATE jobs SET log_gz = ?, log_length = 5 WHERE id = ?",
+                  JobLogGzip.compress("Hello"),
+                  job.getId());
+              return log;
+            })
+        .when(jobService)
+        .getJobLogs(anyLong());
+
+    // act
+    JobRetentionReport report = jobRetentionService.compactAndPurge();
+
+    // assert
+    assertEquals(0, report.getCompactedJobs());
+    assertEquals(0, report.getReclaimedBytes());
+    assertEquals("Hello", jobService.getJobLogs(job.getId()));
+  }
+
+  @Test
+  public void jobs_that_cannot_be_deleted_do_not_stop_the_purge() {
+
+    // arrange
+    Job old = job("complete", Duration.ofDays(31), "Hello");
+    job("complete", Duration.ofDays(31), "Hello");
+    job("complete", Duration.ofDays(31), "Hello");
+    // e.g. another instance holds their rows; they are tried again on the next run
+    doReturn(0).when(jobsRepository).deleteByIds(any());
+
+    // act
+    JobRetentionReport report = jobRetentionService.compactAndPurge();
+
+    // assert
+    assertEquals(0, report.getPurgedJobs());
+    assertEquals(3, report.getCompactedJobs());
+    assertEquals("Hello", jobService.getJobLogs(old.getId()));
+  }
+
+  @Test
+  public void a_job_deleted_before_its_log_is_compacted_is_skipped() {
+
+    // arrange
+    Job deleted = job("complete", Duration.ofHours(1), "Hello");
+    Job job = job("complete", Duration.ofHours(1), "Hello");
+    // as when another instance purges the job after it was listed
+    doReturn(Optional.empty()).when(jobsRepository).lockById(deleted.getId());
+
+    // act
+    JobRetentionReport report = jobRetentionService.compactAndPurge();
+
+    // assert
+    assertEquals(1, report.getCompactedJobs());
+    verify(jobService, never()).getJobLogs(deleted.getId());
+    assertNull(stored(deleted).getLogGz());
+    assertEquals(5L, stored(job).getLogLength());
+  }
+
+  @Test
+  public void the_scheduled_run_compacts_and_purges() {
+
+    // arrange
+    Job old = job("complete", Duration.ofDays(31), "Hello");
+    Job finished = job("complete", Duration.ofHours(1), "Hello");
+
+    // act
+    jobRetentionService.scheduledCompactAndPurge();
+
+    // assert
+    assertFalse(jobsRepository.existsById(old.getId()));
+    assertEquals(5L, stored(finished).getLogLength());
+  }
+}
@@ -0,0 +1,334 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.jobs.TestJobFactory;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// every claim and update of a schedule commits on its own, so the tests must not run in one
+@DataJpaTest
+@AutoConfigureJson
+@ActiveProfiles("test")
+@Import({
+  JobScheduler.class,
+  JobQueue.class,
+  JobService.class,
+  JobExecutor.class,
+  JobLogStreams.class,
+  TestJobFactory.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JobSchedulerTests {
+
+  private static final Map<String, Object> PARAMS = Map.of("fail", false, "sleepMs", 0);
+
+  @Autowired JobScheduler jobScheduler;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoSpyBean JobSchedulesRepository jobSchedulesRepository;
+
+  @MockitoBean CurrentUserService currentUserService;
+
+  @MockitoBean WiremockService wiremockService;
+
+  @BeforeEach
+  public void deleteSchedulesAndJobs() {
+    jobSchedulesRepository.deleteAll();
+    jobLogLinesRepository.deleteAll();
+    jobsRepository.deleteAll();
+  }
+
+  // the jobs run in-process in the tests; let them finish before the next test deletes them
+  @AfterEach
+  public void awaitJobs() {
+    await()
+        .atMost(10, SECONDS)
+        .until(
+            () ->
+                jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM jobs WHERE status IN ('queued', 'running')",
+                        Long.class)
+                    == 0);
+  }
+
+  private JobSchedule schedule(String name) throws Exception {
+    return jobScheduler.createSchedule(name, "0 0 3 * * *", TestJobFactory.TYPE, PARAMS);
+  }
+
+  private JobSchedule stored(JobSchedule schedule) {
+    return jobSchedulesRepository.findById(schedule.getId()).get();
+  }
+
+  // make the next run of a schedule a minute ago
+  private ZonedDateTime due(JobSchedule schedule) {
+    jdbcTemplate.update(
+        "UPDATE job_schedules SET next_run_at = ? WHERE id = ?",
+        Timestamp.from(Instant.now().minus(Duration.ofMinutes(1))),
+        schedule.getId());
+    return stored(schedule).getNextRunAt();
+  }
+
+  @Test
+  public void a_new_schedule_is_stored_with_its_first_run() throws Exception {
+
+    // act
+    JobSchedule schedule = schedule("nightly");
+    JobSchedule noParams =
+        jobScheduler.createSchedule("hourly", "0 0 * * * *", TestJobFactory.TYPE, null);
+
+    // assert
+    assertEquals("nightly", stored(schedule).getName());
+    assertEquals("0 0 3 * * *", stored(schedule).getCron());
+    assertEquals(TestJobFactory.TYPE, stored(schedule).getType());
+    assertEquals(PARAMS, mapper.readValue(stored(schedule).getParams(), Map.class));
+    assertFalse(stored(schedule).getPaused());
+    ZonedDateTime nextRunAt = stored(schedule).getNextRunAt();
+    assertTrue(nextRunAt.isAfter(ZonedDateTime.now()));
+    assertTrue(nextRunAt.isBefore(ZonedDateTime.now().plusDays(1).plusMinutes(1)));
+    assertEquals(3, nextRunAt.withZoneSameInstant(ZoneId.of("America/Los_Angeles")).getHour());
+    assertNull(stored(schedule).getLastJobId());
+    assertEquals("{}", stored(noParams).getParams());
+    assertEquals(
+        List.of("hourly", "nightly"),
+        jobScheduler.getSchedules().stream().map(JobSchedule::getName).toList());
+  }
+
+  @Test
+  public void a_schedule_that_cannot_run_is_rejected() throws Exception {
+
+    // arrange
+    schedule("nightly");
+
+    // act
+    InvalidRequestException duplicate =
+        assertThrows(InvalidRequestException.class, () -> schedule("nightly"));
+    InvalidRequestException invalid =
+        assertThrows(
+            InvalidRequestException.class,
+            () -> jobScheduler.createSchedule("a", "every night", TestJobFactory.TYPE, PARAMS));
+    InvalidRequestException never =
+        assertThrows(
+            InvalidRequestException.class,
+            () -> jobScheduler.createSchedule("b", "0 0 0 30 2 *", TestJobFactory.TYPE, PARAMS));
+    InvalidRequestException noFactory =
+        assertThrows(
+            InvalidRequestException.class,
+            () -> jobScheduler.createSchedule("c", "0 0 3 * * *", "NoSuchJob", PARAMS));
+
+    // assert
+    assertEquals("There is already a schedule named nightly", duplicate.getMessage());
+    assertEquals(
+        "Invalid cron expression: Cron expression must consist of 6 fields (found 2 in \"every"
+            + " night\")",
+        invalid.getMessage());
+    assertEquals("Cron expression 0 0 0 30 2 * never fires", never.getMessage());
+    assertEquals("No JobFactory for job type NoSuchJob", noFactory.getMessage());
+    assertEquals(1, jobSchedulesRepository.count());
+  }
+
+  @Test
+  public void a_due_schedule_queues_its_job_and_moves_on_to_its_next_tick() throws Exception {
+
+    // arrange
+    JobSchedule schedule = schedule("nightly");
+    JobSchedule notDue = schedule("later");
+    ZonedDateTime tick = due(schedule);
+
+    // act
+    jobScheduler.fireDueSchedules();
+    jobScheduler.fireDueSchedules();
+
+    // assert
+    assertEquals(1, jobsRepository.count());
+    Job job = jobsRepository.findAll().iterator().next();
+    assertEquals(job.getId(), stored(schedule).getLastJobId());
+    assertEquals(tick.toInstant(), stored(schedule).getLastRunAt().toInstant());
+    assertTrue(stored(schedule).getNextRunAt().isAfter(ZonedDateTime.now()));
+    assertNull(stored(notDue).getLastJobId());
+  }
+
+  @Test
+  public void a_tick_claimed_by_another_instance_is_not_fired_again() throws Exception {
+
+    // arrange
+    JobSchedule schedule = schedule("nightly");
+    ZonedDateTime tick = due(schedule);
+    ZonedDateTime next = ZonedDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+    List<JobSchedule> dueSchedules = jobSchedulesRepository.findDue(ZonedDateTime.now());
+    // another instance claims the same tick after this one has found it due
+    assertEquals(1, jobSchedulesRepository.claimTick(schedule.getId(), tick, next));
+    doReturn(dueSchedules).when(jobSchedulesRepository).findDue(any());
+
+    // act
+    jobScheduler.fireDueSchedules();
+
+    // assert
+    assertEquals(0, jobsRepository.count());
+    assertEquals(next.toInstant(), stored(schedule).getNextRunAt().toInstant());
+    assertNull(stored(schedule).getLastJobId());
+  }
+
+  @Test
+  public void a_schedule_that_never_fires_again_is_paused_after_its_last_tick() throws Exception {
+
+    // arrange
+    JobSchedule schedule = schedule("nightly");
+    ZonedDateTime tick = due(schedule);
+    // 30 February: a tick stored before the cron expression changed, with none after it
+    jdbcTemplate.update(
+        "UPDATE job_schedules SET cron = '0 0 0 30 2 *' WHERE id = ?", schedule.getId());
+
+    // act
+    jobScheduler.fireDueSchedules();
+    jobScheduler.fireDueSchedules();
+
+    // assert
+    assertEquals(1, jobsRepository.count());
+    Job job = jobsRepository.findAll().iterator().next();
+    assertEquals(job.getId(), stored(schedule).getLastJobId());
+    assertEquals(tick.toInstant(), stored(schedule).getLastRunAt().toInstant());
+    assertTrue(stored(schedule).getPaused());
+    assertNull(stored(schedule).getNextRunAt());
+    assertEquals(
+        "Cron expression 0 0 0 30 2 * never fires",
+        assertThrows(
+                InvalidRequestException.class, () -> jobScheduler.resumeSchedule(schedule.getId()))
+            .getMessage());
+  }
+
+  @Test
+  public void a_schedule_that_cannot_be_fired_does_not_stop_the_others() throws Exception {
+
+    // arrange
+    JobSchedule gone = schedule("gone");
+    JobSchedule schedule = schedule("nightly");
+    jdbcTemplate.update("UPDATE job_schedules SET type = 'NoSuchJob' WHERE id = ?", gone.getId());
+    due(gone);
+    due(schedule);
+
+    // act
+    jobScheduler.fireDueSchedules();
+
+    // assert
+    assertEquals(1, jobsRepository.count());
+    assertNull(stored(gone).getLastJobId());
+    assertTrue(stored(gone).getNextRunAt().isAfter(ZonedDateTime.now()));
+    Job job = jobsRepository.findAll().iterator().next();
+    assertEquals(job.getId(), stored(schedule).getLastJobId());
+  }
+
+  @Test
+  public void a_paused_schedule_does_not_fire_until_it_is_resumed() throws Exception {
+
+    // arrange
+    JobSchedule schedule = schedule("nightly");
+
+    // act
+    JobSchedule paused = jobScheduler.pauseSchedule(schedule.getId());
+    due(schedule);
+    jobScheduler.fireDueSchedules();
+
+    // assert
+    assertTrue(paused.getPaused());
+    assertEquals(0, jobsRepository.count());
+
+    // act
+    JobSchedule resumed = jobScheduler.resumeSchedule(schedule.getId());
+    jobScheduler.fireDueSchedules();
+
+    // assert
+    assertFalse(resumed.getPaused());
+    assertTrue(resumed.getNextRunAt().isAfter(ZonedDateTime.now()));
+    assertEquals(0, jobsRepository.count());
+  }
+
+  @Test
+  public void a_triggered_schedule_queues_its_job_at_once_even_when_paused() throws Exception {
+
+    // arrange
+    JobSchedule schedule = schedule("nightly");
+    jobScheduler.pauseSchedule(schedule.getId());
+
+    // act
+    Job job = jobScheduler.triggerSchedule(schedule.getId());
+
+    // assert
+    assertEquals(1, jobsRepository.count());
+    assertEquals(job.getId(), stored(schedule).getLastJobId());
+    assertTrue(stored(schedule).getPaused());
+    assertNull(stored(schedule).getNextRunAt());
+  }
+
+  @Test
+  public void a_deleted_schedule_is_gone_but_its_jobs_are_kept() throws Exception {
+
+    // arrange
+    JobSchedule schedule = schedule("nightly");
+    jobScheduler.triggerSchedule(schedule.getId());
+
+    // act
+    jobScheduler.deleteSchedule(schedule.getId());
+
+    // assert
+    assertEquals(0, jobSchedulesRepository.count());
+    assertEquals(1, jobsRepository.count());
+  }
+
+  @Test
+  public void a_schedule_that_does_not_exist_is_not_found() {
+
+    // assert
+    assertEquals(
+        "JobSchedule with id 7 not found",
+        assertThrows(EntityNotFoundException.class, () -> jobScheduler.pauseSchedule(7L))
+            .getMessage());
+    assertThrows(EntityNotFoundException.class, () -> jobScheduler.resumeSchedule(7L));
+    assertThrows(EntityNotFoundException.class, () -> jobScheduler.triggerSchedule(7L));
+    assertThrows(EntityNotFoundException.class, () -> jobScheduler.deleteSchedule(7L));
+  }
+}
@@ -0,0 +1,368 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobRejectedException;
+import edu.ucsb.cs156.example.jobs.TestJobFactory;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// the workers claim jobs in transactions of their own, so the tests must not run in one
+@DataJpaTest
+@AutoConfigureJson
+@ActiveProfiles("test")
+@Import({JobService.class, JobExecutor.class, JobLogStreams.class, TestJobFactory.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JobWorkerTests {
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired JobService jobService;
+
+  @Autowired TestJobFactory testJobFactory;
+
+  @Autowired ObjectMapper mapper;
+
+  @MockitoBean CurrentUserService currentUserService;
+
+  @MockitoBean WiremockService wiremockService;
+
+  private final List<JobExecutor> executors = new ArrayList<>();
+
+  @BeforeEach
+  public void deleteJobs() {
+    jobLogLinesRepository.deleteAll();
+    jobsRepository.deleteAll();
+  }
+
+  @AfterEach
+  public void shutdownExecutors() {
+    executors.forEach(JobExecutor::shutdown);
+  }
+
+  private JobExecutor executor(int maxConcurrency) {
+    JobExecutor jobExecutor = new JobExecutor("platform", maxConcurrency, 10);
+    executors.add(jobExecutor);
+    return jobExecutor;
+  }
+
+  private JobWorker worker(String workerId, JobExecutor jobExecutor) {
+    return JobWorker.builder()
+        .jdbcTemplate(jdbcTemplate)
+        .transactionTemplate(new TransactionTemplate(transactionManager))
+        .jobsRepository(jobsRepository)
+        .jobService(jobService)
+        .jobExecutor(jobExecutor)
+        .mapper(mapper)
+        .jobFactories(Map.of(TestJobFactory.TYPE, testJobFactory))
+        .workerId(workerId)
+        .leaseSeconds(60)
+        .maxAttempts(3)
+        .build();
+  }
+
+  private Job queue(String type, String params) {
+    return jobsRepository.save(Job.builder().status("queued").type(type).params(params).build());
+  }
+
+  private Job queueTestJob() {
+    return queue(TestJobFactory.TYPE, "{\"fail\":false,\"sleepMs\":50}");
+  }
+
+  private void expireLease(Job job, int attempts) {
+    jdbcTemplate.update(
+        """
+        UPDATE jobs SET status = 'running', lease_owner = 'stopped-worker', attempts = ?,
+          lease_expires_at = CURRENT_TIMESTAMP - INTERVAL '5' SECOND
+        WHERE id = ?
+        """,
+        attempts,
+        job.getId());
+  }
+
+  private int countJobs(String status) {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM jobs WHERE status = ?", Integer.class, status);
+  }
+
+  // a worker releases the lease of a job just after its final status is saved
+  private int countReleasedJobs(String status) {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM jobs WHERE status = ? AND lease_expires_at IS NULL",
+        Integer.class,
+        status);
+  }
+
+  private List<String> logLines(Job job) {
+    return jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(job.getId()).stream()
+        .map(JobLogLine::getText)
+        .toList();
+  }
+
+  @Test
+  public void two_workers_share_the_queued_jobs_and_run_each_of_them_once() {
+
+    // arrange
+    List<Job> jobs = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      jobs.add(queueTestJob());
+    }
+    JobWorker workerA = worker("worker-a", executor(2));
+    JobWorker workerB = worker("worker-b", executor(2));
+
+    // act
+    await()
+        .atMost(30, SECONDS)
+        .until(
+            () -> {
+              workerA.poll();
+              workerB.poll();
+              return countReleasedJobs("complete") == jobs.size();
+            });
+
+    // assert
+    Set<String> owners = new HashSet<>();
+    for (Job job : jobs) {
+      Job stored = jobsRepository.findById(job.getId()).get();
+      assertEquals(1, stored.getAttempts());
+      assertNull(stored.getLeaseExpiresAt());
+      owners.add(stored.getLeaseOwner());
+      assertEquals(List.of("Hello World! from test job!", "Goodbye from test job!"), logLines(job));
+    }
+    assertEquals(Set.of("worker-a", "worker-b"), owners);
+  }
+
+  @Test
+  public void poll_claims_no_more_jobs_than_the_executor_has_free_slots() {
+
+    // arrange
+    for (int i = 0; i < 3; i++) {
+      queue(TestJobFactory.TYPE, "{\"fail\":false,\"sleepMs\":200}");
+    }
+    JobWorker worker = worker("worker-a", executor(2));
+
+    // act
+    int first = worker.poll();
+    int second = worker.poll();
+
+    // assert
+    assertEquals(2, first);
+    assertEquals(0, second);
+    assertEquals(1, countJobs("queued"));
+    await().atMost(10, SECONDS).until(() -> countReleasedJobs("complete") == 2);
+  }
+
+  @Test
+  public void a_job_the_executor_rejects_is_left_queued_for_the_next_poll() {
+
+    // arrange
+    Job job = queueTestJob();
+    JobExecutor jobExecutor = mock(JobExecutor.class);
+    when(jobExecutor.getFreeSlots()).thenReturn(1);
+    doThrow(new JobRejectedException(1, 0)).when(jobExecutor).submit(any(Runnable.class));
+
+    // act
+    int claimed = worker("worker-a", jobExecutor).poll();
+
+    // assert
+    assertEquals(1, claimed);
+    Job stored = jobsRepository.findById(job.getId()).get();
+    assertEquals("queued", stored.getStatus());
+    assertEquals(0, stored.getAttempts());
+    assertNull(stored.getLeaseOwner());
+    assertNull(stored.getLeaseExpiresAt());
+  }
+
+  @Test
+  public void a_job_of_a_type_without_a_factory_ends_as_an_error() {
+
+    // arrange
+    Job job = queue("NoSuchJob", "{}");
+    JobWorker worker = worker("worker-a", executor(1));
+
+    // act
+    worker.poll();
+
+    // assert
+    await().atMost(10, SECONDS).until(() -> countReleasedJobs("error") == 1);
+    assertEquals(List.of("No JobFactory for job type NoSuchJob"), logLines(job));
+  }
+
+  @Test
+  public void heartbeat_renews_the_leases_of_the_jobs_running_on_the_worker() {
+
+    // arrange
+    Job job = queueTestJob();
+    expireLease(job, 1);
+    JobWorker worker = worker("stopped-worker", executor(1));
+
+    // act
+    worker.heartbeat();
+
+    // assert
+    Job stored = jobsRepository.findById(job.getId()).get();
+    assertEquals("running", stored.getStatus());
+    assertEquals("stopped-worker", stored.getLeaseOwner());
+    assertTrue(stored.getLeaseExpiresAt().isAfter(ZonedDateTime.now().plusSeconds(30)));
+  }
+
+  @Test
+  public void a_job_whose_lease_expired_is_queued_again_and_run_by_another_worker() {
+
+    // arrange
+    Job job = queueTestJob();
+    expireLease(job, 1);
+    JobWorker worker = worker("worker-b", executor(1));
+
+    // act
+    worker.heartbeat();
+    worker.poll();
+
+    // assert
+    await().atMost(10, SECONDS).until(() -> countReleasedJobs("complete") == 1);
+    Job stored = jobsRepository.findById(job.getId()).get();
+    assertEquals("worker-b", stored.getLeaseOwner());
+    assertEquals(2, stored.getAttempts());
+    assertEquals(
+        List.of(
+            "Attempt 2 of 3: the last attempt was interrupted",
+            "Hello World! from test job!",
+            "Goodbye from test job!"),
+        logLines(job));
+  }
+
+  @Test
+  public void a_job_whose_lease_expired_on_its_last_attempt_is_marked_as_an_error() {
+
+    // arrange
+    Job job = queueTestJob();
+    expireLease(job, 3);
+    JobExecutor jobExecutor = mock(JobExecutor.class);
+    when(jobExecutor.getFreeSlots()).thenReturn(1);
+    JobWorker worker = worker("worker-b", jobExecutor);
+
+    // act
+    worker.heartbeat();
+    int claimed = worker.poll();
+
+    // assert
+    assertEquals(0, claimed);
+    verify(jobExecutor, never()).submit(any(Runnable.class));
+    Job stored = jobsRepository.findById(job.getId()).get();
+    assertEquals("error", stored.getStatus());
+    assertEquals(3, stored.getAttempts());
+    assertNull(stored.getLeaseExpiresAt());
+  }
+
+  @Test
+  public void recover_queues_again_the_jobs_interrupted_by_a_restart_and_resumes_them() {
+
+    // arrange
+    Job interrupted = queueTestJob();
+    Job lastAttempt = queueTestJob();
+    Job otherWorkers = queueTestJob();
+    String leaseToWorkerA =
+        """
+        UPDATE jobs SET status = 'running', lease_owner = ?, attempts = ?, checkpoint = ?,
+          lease_expires_at = CURRENT_TIMESTAMP + INTERVAL '60' SECOND
+        WHERE id = ?
+        """;
+    jdbcTemplate.update(leaseToWorkerA, "worker-a", 1, "step 1", interrupted.getId());
+    jdbcTemplate.update(leaseToWorkerA, "worker-a", 3, null, lastAttempt.getId());
+    jdbcTemplate.update(leaseToWorkerA, "worker-b", 1, null, otherWorkers.getId());
+    JobWorker restarted = worker("worker-a", executor(1));
+
+    // act
+    worker("worker-c", executor(1)).recover();
+    restarted.recover();
+    restarted.poll();
+
+    // assert
+    await().atMost(10, SECONDS).until(() -> countReleasedJobs("complete") == 1);
+    Job stored = jobsRepository.findById(interrupted.getId()).get();
+    assertEquals("worker-a", stored.getLeaseOwner());
+    assertEquals(2, stored.getAttempts());
+    assertEquals(
+        List.of(
+            "Attempt 2 of 3: the last attempt was interrupted",
+            "Resuming from checkpoint step 1",
+            "Hello World! from test job!",
+            "Goodbye from test job!"),
+        logLines(interrupted));
+    assertEquals("error", jobsRepository.findById(lastAttempt.getId()).get().getStatus());
+    assertEquals("running", jobsRepository.findById(otherWorkers.getId()).get().getStatus());
+  }
+
+  @Test
+  public void a_job_cancelled_while_queued_is_not_claimed() {
+
+    // arrange
+    Job queued = queueTestJob();
+    Job running = queueTestJob();
+    expireLease(running, 1);
+    Job finished = jobsRepository.save(Job.builder().status("complete").build());
+    JobWorker worker = worker("worker-a", executor(1));
+
+    // act
+    int cancelledQueued = jobsRepository.requestCancel(queued.getId());
+    int cancelledRunning = jobsRepository.requestCancel(running.getId());
+    int cancelledFinished = jobsRepository.requestCancel(finished.getId());
+    int claimed = worker.poll();
+
+    // assert
+    assertEquals(List.of(1, 1, 0), List.of(cancelledQueued, cancelledRunning, cancelledFinished));
+    assertEquals(0, claimed);
+    assertEquals("cancelled", jobsRepository.findById(queued.getId()).get().getStatus());
+    assertEquals("running", jobsRepository.findById(running.getId()).get().getStatus());
+    assertEquals("complete", jobsRepository.findById(finished.getId()).get().getStatus());
+    assertEquals(
+        Set.of(queued.getId(), running.getId()),
+        Set.copyOf(
+            jobsRepository.findCancelRequestedIds(
+                List.of(queued.getId(), running.getId(), finished.getId()))));
+    assertTrue(jobsRepository.existsByIdAndCancelRequestedTrue(running.getId()));
+    assertFalse(jobsRepository.existsByIdAndCancelRequestedTrue(finished.getId()));
+  }
+}
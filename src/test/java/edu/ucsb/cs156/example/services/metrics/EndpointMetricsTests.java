@@ -0,0 +1,154 @@
+package edu.ucsb.cs156.example.services.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.models.EndpointStats;
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EndpointMetricsTests {
+
+  static class SampleController {
+    public void list() {}
+
+    public void get(Long id) {}
+
+    public void get(String code, int limit) {}
+  }
+
+  private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+  private final Clock clock =
+      new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+          return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+          return this;
+        }
+
+        @Override
+        public Instant instant() {
+          return now;
+        }
+      };
+
+  private EndpointMetrics endpointMetrics;
+  private Method list;
+  private Method getById;
+  private Method getByCode;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    endpointMetrics = new EndpointMetrics(clock);
+    list = SampleController.class.getMethod("list");
+    getById = SampleController.class.getMethod("get", Long.class);
+    getByCode = SampleController.class.getMethod("get", String.class, int.class);
+  }
+
+  @Test
+  public void handlers_are_named_by_class_and_method_with_parameters_when_overloaded() {
+    assertEquals("SampleController.list", EndpointMetrics.nameOf(list));
+    assertEquals("SampleController.get(Long)", EndpointMetrics.nameOf(getById));
+    assertEquals("SampleController.get(String,int)", EndpointMetrics.nameOf(getByCode));
+  }
+
+  @Test
+  public void stats_are_reported_per_handler() {
+    // arrange
+    endpointMetrics.record(list, 2_000_000, false);
+    endpointMetrics.record(list, 4_000_000, true);
+    endpointMetrics.record(getById, 500_000, false);
+    now = now.plusSeconds(2);
+
+    // act
+    List<EndpointStats> stats = endpointMetrics.getStats();
+
+    // assert
+    EndpointStats expectedGet =
+        EndpointStats.builder()
+            .handler("SampleController.get(Long)")
+            .count(1)
+            .errors(0)
+            .throughputPerSecond(0.5)
+            .meanMs(0.5)
+            .p50Ms(0.5)
+            .p95Ms(0.5)
+            .p99Ms(0.5)
+            .maxMs(0.5)
+            .build();
+    EndpointStats expectedList =
+        EndpointStats.builder()
+            .handler("SampleController.list")
+            .count(2)
+            .errors(1)
+            .throughputPerSecond(1.0)
+            .meanMs(3.0)
+            .p50Ms(2.047)
+            .p95Ms(4.0)
+            .p99Ms(4.0)
+            .maxMs(4.0)
+            .build();
+    assertEquals(List.of(expectedGet, expectedList), stats);
+  }
+
+  @Test
+  public void prometheus_text_has_latency_summary_max_and_errors() {
+    // arrange
+    endpointMetrics.record(list, 4_000_000, true);
+
+    // act
+    String text = endpointMetrics.toPrometheus();
+
+    // assert
+    String handler = "{handler=\"SampleController.list\"";
+    assertTrue(text.contains("# TYPE http_server_handler_seconds summary\n"));
+    assertTrue(
+        text.contains("http_server_handler_seconds" + handler + ",quantile=\"0.5\"} 0.004\n"));
+    assertTrue(text.contains("http_server_handler_seconds_sum" + handler + "} 0.004\n"));
+    assertTrue(text.contains("http_server_handler_seconds_count" + handler + "} 1\n"));
+    assertTrue(text.contains("http_server_handler_seconds_max" + handler + "} 0.004\n"));
+    assertTrue(text.contains("http_server_handler_errors_total" + handler + "} 1\n"));
+  }
+
+  @Test
+  public void a_new_instance_has_no_stats() {
+    assertEquals(List.of(), new EndpointMetrics().getStats());
+  }
+
+  @Test
+  public void a_handler_whose_first_call_is_not_yet_recorded_has_a_mean_of_zero() {
+    // arrange
+    LatencyHistogram histogram = new LatencyHistogram("SampleController.list", 0);
+
+    // act
+    EndpointStats stats = EndpointMetrics.toStats(histogram, 1000);
+
+    // assert
+    assertEquals(0, stats.getCount());
+    assertEquals(0.0, stats.getMeanMs());
+    assertEquals(0.0, stats.getThroughputPerSecond());
+  }
+
+  @Test
+  public void reset_discards_all_stats() {
+    // arrange
+    endpointMetrics.record(list, 1_000, false);
+
+    // act
+    endpointMetrics.reset();
+
+    // assert
+    assertEquals(List.of(), endpointMetrics.getStats());
+  }
+}
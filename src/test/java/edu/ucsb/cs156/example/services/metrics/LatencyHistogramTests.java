@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.services.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTests {
+
+  @Test
+  public void small_values_get_a_bucket_each() {
+    for (int value = 0; value < 16; value++) {
+      assertEquals(value, LatencyHistogram.bucketIndex(value));
+      assertEquals(value, LatencyHistogram.bucketUpperBound(value));
+    }
+  }
+
+  @Test
+  public void each_power_of_two_is_split_into_eight_buckets() {
+    // 16..31 is split into buckets of width 2
+    assertEquals(16, LatencyHistogram.bucketIndex(16));
+    assertEquals(16, LatencyHistogram.bucketIndex(17));
+    assertEquals(17, LatencyHistogram.bucketIndex(18));
+    assertEquals(17L, LatencyHistogram.bucketUpperBound(16));
+    assertEquals(31L, LatencyHistogram.bucketUpperBound(23));
+    assertEquals(24, LatencyHistogram.bucketIndex(32));
+  }
+
+  @Test
+  public void bucket_upper_bound_is_within_an_eighth_of_every_value_in_it() {
+    for (long value = 1; value < (1L << 40); value = value * 3 + 1) {
+      long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+      assertTrue(upperBound >= value);
+      assertTrue(upperBound <= value + value / 8);
+    }
+  }
+
+  @Test
+  public void out_of_range_values_are_clamped() {
+    assertEquals(0, LatencyHistogram.bucketIndex(-5));
+    assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void empty_histogram_reports_zeros() {
+    // arrange
+    LatencyHistogram histogram = new LatencyHistogram("empty", 1000L);
+
+    // act
+    long[] percentiles = histogram.percentilesMicros(50, 99);
+
+    // assert
+    assertArrayEquals(new long[] {0, 0}, percentiles);
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMaxMicros());
+    assertEquals("empty", histogram.getName());
+    assertEquals(1000L, histogram.getStartedAtMillis());
+  }
+
+  @Test
+  public void percentiles_count_and_errors_are_recorded() {
+    // arrange
+    LatencyHistogram histogram = new LatencyHistogram("h", 0L);
+
+    // act
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i, i > 98);
+    }
+
+    // assert
+    // the 99th percentile falls in the 96..103 bucket, and is capped at the max
+    assertArrayEquals(
+        new long[] {1, 51, 95, 100, 100}, histogram.percentilesMicros(0, 50, 95, 99, 100));
+    assertEquals(100, histogram.getCount());
+    assertEquals(2, histogram.getErrors());
+    assertEquals(5050, histogram.getTotalMicros());
+    assertEquals(100, histogram.getMaxMicros());
+  }
+
+  @Test
+  public void concurrent_recording_loses_no_counts() throws Exception {
+    // arrange
+    LatencyHistogram histogram = new LatencyHistogram("h", 0L);
+    List<Thread> threads = new ArrayList<>();
+
+    // act
+    for (int t = 0; t < 8; t++) {
+      threads.add(
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    for (int i = 0; i < 10_000; i++) {
+                      histogram.record(i % 1000, false);
+                    }
+                  }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // assert
+    assertEquals(80_000, histogram.getCount());
+    assertEquals(999, histogram.getMaxMicros());
+  }
+}
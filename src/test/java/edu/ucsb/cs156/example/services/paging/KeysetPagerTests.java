@@ -0,0 +1,306 @@
+package edu.ucsb.cs156.example.services.paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.InvalidRequestException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.PageQuery;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(KeysetPager.class)
+public class KeysetPagerTests {
+
+  private static final Set<String> ARTICLE_FIELDS = Set.of("title", "email", "dateAdded");
+  private static final Set<String> ORGANIZATION_FIELDS = Set.of("orgTranslationShort", "inactive");
+
+  @Autowired KeysetPager keysetPager;
+
+  @Autowired ArticleRepository articleRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockitoBean WiremockService wiremockService;
+
+  private Article b1;
+  private Article none2;
+  private Article a3;
+  private Article b4;
+  private Article none5;
+
+  @BeforeEach
+  public void saveArticles() {
+    b1 = save("b", "b@ucsb.edu", LocalDateTime.parse("2025-01-01T00:00:00"));
+    none2 = save(null, "a@ucsb.edu", LocalDateTime.parse("2025-01-02T00:00:00"));
+    a3 = save("a", "b@ucsb.edu", LocalDateTime.parse("2025-01-03T00:00:00"));
+    b4 = save("b", "a@ucsb.edu", LocalDateTime.parse("2025-01-04T00:00:00"));
+    none5 = save(null, "b@ucsb.edu", LocalDateTime.parse("2025-01-05T00:00:00"));
+  }
+
+  private Article save(String title, String email, LocalDateTime dateAdded) {
+    return articleRepository.save(
+        Article.builder()
+            .title(title)
+            .url("https://example.org")
+            .explanation("explanation")
+            .email(email)
+            .dateAdded(dateAdded)
+            .build());
+  }
+
+  /** Follow nextCursor from the first page to the last, and return the ids of all the rows */
+  private List<Long> walk(PageQuery.PageQueryBuilder query) {
+    List<Long> ids = new ArrayList<>();
+    String cursor = null;
+    do {
+      KeysetPage<Article> page =
+          keysetPager.page(Article.class, ARTICLE_FIELDS, query.cursor(cursor).build());
+      page.getContent().forEach(article -> ids.add(article.getId()));
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    return ids;
+  }
+
+  private List<Long> ids(Article... articles) {
+    return List.of(articles).stream().map(Article::getId).toList();
+  }
+
+  @Test
+  public void pages_are_sorted_by_id_by_default() {
+
+    // act
+    KeysetPage<Article> first =
+        keysetPager.page(Article.class, ARTICLE_FIELDS, PageQuery.builder().size(2).build());
+    KeysetPage<Article> second =
+        keysetPager.page(
+            Article.class,
+            ARTICLE_FIELDS,
+            PageQuery.builder().size(2).cursor(first.getNextCursor()).build());
+
+    // assert
+    assertEquals(List.of(b1, none2), first.getContent());
+    assertNotNull(first.getNextCursor());
+    assertEquals(List.of(a3, b4), second.getContent());
+    assertEquals(ids(b1, none2, a3, b4, none5), walk(PageQuery.builder().size(2)));
+  }
+
+  @Test
+  public void the_last_page_has_no_cursor() {
+
+    // act
+    KeysetPage<Article> page =
+        keysetPager.page(Article.class, ARTICLE_FIELDS, PageQuery.builder().build());
+
+    // assert
+    assertEquals(5, page.getContent().size());
+    assertNull(page.getNextCursor());
+  }
+
+  @Test
+  public void pages_can_be_sorted_by_id_descending() {
+    assertEquals(
+        ids(none5, b4, a3, none2, b1),
+        walk(PageQuery.builder().sort("id").direction("desc").size(2)));
+  }
+
+  @Test
+  public void pages_are_sorted_by_the_sort_field_then_id_with_nulls_last() {
+    assertEquals(
+        ids(a3, b1, b4, none2, none5),
+        walk(PageQuery.builder().sort("title").direction("asc").size(2)));
+  }
+
+  @Test
+  public void descending_pages_have_nulls_first() {
+    assertEquals(
+        ids(none5, none2, b4, b1, a3),
+        walk(PageQuery.builder().sort("title").direction("desc").size(2)));
+  }
+
+  @Test
+  public void page_size_is_at_least_one_and_at_most_the_maximum() {
+    assertEquals(
+        1,
+        keysetPager
+            .page(Article.class, ARTICLE_FIELDS, PageQuery.builder().size(0).build())
+            .getContent()
+            .size());
+    for (int i = 0; i < KeysetPager.MAX_PAGE_SIZE; i++) {
+      save("title " + i, "c@ucsb.edu", LocalDateTime.parse("2025-02-01T00:00:00"));
+    }
+    KeysetPage<Article> page =
+        keysetPager.page(Article.class, ARTICLE_FIELDS, PageQuery.builder().size(10000).build());
+    assertEquals(KeysetPager.MAX_PAGE_SIZE, page.getContent().size());
+    assertNotNull(page.getNextCursor());
+  }
+
+  @Test
+  public void filters_narrow_the_rows() {
+    assertEquals(ids(none2, b4), walk(PageQuery.builder().filter(List.of("email:eq:a@ucsb.edu"))));
+    assertEquals(
+        ids(b1, none2),
+        walk(PageQuery.builder().filter(List.of("dateAdded:lt:2025-01-03T00:00:00"))));
+    assertEquals(
+        ids(b1, none2, a3),
+        walk(PageQuery.builder().filter(List.of("dateAdded:lte:2025-01-03T00:00:00"))));
+    assertEquals(
+        ids(b4, none5),
+        walk(PageQuery.builder().filter(List.of("dateAdded:gt:2025-01-03T00:00:00"))));
+    assertEquals(
+        ids(a3, b4),
+        walk(
+            PageQuery.builder()
+                .filter(
+                    List.of(
+                        "dateAdded:gte:2025-01-03T00:00:00", "dateAdded:lt:2025-01-05T00:00:00"))));
+    assertEquals(ids(a3), walk(PageQuery.builder().filter(List.of("id:eq:" + a3.getId()))));
+  }
+
+  @Test
+  public void entities_keyed_by_a_string_can_be_paged_and_filtered_on_booleans() {
+
+    // arrange
+    for (int i = 0; i < 5; i++) {
+      ucsbOrganizationRepository.save(
+          UCSBOrganization.builder()
+              .orgCode("ORG" + i)
+              .orgTranslationShort("short " + i % 2)
+              .orgTranslation("translation")
+              .inactive(i == 0)
+              .build());
+    }
+    List<String> orgCodes = new ArrayList<>();
+    String cursor = null;
+
+    // act
+    do {
+      KeysetPage<UCSBOrganization> page =
+          keysetPager.page(
+              UCSBOrganization.class,
+              ORGANIZATION_FIELDS,
+              PageQuery.builder()
+                  .sort("orgTranslationShort")
+                  .filter(List.of("inactive:eq:false"))
+                  .cursor(cursor)
+                  .size(1)
+                  .build());
+      page.getContent().forEach(organization -> orgCodes.add(organization.getOrgCode()));
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+
+    // assert
+    assertEquals(List.of("ORG2", "ORG4", "ORG1", "ORG3"), orgCodes);
+    assertEquals(
+        List.of("ORG0"),
+        keysetPager
+            .page(
+                UCSBOrganization.class,
+                ORGANIZATION_FIELDS,
+                PageQuery.builder().filter(List.of("inactive:eq:true")).build())
+            .getContent()
+            .stream()
+            .map(UCSBOrganization::getOrgCode)
+            .toList());
+  }
+
+  private String invalid(PageQuery query) {
+    return assertThrows(
+            InvalidRequestException.class,
+            () -> keysetPager.page(Article.class, ARTICLE_FIELDS, query))
+        .getMessage();
+  }
+
+  @Test
+  public void only_the_given_fields_can_be_sorted_and_filtered_on() {
+    assertEquals(
+        "Cannot sort or filter on url; use one of [dateAdded, email, title]",
+        invalid(PageQuery.builder().sort("url").build()));
+    assertEquals(
+        "Cannot sort or filter on explanation; use one of [dateAdded, email, title]",
+        invalid(PageQuery.builder().filter(List.of("explanation:eq:x")).build()));
+  }
+
+  @Test
+  public void fields_of_unsupported_types_cannot_be_sorted_on() {
+    InvalidRequestException e =
+        assertThrows(
+            InvalidRequestException.class,
+            () ->
+                keysetPager.page(
+                    Job.class, Set.of("createdAt"), PageQuery.builder().sort("createdAt").build()));
+    assertEquals("Cannot sort or filter on createdAt, which is a ZonedDateTime", e.getMessage());
+  }
+
+  @Test
+  public void direction_must_be_asc_or_desc() {
+    assertEquals(
+        "direction must be asc or desc, not up",
+        invalid(PageQuery.builder().direction("up").build()));
+  }
+
+  @Test
+  public void malformed_filters_are_rejected() {
+    assertEquals(
+        "Filter title is not of the form field:op:value",
+        invalid(PageQuery.builder().filter(List.of("title")).build()));
+    assertEquals(
+        "Filter operator must be eq, lt, lte, gt or gte, not ne",
+        invalid(PageQuery.builder().filter(List.of("title:ne:a")).build()));
+    assertEquals(
+        "Invalid value seven for id",
+        invalid(PageQuery.builder().filter(List.of("id:eq:seven")).build()));
+    assertEquals(
+        "Invalid value yesterday for dateAdded",
+        invalid(PageQuery.builder().filter(List.of("dateAdded:lt:yesterday")).build()));
+    assertThrows(
+        InvalidRequestException.class,
+        () ->
+            keysetPager.page(
+                UCSBOrganization.class,
+                ORGANIZATION_FIELDS,
+                PageQuery.builder().filter(List.of("inactive:eq:yes")).build()));
+  }
+
+  @Test
+  public void malformed_cursors_are_rejected() {
+    String titleCursor =
+        keysetPager
+            .page(Article.class, ARTICLE_FIELDS, PageQuery.builder().sort("title").size(1).build())
+            .getNextCursor();
+    String idCursor =
+        keysetPager
+            .page(Article.class, ARTICLE_FIELDS, PageQuery.builder().size(1).build())
+            .getNextCursor();
+
+    // a cursor from a page sorted by title cannot be used when sorting by id, and vice versa
+    assertEquals(
+        "Invalid cursor " + titleCursor, invalid(PageQuery.builder().cursor(titleCursor).build()));
+    assertEquals(
+        "Invalid cursor " + idCursor,
+        invalid(PageQuery.builder().sort("title").cursor(idCursor).build()));
+    assertEquals("Invalid cursor %%%", invalid(PageQuery.builder().cursor("%%%").build()));
+    assertEquals(
+        "Invalid cursor MQ.%%%",
+        invalid(PageQuery.builder().sort("title").cursor("MQ.%%%").build()));
+  }
+}
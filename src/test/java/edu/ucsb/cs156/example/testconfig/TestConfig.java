@@ -3,12 +3,15 @@ package edu.ucsb.cs156.example.testconfig;
 import edu.ucsb.cs156.example.config.SecurityConfig;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.cache.CacheRegistry;
+import edu.ucsb.cs156.example.services.cache.TableCache;
+import edu.ucsb.cs156.example.services.cache.TableVersions;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 
 @TestConfiguration
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, CacheRegistry.class, TableVersions.class, TableCache.class})
 public class TestConfig {
 
   @Bean